@@ -286,6 +286,7 @@ CTX.INPUT['executors'] = """
  deleteexecutor.cpp
  executorfactory.cpp
  executorutil.cpp
+ hashjoinexecutor.cpp
  indexcountexecutor.cpp
  indexscanexecutor.cpp
  insertexecutor.cpp
@@ -328,6 +329,7 @@ CTX.INPUT['plannodes'] = """
  abstractscannode.cpp
  aggregatenode.cpp
  deletenode.cpp
+ hashjoinnode.cpp
  indexscannode.cpp
  indexcountnode.cpp
  tablecountnode.cpp
@@ -497,6 +499,8 @@ if whichtests in ("${eetestsuite}", "executors"):
     MergeReceiveExecutorTest
     PartitionByExecutorTest
     TestGeneratedPlans
+    HashJoinExecutorTest
+    HashJoinBenchmark
     """
 
 if whichtests in ("${eetestsuite}", "expressions"):
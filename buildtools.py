@@ -741,7 +741,7 @@ def runTests(CTX):
         tests += [(dir, TEST_PREFIX + "/" + dir + "/" + x) for x in input]
     successes = 0
     failures = 0
-    noValgrindTests = [ "CompactionTest", "CopyOnWriteTest", "harness_test", "serializeio_test" ]
+    noValgrindTests = [ "CompactionTest", "CopyOnWriteTest", "harness_test", "serializeio_test", "HashJoinBenchmark" ]
     for dir, test in tests:
         # We expect valgrind failures in all tests in memleaktests
         # except for the test named no_losses.
@@ -23,6 +23,7 @@
 #include <cassert>
 #include <functional>
 #include <iostream>
+#include <pthread.h>
 #include <stdio.h>
 #include <string.h>
 #include "catalog.h"
@@ -81,20 +82,6 @@ void Catalog::purgeDeletions() {
     m_deletions.clear();
 }
 
-void Catalog::execute(const string &stmts) {
-    cleanupExecutionBookkeeping();
-
-    vector<string> lines = MiscUtil::splitString(stmts, '\n');
-    for (int32_t i = 0; i < lines.size(); ++i) {
-        executeOne(lines[i]);
-    }
-
-    if (m_unresolved.size() > 0) {
-        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
-                                      "failed to execute catalog");
-    }
-}
-
 /*
  * Produce constituent elements of catalog command.
  */
@@ -130,13 +117,71 @@ static void parse(const string &stmt,
     // cout << "B: " << child << endl;
 }
 
+CatalogCommands::CatalogCommands(const string &stmts) : m_stmts(stmts), m_holders(0) {
+    vector<string> lines = MiscUtil::splitString(stmts, '\n');
+    m_commands.resize(lines.size());
+    for (size_t i = 0; i < lines.size(); ++i) {
+        Command &cmd = m_commands[i];
+        parse(lines[i], cmd.command, cmd.ref, cmd.coll, cmd.child);
+    }
+}
+
+// The most recently parsed payload that still has a holder, if any.
+static pthread_mutex_t s_sharedCommandsLock = PTHREAD_MUTEX_INITIALIZER;
+static CatalogCommands *s_sharedCommands = NULL;
+
+namespace {
+struct SharedCommandsGuard {
+    SharedCommandsGuard() { pthread_mutex_lock(&s_sharedCommandsLock); }
+    ~SharedCommandsGuard() { pthread_mutex_unlock(&s_sharedCommandsLock); }
+};
+}
+
+CatalogCommands::Shared::Shared(const string &stmts) {
+    // Parse while holding the lock, so that sites loading the same
+    // catalog at the same time wait for one parse instead of each doing it.
+    SharedCommandsGuard guard;
+    if (s_sharedCommands == NULL || s_sharedCommands->m_stmts != stmts) {
+        s_sharedCommands = new CatalogCommands(stmts);
+    }
+    m_commands = s_sharedCommands;
+    ++m_commands->m_holders;
+}
+
+CatalogCommands::Shared::~Shared() {
+    SharedCommandsGuard guard;
+    if (--m_commands->m_holders == 0) {
+        if (s_sharedCommands == m_commands) {
+            s_sharedCommands = NULL;
+        }
+        delete m_commands;
+    }
+}
+
+void Catalog::execute(const string &stmts) {
+    execute(CatalogCommands(stmts));
+}
+
+void Catalog::execute(const CatalogCommands &commands) {
+    cleanupExecutionBookkeeping();
+
+    const vector<CatalogCommands::Command> &cmds = commands.commands();
+    for (size_t i = 0; i < cmds.size(); ++i) {
+        const CatalogCommands::Command &cmd = cmds[i];
+        executeOne(cmd.command, cmd.ref, cmd.coll, cmd.child);
+    }
+
+    if (m_unresolved.size() > 0) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                      "failed to execute catalog");
+    }
+}
+
 /*
  * Run one catalog command.
  */
-void Catalog::executeOne(const string &stmt) {
-    string command, ref, coll, child;
-    parse(stmt, command, ref, coll, child);
-
+void Catalog::executeOne(const string &command, const string &ref,
+                         const string &coll, const string &child) {
     CatalogType *item = NULL;
     if (ref.compare("$PREV") == 0) {
         if (!m_lastUsedPath) {
@@ -297,9 +342,7 @@ void Catalog::resolveUnresolvedInfo(string path) {
         std::list<UnresolvedInfo>::const_iterator iter;
         for (iter = lui.begin(); iter != lui.end(); iter++) {
             UnresolvedInfo ui = *iter;
-            std::string path2 = "set " + ui.type->path() + " "
-              + ui.field + " " + path;
-            executeOne(path2);
+            executeOne("set", ui.type->path(), ui.field, path);
         }
     }
 }
@@ -26,6 +26,7 @@
 #include <map>
 #include <string>
 #include <list>
+#include "boost/noncopyable.hpp"
 #include "boost/unordered_map.hpp"
 #include "catalogtype.h"
 #include "catalogmap.h"
@@ -34,6 +35,48 @@ namespace catalog {
 
 class Cluster;
 
+/**
+ * The commands of a catalog payload, split into their parts once. An
+ * instance is never modified after construction, so the engines of all
+ * the sites on a host can build their catalogs from the same one.
+ */
+class CatalogCommands : boost::noncopyable {
+public:
+    struct Command {
+        std::string command;
+        std::string ref;
+        std::string coll;
+        std::string child;
+    };
+
+    /**
+     * Holds the parsed commands of a payload for as long as it is in scope.
+     * Holders of the same payload at the same time share one parse; the
+     * last one to go away frees it. The holder count is kept under a lock
+     * since the EE builds boost::shared_ptr without thread safety.
+     */
+    class Shared : boost::noncopyable {
+    public:
+        explicit Shared(const std::string &stmts);
+        ~Shared();
+
+        const CatalogCommands & operator*() const { return *m_commands; }
+        const CatalogCommands * operator->() const { return m_commands; }
+
+    private:
+        CatalogCommands *m_commands;
+    };
+
+    explicit CatalogCommands(const std::string &stmts);
+
+    const std::vector<Command> & commands() const { return m_commands; }
+
+private:
+    const std::string m_stmts;
+    std::vector<Command> m_commands;
+    int32_t m_holders;
+};
+
 /**
  * The root class in the Catalog hierarchy, which is essentially a tree of
  * instances of CatalogType objects, accessed by guids globally, paths
@@ -63,7 +106,8 @@ protected:
     //  paths of objects recently deleted from the catalog.
     std::vector<std::string> m_deletions;
 
-    void executeOne(const std::string &stmt);
+    void executeOne(const std::string &command, const std::string &ref,
+                    const std::string &coll, const std::string &child);
     CatalogType * itemForRef(const std::string &ref);
     CatalogType * itemForPath(const CatalogType *parent, const std::string &path);
     CatalogType * itemForPathPart(const CatalogType *parent, const std::string &pathPart) const;
@@ -98,6 +142,12 @@ public:
      */
     void execute(const std::string &stmts);
 
+    /**
+     * Run catalog commands that were already parsed, possibly for
+     * another catalog.
+     */
+    void execute(const CatalogCommands &commands);
+
     /** GETTER: The set of the clusters in this catalog */
     const CatalogMap<Cluster> & clusters() const;
 
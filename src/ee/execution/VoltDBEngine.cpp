@@ -613,8 +613,9 @@ bool VoltDBEngine::loadCatalog(const int64_t timestamp, const std::string &catal
     assert(m_catalog != NULL);
     VOLT_DEBUG("Loading catalog...");
 
-
-    m_catalog->execute(catalogPayload);
+    // Sites loading the same catalog at the same time share one parse of it.
+    catalog::CatalogCommands::Shared commands(catalogPayload);
+    m_catalog->execute(*commands);
 
 
     if (updateCatalogDatabaseReference() == false) {
@@ -1112,7 +1113,8 @@ VoltDBEngine::updateCatalog(const int64_t timestamp, const std::string &catalogP
 
     // apply the diff commands to the existing catalog
     // throws SerializeEEExceptions on error.
-    m_catalog->execute(catalogPayload);
+    catalog::CatalogCommands::Shared commands(catalogPayload);
+    m_catalog->execute(*commands);
 
     // Set DR flag based on current catalog state
     catalog::Cluster* catalogCluster = m_catalog->clusters().get("cluster");
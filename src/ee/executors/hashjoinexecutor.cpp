@@ -0,0 +1,348 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "hashjoinexecutor.h"
+
+#include "common/debuglog.h"
+#include "common/tabletuple.h"
+#include "common/TupleSchema.h"
+#include "executors/aggregateexecutor.h"
+#include "executors/executorutil.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "expressions/abstractexpression.h"
+#include "storage/table.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "storage/tabletuplefilter.h"
+#include "storage/TempTableLimits.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+
+#include "boost/foreach.hpp"
+
+#include <algorithm>
+
+using namespace std;
+using namespace voltdb;
+
+const static int8_t UNMATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE);
+const static int8_t MATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE + 1);
+
+HashJoinExecutor::~HashJoinExecutor()
+{
+    TupleSchema::freeTupleSchema(m_keySchema);
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode,
+                              TempTableLimits* limits)
+{
+    VOLT_TRACE("init HashJoin Executor");
+    assert(limits);
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, limits)) {
+        return false;
+    }
+
+    // NULL tuples for left and full joins
+    p_init_null_tuples(node->getInputTable(), node->getInputTable(1));
+
+    // The outer and inner keys are stored in tuples of the same schema so
+    // they hash and compare alike. Each column is sized to hold either side.
+    const std::vector<AbstractExpression*>& outerKeys = node->getOuterHashExpressions();
+    const std::vector<AbstractExpression*>& innerKeys = node->getInnerHashExpressions();
+    assert(outerKeys.size() == innerKeys.size() && !innerKeys.empty());
+    std::vector<ValueType> keyColumnTypes;
+    std::vector<int32_t> keyColumnSizes;
+    std::vector<bool> keyColumnAllowNull;
+    std::vector<bool> keyColumnInBytes;
+    for (int ii = 0; ii < innerKeys.size(); ii++) {
+        keyColumnTypes.push_back(innerKeys[ii]->getValueType());
+        keyColumnSizes.push_back(std::max(outerKeys[ii]->getValueSize(),
+                                          innerKeys[ii]->getValueSize()));
+        keyColumnAllowNull.push_back(true);
+        keyColumnInBytes.push_back(outerKeys[ii]->getInBytes() && innerKeys[ii]->getInBytes());
+    }
+    TupleSchema::freeTupleSchema(m_keySchema);
+    m_keySchema = TupleSchema::createTupleSchema(keyColumnTypes,
+                                                 keyColumnSizes,
+                                                 keyColumnAllowNull,
+                                                 keyColumnInBytes);
+
+    m_nullsMatch.assign(innerKeys.size(), false);
+    BOOST_FOREACH(int key, node->getNotDistinctKeys()) {
+        m_nullsMatch[key] = true;
+    }
+
+    m_limits = limits;
+    return true;
+}
+
+bool HashJoinExecutor::setHashKey(const TableTuple& keyTuple,
+                                  const std::vector<AbstractExpression*>& keyExpressions,
+                                  const TableTuple* outer_tuple,
+                                  const TableTuple* inner_tuple) const
+{
+    for (int ii = 0; ii < keyExpressions.size(); ii++) {
+        NValue value = keyExpressions[ii]->eval(outer_tuple, inner_tuple);
+        if (value.isNull() && !m_nullsMatch[ii]) {
+            return false;
+        }
+        keyTuple.setNValue(ii, value);
+    }
+    return true;
+}
+
+bool HashJoinExecutor::buildHashTable(Table* inner_table, ProgressMonitorProxy& pmp)
+{
+    HashJoinPlanNode* node = static_cast<HashJoinPlanNode*>(m_abstractNode);
+    const std::vector<AbstractExpression*>& innerKeys = node->getInnerHashExpressions();
+
+    // Leave at least half of the temp table memory for the join output
+    const int64_t hashTableLimit = m_limits->getMemoryLimit() / 2;
+    // Approximate the memory taken by each entry: its key tuple,
+    // the map node and the bucket pointer to it
+    const int entryBytes = static_cast<int>(m_keySchema->tupleLength() + TUPLE_HEADER_SIZE +
+                                            sizeof(HashJoinMapType::value_type) + 2 * sizeof(void*));
+
+    PoolBackedTupleStorage keyStorage;
+    keyStorage.init(m_keySchema, &m_memoryPool);
+    TableTuple& keyTuple = keyStorage;
+    keyTuple.move(NULL);
+
+    TableTuple inner_tuple(inner_table->schema());
+    TableIterator iterator = inner_table->iterator();
+    while (iterator.next(inner_tuple)) {
+        pmp.countdownProgress();
+        if (hashTableLimit > 0 && m_limits->getAllocated() + entryBytes > hashTableLimit) {
+            VOLT_DEBUG("Hash join table exceeds %jd bytes, falling back to a nested loop",
+                       (intmax_t)hashTableLimit);
+            releaseHashTable();
+            return false;
+        }
+        if (keyTuple.isNullTuple()) {
+            keyStorage.allocateActiveTuple();
+        }
+        // Inner tuples with a NULL key can never match, so they are not hashed
+        // and their key storage gets reused by the next tuple
+        if (!setHashKey(keyTuple, innerKeys, NULL, &inner_tuple)) {
+            continue;
+        }
+        m_hash.insert(HashJoinMapType::value_type(keyTuple, inner_tuple.address()));
+        keyTuple.move(NULL);
+        m_limits->increaseAllocated(entryBytes);
+        m_hashTableBytes += entryBytes;
+    }
+    return true;
+}
+
+void HashJoinExecutor::releaseHashTable()
+{
+    m_hash.clear();
+    m_memoryPool.purge();
+    if (m_limits != NULL && m_hashTableBytes > 0) {
+        m_limits->reduceAllocated(static_cast<int>(m_hashTableBytes));
+    }
+    m_hashTableBytes = 0;
+}
+
+inline bool HashJoinExecutor::joinInnerTuple(CountingPostfilter& postfilter,
+                                             ProgressMonitorProxy& pmp,
+                                             AbstractExpression* joinPredicate,
+                                             TableTupleFilter& innerTableFilter,
+                                             TableTuple& join_tuple,
+                                             const TableTuple& outer_tuple,
+                                             const TableTuple& inner_tuple)
+{
+    // The hash only narrows down the candidates. The join predicate still has
+    // to be checked for hash collisions and any non-equality join conditions.
+    if (joinPredicate != NULL && !joinPredicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+        return false;
+    }
+    // The inner tuple passed the join predicate
+    if (m_joinType == JOIN_TYPE_FULL) {
+        // Mark it as matched
+        innerTableFilter.updateTuple(inner_tuple, MATCHED_TUPLE);
+    }
+    // Filter the joined tuple
+    if (postfilter.eval(&outer_tuple, &inner_tuple)) {
+        // Matched! Complete the joined tuple with the inner column values.
+        join_tuple.setNValues(outer_tuple.sizeInValues(), inner_tuple, 0, inner_tuple.sizeInValues());
+        outputTuple(postfilter, join_tuple, pmp);
+    }
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outer_table = node->getInputTable();
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTable(1);
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *preJoinPredicate = node->getPreJoinPredicate();
+    AbstractExpression *joinPredicate = node->getJoinPredicate();
+    AbstractExpression *wherePredicate = node->getWherePredicate();
+
+    // The table filter to keep track of inner tuples that don't match any of outer tuples for FULL joins
+    TableTupleFilter innerTableFilter;
+    if (m_joinType == JOIN_TYPE_FULL) {
+        // Prepopulate the view with all inner tuples
+        innerTableFilter.init(inner_table);
+    }
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple outer_tuple(outer_table->schema());
+    TableTuple inner_tuple(inner_table->schema());
+    const TableTuple& null_inner_tuple = m_null_inner_tuple.tuple();
+
+    ProgressMonitorProxy pmp(m_engine, this);
+
+    // Hash the inner table, unless it turns out too big for the temp table memory
+    releaseHashTable();
+    bool hashed = buildHashTable(inner_table, pmp);
+    PoolBackedTupleStorage probeKeyStorage;
+    probeKeyStorage.init(m_keySchema, &m_memoryPool);
+    TableTuple& probeKey = probeKeyStorage;
+    if (hashed) {
+        probeKeyStorage.allocateActiveTuple();
+    }
+    const std::vector<AbstractExpression*>& outerKeys = node->getOuterHashExpressions();
+
+    TableIterator iterator0 = outer_table->iteratorDeletingAsWeGo();
+    // Init the postfilter
+    CountingPostfilter postfilter(m_tmpOutputTable, wherePredicate, limit, offset);
+
+    TableTuple join_tuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        join_tuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &postfilter);
+    } else {
+        join_tuple = m_tmpOutputTable->tempTuple();
+    }
+
+    while (postfilter.isUnderLimit() && iterator0.next(outer_tuple)) {
+        pmp.countdownProgress();
+
+        // populate output table's temp tuple with outer table's values
+        join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+
+        // did this loop body find at least one match for this tuple?
+        bool outerMatch = false;
+        // For outer joins if outer tuple fails pre-join predicate
+        // (join expression based on the outer table only)
+        // it can't match any of inner tuples
+        if (preJoinPredicate == NULL || preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) {
+            if (hashed) {
+                // An outer tuple with a NULL key can't match any inner tuple
+                if (setHashKey(probeKey, outerKeys, &outer_tuple, NULL)) {
+                    std::pair<HashJoinMapType::const_iterator, HashJoinMapType::const_iterator> bucket =
+                        m_hash.equal_range(probeKey);
+                    for (HashJoinMapType::const_iterator itr = bucket.first;
+                            itr != bucket.second && postfilter.isUnderLimit(); ++itr) {
+                        pmp.countdownProgress();
+                        inner_tuple.move(itr->second);
+                        if (joinInnerTuple(postfilter, pmp, joinPredicate, innerTableFilter,
+                                           join_tuple, outer_tuple, inner_tuple)) {
+                            outerMatch = true;
+                        }
+                    }
+                }
+            }
+            else {
+                TableIterator iterator1 = inner_table->iterator();
+                while (postfilter.isUnderLimit() && iterator1.next(inner_tuple)) {
+                    pmp.countdownProgress();
+                    if (joinInnerTuple(postfilter, pmp, joinPredicate, innerTableFilter,
+                                       join_tuple, outer_tuple, inner_tuple)) {
+                        outerMatch = true;
+                    }
+                }
+            }
+        } // END IF PRE JOIN CONDITION
+
+        //
+        // Left Outer Join
+        //
+        if (m_joinType != JOIN_TYPE_INNER && !outerMatch && postfilter.isUnderLimit()) {
+            // Still needs to pass the filter
+            if (postfilter.eval(&outer_tuple, &null_inner_tuple)) {
+                // Matched! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, null_inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        } // END IF LEFT OUTER JOIN
+    } // END OUTER WHILE LOOP
+
+    //
+    // FULL Outer Join. Iterate over the unmatched inner tuples
+    //
+    if (m_joinType == JOIN_TYPE_FULL && postfilter.isUnderLimit()) {
+        // Preset outer columns to null
+        const TableTuple& null_outer_tuple = m_null_outer_tuple.tuple();
+        join_tuple.setNValues(0, null_outer_tuple, 0, outer_cols);
+
+        TableTupleFilter_iter<UNMATCHED_TUPLE> endItr = innerTableFilter.end<UNMATCHED_TUPLE>();
+        for (TableTupleFilter_iter<UNMATCHED_TUPLE> itr = innerTableFilter.begin<UNMATCHED_TUPLE>();
+                itr != endItr && postfilter.isUnderLimit(); ++itr) {
+            // Restore the tuple value
+            uint64_t tupleAddr = innerTableFilter.getTupleAddress(*itr);
+            inner_tuple.move((char *)tupleAddr);
+            // Still needs to pass the filter
+            assert(inner_tuple.isActive());
+            if (postfilter.eval(&null_outer_tuple, &inner_tuple)) {
+                // Passed! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        }
+    }
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    releaseHashTable();
+    cleanupInputTempTable(inner_table);
+    cleanupInputTempTable(outer_table);
+
+    return (true);
+}
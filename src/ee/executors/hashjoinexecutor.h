@@ -0,0 +1,99 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "common/Pool.hpp"
+#include "common/tabletuple.h"
+#include "common/valuevector.h"
+#include "executors/abstractjoinexecutor.h"
+
+#include "boost/unordered_map.hpp"
+
+#include <vector>
+
+namespace voltdb {
+
+class AbstractExpression;
+class TableTupleFilter;
+class TupleSchema;
+
+/**
+ * Maps the hash key of each inner tuple to the address of the tuple.
+ */
+typedef boost::unordered_multimap<TableTuple,
+                                  char*,
+                                  TableTupleHasher,
+                                  TableTupleEqualityChecker> HashJoinMapType;
+
+/**
+ * Executor for PLAN_NODE_TYPE_HASHJOIN. The inner table is hashed on the inner
+ * hash keys before the outer table is scanned, so each outer tuple is only tested
+ * against the inner tuples in the bucket for its outer hash keys.
+ * The hash table is accounted against the fragment's temp table memory. If it would
+ * take more than half of the limit, leaving too little for the join output,
+ * the executor gives it up and tests each outer tuple against all inner tuples
+ * like a nested loop join does.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+            AbstractJoinExecutor(engine, abstract_node),
+            m_keySchema(NULL),
+            m_limits(NULL),
+            m_hashTableBytes(0) { }
+
+        ~HashJoinExecutor();
+
+        virtual void cleanupMemoryPool() {
+            releaseHashTable();
+        }
+
+    private:
+
+        bool p_init(AbstractPlanNode*, TempTableLimits* limits);
+        bool p_execute(const NValueArray &params);
+
+        bool buildHashTable(Table* inner_table, ProgressMonitorProxy& pmp);
+        void releaseHashTable();
+        bool setHashKey(const TableTuple& keyTuple,
+                        const std::vector<AbstractExpression*>& keyExpressions,
+                        const TableTuple* outer_tuple,
+                        const TableTuple* inner_tuple) const;
+        bool joinInnerTuple(CountingPostfilter& postfilter,
+                            ProgressMonitorProxy& pmp,
+                            AbstractExpression* joinPredicate,
+                            TableTupleFilter& innerTableFilter,
+                            TableTuple& join_tuple,
+                            const TableTuple& outer_tuple,
+                            const TableTuple& inner_tuple);
+
+        TupleSchema* m_keySchema;
+        // True for the keys compared with IS NOT DISTINCT FROM. A NULL in any other key
+        // can never satisfy the join predicate, so such tuples are neither hashed nor probed.
+        std::vector<bool> m_nullsMatch;
+        TempTableLimits* m_limits;
+        Pool m_memoryPool;
+        HashJoinMapType m_hash;
+        int64_t m_hashTableBytes;
+};
+
+}
+
+#endif
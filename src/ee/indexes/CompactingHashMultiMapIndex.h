@@ -167,6 +167,12 @@ class CompactingHashMultiMapIndex : public TableIndex
 
     size_t getSize() const { return m_entries.size(); }
 
+    int64_t getDistinctKeyEstimate() const
+    {
+        // the hash table already keeps an exact count of its keys
+        return static_cast<int64_t>(m_entries.uniqueCount());
+    }
+
     int64_t getMemoryEstimate() const
     {
         return m_entries.bytesAllocated();
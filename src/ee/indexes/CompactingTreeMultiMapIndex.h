@@ -47,6 +47,7 @@
 #define COMPACTINGTREEMULTIMAPINDEX_H_
 
 #include <iostream>
+#include <algorithm>
 #include <cassert>
 #include "indexes/tableindex.h"
 #include "common/tabletuple.h"
@@ -67,6 +68,9 @@ class CompactingTreeMultiMapIndex : public TableIndex
     typedef typename MapType::iterator MapIterator;
     typedef std::pair<MapIterator, MapIterator> MapRange;
 
+    // number of entries examined to estimate the distinct key count
+    static const int64_t DISTINCT_KEY_SAMPLE_SIZE = 256;
+
     ~CompactingTreeMultiMapIndex() {};
 
     static MapIterator& castToIter(IndexCursor& cursor) {
@@ -344,6 +348,54 @@ class CompactingTreeMultiMapIndex : public TableIndex
 
     size_t getSize() const { return m_entries.size(); }
 
+    /**
+     * Estimate the distinct key count from a bounded sample so that
+     * collecting index stats stays cheap on large tables.
+     * Countable indexes sample entries evenly by rank and weight each one
+     * by the size of its key group, which is unbiased however the keys are
+     * skewed. Other tree indexes extrapolate from the keys at the start of
+     * the index.
+     */
+    int64_t getDistinctKeyEstimate() const
+    {
+        const int64_t count = m_entries.size();
+        if (count == 0) {
+            return 0;
+        }
+        if (hasRank) {
+            const int64_t samples = std::min(count, static_cast<int64_t>(DISTINCT_KEY_SAMPLE_SIZE));
+            double keysPerEntry = 0.0;
+            for (int64_t i = 0; i < samples; ++i) {
+                // ranks are 1-based
+                KeyType groupKey = m_entries.findRank(1 + (i * count) / samples).key();
+                setPointerValue(groupKey, NULL);
+                int64_t firstRank = m_entries.rankAsc(m_entries.lowerBound(groupKey).key());
+                MapIterator next = nextKeyGroup(groupKey);
+                int64_t nextRank = next.isEnd() ? count + 1 : m_entries.rankAsc(next.key());
+                keysPerEntry += 1.0 / static_cast<double>(std::max(nextRank - firstRank, static_cast<int64_t>(1)));
+            }
+            return std::max(static_cast<int64_t>(1),
+                            static_cast<int64_t>(count * keysPerEntry / samples + 0.5));
+        }
+        int64_t entries = 0;
+        int64_t keys = 0;
+        MapIterator iter = m_entries.begin();
+        while (( ! iter.isEnd()) && entries < DISTINCT_KEY_SAMPLE_SIZE) {
+            MapIterator next = nextKeyGroup(iter.key());
+            // Stop part way through a group once the sample is full
+            // rather than walking every duplicate of a popular key
+            for (; ! iter.equals(next) && entries < DISTINCT_KEY_SAMPLE_SIZE; iter.moveNext()) {
+                ++entries;
+            }
+            ++keys;
+        }
+        if (entries >= count) {
+            return keys;
+        }
+        return std::max(static_cast<int64_t>(1),
+                        static_cast<int64_t>(count * static_cast<double>(keys) / entries + 0.5));
+    }
+
     int64_t getMemoryEstimate() const
     {
         return m_entries.bytesAllocated();
@@ -366,6 +418,13 @@ class CompactingTreeMultiMapIndex : public TableIndex
 
     std::string getTypeName() const { return "CompactingTreeMultiMapIndex"; };
 
+    // the first entry past all the entries with the same key as the given one
+    MapIterator nextKeyGroup(const KeyType &key) const {
+        KeyType tempKey(key);
+        setPointerValue(tempKey, MAXPOINTER);
+        return m_entries.upperBound(tempKey);
+    }
+
     MapIterator findKey(const TableTuple *searchKey) const {
         KeyType tempKey(searchKey);
         MapIterator rv = m_entries.lowerBound(tempKey);
@@ -452,6 +452,13 @@ public:
 
     virtual size_t getSize() const = 0;
 
+    // Return an estimate of the number of distinct keys in this index.
+    // Unique indexes hold exactly one entry per key.
+    virtual int64_t getDistinctKeyEstimate() const
+    {
+        return static_cast<int64_t>(getSize());
+    }
+
     // Return the amount of memory we think is allocated for this
     // index.
     virtual int64_t getMemoryEstimate() const = 0;
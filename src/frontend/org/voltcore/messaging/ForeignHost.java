@@ -50,6 +50,13 @@ public class ForeignHost {
 
     final PicoNetwork m_network;
     final FHInputHandler m_handler;
+    /*
+     * Optional data connections. When present, the primary connection only carries
+     * agreement site traffic (heartbeats, failure detection) and poison pills, and every
+     * other mailbox is pinned to one stripe so per mailbox ordering is preserved.
+     */
+    final PicoNetwork m_stripes[];
+    private final FHInputHandler m_stripeHandlers[];
     private final HostMessenger m_hostMessenger;
     private final Integer m_hostId;
     final InetSocketAddress m_listeningAddress;
@@ -57,8 +64,9 @@ public class ForeignHost {
     private boolean m_closing;
     boolean m_isUp;
 
-    // hold onto the socket so we can kill it
+    // hold onto the sockets so we can kill them
     private final Socket m_socket;
+    private final Socket m_stripeSockets[];
 
     // Set the default here for TestMessaging, which currently has no VoltDB instance
     private long m_deadHostTimeout;
@@ -71,6 +79,13 @@ public class ForeignHost {
     private AtomicBoolean m_linkCutForTest = new AtomicBoolean(false);
 
     public static final int POISON_PILL = -1;
+    /*
+     * In place of the destination count, marks a batch of messages compressed by
+     * the sender. The header is followed by the length of the batch uncompressed
+     * and the LZ4 compressed batch, which holds the messages as they would
+     * otherwise have been sent, length prefixes included.
+     */
+    static final int COMPRESSED_BATCH = -2;
 
     public static final int CRASH_ALL = 0;
     public static final int CRASH_ME = 1;
@@ -144,6 +159,14 @@ public class ForeignHost {
     ForeignHost(HostMessenger host, int hostId, SocketChannel socket, int deadHostTimeout,
             InetSocketAddress listeningAddress, PicoNetwork network)
     throws IOException
+    {
+        this(host, hostId, socket, new SocketChannel[0], deadHostTimeout, listeningAddress, network);
+    }
+
+    /** Create a ForeignHost that stripes mailbox traffic over the given data connections */
+    ForeignHost(HostMessenger host, int hostId, SocketChannel socket, SocketChannel stripes[],
+            int deadHostTimeout, InetSocketAddress listeningAddress, PicoNetwork network)
+    throws IOException
     {
         m_hostMessenger = host;
         m_handler = new FHInputHandler();
@@ -154,12 +177,52 @@ public class ForeignHost {
         m_deadHostTimeout = deadHostTimeout;
         m_listeningAddress = listeningAddress;
         m_network = network;
+        m_stripes = new PicoNetwork[stripes.length];
+        m_stripeHandlers = new FHInputHandler[stripes.length];
+        m_stripeSockets = new Socket[stripes.length];
+        for (int ii = 0; ii < stripes.length; ii++) {
+            m_stripes[ii] = new PicoNetwork(stripes[ii]);
+            m_stripeHandlers[ii] = new FHInputHandler();
+            m_stripeSockets[ii] = stripes[ii].socket();
+        }
+
+        final int compressionThreshold = host.getCompressionThreshold();
+        if (compressionThreshold > 0) {
+            m_network.setCompressor(new LZ4LinkCompressor(compressionThreshold));
+            for (PicoNetwork stripe : m_stripes) {
+                stripe.setCompressor(new LZ4LinkCompressor(compressionThreshold));
+            }
+        }
 
         setLogRate(deadHostTimeout);
     }
 
     public void enableRead(Set<Long> verbotenThreads) {
         m_network.start(m_handler, verbotenThreads);
+        for (int ii = 0; ii < m_stripes.length; ii++) {
+            m_stripes[ii].start(m_stripeHandlers[ii], verbotenThreads);
+        }
+    }
+
+    /**
+     * Pick the connection a mailbox's traffic travels on. Agreement site traffic stays on the
+     * primary connection (-1) so that heartbeats and failure detection are never queued
+     * behind bulk data; every other mailbox always maps to the same stripe.
+     */
+    static int stripeFor(long hsId, int stripeCount) {
+        int siteId = CoreUtils.getSiteIdFromHSId(hsId);
+        if (stripeCount == 0 || siteId == HostMessenger.AGREEMENT_SITE_ID) {
+            return -1;
+        }
+        return Math.floorMod(siteId, stripeCount);
+    }
+
+    private PicoNetwork connection(int stripe) {
+        return stripe < 0 ? m_network : m_stripes[stripe];
+    }
+
+    int getStripeCount() {
+        return m_stripes.length;
     }
 
     synchronized void close()
@@ -169,6 +232,9 @@ public class ForeignHost {
         m_closing = true;
         try {
             m_network.shutdownAsync();
+            for (PicoNetwork stripe : m_stripes) {
+                stripe.shutdownAsync();
+            }
         } catch (InterruptedException e) {
             Throwables.propagate(e);
         }
@@ -184,6 +250,10 @@ public class ForeignHost {
             m_socket.setSoLinger(false, 0);
             Thread.sleep(25);
             m_socket.close();
+            for (Socket stripe : m_stripeSockets) {
+                stripe.setSoLinger(false, 0);
+                stripe.close();
+            }
             Thread.sleep(25);
             System.gc();
             Thread.sleep(25);
@@ -219,42 +289,11 @@ public class ForeignHost {
 
         // if this link is "gone silent" for partition tests, just drop the message on the floor
         if (!m_linkCutForTest.get()) {
-            m_network.enqueue(
-                    new DeferredSerialization() {
-                        @Override
-                        public final void serialize(final ByteBuffer buf) throws IOException {
-                            buf.putInt(buf.capacity() - 4);
-                            buf.putLong(message.m_sourceHSId);
-                            buf.putInt(destinations.length);
-                            for (int ii = 0; ii < destinations.length; ii++) {
-                                buf.putLong(destinations[ii]);
-                            }
-                            message.flattenToBuffer(buf);
-                            buf.flip();
-                        }
-
-                        @Override
-                        public final void cancel() {
-                        /*
-                         * Can this be removed?
-                         */
-                        }
-
-                        @Override
-                        public String toString() {
-                            return message.getClass().getName();
-                        }
-
-                        @Override
-                        public int getSerializedSize() {
-                            final int len = 4            /* length prefix */
-                                    + 8            /* source hsid */
-                                    + 4            /* destinationCount */
-                                    + 8 * destinations.length  /* destination list */
-                                    + message.getSerializedSize();
-                            return len;
-                        }
-                    });
+            if (m_stripes.length == 0) {
+                enqueue(m_network, destinations, message);
+            } else {
+                sendStriped(destinations, message);
+            }
         }
 
         long current_time = EstTime.currentTimeMillis();
@@ -287,6 +326,82 @@ public class ForeignHost {
         }
     }
 
+    /*
+     * Split the destinations by the connection that owns them so that each mailbox
+     * keeps receiving its messages in order. The common case is a single connection.
+     */
+    private void sendStriped(final long destinations[], final VoltMessage message) {
+        final int first = stripeFor(destinations[0], m_stripes.length);
+        int ii = 1;
+        while (ii < destinations.length && stripeFor(destinations[ii], m_stripes.length) == first) {
+            ii++;
+        }
+        if (ii == destinations.length) {
+            enqueue(connection(first), destinations, message);
+            return;
+        }
+
+        // slot 0 is the primary connection, slot n + 1 is stripe n
+        final int counts[] = new int[m_stripes.length + 1];
+        for (long hsId : destinations) {
+            counts[stripeFor(hsId, m_stripes.length) + 1]++;
+        }
+        final long bundles[][] = new long[counts.length][];
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] > 0) {
+                bundles[slot] = new long[counts[slot]];
+                counts[slot] = 0;
+            }
+        }
+        for (long hsId : destinations) {
+            final int slot = stripeFor(hsId, m_stripes.length) + 1;
+            bundles[slot][counts[slot]++] = hsId;
+        }
+        for (int slot = 0; slot < bundles.length; slot++) {
+            if (bundles[slot] != null) {
+                enqueue(connection(slot - 1), bundles[slot], message);
+            }
+        }
+    }
+
+    private static void enqueue(PicoNetwork network, final long destinations[], final VoltMessage message) {
+        network.enqueue(
+                new DeferredSerialization() {
+                    @Override
+                    public final void serialize(final ByteBuffer buf) throws IOException {
+                        buf.putInt(buf.capacity() - 4);
+                        buf.putLong(message.m_sourceHSId);
+                        buf.putInt(destinations.length);
+                        for (int ii = 0; ii < destinations.length; ii++) {
+                            buf.putLong(destinations[ii]);
+                        }
+                        message.flattenToBuffer(buf);
+                        buf.flip();
+                    }
+
+                    @Override
+                    public final void cancel() {
+                    /*
+                     * Can this be removed?
+                     */
+                    }
+
+                    @Override
+                    public String toString() {
+                        return message.getClass().getName();
+                    }
+
+                    @Override
+                    public int getSerializedSize() {
+                        final int len = 4            /* length prefix */
+                                + 8            /* source hsid */
+                                + 4            /* destinationCount */
+                                + 8 * destinations.length  /* destination list */
+                                + message.getSerializedSize();
+                        return len;
+                    }
+                });
+    }
 
     String hostnameAndIPAndPort() {
         return m_network.getHostnameAndIPAndPort();
@@ -366,6 +481,10 @@ public class ForeignHost {
             }
             return;
         }
+        if (destCount == COMPRESSED_BATCH) {
+            handleCompressedBatch(in, c);
+            return;
+        }
 
         recvDests = new long[destCount];
         for (int i = 0; i < destCount; i++) {
@@ -396,6 +515,20 @@ public class ForeignHost {
 
     }
 
+    /**
+     * Decompress a batch of messages and handle them in the order they were sent
+     */
+    private void handleCompressedBatch(ByteBuffer in, Connection c) throws IOException {
+        final ByteBuffer messages = LZ4LinkCompressor.decompress(in);
+        while (messages.hasRemaining()) {
+            final int length = messages.getInt();
+            final ByteBuffer message = messages.slice();
+            message.limit(length);
+            messages.position(messages.position() + length);
+            handleRead(message, c);
+        }
+    }
+
     public void sendPoisonPill(String err, int cause) {
         // if this link is "gone silent" for partition tests, just drop the message on the floor
         if (m_linkCutForTest.get()) {
@@ -21,12 +21,14 @@ import static com.google_voltpatches.common.base.Preconditions.checkArgument;
 import static com.google_voltpatches.common.base.Predicates.equalTo;
 import static com.google_voltpatches.common.base.Predicates.not;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -126,6 +128,8 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         private static final String COORDINATOR_IP = "coordinatorip";
         private static final String GROUP = "group";
         private static final String LOCAL_SITES_COUNT = "localSitesCount";
+        private static final String DATA_CONNECTIONS = "dataConnections";
+        private static final String COMPRESSION_THRESHOLD = "compressionThreshold";
 
         public InetSocketAddress coordinatorIp;
         public String zkInterface = "127.0.0.1:7181";
@@ -139,6 +143,19 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         public JoinAcceptor acceptor = null;
         public String group = "0";
         public int localSitesCount;
+        /*
+         * Extra connections opened to each host a node connects to. When non zero the
+         * primary connection is reserved for agreement traffic (heartbeats and failure
+         * detection) and mailbox traffic is striped across the extra connections.
+         */
+        public int dataConnections = Math.max(0, Integer.getInteger("MESH_DATA_CONNECTIONS", 0));
+        /*
+         * Batches of messages to another host of at least this many bytes are LZ4 compressed
+         * when the link is backlogged and compressing is cheaper than sending the bytes saved.
+         * Zero disables compression. Hosts read compressed batches whatever their own setting,
+         * so this can differ between hosts, but they must all run a version that reads them.
+         */
+        public int compressionThreshold = Math.max(0, Integer.getInteger("MESH_COMPRESSION_THRESHOLD", 0));
 
         public Config(String coordIp, int coordPort) {
             if (coordIp == null || coordIp.length() == 0) {
@@ -226,6 +243,8 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 js.keySymbolValuePair(NETWORK_THREADS, networkThreads);
                 js.key(ACCEPTOR).value(acceptor);
                 js.keySymbolValuePair(LOCAL_SITES_COUNT, localSitesCount);
+                js.keySymbolValuePair(DATA_CONNECTIONS, dataConnections);
+                js.keySymbolValuePair(COMPRESSION_THRESHOLD, compressionThreshold);
                 js.endObject();
 
                 return js.toString();
@@ -358,7 +377,8 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 m_config.internalPort,
                 m_paused,
                 m_acceptor,
-                this);
+                this,
+                m_config.dataConnections);
 
         // Register a clean shutdown hook for the network threads.  This gets cranky
         // when crashLocalVoltDB() is called because System.exit() can get called from
@@ -711,13 +731,15 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
     @Override
     public void notifyOfJoin(
             int hostId, SocketChannel socket,
+            SocketChannel stripes[],
             InetSocketAddress listeningAddress,
             JSONObject jo) {
         m_networkLog.info(getHostId() + " notified of " + hostId);
         prepSocketChannel(socket);
+        prepSocketChannels(stripes);
         ForeignHost fhost = null;
         try {
-            fhost = new ForeignHost(this, hostId, socket, m_config.deadHostTimeout, listeningAddress, new PicoNetwork(socket));
+            fhost = new ForeignHost(this, hostId, socket, stripes, m_config.deadHostTimeout, listeningAddress, new PicoNetwork(socket));
             putForeignHost(hostId, fhost);
             fhost.enableRead(VERBOTEN_THREADS);
         } catch (java.io.IOException e) {
@@ -738,6 +760,21 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
     }
 
+    private void prepSocketChannels(SocketChannel scs[]) {
+        for (SocketChannel sc : scs) {
+            prepSocketChannel(sc);
+        }
+    }
+
+    private static void closeSocketChannels(SocketChannel scs[]) {
+        for (SocketChannel sc : scs) {
+            try {
+                sc.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
     /*
      * Convenience method for doing the verbose COW insert into the map
      */
@@ -786,6 +823,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
     @Override
     public void requestJoin(
             SocketChannel socket,
+            SocketChannel stripes[],
             InetSocketAddress listeningAddress,
             JSONObject jo) throws Exception {
         /*
@@ -793,6 +831,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
          */
         Integer hostId = selectNewHostId(socket.socket().getInetAddress().getHostAddress());
         prepSocketChannel(socket);
+        prepSocketChannels(stripes);
         ForeignHost fhost = null;
         try {
             try {
@@ -804,6 +843,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 writeRequestJoinResponse(hostId, decision, socket);
                 if (!decision.accepted) {
                     socket.close();
+                    closeSocketChannels(stripes);
                     return;
                 }
 
@@ -820,6 +860,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                     if (read == -1) {
                         m_networkLog.info("New connection was unable to establish mesh");
                         socket.close();
+                        closeSocketChannels(stripes);
                         return;
                     } else if (read < 1) {
                         Thread.sleep(5);
@@ -829,7 +870,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 /*
                  * Now add the host to the mailbox system
                  */
-                fhost = new ForeignHost(this, hostId, socket, m_config.deadHostTimeout, listeningAddress, new PicoNetwork(socket));
+                fhost = new ForeignHost(this, hostId, socket, stripes, m_config.deadHostTimeout, listeningAddress, new PicoNetwork(socket));
                 putForeignHost(hostId, fhost);
                 fhost.enableRead(VERBOTEN_THREADS);
 
@@ -840,6 +881,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 removeForeignHost(hostId);
                 m_acceptor.detract(hostId);
                 socket.close();
+                closeSocketChannels(stripes);
                 return;
             }
 
@@ -941,6 +983,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             int yourHostId,
             int[] hosts,
             SocketChannel[] sockets,
+            SocketChannel[][] stripes,
             InetSocketAddress listeningAddresses[],
             Map<Integer, JSONObject> jos) throws Exception {
         m_localHostId = yourHostId;
@@ -958,9 +1001,11 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             m_networkLog.info(yourHostId + " notified of host " + hosts[ii]);
             agreementSites.add(CoreUtils.getHSIdFromHostAndSite(hosts[ii], AGREEMENT_SITE_ID));
             prepSocketChannel(sockets[ii]);
+            prepSocketChannels(stripes[ii]);
             ForeignHost fhost = null;
             try {
-                fhost = new ForeignHost(this, hosts[ii], sockets[ii], m_config.deadHostTimeout, listeningAddresses[ii], new PicoNetwork(sockets[ii]));
+                fhost = new ForeignHost(this, hosts[ii], sockets[ii], stripes[ii], m_config.deadHostTimeout,
+                        listeningAddresses[ii], new PicoNetwork(sockets[ii]));
                 putForeignHost(hosts[ii], fhost);
             } catch (java.io.IOException e) {
                 org.voltdb.VoltDB.crashLocalVoltDB("Failed to instantiate foreign host", true, e);
@@ -1110,6 +1155,11 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         return m_localHostId;
     }
 
+    /** @return the smallest batch sent to another host worth compressing, 0 if disabled */
+    int getCompressionThreshold() {
+        return m_config.compressionThreshold;
+    }
+
     public long getHSIdForLocalSite(int site) {
         return CoreUtils.getHSIdFromHostAndSite(getHostId(), site);
     }
@@ -1483,6 +1533,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
 
         for (ForeignHost fh : fhosts.values()) {
             picoNetworks.add(fh.m_network);
+            picoNetworks.addAll(Arrays.asList(fh.m_stripes));
         }
 
         return m_network.getIOStats(interval, picoNetworks);
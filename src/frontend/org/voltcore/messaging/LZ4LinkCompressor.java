@@ -0,0 +1,90 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.messaging;
+
+import java.nio.ByteBuffer;
+
+import org.voltcore.network.LinkCompressor;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Compresses the batches of messages sent to another host with LZ4, in the
+ * frame {@link ForeignHost} reads them from.
+ */
+class LZ4LinkCompressor extends LinkCompressor {
+    static final int HEADER_LENGTH =
+            4               /* length prefix */
+            + 8             /* source hsid */
+            + 4             /* COMPRESSED_BATCH */
+            + 4;            /* uncompressed length */
+
+    private static final LZ4FastDecompressor s_decompressor =
+            LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final LZ4Compressor m_compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    LZ4LinkCompressor(int threshold) {
+        super(threshold);
+    }
+
+    @Override
+    protected int maxCompressedLength(int length) {
+        return m_compressor.maxCompressedLength(length);
+    }
+
+    @Override
+    protected int compress(byte[] src, int length, byte[] dest, int destOffset) {
+        return m_compressor.compress(src, 0, length, dest, destOffset);
+    }
+
+    @Override
+    protected int frameHeaderLength() {
+        return HEADER_LENGTH;
+    }
+
+    @Override
+    protected void writeFrameHeader(ByteBuffer frame, int compressedLength, int uncompressedLength) {
+        frame.putInt(HEADER_LENGTH - 4 + compressedLength);
+        frame.putLong(-1);
+        frame.putInt(ForeignHost.COMPRESSED_BATCH);
+        frame.putInt(uncompressedLength);
+    }
+
+    /**
+     * Decompress the batch of a frame whose header has been read up to the
+     * uncompressed length.
+     *
+     * @return the messages of the batch, each with its length prefix
+     */
+    static ByteBuffer decompress(ByteBuffer in) {
+        final byte batch[] = new byte[in.getInt()];
+        if (in.hasArray()) {
+            final int read = s_decompressor.decompress(
+                    in.array(), in.arrayOffset() + in.position(), batch, 0, batch.length);
+            in.position(in.position() + read);
+        } else {
+            final byte compressed[] = new byte[in.remaining()];
+            in.get(compressed);
+            s_decompressor.decompress(compressed, 0, batch, 0, batch.length);
+        }
+        return ByteBuffer.wrap(batch);
+    }
+}
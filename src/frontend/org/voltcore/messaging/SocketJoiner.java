@@ -30,12 +30,14 @@ import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -76,6 +78,10 @@ public class SocketJoiner {
     private static final String TYPE = "type";
     private static final String PUBLISH_HOSTID = "PUBLISH_HOSTID";
     private static final String REQUEST_HOSTID = "REQUEST_HOSTID";
+    private static final String STRIPE = "STRIPE";
+    private static final String STRIPES = "stripes";
+    private static final String STRIPE_INDEX = "stripeIndex";
+    private static final String MESH_NONCE = "meshNonce";
     static final String HOST_ID = "hostId";
     static final String PORT = "port";
     static final String ADDRESS = "address";
@@ -106,6 +112,7 @@ public class SocketJoiner {
         public void notifyOfJoin(
                 int hostId,
                 SocketChannel socket,
+                SocketChannel stripes[],
                 InetSocketAddress listeningAddress,
                 JSONObject jo);
 
@@ -114,6 +121,7 @@ public class SocketJoiner {
          */
         public void requestJoin(
                 SocketChannel socket,
+                SocketChannel stripes[],
                 InetSocketAddress listeningAddress,
                 JSONObject jo) throws Exception;
 
@@ -125,6 +133,7 @@ public class SocketJoiner {
                 int yourLocalHostId,
                 int hosts[],
                 SocketChannel sockets[],
+                SocketChannel stripes[][],
                 InetSocketAddress listeningAddresses[],
                 Map<Integer, JSONObject> jos) throws Exception;
     }
@@ -142,6 +151,14 @@ public class SocketJoiner {
     private Selector m_selector;
     private final JoinHandler m_joinHandler;
 
+    /*
+     * Number of data connections this node opens to each host it connects to,
+     * and the data connections accepted from remote nodes that are waiting for
+     * the primary connection carrying the same nonce. Only touched by the joiner thread.
+     */
+    private final int m_dataConnections;
+    private final Map<String, SocketChannel[]> m_pendingStripes = new HashMap<String, SocketChannel[]>();
+
     // from configuration data
     int m_internalPort = 3021;
     String m_internalInterface = "";
@@ -310,10 +327,21 @@ public class SocketJoiner {
             AtomicBoolean isPaused,
             JoinAcceptor acceptor,
             JoinHandler jh) {
-        if (internalInterface == null || jh == null || acceptor == null) {
+        this(internalInterface, internalPort, isPaused, acceptor, jh, 0);
+    }
+
+    public SocketJoiner(
+            String internalInterface,
+            int internalPort,
+            AtomicBoolean isPaused,
+            JoinAcceptor acceptor,
+            JoinHandler jh,
+            int dataConnections) {
+        if (internalInterface == null || jh == null || acceptor == null || dataConnections < 0) {
             throw new IllegalArgumentException();
         }
         m_joinHandler = jh;
+        m_dataConnections = dataConnections;
         m_internalInterface = internalInterface;
         m_internalPort = internalPort;
         m_paused = isPaused;
@@ -430,6 +458,15 @@ public class SocketJoiner {
              */
             JSONObject jsObj = readJSONObjFromWire(sc, remoteAddress);
 
+            /*
+             * Data connections are opened ahead of the primary connection they belong to
+             * and get no response, park them until the primary connection shows up
+             */
+            if (STRIPE.equals(jsObj.optString(TYPE))) {
+                registerStripe(sc, jsObj, remoteAddress);
+                continue;
+            }
+
             LOG.info(jsObj.toString(2));
 
             // get the connecting node's version string
@@ -480,16 +517,121 @@ public class SocketJoiner {
             }
 
             hostLog.info("Received request type " + type);
+            SocketChannel stripes[];
+            try {
+                stripes = claimStripes(jsObj, remoteAddress);
+            } catch (IOException e) {
+                sc.close();
+                throw e;
+            }
             if (type.equals(REQUEST_HOSTID)) {
-                m_joinHandler.requestJoin( sc, listeningAddress, jsObj);
+                m_joinHandler.requestJoin( sc, stripes, listeningAddress, jsObj);
             } else if (type.equals(PUBLISH_HOSTID)){
-                m_joinHandler.notifyOfJoin(jsObj.getInt(HOST_ID), sc, listeningAddress, jsObj);
+                m_joinHandler.notifyOfJoin(jsObj.getInt(HOST_ID), sc, stripes, listeningAddress, jsObj);
             } else {
                 throw new RuntimeException("Unexpected message type " + type + " from " + remoteAddress);
             }
         }
     }
 
+    private void registerStripe(SocketChannel sc, JSONObject jsObj, String remoteAddress)
+            throws IOException, JSONException {
+        final String nonce = jsObj.getString(MESH_NONCE);
+        final int count = jsObj.getInt(STRIPES);
+        final int index = jsObj.getInt(STRIPE_INDEX);
+        if (index < 0 || index >= count) {
+            sc.close();
+            throw new IOException("Invalid data connection index " + index + " of " + count + " from " + remoteAddress);
+        }
+        SocketChannel stripes[] = m_pendingStripes.get(nonce);
+        if (stripes == null) {
+            stripes = new SocketChannel[count];
+            m_pendingStripes.put(nonce, stripes);
+        }
+        stripes[index] = sc;
+    }
+
+    /*
+     * Collect the data connections advertised by a primary connection. They must all have
+     * been accepted already since the connecting node opens them first.
+     */
+    private SocketChannel[] claimStripes(JSONObject jsObj, String remoteAddress) throws IOException {
+        final int count = jsObj.optInt(STRIPES, 0);
+        if (count == 0) {
+            return new SocketChannel[0];
+        }
+        SocketChannel stripes[] = m_pendingStripes.remove(jsObj.optString(MESH_NONCE));
+        boolean complete = stripes != null && stripes.length == count;
+        for (int ii = 0; complete && ii < count; ii++) {
+            complete = stripes[ii] != null;
+        }
+        if (!complete) {
+            closeAll(stripes);
+            throw new IOException("Missing data connections from " + remoteAddress);
+        }
+        return stripes;
+    }
+
+    private static void closeAll(SocketChannel sockets[]) {
+        if (sockets == null) return;
+        for (SocketChannel sc : sockets) {
+            if (sc == null) continue;
+            try {
+                sc.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /*
+     * Open the data connections to a host. This is done before the primary connection
+     * is opened so that the remote joiner thread has parked them by the time it processes
+     * the primary connection.
+     */
+    private SocketChannel[] openStripes(InetSocketAddress addr, String nonce) throws IOException, JSONException {
+        SocketChannel stripes[] = new SocketChannel[m_dataConnections];
+        try {
+            for (int ii = 0; ii < stripes.length; ii++) {
+                stripes[ii] = SocketChannel.open(addr);
+                stripes[ii].socket().setTcpNoDelay(true);
+                stripes[ii].socket().setPerformancePreferences(0, 2, 1);
+
+                // discard the clock skew timestamp, the primary connection measures it
+                ByteBuffer currentTimeBuf = ByteBuffer.allocate(8);
+                while (currentTimeBuf.hasRemaining()) {
+                    if (stripes[ii].read(currentTimeBuf) == -1) {
+                        throw new EOFException(addr.toString());
+                    }
+                }
+
+                JSONObject jsObj = new JSONObject();
+                jsObj.put(TYPE, STRIPE);
+                jsObj.put(MESH_NONCE, nonce);
+                jsObj.put(STRIPES, stripes.length);
+                jsObj.put(STRIPE_INDEX, ii);
+
+                byte jsBytes[] = jsObj.toString(4).getBytes(StandardCharsets.UTF_8);
+                ByteBuffer stripeBuffer = ByteBuffer.allocate(4 + jsBytes.length);
+                stripeBuffer.putInt(jsBytes.length);
+                stripeBuffer.put(jsBytes).flip();
+                while (stripeBuffer.hasRemaining()) {
+                    stripes[ii].write(stripeBuffer);
+                }
+            }
+        } catch (IOException | JSONException e) {
+            closeAll(stripes);
+            throw e;
+        }
+        return stripes;
+    }
+
+    private void advertiseStripes(JSONObject jsObj, String nonce) throws JSONException {
+        if (m_dataConnections > 0) {
+            jsObj.put(STRIPES, m_dataConnections);
+            jsObj.put(MESH_NONCE, nonce);
+        }
+    }
+
     /*
      * After startup everything is a primary and can accept
      * new nodes into the cluster. This loop accepts the new socket
@@ -590,12 +732,17 @@ public class SocketJoiner {
         // this is used to limit simulatanious versions to two
         Set<String> activeVersions = new TreeSet<String>();
 
+        // ties the data connections to the primary connection on the remote node
+        final String nonce = UUID.randomUUID().toString();
+
         SocketChannel socket = null;
+        SocketChannel leaderStripes[] = null;
         try {
             LOG.debug("Non-Primary Starting & Connecting to Primary");
             int connectAttempts = 0;
             while (socket == null) {
                 try {
+                    leaderStripes = openStripes(coordIp, nonce);
                     socket = SocketChannel.open(coordIp);
                 }
                 catch (java.net.ConnectException
@@ -603,6 +750,8 @@ public class SocketJoiner {
                       |java.net.NoRouteToHostException
                       |java.net.PortUnreachableException e)
                 {
+                    closeAll(leaderStripes);
+                    leaderStripes = null;
                     if (mode == ConnectStrategy.PROBE) {
                         return;
                     }
@@ -664,6 +813,7 @@ public class SocketJoiner {
              */
             m_acceptor.decorate(jsObj, Optional.empty());
             jsObj.put(MAY_EXCHANGE_TS, true);
+            advertiseStripes(jsObj, nonce);
 
             byte jsBytes[] = jsObj.toString(4).getBytes(StandardCharsets.UTF_8);
             ByteBuffer requestHostIdBuffer = ByteBuffer.allocate(4 + jsBytes.length);
@@ -684,6 +834,7 @@ public class SocketJoiner {
             // check if the membership request is accepted
             if (!jsonObj.optBoolean(ACCEPTED, true)) {
                 socket.close();
+                closeAll(leaderStripes);
                 if (!jsonObj.optBoolean(MAY_RETRY, false)) {
                     org.voltdb.VoltDB.crashLocalVoltDB(
                             "Request to join cluster is rejected: "
@@ -708,6 +859,7 @@ public class SocketJoiner {
             JSONArray otherHosts = jsonObj.getJSONArray(HOSTS);
             int hostIds[] = new int[otherHosts.length()];
             SocketChannel hostSockets[] = new SocketChannel[hostIds.length];
+            SocketChannel hostStripes[][] = new SocketChannel[hostIds.length][];
             InetSocketAddress listeningAddresses[] = new InetSocketAddress[hostIds.length];
 
             for (int ii = 0; ii < otherHosts.length(); ii++) {
@@ -724,16 +876,21 @@ public class SocketJoiner {
                     hostIds[ii] = hostId;
                     listeningAddresses[ii] = hostAddr;
                     hostSockets[ii] = socket;
+                    hostStripes[ii] = leaderStripes;
                     cmbld.put(ii,leaderInfo);
                     continue;
                 }
 
                 SocketChannel hostSocket = null;
+                SocketChannel stripes[] = null;
                 while (hostSocket == null) {
                     try {
+                        stripes = openStripes(hostAddr, nonce);
                         hostSocket = SocketChannel.open(hostAddr);
                     }
                     catch (java.net.ConnectException e) {
+                        closeAll(stripes);
+                        stripes = null;
                         LOG.warn("Joining host failed: " + e.getMessage() + " retrying..");
                         try {
                             Thread.sleep(250); //  milliseconds
@@ -769,6 +926,7 @@ public class SocketJoiner {
 
                 m_acceptor.decorate(jsObj, Optional.empty());
                 jsObj.put(MAY_EXCHANGE_TS, true);
+                advertiseStripes(jsObj, nonce);
 
                 jsBytes = jsObj.toString(4).getBytes(StandardCharsets.UTF_8);
                 ByteBuffer pushHostId = ByteBuffer.allocate(4 + jsBytes.length);
@@ -779,6 +937,7 @@ public class SocketJoiner {
                 }
                 hostIds[ii] = hostId;
                 hostSockets[ii] = hostSocket;
+                hostStripes[ii] = stripes;
                 listeningAddresses[ii] = hostAddr;
 
                 // read the json response from socketjoiner with version info and validate it
@@ -820,7 +979,7 @@ public class SocketJoiner {
              * Let host messenger know about the connections.
              * It will init the agreement site and then we are done.
              */
-            m_joinHandler.notifyOfHosts( m_localHostId, hostIds, hostSockets, listeningAddresses, cmbld.build());
+            m_joinHandler.notifyOfHosts( m_localHostId, hostIds, hostSockets, hostStripes, listeningAddresses, cmbld.build());
         } catch (ClosedByInterruptException e) {
             //This is how shutdown is done
         }
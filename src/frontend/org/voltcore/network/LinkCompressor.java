@@ -0,0 +1,168 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.network;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decides which batches of messages written to a connection are worth compressing,
+ * compresses them and keeps the counters reported in IOSTATS.
+ *
+ * Compression only pays off when the connection can't keep up. While the socket
+ * takes every byte as fast as it is produced, compressing just adds latency and
+ * costs CPU at both ends. So a batch is only compressed if it is at least the
+ * threshold size, the socket still held unwritten data when the batch was queued,
+ * and compressing a byte takes less time than sending the bytes it saves would.
+ * That last test uses moving averages of the compression speed and ratio, and of
+ * the rate at which the socket drained while it was backlogged. One in
+ * PROBE_INTERVAL batches that fail it is compressed anyway to keep the averages
+ * current as the data and the link change.
+ *
+ * The subclass provides the compression algorithm and the frame a compressed batch
+ * is sent in, this package is part of the client and doesn't depend on either. Only
+ * used from the network thread of the connection.
+ */
+public abstract class LinkCompressor {
+    static final int PROBE_INTERVAL = 32;
+    // weight of a new sample in the moving averages
+    private static final double SAMPLE_WEIGHT = 0.125;
+
+    private final int m_threshold;
+
+    // moving averages, negative until sampled
+    private double m_compressNanosPerByte = -1;
+    private double m_ratio = -1;
+    private double m_linkNanosPerByte = -1;
+    private int m_rejected = 0;
+
+    // bytes of the batches sent compressed, before and after compression
+    private long m_bytesIn = 0;
+    private long m_bytesOut = 0;
+    // time spent compressing, including batches that didn't get smaller
+    private long m_nanos = 0;
+    private long m_lastBytesIn = 0;
+    private long m_lastBytesOut = 0;
+    private long m_lastNanos = 0;
+
+    /**
+     * @param threshold the smallest batch in bytes worth compressing
+     */
+    protected LinkCompressor(int threshold) {
+        m_threshold = threshold;
+    }
+
+    /** @return the most bytes compressing length bytes can produce */
+    protected abstract int maxCompressedLength(int length);
+
+    /**
+     * Compress the first length bytes of src into dest at destOffset
+     * @return the compressed length
+     */
+    protected abstract int compress(byte[] src, int length, byte[] dest, int destOffset);
+
+    /** @return the length of the header written in front of each compressed batch */
+    protected abstract int frameHeaderLength();
+
+    /**
+     * Write the header of a compressed batch at the position of frame. The
+     * compressed batch follows the header.
+     */
+    protected abstract void writeFrameHeader(ByteBuffer frame, int compressedLength, int uncompressedLength);
+
+    /**
+     * @param batchBytes   the size of the batch
+     * @param backlogged   true if the socket hadn't taken all previously queued data
+     * @return true if the batch should be compressed
+     */
+    boolean shouldCompress(int batchBytes, boolean backlogged) {
+        if (batchBytes < m_threshold || !backlogged) {
+            return false;
+        }
+        if (m_ratio < 0 || m_linkNanosPerByte < 0) {
+            return true;
+        }
+        final double savedNanosPerByte = (1.0 - m_ratio) * m_linkNanosPerByte;
+        if (savedNanosPerByte > m_compressNanosPerByte) {
+            return true;
+        }
+        if (++m_rejected >= PROBE_INTERVAL) {
+            m_rejected = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compress the first length bytes of batch into a frame.
+     *
+     * @return the frame, or null if it wouldn't be smaller than the batch
+     */
+    ByteBuffer compress(byte[] batch, int length) {
+        final long start = System.nanoTime();
+        final int headerLength = frameHeaderLength();
+        final byte[] frame = new byte[headerLength + maxCompressedLength(length)];
+        final int compressedLength = compress(batch, length, frame, headerLength);
+        final long nanos = System.nanoTime() - start;
+
+        final int frameLength = headerLength + compressedLength;
+        m_nanos += nanos;
+        m_compressNanosPerByte = average(m_compressNanosPerByte, (double) nanos / length);
+        m_ratio = average(m_ratio, Math.min(1.0, (double) frameLength / length));
+        if (frameLength >= length) {
+            return null;
+        }
+        m_bytesIn += length;
+        m_bytesOut += frameLength;
+
+        final ByteBuffer buf = ByteBuffer.wrap(frame, 0, frameLength);
+        writeFrameHeader(buf, compressedLength, length);
+        buf.position(0);
+        return buf;
+    }
+
+    /**
+     * Record that the socket took bytes in nanos while it was backlogged the whole time.
+     */
+    void linkSample(long bytes, long nanos) {
+        if (bytes > 0) {
+            m_linkNanosPerByte = average(m_linkNanosPerByte, (double) nanos / bytes);
+        }
+    }
+
+    /**
+     * @return bytes of the batches sent compressed before and after compression,
+     * and the nanoseconds spent compressing
+     */
+    long[] getStats(boolean interval) {
+        if (interval) {
+            final long stats[] = new long[] {
+                    m_bytesIn - m_lastBytesIn,
+                    m_bytesOut - m_lastBytesOut,
+                    m_nanos - m_lastNanos };
+            m_lastBytesIn = m_bytesIn;
+            m_lastBytesOut = m_bytesOut;
+            m_lastNanos = m_nanos;
+            return stats;
+        }
+        return new long[] { m_bytesIn, m_bytesOut, m_nanos };
+    }
+
+    private static double average(double average, double sample) {
+        return average < 0 ? sample : average + SAMPLE_WEIGHT * (sample - average);
+    }
+}
@@ -96,8 +96,17 @@ public abstract class NIOWriteStreamBase {
      * @throws IOException
      */
     final int swapAndSerializeQueuedWrites(final NetworkDBBPool pool) throws IOException {
+        return serializeWrites(getQueuedWrites(), pool);
+    }
+
+    /**
+     * Serialize everything in the given queue into the queue of pending buffers
+     * @return the number of writes taken from the queue
+     * @throws IOException
+     */
+    protected final int serializeWrites(final ArrayDeque<DeferredSerialization> oldlist,
+                                        final NetworkDBBPool pool) throws IOException {
         int processedWrites = 0;
-        final ArrayDeque<DeferredSerialization> oldlist = getQueuedWrites();
         if (oldlist.isEmpty()) return 0;
 
         DeferredSerialization ds = null;
@@ -134,28 +143,37 @@ public abstract class NIOWriteStreamBase {
                 checkSloppySerialization(buf, ds);
                 buf.position(0);
                 bytesQueued += buf.remaining();
-                while (buf.hasRemaining()) {
-                    if (!outbuf.hasRemaining()) {
-                        outCont = pool.acquire();
-                        outbuf = outCont.b();
-                        outbuf.clear();
-                        m_queuedBuffers.offer(outCont);
-                    }
-                    if (outbuf.remaining() >= buf.remaining()) {
-                        outbuf.put(buf);
-                    } else {
-                        final int oldLimit = buf.limit();
-                        buf.limit(buf.position() + outbuf.remaining());
-                        outbuf.put(buf);
-                        buf.limit(oldLimit);
-                    }
-                }
+                copyToQueuedBuffers(buf, pool);
             }
         }
         updateQueued(bytesQueued, true);
         return processedWrites;
     }
 
+    /**
+     * Copy the remaining bytes of a heap buffer to the end of the queue of pending buffers
+     */
+    protected final void copyToQueuedBuffers(final ByteBuffer buf, final NetworkDBBPool pool) {
+        BBContainer outCont = m_queuedBuffers.peekLast();
+        ByteBuffer outbuf = outCont == null ? null : outCont.b();
+        while (buf.hasRemaining()) {
+            if (outbuf == null || !outbuf.hasRemaining()) {
+                outCont = pool.acquire();
+                outbuf = outCont.b();
+                outbuf.clear();
+                m_queuedBuffers.offer(outCont);
+            }
+            if (outbuf.remaining() >= buf.remaining()) {
+                outbuf.put(buf);
+            } else {
+                final int oldLimit = buf.limit();
+                buf.limit(buf.position() + outbuf.remaining());
+                outbuf.put(buf);
+                buf.limit(oldLimit);
+            }
+        }
+    }
+
     private static final boolean ASSERT_ON;
     static {
         boolean assertOn = false;
@@ -167,7 +185,7 @@ public abstract class NIOWriteStreamBase {
      * Validate that serialization is accurately reporting the amount of data necessary
      * to serialize the message
      */
-    private void checkSloppySerialization(ByteBuffer buf, DeferredSerialization ds) {
+    protected final void checkSloppySerialization(ByteBuffer buf, DeferredSerialization ds) {
         if (buf.limit() != buf.capacity()) {
             if (ASSERT_ON) {
                 networkLog.fatal("Sloppy serialization size for message class " + ds);
@@ -37,6 +37,28 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
      */
     private final ArrayDeque<DeferredSerialization> m_queuedWrites = new ArrayDeque<DeferredSerialization>();
 
+    /**
+     * Largest batch of messages compressed together, unless a single message is larger
+     */
+    static final int MAX_BATCH_BYTES = 1024 * 1024;
+
+    private LinkCompressor m_compressor = null;
+    private final ArrayDeque<DeferredSerialization> m_batch = new ArrayDeque<DeferredSerialization>();
+    // when the socket last refused to take all pending data, 0 if it took everything
+    private long m_backloggedSince = 0;
+
+    /**
+     * Compress batches of queued messages with the given compressor when it finds
+     * it worthwhile. Must be set before the stream is used.
+     */
+    void setCompressor(LinkCompressor compressor) {
+        m_compressor = compressor;
+    }
+
+    LinkCompressor getCompressor() {
+        return m_compressor;
+    }
+
     /*
      * Return the number of messages waiting to be written to the network
      */
@@ -73,6 +95,61 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
     @Override
     protected void updateQueued(int queued, boolean noBackpressureSignal) {}
 
+    /**
+     * Serialize the queued messages into the queue of pending buffers, compressing
+     * the batches the compressor picks
+     * @return the number of messages taken from the queue
+     * @throws IOException
+     */
+    int serializeQueuedWrites(final NetworkDBBPool pool) throws IOException {
+        if (m_compressor == null) {
+            return swapAndSerializeQueuedWrites(pool);
+        }
+        final boolean backlogged = !super.isEmpty();
+        int processedWrites = 0;
+        while (!m_queuedWrites.isEmpty()) {
+            int batchBytes = 0;
+            DeferredSerialization ds = null;
+            while ((ds = m_queuedWrites.peek()) != null) {
+                final int serializedSize = ds.getSerializedSize();
+                if (serializedSize != DeferredSerialization.EMPTY_MESSAGE_LENGTH) {
+                    if (batchBytes > 0 && batchBytes + serializedSize > MAX_BATCH_BYTES) {
+                        break;
+                    }
+                    batchBytes += serializedSize;
+                }
+                m_batch.offer(m_queuedWrites.poll());
+            }
+            processedWrites += m_batch.size();
+            if (m_compressor.shouldCompress(batchBytes, backlogged)) {
+                serializeCompressed(batchBytes, pool);
+            } else {
+                serializeWrites(m_batch, pool);
+            }
+        }
+        return processedWrites;
+    }
+
+    private void serializeCompressed(int batchBytes, final NetworkDBBPool pool) throws IOException {
+        final byte batch[] = new byte[batchBytes];
+        final ByteBuffer batchBuf = ByteBuffer.wrap(batch);
+        DeferredSerialization ds = null;
+        while ((ds = m_batch.poll()) != null) {
+            final int serializedSize = ds.getSerializedSize();
+            if (serializedSize == DeferredSerialization.EMPTY_MESSAGE_LENGTH) continue;
+            batchBuf.limit(batchBuf.position() + serializedSize);
+            final ByteBuffer slice = batchBuf.slice();
+            ds.serialize(slice);
+            checkSloppySerialization(slice, ds);
+            batchBuf.position(batchBuf.limit());
+        }
+        ByteBuffer frame = m_compressor.compress(batch, batchBytes);
+        if (frame == null) {
+            frame = ByteBuffer.wrap(batch);
+        }
+        copyToQueuedBuffers(frame, pool);
+    }
+
     /**
      * Drain pending buffers one at a time into the socket
      * @param channel
@@ -113,6 +190,20 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
         } while (rc > 0);
 
         m_bytesWritten += bytesWritten;
+
+        // Time the socket only while it is backlogged the whole time, then the
+        // rate it takes data at is the rate of the link
+        if (m_compressor != null) {
+            final long now = System.nanoTime();
+            if (m_backloggedSince != 0 && bytesWritten > 0) {
+                m_compressor.linkSample(bytesWritten, now - m_backloggedSince);
+            }
+            if (super.isEmpty()) {
+                m_backloggedSince = 0;
+            } else if (m_backloggedSince == 0 || bytesWritten > 0) {
+                m_backloggedSince = now;
+            }
+        }
         return bytesWritten;
     }
 
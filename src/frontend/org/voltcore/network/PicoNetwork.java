@@ -127,6 +127,14 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
         m_thread.start();
     }
 
+    /**
+     * Compress the data written to this connection with the given compressor.
+     * Must be called before the network is started.
+     */
+    public void setCompressor(LinkCompressor compressor) {
+        m_writeStream.setCompressor(compressor);
+    }
+
     public PicoNetwork(SocketChannel sc) {
         m_sc = sc;
         InetSocketAddress remoteAddress = (InetSocketAddress)sc.socket().getRemoteSocketAddress();
@@ -280,7 +288,7 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
         /*
          * Drain the write stream
          */
-        if (m_writeStream.swapAndSerializeQueuedWrites(m_pool) != 0) m_hadWork = true;
+        if (m_writeStream.serializeQueuedWrites(m_pool) != 0) m_hadWork = true;
         if (m_writeStream.drainTo(m_sc) > 0) m_hadWork = true;
         if (m_writeStream.isEmpty()) {
             disableWriteSelection();
@@ -378,6 +386,9 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
             final long read = m_readStream.getBytesRead(interval);
             final long writeInfo[] = m_writeStream.getBytesAndMessagesWritten(interval);
             final long messagesRead = m_messagesRead;
+            final LinkCompressor compressor = m_writeStream.getCompressor();
+            final long compressionInfo[] =
+                    compressor == null ? new long[3] : compressor.getStats(interval);
             retval.put(
                     m_ih.connectionId(),
                     Pair.of(
@@ -386,7 +397,10 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1]}));
+                                    writeInfo[1],
+                                    compressionInfo[0],
+                                    compressionInfo[1],
+                                    compressionInfo[2]}));
             retval.put(
                     -1L,
                     Pair.of(
@@ -395,7 +409,10 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    compressionInfo[0],
+                                    compressionInfo[1],
+                                    compressionInfo[2] }));
             return retval;
     }
 
@@ -504,7 +504,9 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    // only links to other hosts are compressed
+                                    0, 0, 0 }));
         }
         retval.put(
                 -1L,
@@ -514,7 +516,8 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                 totalRead,
                                 totalMessagesRead,
                                 totalWritten,
-                                totalMessagesWritten }));
+                                totalMessagesWritten,
+                                0, 0, 0 }));
         return retval;
     }
 
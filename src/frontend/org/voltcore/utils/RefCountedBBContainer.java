@@ -0,0 +1,84 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * A BBContainer shared by several owners. The container starts with one reference,
+ * each additional owner calls {@link #retain()}, and every owner calls discard() when
+ * it is done. The buffer is recycled when the last reference is discarded.
+ *
+ * A container whose owners are dropped without discarding it is left to the garbage
+ * collector rather than reported as a leak, so subclasses must only hand out buffers
+ * the collector can reclaim (heap buffers or plain ByteBuffer.allocateDirect).
+ */
+public abstract class RefCountedBBContainer extends BBContainer {
+    private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+    public RefCountedBBContainer(ByteBuffer b) {
+        super(b);
+    }
+
+    /**
+     * Add a reference for another owner.
+     * @return this container
+     */
+    public RefCountedBBContainer retain() {
+        for (;;) {
+            final int current = m_refCount.get();
+            if (current <= 0) {
+                // Reports the use after free
+                checkUseAfterFree();
+                throw new IllegalStateException("Retain of a discarded container");
+            }
+            if (m_refCount.compareAndSet(current, current + 1)) {
+                return this;
+            }
+        }
+    }
+
+    public int refCount() {
+        return m_refCount.get();
+    }
+
+    @Override
+    public final void discard() {
+        final int remaining = m_refCount.decrementAndGet();
+        if (remaining == 0) {
+            recycle(checkDoubleFree());
+        }
+        else if (remaining < 0) {
+            // Reports the double free
+            checkDoubleFree();
+        }
+    }
+
+    /**
+     * Called once when the last reference is discarded.
+     */
+    protected abstract void recycle(ByteBuffer b);
+
+    @Override
+    public void finalize() {
+        // Unreleased containers are reclaimed by the garbage collector, see class comment
+    }
+}
@@ -47,12 +47,13 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
 
 
     /*
-     * Maximum values for each group are configured when the group is constructed
+     * Maximum values for each group are configured when the group is constructed,
+     * the transaction limit can be changed later by adaptive admission control
      */
     final private int MAX_DESIRED_PENDING_BYTES;
     final private int LESS_THAN_MAX_DESIRED_PENDING_BYTES;
-    final private int MAX_DESIRED_PENDING_TXNS;
-    final private int LESS_THAN_MAX_DESIRED_PENDING_TXNS;
+    private volatile int m_maxDesiredPendingTxns;
+    private volatile int m_lessThanMaxDesiredPendingTxns;
 
     private static final VoltLogger hostLog = new VoltLogger("HOST");
 
@@ -105,8 +106,22 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
     {
         MAX_DESIRED_PENDING_BYTES = maxBytes;
         LESS_THAN_MAX_DESIRED_PENDING_BYTES = (int)(MAX_DESIRED_PENDING_BYTES * .8);
-        MAX_DESIRED_PENDING_TXNS = maxRequests;
-        LESS_THAN_MAX_DESIRED_PENDING_TXNS = (int)(MAX_DESIRED_PENDING_TXNS * .8);
+        setMaxPendingTxns(maxRequests);
+    }
+
+    /*
+     * Change the pending transaction limit. Can be called from any thread, the new limit
+     * applies from the next transaction accepted or completed by the group.
+     */
+    public void setMaxPendingTxns(int maxRequests)
+    {
+        m_lessThanMaxDesiredPendingTxns = (int)(maxRequests * .8);
+        m_maxDesiredPendingTxns = maxRequests;
+    }
+
+    public int getMaxPendingTxns()
+    {
+        return m_maxDesiredPendingTxns;
     }
 
     public static AdmissionControlGroup getDummy() {
@@ -152,7 +167,7 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         m_pendingTxnCount++;
 
         checkAndLogInvariants();
-        if (m_pendingTxnBytes > MAX_DESIRED_PENDING_BYTES || m_pendingTxnCount > MAX_DESIRED_PENDING_TXNS) {
+        if (m_pendingTxnBytes > MAX_DESIRED_PENDING_BYTES || m_pendingTxnCount > m_maxDesiredPendingTxns) {
             if (!m_hadBackPressure) {
                 hostLog.debug("TXN back pressure began");
                 m_hadBackPressure = true;
@@ -214,7 +229,7 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         checkAndLogInvariants();
 
         if ((m_pendingTxnBytes < LESS_THAN_MAX_DESIRED_PENDING_BYTES) &&
-            (m_pendingTxnCount < LESS_THAN_MAX_DESIRED_PENDING_TXNS))
+            (m_pendingTxnCount < m_lessThanMaxDesiredPendingTxns))
         {
             if (m_hadBackPressure) {
                 hostLog.debug("TXN backpressure ended");
@@ -266,7 +281,7 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
             }
         }
         else if ((m_pendingTxnBytes < LESS_THAN_MAX_DESIRED_PENDING_BYTES) &&
-                (m_pendingTxnCount < LESS_THAN_MAX_DESIRED_PENDING_TXNS)) {
+                (m_pendingTxnCount < m_lessThanMaxDesiredPendingTxns)) {
             if (m_hadBackPressure) {
                 hostLog.debug("TXN backpressure ended");
                 m_hadBackPressure = false;
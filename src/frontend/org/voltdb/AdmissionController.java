@@ -0,0 +1,381 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.iv2.SiteTaskerQueue;
+
+/**
+ * Host wide admission control policy, applied on top of the per network thread
+ * {@link AdmissionControlGroup}s.
+ *
+ * When adaptive, the pending transaction limit of every group follows the queue
+ * wait of the local sites. If some site's tasks waited longer than the target on
+ * average over the last interval, and the site's StarvationTracker shows it was
+ * busy for that interval, the limit is cut by a factor. Otherwise it grows back
+ * by a fixed step, up to the configured limit. The byte limit is not adjusted.
+ *
+ * Quotas bound the transactions and request bytes outstanding on this host per
+ * user and per procedure. They are checked when a request is dispatched and
+ * charged when its handle is created, so a quota can be exceeded by at most one
+ * request per network thread. System procedures are exempt.
+ *
+ * Read-only procedures designated as priority procedures are queued in the
+ * priority lane of the SiteTaskerQueue, ahead of other queued work.
+ */
+public class AdmissionController extends StatsSource {
+
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    private static final AdmissionController s_instance = new AdmissionController();
+
+    /** Limits of each network thread's admission control group */
+    public static final int MAX_PENDING_BYTES = 1024 * 1024 * 8;
+    public static final int MAX_PENDING_TXNS = 1000;
+
+    public static final long ADJUST_INTERVAL_MILLIS = 200;
+    /** The adaptive limit is never cut below this */
+    static final int MIN_PENDING_TXNS = 50;
+    static final double DECREASE_FACTOR = 0.8;
+    static final int INCREASE_STEP = 50;
+    /** A site starved for more than this fraction of an interval isn't overloaded */
+    static final double IDLE_FRACTION = 0.05;
+
+    /**
+     * Transactions and request bytes outstanding for one user or procedure.
+     * A limit of zero or less is unlimited.
+     */
+    public static class Quota {
+        final String m_type;
+        final String m_name;
+        final int m_maxTxns;
+        final long m_maxBytes;
+        private final AtomicInteger m_txns = new AtomicInteger();
+        private final AtomicLong m_bytes = new AtomicLong();
+        private final AtomicLong m_rejected = new AtomicLong();
+
+        Quota(String type, String name, int maxTxns, long maxBytes) {
+            m_type = type;
+            m_name = name;
+            m_maxTxns = maxTxns;
+            m_maxBytes = maxBytes;
+        }
+
+        boolean admits(int messageSize) {
+            if (m_maxTxns > 0 && m_txns.get() >= m_maxTxns) {
+                return false;
+            }
+            // A request larger than the quota is admitted once nothing else is pending
+            final long bytes = m_bytes.get();
+            return m_maxBytes <= 0 || bytes == 0 || bytes + messageSize <= m_maxBytes;
+        }
+
+        public void acquire(int messageSize) {
+            m_txns.incrementAndGet();
+            m_bytes.addAndGet(messageSize);
+        }
+
+        public void release(int messageSize) {
+            m_txns.decrementAndGet();
+            m_bytes.addAndGet(-messageSize);
+        }
+
+        public int getPendingTxns() {
+            return m_txns.get();
+        }
+
+        public long getPendingBytes() {
+            return m_bytes.get();
+        }
+
+        public long getRejected() {
+            return m_rejected.get();
+        }
+    }
+
+    private static class SiteQueue {
+        final SiteTaskerQueue m_queue;
+        final StarvationTracker m_tracker;
+        long m_lastCount;
+        long m_lastTotalNanos;
+        long m_lastStarvedNanos;
+
+        SiteQueue(SiteTaskerQueue queue, StarvationTracker tracker) {
+            m_queue = queue;
+            m_tracker = tracker;
+            m_lastCount = queue.getWaitStats(false).getCount();
+            m_lastTotalNanos = queue.getWaitStats(false).getTotalNanos();
+            m_lastStarvedNanos = tracker == null ? 0 : tracker.getTotalStarvationNanos();
+        }
+    }
+
+    private volatile boolean m_adaptive = false;
+    private volatile long m_targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private volatile Set<String> m_priorityProcedures = Collections.emptySet();
+    private final ConcurrentHashMap<String, Quota> m_userQuotas = new ConcurrentHashMap<String, Quota>();
+    private final ConcurrentHashMap<String, Quota> m_procedureQuotas = new ConcurrentHashMap<String, Quota>();
+    private volatile boolean m_hasQuotas = false;
+
+    private final CopyOnWriteArrayList<SiteQueue> m_sites = new CopyOnWriteArrayList<SiteQueue>();
+    private volatile int m_pendingTxnLimit = MAX_PENDING_TXNS;
+    // guarded by this
+    private long m_lastAdjustNanos = 0;
+
+    // Row key of the pending transaction limit in the stats
+    private static final Object LIMIT_ROW = new Object();
+
+    public static AdmissionController instance() {
+        return s_instance;
+    }
+
+    AdmissionController() {
+        super(false);
+    }
+
+    /**
+     * Adjust the pending transaction limit to the local site queue wait.
+     *
+     * @param targetQueueWaitMillis   longest average queue wait tolerated
+     */
+    public void setAdaptive(boolean adaptive, int targetQueueWaitMillis) {
+        m_targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetQueueWaitMillis);
+        // The site queues only measure their wait when it is needed here
+        SiteTaskerQueue.setTrackWaits(adaptive);
+        m_adaptive = adaptive;
+        if (!adaptive) {
+            m_pendingTxnLimit = MAX_PENDING_TXNS;
+        }
+    }
+
+    public boolean isAdaptive() {
+        return m_adaptive;
+    }
+
+    public void setPriorityProcedures(Collection<String> procedures) {
+        m_priorityProcedures = Collections.unmodifiableSet(new HashSet<String>(procedures));
+    }
+
+    /**
+     * @return true if read-only invocations of the procedure go to the priority lane
+     */
+    public boolean isPriorityProcedure(String procName) {
+        return m_priorityProcedures.contains(procName);
+    }
+
+    public void setUserQuota(String user, int maxTxns, long maxBytes) {
+        m_userQuotas.put(user, new Quota("USER", user, maxTxns, maxBytes));
+        m_hasQuotas = true;
+    }
+
+    public void setProcedureQuota(String procName, int maxTxns, long maxBytes) {
+        m_procedureQuotas.put(procName, new Quota("PROCEDURE", procName, maxTxns, maxBytes));
+        m_hasQuotas = true;
+    }
+
+    public boolean hasQuotas() {
+        return m_hasQuotas;
+    }
+
+    /**
+     * @param user the user name, null when security is disabled
+     * @return the quota of the user or null if it has none
+     */
+    public Quota getUserQuota(String user) {
+        return m_hasQuotas && user != null ? m_userQuotas.get(user) : null;
+    }
+
+    /**
+     * @return the quota of the procedure or null if it has none
+     */
+    public Quota getProcedureQuota(String procName) {
+        if (!m_hasQuotas || procName.startsWith("@")) {
+            return null;
+        }
+        return m_procedureQuotas.get(procName);
+    }
+
+    /**
+     * Check a request against the quotas of its user and procedure. Without security
+     * there is no user name and only the procedure quota applies.
+     *
+     * @return a message naming the exceeded quota, or null if the request is admitted
+     */
+    public String checkQuotas(String user, String procName, int messageSize) {
+        if (!m_hasQuotas || procName.startsWith("@")) {
+            return null;
+        }
+        Quota quota = getUserQuota(user);
+        if (quota != null && !quota.admits(messageSize)) {
+            quota.m_rejected.incrementAndGet();
+            return "Admission quota of user " + user + " exceeded";
+        }
+        quota = m_procedureQuotas.get(procName);
+        if (quota != null && !quota.admits(messageSize)) {
+            quota.m_rejected.incrementAndGet();
+            return "Admission quota of procedure " + procName + " exceeded";
+        }
+        return null;
+    }
+
+    /**
+     * Register the task queue of a local site so its queue wait drives the adaptive limit.
+     */
+    public void registerSite(SiteTaskerQueue queue, StarvationTracker tracker) {
+        m_sites.add(new SiteQueue(queue, tracker));
+    }
+
+    /**
+     * Stop watching the task queue of a site that has shut down.
+     */
+    public void deregisterSite(SiteTaskerQueue queue) {
+        for (SiteQueue site : m_sites) {
+            if (site.m_queue == queue) {
+                m_sites.remove(site);
+            }
+        }
+    }
+
+    /**
+     * Forget the configuration, quotas and sites of a previous run of the server
+     * in this JVM. Called on shutdown.
+     */
+    public synchronized void reset() {
+        setAdaptive(false, 10);
+        m_priorityProcedures = Collections.emptySet();
+        m_hasQuotas = false;
+        m_userQuotas.clear();
+        m_procedureQuotas.clear();
+        m_sites.clear();
+        m_lastAdjustNanos = 0;
+    }
+
+    /**
+     * @return the pending transaction limit for each admission control group
+     */
+    public int getPendingTxnLimit() {
+        return m_pendingTxnLimit;
+    }
+
+    /**
+     * Move the pending transaction limit according to the site queue wait since the
+     * last adjustment. Called every {@link #ADJUST_INTERVAL_MILLIS}.
+     *
+     * @return the new limit
+     */
+    public synchronized int adjust(long nowNanos) {
+        final long elapsedNanos = nowNanos - m_lastAdjustNanos;
+        final boolean first = m_lastAdjustNanos == 0;
+        m_lastAdjustNanos = nowNanos;
+
+        boolean overloaded = false;
+        for (SiteQueue site : m_sites) {
+            final SiteTaskerQueue.WaitStats stats = site.m_queue.getWaitStats(false);
+            final long count = stats.getCount();
+            final long totalNanos = stats.getTotalNanos();
+            final long starvedNanos = site.m_tracker == null ? 0 : site.m_tracker.getTotalStarvationNanos();
+            final long intervalCount = count - site.m_lastCount;
+            final long intervalNanos = totalNanos - site.m_lastTotalNanos;
+            final long intervalStarvedNanos = starvedNanos - site.m_lastStarvedNanos;
+            site.m_lastCount = count;
+            site.m_lastTotalNanos = totalNanos;
+            site.m_lastStarvedNanos = starvedNanos;
+            if (intervalCount > 0 &&
+                    intervalNanos / intervalCount > m_targetWaitNanos &&
+                    intervalStarvedNanos < elapsedNanos * IDLE_FRACTION) {
+                overloaded = true;
+            }
+        }
+        if (first || !m_adaptive) {
+            return m_pendingTxnLimit;
+        }
+
+        final int limit = m_pendingTxnLimit;
+        int newLimit;
+        if (overloaded) {
+            newLimit = Math.max(MIN_PENDING_TXNS, (int)(limit * DECREASE_FACTOR));
+        } else {
+            newLimit = Math.min(MAX_PENDING_TXNS, limit + INCREASE_STEP);
+        }
+        if (newLimit != limit) {
+            if (hostLog.isDebugEnabled()) {
+                hostLog.debug("Pending transaction limit of each network thread set to " + newLimit);
+            }
+            m_pendingTxnLimit = newLimit;
+        }
+        return newLimit;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("TYPE", VoltType.STRING));
+        columns.add(new ColumnInfo("NAME", VoltType.STRING));
+        columns.add(new ColumnInfo("MAX_TXNS", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MAX_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PENDING_TXNS", VoltType.INTEGER));
+        columns.add(new ColumnInfo("PENDING_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("REJECTED", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        if (rowKey == LIMIT_ROW) {
+            // Limits of each network thread, whose pending counts aren't tracked here
+            rowValues[columnNameToIndex.get("TYPE")] = "NETWORK_THREAD";
+            rowValues[columnNameToIndex.get("NAME")] = m_adaptive ? "ADAPTIVE" : "FIXED";
+            rowValues[columnNameToIndex.get("MAX_TXNS")] = m_pendingTxnLimit;
+            rowValues[columnNameToIndex.get("MAX_BYTES")] = (long)MAX_PENDING_BYTES;
+            rowValues[columnNameToIndex.get("PENDING_TXNS")] = VoltType.NULL_INTEGER;
+            rowValues[columnNameToIndex.get("PENDING_BYTES")] = VoltType.NULL_BIGINT;
+            rowValues[columnNameToIndex.get("REJECTED")] = VoltType.NULL_BIGINT;
+        } else {
+            final Quota quota = (Quota)rowKey;
+            rowValues[columnNameToIndex.get("TYPE")] = quota.m_type;
+            rowValues[columnNameToIndex.get("NAME")] = quota.m_name;
+            rowValues[columnNameToIndex.get("MAX_TXNS")] = quota.m_maxTxns;
+            rowValues[columnNameToIndex.get("MAX_BYTES")] = quota.m_maxBytes;
+            rowValues[columnNameToIndex.get("PENDING_TXNS")] = quota.getPendingTxns();
+            rowValues[columnNameToIndex.get("PENDING_BYTES")] = quota.getPendingBytes();
+            rowValues[columnNameToIndex.get("REJECTED")] = quota.getRejected();
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        List<Object> keys = new ArrayList<Object>();
+        keys.add(LIMIT_ROW);
+        keys.addAll(m_userQuotas.values());
+        keys.addAll(m_procedureQuotas.values());
+        return keys.iterator();
+    }
+}
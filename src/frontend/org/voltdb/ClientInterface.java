@@ -209,7 +209,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
     private final ThreadLocal<AdmissionControlGroup> m_acg = new ThreadLocal<AdmissionControlGroup>() {
         @Override
         public AdmissionControlGroup initialValue() {
-            AdmissionControlGroup acg = new AdmissionControlGroup( 1024 * 1024 * 8, 1000);
+            AdmissionControlGroup acg = new AdmissionControlGroup(AdmissionController.MAX_PENDING_BYTES,
+                    AdmissionController.instance().getPendingTxnLimit());
             m_allACGs.add(acg);
             return acg;
         }
@@ -780,8 +781,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         @Override
         public void started(final Connection c) {
             m_connection = c;
-            m_cihm.put(c.connectionId(),
-                       new ClientInterfaceHandleManager( m_isAdmin, c, null, m_acg.get()));
+            ClientInterfaceHandleManager cihm =
+                    new ClientInterfaceHandleManager( m_isAdmin, c, null, m_acg.get());
+            cihm.setUserQuota(AdmissionController.instance().getUserQuota(m_username));
+            m_cihm.put(c.connectionId(), cihm);
             m_acg.get().addMember(this);
             if (!m_acg.get().hasBackPressure()) {
                 c.enableReadSelection();
@@ -891,10 +894,12 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         {
             buf.putInt(buf.capacity() - 4);
             clientResponse.flattenToBuffer(buf);
+            response.discardResultContainers();
         }
 
         @Override
         public void cancel() {
+            response.discardResultContainers();
         }
 
         @Override
@@ -913,6 +918,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 clientData = cihm.findHandle(response.getClientInterfaceHandle());
             }
             if (clientData == null) {
+                response.discardResultContainers();
                 return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
             }
 
@@ -920,6 +926,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             if (restartTransaction(clientData.m_messageSize, clientData.m_creationTimeNanos)) {
                 // If the transaction is successfully restarted, don't send a response to the
                 // client yet.
+                response.discardResultContainers();
                 return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
             }
 
@@ -1123,6 +1130,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                         //Only the network can use the CIHM
                         cihm.connection.writeStream().fastEnqueue(new ClientResponseWork(response, cihm, procedure));
                     }
+                    else {
+                        response.discardResultContainers();
+                    }
                 } else if (message instanceof BinaryPayloadMessage) {
                     handlePartitionFailOver((BinaryPayloadMessage)message);
                 } else {
@@ -1374,6 +1384,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
     private ScheduledFuture<?> m_deadConnectionFuture;
     private ScheduledFuture<?> m_topologyCheckFuture;
+    private ScheduledFuture<?> m_admissionFuture;
     public void schedulePeriodicWorks() {
         m_deadConnectionFuture = VoltDB.instance().scheduleWork(new Runnable() {
             @Override
@@ -1398,6 +1409,22 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 checkForTopologyChanges();
             }
         }, 0, TOPOLOGY_CHANGE_CHECK_MS, TimeUnit.MILLISECONDS);
+        /*
+         * Follow the site queue wait with the pending transaction limit of every ACG
+         */
+        if (AdmissionController.instance().isAdaptive()) {
+            m_admissionFuture = VoltDB.instance().scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    final int limit = AdmissionController.instance().adjust(System.nanoTime());
+                    for (AdmissionControlGroup acg : m_allACGs) {
+                        if (acg.getMaxPendingTxns() != limit) {
+                            acg.setMaxPendingTxns(limit);
+                        }
+                    }
+                }
+            }, 0, AdmissionController.ADJUST_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
     }
 
     /*
@@ -1539,6 +1566,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             m_topologyCheckFuture.cancel(false);
             try {m_topologyCheckFuture.get();} catch (Throwable t) {}
         }
+        if (m_admissionFuture != null) {
+            m_admissionFuture.cancel(false);
+            try {m_admissionFuture.get();} catch (Throwable t) {}
+        }
         if (m_maxConnectionUpdater != null) {
             m_maxConnectionUpdater.cancel(false);
         }
@@ -60,6 +60,8 @@ public class ClientInterfaceHandleManager
     public final ClientInterfaceRepairCallback repairCallback;
     private final long m_expectedThreadId = Thread.currentThread().getId();
     final AdmissionControlGroup m_acg;
+    // Quota of the connection's user, null if it has none
+    private AdmissionController.Quota m_userQuota = null;
 
     private volatile boolean m_wantsTopologyUpdates = false;
 
@@ -109,6 +111,9 @@ public class ClientInterfaceHandleManager
         final long m_creationTimeNanos;
         final String m_procName;
         final long m_initiatorHSId;
+        // Admission quotas charged for this transaction, or null
+        AdmissionController.Quota m_userQuota = null;
+        AdmissionController.Quota m_procedureQuota = null;
         Iv2InFlight(long ciHandle, long clientHandle,
                 int messageSize, long creationTimeNanos, String procName, long initiatorHSId)
         {
@@ -142,6 +147,14 @@ public class ClientInterfaceHandleManager
         m_acg = acg;
     }
 
+    /**
+     * Charge the transactions of this connection to a user quota.
+     */
+    void setUserQuota(AdmissionController.Quota quota)
+    {
+        m_userQuota = quota;
+    }
+
     /**
      * Factory to make a threadsafe version of CIHM. This is used
      * exclusively by some internal CI adapters that don't have
@@ -249,11 +262,35 @@ public class ClientInterfaceHandleManager
             }
         }
 
+        if (m_userQuota != null && !procName.startsWith("@")) {
+            m_userQuota.acquire(messageSize);
+            inFlight.m_userQuota = m_userQuota;
+        }
+        AdmissionController.Quota procedureQuota = AdmissionController.instance().getProcedureQuota(procName);
+        if (procedureQuota != null) {
+            procedureQuota.acquire(messageSize);
+            inFlight.m_procedureQuota = procedureQuota;
+        }
+
         m_outstandingTxns++;
         m_acg.increaseBackpressure(messageSize);
         return ciHandle;
     }
 
+    /*
+     * Release the admission control resources held by a transaction that is done
+     * or given up on.
+     */
+    private void releaseBackpressure(Iv2InFlight inFlight) {
+        m_acg.reduceBackpressure(inFlight.m_messageSize);
+        if (inFlight.m_userQuota != null) {
+            inFlight.m_userQuota.release(inFlight.m_messageSize);
+        }
+        if (inFlight.m_procedureQuota != null) {
+            inFlight.m_procedureQuota.release(inFlight.m_messageSize);
+        }
+    }
+
     private static boolean getReadBit(long handle) {
         return (handle & READ_BIT) != 0;
     }
@@ -283,7 +320,7 @@ public class ClientInterfaceHandleManager
          */
         Iv2InFlight inflight = m_shortCircuitReads.remove(ciHandle);
         if (inflight != null) {
-            m_acg.reduceBackpressure(inflight.m_messageSize);
+            releaseBackpressure(inflight);
             m_outstandingTxns--;
             return inflight;
         }
@@ -319,7 +356,7 @@ public class ClientInterfaceHandleManager
                 buf.flip();
                 connection.writeStream().enqueue(buf);
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(inFlight.m_messageSize);
+                releaseBackpressure(inFlight);
             }
             else if (inFlight.m_ciHandle > ciHandle) {
                 // we've gone too far, need to jam this back into the front of the deque and run away.
@@ -329,7 +366,7 @@ public class ClientInterfaceHandleManager
                 break;
             }
             else {
-                m_acg.reduceBackpressure(inFlight.m_messageSize);
+                releaseBackpressure(inFlight);
                 m_outstandingTxns--;
                 return inFlight;
             }
@@ -352,7 +389,7 @@ public class ClientInterfaceHandleManager
         // done.  However, this is logically correct, so go ahead and allow it.
         Iv2InFlight inflight = m_shortCircuitReads.remove(ciHandle);
         if (inflight != null) {
-            m_acg.reduceBackpressure(inflight.m_messageSize);
+            releaseBackpressure(inflight);
             m_outstandingTxns--;
             return inflight;
         }
@@ -380,7 +417,7 @@ public class ClientInterfaceHandleManager
                 break;
             }
             else if (inFlight.m_ciHandle == ciHandle) {
-                m_acg.reduceBackpressure(inFlight.m_messageSize);
+                releaseBackpressure(inFlight);
                 m_outstandingTxns--;
                 iter.remove();
                 return inFlight;
@@ -407,16 +444,16 @@ public class ClientInterfaceHandleManager
         for (PartitionData pd : m_partitionStuff.values()) {
             for (Iv2InFlight inflight : pd.m_reads) {
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(inflight.m_messageSize);
+                releaseBackpressure(inflight);
             }
             for (Iv2InFlight inflight : pd.m_writes) {
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(inflight.m_messageSize);
+                releaseBackpressure(inflight);
             }
         }
         for (Iv2InFlight inflight : m_shortCircuitReads.values()) {
             m_outstandingTxns--;
-            m_acg.reduceBackpressure(inflight.m_messageSize);
+            releaseBackpressure(inflight);
         }
     }
 
@@ -439,7 +476,7 @@ public class ClientInterfaceHandleManager
                 i.remove();
                 retval.add(entry);
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(entry.m_messageSize);
+                releaseBackpressure(entry);
             }
         }
 
@@ -457,7 +494,7 @@ public class ClientInterfaceHandleManager
                     itr.remove();
                     retval.add(entry);
                     m_outstandingTxns--;
-                    m_acg.reduceBackpressure(entry.m_messageSize);
+                    releaseBackpressure(entry);
                 }
             }
         }
@@ -473,7 +510,7 @@ public class ClientInterfaceHandleManager
                 i.remove();
                 retval.add(entry);
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(entry.m_messageSize);
+                releaseBackpressure(entry);
             }
         }
         return retval;
@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
@@ -44,6 +45,8 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     private byte encodedAppStatusString[];
     private VoltTable[] results = new VoltTable[0];
     private Integer m_hash = null;
+    // pooled buffers backing the result tables, not part of wire protocol
+    private BBContainer[] m_resultContainers = null;
 
     private int clusterRoundTripTime = 0;
     private int clientRoundTripTime = 0;
@@ -109,6 +112,29 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         this.setProperly = true;
     }
 
+    /**
+     * Hand ownership of the pooled buffers backing the result tables to this response.
+     * They are discarded by {@link #discardResultContainers()} once the response has
+     * been serialized.
+     */
+    public void setResultContainers(BBContainer[] containers) {
+        assert(m_resultContainers == null);
+        m_resultContainers = containers;
+    }
+
+    /**
+     * Discard the pooled buffers backing the result tables, if any. The result tables
+     * must not be read afterwards. Safe to call more than once.
+     */
+    public void discardResultContainers() {
+        if (m_resultContainers != null) {
+            for (BBContainer container : m_resultContainers) {
+                container.discard();
+            }
+            m_resultContainers = null;
+        }
+    }
+
     public void setHash(Integer hash) {
         m_hash = hash;
     }
@@ -104,6 +104,13 @@ public interface CommandLog {
          */
         void addTask(TransactionTask task);
 
+        /**
+         * Add a transaction the command log released without logging it, before it was
+         * initialized. Its unique ID is not tracked as durable.
+         * @param task
+         */
+        void addUnloggedTask(TransactionTask task);
+
         /**
          * Called on the very first message a rejoined SpScheduler receives to initialize the last durable value.
          * @param uniqueId    The last durable unique ID passed from the master.
@@ -151,6 +158,11 @@ public interface CommandLog {
          */
         public void addTransaction(TransactionTask pendingTask);
 
+        /**
+         * Called from CommandLog to release a task it did not log, before it was initialized
+         */
+        public void addUnloggedTransaction(TransactionTask pendingTask);
+
         /**
          * Called on the very first message a rejoined SpScheduler receives to initialize the last durable value.
          * @param uniqueId    The last durable unique ID passed from the master.
@@ -22,7 +22,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -86,7 +89,6 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     private volatile long m_bytesWritten = 0;
 
-    private static final Semaphore m_bytesAllowedBeforeSync = new Semaphore((1024 * 1024) * 256);
     private final AtomicInteger m_bytesWrittenSinceLastSync = new AtomicInteger(0);
 
     private final ScheduledFuture<?> m_syncTask;
@@ -105,10 +107,88 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private final Condition m_noMoreOutstandingWriteTasksCondition =
             m_outstandingWriteTasksLock.newCondition();
 
-    private static final ListeningExecutorService m_es = CoreUtils.getListeningSingleThreadExecutor("Snapshot write service ");
+    /*
+     * Time spent by the writer appending this target's data and by the sync service
+     * flushing it, reported through SnapshotStatus
+     */
+    private volatile long m_writeNanos = 0;
+    private volatile long m_syncNanos = 0;
+
+    /*
+     * Used by SimpleFileSnapshotDataTarget, which has a write thread per target
+     */
     static final ListeningScheduledExecutorService m_syncService = MoreExecutors.listeningDecorator(
             Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service")));
 
+    /*
+     * By default there is one writer per file store (device) so that a snapshot spread over
+     * several disks writes to all of them at once, while each disk still only sees sequential
+     * appends. Set to have one writer per snapshot directory instead.
+     */
+    public static final boolean SNAPSHOT_WRITER_PER_DIRECTORY = Boolean.getBoolean("SNAPSHOT_WRITER_PER_DIRECTORY");
+
+    /**
+     * The write thread, sync thread and sync window shared by all the targets on one device.
+     * The threads are shut down once the last target using them is closed.
+     */
+    static final class SnapshotWriter {
+        final String m_name;
+        final ListeningExecutorService m_es;
+        final ListeningScheduledExecutorService m_syncService;
+        final Semaphore m_bytesAllowedBeforeSync = new Semaphore((1024 * 1024) * 256);
+        // open targets using this writer, guarded by DefaultSnapshotDataTarget.class
+        private int m_targets = 0;
+
+        private SnapshotWriter(String name) {
+            m_name = name;
+            m_es = CoreUtils.getListeningSingleThreadExecutor("Snapshot write service " + name);
+            m_syncService = MoreExecutors.listeningDecorator(
+                    Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service " + name)));
+        }
+    }
+
+    private static final Map<String, SnapshotWriter> m_writers = new HashMap<String, SnapshotWriter>();
+
+    static String writerKey(File file) {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        if (!SNAPSHOT_WRITER_PER_DIRECTORY) {
+            try {
+                // mount point and device, unique per file store
+                return Files.getFileStore(dir.toPath()).toString();
+            } catch (IOException e) {
+                SNAP_LOG.debug("Unable to resolve the file store of " + dir + ", using a writer per directory", e);
+            }
+        }
+        return dir.getPath();
+    }
+
+    static synchronized SnapshotWriter acquireWriter(File file) {
+        final String key = writerKey(file);
+        SnapshotWriter writer = m_writers.get(key);
+        if (writer == null) {
+            writer = new SnapshotWriter(key);
+            m_writers.put(key, writer);
+        }
+        writer.m_targets++;
+        return writer;
+    }
+
+    static synchronized void releaseWriter(SnapshotWriter writer) {
+        if (--writer.m_targets == 0) {
+            m_writers.remove(writer.m_name);
+            // lets writes that are already queued finish
+            writer.m_es.shutdown();
+            writer.m_syncService.shutdown();
+        }
+    }
+
+    static synchronized int writerCount() {
+        return m_writers.size();
+    }
+
+    private final SnapshotWriter m_writer;
+    private boolean m_writerReleased = false;
+
     public static final int SNAPSHOT_SYNC_FREQUENCY = Integer.getInteger("SNAPSHOT_SYNC_FREQUENCY", 500);
     public static final int SNAPSHOT_FADVISE_BYTES = Integer.getInteger("SNAPSHOT_FADVISE_BYTES", 1024 * 1024 * 2);
     public static final int SNAPSHOT_RATELIMIT_MEGABYTES;
@@ -133,9 +213,22 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     public static final UnsynchronizedRateLimiter SNAPSHOT_RATELIMITER =
             UnsynchronizedRateLimiter.create(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0, 1, TimeUnit.SECONDS);
 
+    /*
+     * Rate requested by setRate, applied by the next writer to acquire permits so that
+     * changing the rate never waits behind a writer sleeping in the limiter
+     */
+    private static volatile double m_requestedRate = SNAPSHOT_RATELIMITER.getRate();
+
     public static void enforceSnapshotRateLimit(int permits) {
         if (USE_SNAPSHOT_RATELIMIT) {
-            SNAPSHOT_RATELIMITER.acquire(permits);
+            // shared by the writers of every device
+            synchronized (SNAPSHOT_RATELIMITER) {
+                final double requestedRate = m_requestedRate;
+                if (SNAPSHOT_RATELIMITER.getRate() != requestedRate) {
+                    SNAPSHOT_RATELIMITER.setRate(requestedRate);
+                }
+                SNAPSHOT_RATELIMITER.acquire(permits);
+            }
         }
     }
 
@@ -263,6 +356,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
          * Be completely sure the write succeeded. If it didn't
          * the disk is probably full or the path is bunk etc.
          */
+        m_writer = acquireWriter(file);
         m_acceptOneWrite = true;
         ListenableFuture<?> writeFuture =
                 write(Callables.returning(DBBPool.wrapBB(aggregateBuffer)), false);
@@ -270,18 +364,21 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             writeFuture.get();
         } catch (InterruptedException e) {
             m_fos.close();
+            releaseWriter();
             throw new java.io.InterruptedIOException();
         } catch (ExecutionException e) {
             m_fos.close();
+            releaseWriter();
             throw m_writeException;
         }
         if (m_writeFailed) {
             m_fos.close();
+            releaseWriter();
             throw m_writeException;
         }
 
         ScheduledFuture<?> syncTask = null;
-        syncTask = m_syncService.scheduleAtFixedRate(new Runnable() {
+        syncTask = m_writer.m_syncService.scheduleAtFixedRate(new Runnable() {
             private long fadvisedBytes = 0;
             private long syncedBytes = 0;
             @Override
@@ -291,10 +388,12 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                 while (m_bytesWrittenSinceLastSync.get() > (1024 * 1024 * 4)) {
                     final int bytesSinceLastSync = m_bytesWrittenSinceLastSync.getAndSet(0);
                     long positionAtSync = 0;
+                    final long syncStartNanos = System.nanoTime();
                     try {
                         positionAtSync = m_channel.position();
                         final long syncStart = syncedBytes;
                         syncedBytes = Bits.sync_file_range(SNAP_LOG, m_fos.getFD(), m_channel, syncStart, positionAtSync);
+                        m_syncNanos += System.nanoTime() - syncStartNanos;
                     } catch (IOException e) {
                         if (!(e instanceof java.nio.channels.AsynchronousCloseException )) {
                             SNAP_LOG.error("Error syncing snapshot", e);
@@ -302,7 +401,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             SNAP_LOG.debug("Asynchronous close syncing snasphot data, presumably graceful", e);
                         }
                     }
-                    m_bytesAllowedBeforeSync.release(bytesSinceLastSync);
+                    m_writer.m_bytesAllowedBeforeSync.release(bytesSinceLastSync);
 
                     /*
                      * Don't pollute the page cache with snapshot data, use fadvise
@@ -349,6 +448,21 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     @Override
     public void close() throws IOException, InterruptedException {
+        try {
+            closeFile();
+        } finally {
+            releaseWriter();
+        }
+    }
+
+    private void releaseWriter() {
+        if (!m_writerReleased) {
+            m_writerReleased = true;
+            releaseWriter(m_writer);
+        }
+    }
+
+    private void closeFile() throws IOException, InterruptedException {
         try {
             m_outstandingWriteTasksLock.lock();
             try {
@@ -359,7 +473,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                 m_outstandingWriteTasksLock.unlock();
             }
             m_syncTask.cancel(false);
-            ListenableFuture<?> task = m_syncService.submit(new Runnable() {
+            ListenableFuture<?> task = m_writer.m_syncService.submit(new Runnable() {
                 @Override
                 public void run() {
                     // Empty task to wait on 'cancel' above, since m_syncTask.get()
@@ -371,9 +485,11 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             } catch (ExecutionException e) {
                 SNAP_LOG.error("Error waiting on snapshot sync task cancellation", e);
             }
+            final long syncStartNanos = System.nanoTime();
             m_channel.force(false);
+            m_syncNanos += System.nanoTime() - syncStartNanos;
         } finally {
-            m_bytesAllowedBeforeSync.release(m_bytesWrittenSinceLastSync.getAndSet(0));
+            m_writer.m_bytesAllowedBeforeSync.release(m_bytesWrittenSinceLastSync.getAndSet(0));
         }
         m_channel.position(8);
         ByteBuffer completed = ByteBuffer.allocate(1);
@@ -449,7 +565,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         }
         final Future<BBContainer> compressionTaskFinal = compressionTask;
 
-        ListenableFuture<?> writeTask = m_es.submit(new Callable<Object>() {
+        ListenableFuture<?> writeTask = m_writer.m_es.submit(new Callable<Object>() {
             @Override
             public Object call() throws Exception {
                 try {
@@ -475,7 +591,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             payloadBuffer.position(0);
 
                             ByteBuffer lengthPrefix = ByteBuffer.allocate(12);
-                            m_bytesAllowedBeforeSync.acquire(payloadBuffer.remaining());
+                            m_writer.m_bytesAllowedBeforeSync.acquire(payloadBuffer.remaining());
                             //Length prefix does not include 4 header items, just compressd payload
                             //that follows
                             lengthPrefix.putInt(payloadBuffer.remaining() - 16);//length prefix
@@ -496,16 +612,20 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             /*
                              * Write payload to file
                              */
+                            final long writeStartNanos = System.nanoTime();
                             while (payloadBuffer.hasRemaining()) {
                                 totalWritten += m_channel.write(payloadBuffer);
                             }
+                            m_writeNanos += System.nanoTime() - writeStartNanos;
                         } finally {
                             payloadContainer.discard();
                         }
                     } else {
+                        final long writeStartNanos = System.nanoTime();
                         while (tupleData.hasRemaining()) {
                             totalWritten += m_channel.write(tupleData);
                         }
+                        m_writeNanos += System.nanoTime() - writeStartNanos;
                     }
                     m_bytesWritten += totalWritten;
                     m_bytesWrittenSinceLastSync.addAndGet(totalWritten);
@@ -544,6 +664,18 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         return m_bytesWritten;
     }
 
+    public long getWriteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(m_writeNanos);
+    }
+
+    public long getSyncMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(m_syncNanos);
+    }
+
+    public String getWriterName() {
+        return m_writer.m_name;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseHandler = onClose;
@@ -575,15 +707,10 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     }
 
     public static void setRate(final Integer megabytesPerSecond) {
-        m_es.execute(new Runnable() {
-            @Override
-            public void run() {
-                if (megabytesPerSecond == null) {
-                    SNAPSHOT_RATELIMITER.setRate(SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0);
-                } else {
-                    SNAPSHOT_RATELIMITER.setRate(megabytesPerSecond * 1024.0 * 1024.0);
-                }
-            }
-        });
+        if (megabytesPerSecond == null) {
+            m_requestedRate = SNAPSHOT_RATELIMIT_MEGABYTES * 1024.0 * 1024.0;
+        } else {
+            m_requestedRate = megabytesPerSecond * 1024.0 * 1024.0;
+        }
     }
 }
@@ -0,0 +1,1000 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.zk.ZKUtil;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.utils.MiscUtils;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+/**
+ * A command log that group commits the invocations of every site on the host.
+ *
+ * Sites hand their invocations to {@link #log} which serializes them on the calling
+ * thread and appends them to a shared pending batch. A single writer thread swaps the
+ * batch out once the fsync interval has elapsed since the previous sync (or once the
+ * configured number of transactions is pending), writes it to the current segment
+ * as one checksummed block and syncs it. Only then are the durability listeners told
+ * about the transactions in the batch, on the writer thread, which is the only thread
+ * that touches them after registration.
+ *
+ * In synchronous mode the transactions are released to the sites by the listeners once
+ * durable. In asynchronous mode they execute right away and {@link #log} returns a
+ * future that is only left pending when too many bytes are waiting to be written.
+ *
+ * Segments are named cl.&lt;sequence&gt;.vcl and are never overwritten; each
+ * initialization starts a new segment after the highest existing one. Use
+ * {@link Reader} to read them back in order and {@link GroupCommitReplayAgent}
+ * to replay them on recovery.
+ *
+ * Transactions that run before the log is initialized are the snapshot restore, the
+ * replay and the truncation snapshot that follows them. They are released without
+ * being logged, the truncation snapshot covers them and every existing segment, which
+ * are deleted on initialization. Afterwards a truncation snapshot is requested once the
+ * closed segments fill the configured log size, and closed segments are deleted once a
+ * truncation snapshot covers every record in them. The per partition txnIds of that
+ * snapshot are kept in cl.truncation, recovery must start from a snapshot at least as
+ * recent.
+ *
+ * Snapshots need the snapshot IO of the pro edition, see {@link #truncatesBySnapshot}.
+ * Without it no truncation snapshot is ever taken: every segment is kept, the replayed
+ * transactions are released unlogged as before, and recovery replays all of the
+ * segments into an empty database.
+ *
+ * Replay does not coordinate the replicas of a partition logged on different hosts, so
+ * the log is only used by single host clusters, see {@link #isSupported}.
+ */
+public class GroupCommitCommandLog implements CommandLog, SnapshotCompletionInterest {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    /**
+     * Community builds only log commands when asked to explicitly
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("COMMUNITY_COMMAND_LOG");
+
+    /**
+     * @return true if the log was asked for and can be replayed in a cluster of this size
+     */
+    public static boolean isSupported(int hostCount) {
+        return ENABLED && hostCount == 1;
+    }
+
+    /**
+     * @return true if the log is truncated by snapshots, false if it keeps every segment
+     */
+    public static boolean truncatesBySnapshot() {
+        return MiscUtils.isPro();
+    }
+
+    // Async logging returns a pending future once this many bytes are outstanding
+    private static final long MAX_OUTSTANDING_BYTES =
+            Long.getLong("COMMAND_LOG_MAX_OUTSTANDING_BYTES", 64L * 1024 * 1024);
+
+    static final int SEGMENT_MAGIC = 0x56434C47;
+    static final int SEGMENT_VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 8;
+    // batch length and CRC32 of the batch body
+    static final int BATCH_HEADER_SIZE = 4 + 8;
+    static final String SEGMENT_PREFIX = "cl.";
+    static final String SEGMENT_SUFFIX = ".vcl";
+    static final String TRUNCATION_POINT_FILE = "cl.truncation";
+    // The configured log size is split into this many segments
+    static final int SEGMENTS_PER_LOG = 4;
+
+    public static final byte INVOCATION_RECORD = 1;
+    public static final byte FAULT_RECORD = 2;
+
+    private static final ListenableFuture<Object> NO_BACKPRESSURE = Futures.immediateFuture(null);
+
+    private static final class Entry {
+        // null for entries that only need to pass through the durability listener
+        final ByteBuffer m_record;
+        final long m_spHandle;
+        final DurabilityListener m_listener;
+        final TransactionTask m_task;
+        final long m_lastDurableUniqueId;
+        final SettableFuture<Boolean> m_faultWritten;
+        final SettableFuture<Object> m_backpressure;
+
+        Entry(ByteBuffer record, long spHandle, DurabilityListener listener, TransactionTask task,
+              long lastDurableUniqueId, SettableFuture<Boolean> faultWritten,
+              SettableFuture<Object> backpressure) {
+            m_record = record;
+            m_spHandle = spHandle;
+            m_listener = listener;
+            m_task = task;
+            m_lastDurableUniqueId = lastDurableUniqueId;
+            m_faultWritten = faultWritten;
+            m_backpressure = backpressure;
+        }
+
+        int size() {
+            return m_record == null ? 0 : m_record.remaining();
+        }
+    }
+
+    private static final class ClosedSegment {
+        final File m_file;
+        // Highest spHandle logged in the segment for each partition
+        final Map<Integer, Long> m_lastSpHandles;
+
+        ClosedSegment(File file, Map<Integer, Long> lastSpHandles) {
+            m_file = file;
+            m_lastSpHandles = lastSpHandles;
+        }
+
+        boolean isCoveredBy(Map<Integer, Long> snapshotTxnIds) {
+            for (Map.Entry<Integer, Long> e : m_lastSpHandles.entrySet()) {
+                final Long snapshotTxnId = snapshotTxnIds.get(e.getKey());
+                if (snapshotTxnId == null || snapshotTxnId < e.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final boolean m_synchronous;
+    private final long m_fsyncIntervalNanos;
+    private final int m_fsyncIntervalMillis;
+    private final int m_maxTxns;
+    private final File m_logDir;
+
+    private final Object m_lock = new Object();
+    // All guarded by m_lock
+    private ArrayList<Entry> m_pending = new ArrayList<Entry>();
+    private int m_pendingTxns = 0;
+    private boolean m_shutdown = false;
+
+    private Thread m_writer;
+    private volatile boolean m_needsInitialization = true;
+
+    // Only touched by the writer thread
+    private long m_segmentSize;
+    private long m_nextSegmentId;
+    private FileChannel m_segment;
+    private File m_segmentFile;
+    private long m_segmentBytes;
+    private HashMap<Integer, Long> m_segmentLastSpHandles = new HashMap<Integer, Long>();
+    private ByteBuffer m_batchBuffer = ByteBuffer.allocateDirect(1024 * 1024);
+    private final CRC32 m_crc = new CRC32();
+
+    // Oldest first, guarded by itself
+    private final ArrayDeque<ClosedSegment> m_closedSegments = new ArrayDeque<ClosedSegment>();
+    private final AtomicBoolean m_truncationRequested = new AtomicBoolean(false);
+
+    private final AtomicLong m_outstandingBytes = new AtomicLong();
+    private final AtomicLong m_outstandingTxns = new AtomicLong();
+    private final AtomicInteger m_segmentsInUse = new AtomicInteger();
+    private final AtomicInteger m_segmentCount = new AtomicInteger();
+    private final AtomicLong m_syncs = new AtomicLong();
+    private final AtomicLong m_syncedTxns = new AtomicLong();
+
+    /**
+     * Same signature as the enterprise command log so both can be set up from the
+     * deployment's log configuration.
+     */
+    public GroupCommitCommandLog(boolean synchronous,
+                                 int fsyncIntervalMillis,
+                                 int maxTxns,
+                                 String logPath,
+                                 String snapshotPath)
+    {
+        m_synchronous = synchronous;
+        m_fsyncIntervalMillis = Math.max(0, fsyncIntervalMillis);
+        m_fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(m_fsyncIntervalMillis);
+        m_maxTxns = maxTxns > 0 ? maxTxns : Integer.MAX_VALUE;
+        m_logDir = new File(logPath);
+    }
+
+    /**
+     * @param perPartitionTxnId the txnIds of the truncation snapshot taken after restore
+     * and replay, everything in the existing segments is covered by it
+     */
+    @Override
+    public void init(int logSize, long txnId, int partitionCount, String coreBinding,
+                     Map<Integer, Long> perPartitionTxnId)
+    {
+        start(logSize, perPartitionTxnId);
+    }
+
+    @Override
+    public void initForRejoin(int logSize, long txnId, int partitionCount, boolean isRejoin,
+                              String coreBinding, Map<Integer, Long> perPartitionTxnId)
+    {
+        start(logSize, perPartitionTxnId);
+    }
+
+    private synchronized void start(int logSizeMB, Map<Integer, Long> truncationSnapshotTxnIds) {
+        if (!m_needsInitialization) {
+            return;
+        }
+        m_segmentSize = Math.max(1024L * 1024, logSizeMB * 1024L * 1024 / SEGMENTS_PER_LOG);
+        try {
+            if (!m_logDir.exists() && !m_logDir.mkdirs()) {
+                throw new IOException("Unable to create command log directory " + m_logDir);
+            }
+            List<File> existing = Reader.segments(m_logDir);
+            m_nextSegmentId = existing.isEmpty() ? 0 : segmentId(existing.get(existing.size() - 1)) + 1;
+            if (truncationSnapshotTxnIds != null && !truncationSnapshotTxnIds.isEmpty()) {
+                writeTruncationPoint(m_logDir, truncationSnapshotTxnIds);
+                for (File f : existing) {
+                    deleteSegment(f);
+                }
+                existing = Collections.emptyList();
+            }
+            // Segments left by an earlier run stay until a truncation snapshot covers them
+            for (File f : existing) {
+                m_closedSegments.add(new ClosedSegment(f, lastSpHandles(f)));
+            }
+            m_segmentCount.set(existing.size());
+            m_segmentsInUse.set(existing.size());
+            openNextSegment();
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to initialize command log in " + m_logDir, true, e);
+        }
+
+        SnapshotCompletionMonitor monitor = VoltDB.instance().getSnapshotCompletionMonitor();
+        if (monitor != null) {
+            monitor.addInterest(this);
+        }
+
+        m_writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeBatches();
+            }
+        }, "Command log writer");
+        m_writer.setDaemon(true);
+        m_writer.start();
+        synchronized (m_lock) {
+            m_needsInitialization = false;
+        }
+        LOG.info("Group commit command log writing to " + m_logDir + " in " +
+                (m_synchronous ? "synchronous" : "asynchronous") + " mode, syncing every " +
+                m_fsyncIntervalMillis + " ms or " + m_maxTxns + " transactions");
+    }
+
+    @Override
+    public boolean needsInitialization() {
+        return m_needsInitialization;
+    }
+
+    @Override
+    public ListenableFuture<Object> log(Iv2InitiateTaskMessage message,
+                                        long spHandle,
+                                        int[] involvedPartitions,
+                                        DurabilityListener listener,
+                                        TransactionTask durabilityHandle)
+    {
+        ByteBuffer record = null;
+        if (message != null) {
+            record = serializeInvocation(message, spHandle, involvedPartitions);
+        }
+
+        SettableFuture<Object> backpressure = null;
+        final int size = record == null ? 0 : record.remaining();
+        if (!m_synchronous && m_outstandingBytes.get() + size > MAX_OUTSTANDING_BYTES) {
+            backpressure = SettableFuture.create();
+        }
+
+        Entry entry = new Entry(record, spHandle, listener, durabilityHandle, 0, null, backpressure);
+        if (!offer(entry, true)) {
+            releaseUnlogged(entry);
+        }
+        if (m_synchronous) {
+            return null;
+        }
+        return backpressure == null ? NO_BACKPRESSURE : backpressure;
+    }
+
+    /**
+     * @return false if the log is not initialized yet and the entry was not queued
+     */
+    private boolean offer(Entry entry, boolean isTxn) {
+        synchronized (m_lock) {
+            if (m_needsInitialization) {
+                return false;
+            }
+            m_outstandingBytes.addAndGet(entry.size());
+            m_pending.add(entry);
+            if (isTxn) {
+                m_pendingTxns++;
+                m_outstandingTxns.incrementAndGet();
+            }
+            // The writer only waits for the first entry or for the interval to expire
+            if (m_pending.size() == 1 || m_pendingTxns == m_maxTxns) {
+                m_lock.notify();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Hand an entry that arrived before initialization straight to its listener, on the
+     * calling thread. Nothing else touches the listener until the log is initialized.
+     */
+    private static void releaseUnlogged(Entry e) {
+        if (e.m_faultWritten != null) {
+            e.m_faultWritten.set(true);
+            return;
+        }
+        if (e.m_task != null) {
+            e.m_listener.addUnloggedTransaction(e.m_task);
+        } else if (e.m_record == null) {
+            e.m_listener.initializeLastDurableUniqueId(e.m_lastDurableUniqueId);
+        }
+        CompletionChecks checks = e.m_listener.startNewTaskList(e.m_listener.getNumberOfTasks());
+        e.m_listener.processDurabilityChecks(checks);
+        if (e.m_backpressure != null) {
+            e.m_backpressure.set(null);
+        }
+    }
+
+    static ByteBuffer serializeInvocation(Iv2InitiateTaskMessage message,
+                                          long spHandle,
+                                          int[] involvedPartitions)
+    {
+        final StoredProcedureInvocation invocation = message.getStoredProcedureInvocation();
+        final int partitionCount = involvedPartitions == null ? 0 : involvedPartitions.length;
+        final int invocationSize = invocation.getSerializedSize();
+        ByteBuffer record = ByteBuffer.allocate(1 + 8 + 8 + 8 + 4 + 4 * partitionCount + 4 + invocationSize);
+        record.put(INVOCATION_RECORD);
+        record.putLong(spHandle);
+        record.putLong(message.getTxnId());
+        record.putLong(message.getUniqueId());
+        record.putInt(involvedPartitions == null ? -1 : partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            record.putInt(involvedPartitions[i]);
+        }
+        record.putInt(invocationSize);
+        try {
+            invocation.flattenToBuffer(record);
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to serialize invocation for the command log", true, e);
+        }
+        record.flip();
+        return record;
+    }
+
+    @Override
+    public SettableFuture<Boolean> logIv2Fault(long writerHSId, Set<Long> survivorHSId,
+                                               int partitionId, long spHandle)
+    {
+        ByteBuffer record = ByteBuffer.allocate(1 + 8 + 4 + 8 + 4 + 8 * survivorHSId.size());
+        record.put(FAULT_RECORD);
+        record.putLong(writerHSId);
+        record.putInt(partitionId);
+        record.putLong(spHandle);
+        record.putInt(survivorHSId.size());
+        for (long hsId : survivorHSId) {
+            record.putLong(hsId);
+        }
+        record.flip();
+
+        SettableFuture<Boolean> written = SettableFuture.create();
+        Entry entry = new Entry(record, spHandle, null, null, 0, written, null);
+        if (!offer(entry, false)) {
+            releaseUnlogged(entry);
+        }
+        return written;
+    }
+
+    @Override
+    public void initializeLastDurableUniqueId(DurabilityListener listener, long uniqueId) {
+        // The listener is owned by the writer thread once registered
+        Entry entry = new Entry(null, 0, listener, null, uniqueId, null, null);
+        if (!offer(entry, false)) {
+            releaseUnlogged(entry);
+        }
+    }
+
+    private void writeBatches() {
+        long lastSync = System.nanoTime();
+        try {
+            while (true) {
+                ArrayList<Entry> batch;
+                synchronized (m_lock) {
+                    while (true) {
+                        if (m_pending.isEmpty()) {
+                            if (m_shutdown) {
+                                closeSegment();
+                                return;
+                            }
+                            m_lock.wait();
+                            continue;
+                        }
+                        final long remaining = m_fsyncIntervalNanos - (System.nanoTime() - lastSync);
+                        if (remaining <= 0 || m_pendingTxns >= m_maxTxns || m_shutdown) {
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(m_lock, remaining);
+                    }
+                    batch = m_pending;
+                    m_pending = new ArrayList<Entry>(batch.size());
+                    m_pendingTxns = 0;
+                }
+
+                final long bytes = write(batch);
+                lastSync = System.nanoTime();
+                m_syncs.incrementAndGet();
+                notifyDurable(batch, bytes);
+            }
+        } catch (InterruptedException e) {
+            VoltDB.crashLocalVoltDB("Command log writer interrupted", true, e);
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to write to the command log in " + m_logDir, true, e);
+        }
+    }
+
+    /**
+     * Write the batch as a single checksummed block and sync it
+     * @return the number of record bytes written
+     */
+    private long write(List<Entry> batch) throws IOException {
+        int bodySize = 0;
+        for (Entry e : batch) {
+            bodySize += e.size();
+        }
+        if (bodySize == 0) {
+            return 0;
+        }
+        if (m_batchBuffer.capacity() < BATCH_HEADER_SIZE + bodySize) {
+            m_batchBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(BATCH_HEADER_SIZE + bodySize) << 1);
+        }
+        m_batchBuffer.clear();
+        m_batchBuffer.position(BATCH_HEADER_SIZE);
+        for (Entry e : batch) {
+            if (e.m_record != null) {
+                m_batchBuffer.put(e.m_record.duplicate());
+            }
+        }
+        m_batchBuffer.flip();
+        m_batchBuffer.position(BATCH_HEADER_SIZE);
+        m_crc.reset();
+        m_crc.update(m_batchBuffer);
+        m_batchBuffer.putInt(0, bodySize);
+        m_batchBuffer.putLong(4, m_crc.getValue());
+        m_batchBuffer.position(0);
+
+        if (m_segmentBytes > SEGMENT_HEADER_SIZE &&
+            m_segmentBytes + m_batchBuffer.remaining() > m_segmentSize) {
+            closeSegment();
+            openNextSegment();
+            if (m_segmentsInUse.get() >= SEGMENTS_PER_LOG) {
+                requestTruncationSnapshot(false);
+            }
+        }
+        for (Entry e : batch) {
+            if (e.m_record != null) {
+                final Integer partition = TxnEgo.getPartitionId(e.m_spHandle);
+                final Long last = m_segmentLastSpHandles.get(partition);
+                if (last == null || last < e.m_spHandle) {
+                    m_segmentLastSpHandles.put(partition, e.m_spHandle);
+                }
+            }
+        }
+        while (m_batchBuffer.hasRemaining()) {
+            m_segmentBytes += m_segment.write(m_batchBuffer);
+        }
+        m_segment.force(false);
+        return bodySize;
+    }
+
+    private void notifyDurable(List<Entry> batch, long bytes) {
+        long txns = 0;
+        Set<DurabilityListener> listeners = new LinkedHashSet<DurabilityListener>();
+        for (Entry e : batch) {
+            if (e.m_faultWritten != null) {
+                e.m_faultWritten.set(true);
+                continue;
+            }
+            if (e.m_task != null) {
+                e.m_listener.addTransaction(e.m_task);
+                txns++;
+            } else if (e.m_record == null) {
+                e.m_listener.initializeLastDurableUniqueId(e.m_lastDurableUniqueId);
+            } else {
+                txns++;
+            }
+            if (e.m_listener != null) {
+                listeners.add(e.m_listener);
+            }
+            if (e.m_backpressure != null) {
+                e.m_backpressure.set(null);
+            }
+        }
+        m_outstandingBytes.addAndGet(-bytes);
+        m_outstandingTxns.addAndGet(-txns);
+        m_syncedTxns.addAndGet(txns);
+
+        for (DurabilityListener listener : listeners) {
+            CompletionChecks checks = listener.startNewTaskList(listener.getNumberOfTasks());
+            listener.processDurabilityChecks(checks);
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        File file = new File(m_logDir, SEGMENT_PREFIX + m_nextSegmentId++ + SEGMENT_SUFFIX);
+        @SuppressWarnings("resource")
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        header.putInt(SEGMENT_MAGIC);
+        header.putInt(SEGMENT_VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        m_segment = channel;
+        m_segmentFile = file;
+        m_segmentBytes = SEGMENT_HEADER_SIZE;
+        m_segmentsInUse.incrementAndGet();
+        m_segmentCount.incrementAndGet();
+    }
+
+    private void closeSegment() throws IOException {
+        if (m_segment != null) {
+            m_segment.force(true);
+            m_segment.close();
+            m_segment = null;
+            synchronized (m_closedSegments) {
+                m_closedSegments.add(new ClosedSegment(m_segmentFile, m_segmentLastSpHandles));
+            }
+            m_segmentLastSpHandles = new HashMap<Integer, Long>();
+        }
+    }
+
+    private void deleteSegment(File segment) {
+        if (!segment.delete()) {
+            LOG.warn("Unable to delete command log segment " + segment);
+        }
+    }
+
+    /**
+     * Delete the closed segments, oldest first, until one holds a record the snapshot does
+     * not cover. The snapshot becomes the new truncation point before anything is deleted.
+     */
+    void truncate(Map<Integer, Long> snapshotTxnIds) throws IOException {
+        m_truncationRequested.set(false);
+        synchronized (m_closedSegments) {
+            int covered = 0;
+            for (ClosedSegment segment : m_closedSegments) {
+                if (!segment.isCoveredBy(snapshotTxnIds)) {
+                    break;
+                }
+                covered++;
+            }
+            if (covered == 0) {
+                return;
+            }
+            writeTruncationPoint(m_logDir, snapshotTxnIds);
+            for (int i = 0; i < covered; i++) {
+                deleteSegment(m_closedSegments.poll().m_file);
+            }
+            m_segmentsInUse.addAndGet(-covered);
+            m_segmentCount.addAndGet(-covered);
+            LOG.info("Truncated " + covered + " command log segments");
+        }
+    }
+
+    @Override
+    public CountDownLatch snapshotCompleted(SnapshotCompletionEvent event) {
+        if (event.truncationSnapshot && event.didSucceed) {
+            try {
+                truncate(event.partitionTxnIds);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to truncate the command log in " + m_logDir, true, e);
+            }
+        }
+        return new CountDownLatch(0);
+    }
+
+    /**
+     * Read the highest spHandle of each partition in a segment left by an earlier run
+     */
+    private static Map<Integer, Long> lastSpHandles(File segment) throws IOException {
+        Map<Integer, Long> lastSpHandles = new HashMap<Integer, Long>();
+        Reader reader = new Reader(Collections.singletonList(segment));
+        try {
+            Record record;
+            while ((record = reader.next()) != null) {
+                final Integer partition = TxnEgo.getPartitionId(record.spHandle);
+                final Long last = lastSpHandles.get(partition);
+                if (last == null || last < record.spHandle) {
+                    lastSpHandles.put(partition, record.spHandle);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lastSpHandles;
+    }
+
+    static void writeTruncationPoint(File logDir, Map<Integer, Long> snapshotTxnIds) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4 + 4 + 4 + 12 * snapshotTxnIds.size());
+        buf.putInt(SEGMENT_MAGIC);
+        buf.putInt(SEGMENT_VERSION);
+        buf.putInt(snapshotTxnIds.size());
+        for (Map.Entry<Integer, Long> e : snapshotTxnIds.entrySet()) {
+            buf.putInt(e.getKey());
+            buf.putLong(e.getValue());
+        }
+        buf.flip();
+
+        File tmp = new File(logDir, TRUNCATION_POINT_FILE + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(true);
+        } finally {
+            raf.close();
+        }
+        Files.move(tmp.toPath(), new File(logDir, TRUNCATION_POINT_FILE).toPath(),
+                   StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return the per partition txnIds of the last snapshot that truncated the log,
+     * or null if it was never truncated
+     */
+    public static Map<Integer, Long> readTruncationPoint(File logDir) throws IOException {
+        File file = new File(logDir, TRUNCATION_POINT_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buf.remaining() < 12 || buf.getInt() != SEGMENT_MAGIC || buf.getInt() != SEGMENT_VERSION) {
+            throw new IOException(file + " is not a command log truncation point");
+        }
+        final int count = buf.getInt();
+        if (buf.remaining() != 12 * count) {
+            throw new IOException(file + " is truncated");
+        }
+        Map<Integer, Long> snapshotTxnIds = new TreeMap<Integer, Long>();
+        for (int i = 0; i < count; i++) {
+            snapshotTxnIds.put(buf.getInt(), buf.getLong());
+        }
+        return snapshotTxnIds;
+    }
+
+    static long segmentId(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        SnapshotCompletionMonitor monitor = VoltDB.instance().getSnapshotCompletionMonitor();
+        if (monitor != null) {
+            monitor.removeInterest(this);
+        }
+        synchronized (m_lock) {
+            m_shutdown = true;
+            m_lock.notify();
+        }
+        if (m_writer != null) {
+            m_writer.join();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void requestTruncationSnapshot(boolean queueIfPending) {
+        if (!truncatesBySnapshot()) {
+            return;
+        }
+        if (!m_truncationRequested.compareAndSet(false, true) && !queueIfPending) {
+            return;
+        }
+        // The snapshot daemon picks the request up, completion truncates the log
+        VoltDB.instance().getHostMessenger().getZK().create(
+                VoltZK.request_truncation_snapshot_node, null, Ids.OPEN_ACL_UNSAFE,
+                CreateMode.PERSISTENT_SEQUENTIAL, new ZKUtil.StringCallback(), null);
+    }
+
+    @Override
+    public void populateCommandLogStats(Map<String, Integer> columnNameToIndex, Object[] rowValues) {
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_BYTES.name())] = m_outstandingBytes.get();
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_TXNS.name())] = m_outstandingTxns.get();
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.name())] = m_segmentsInUse.get();
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.SEGMENT_COUNT.name())] = m_segmentCount.get();
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.FSYNC_INTERVAL.name())] = m_fsyncIntervalMillis;
+    }
+
+    @Override
+    public boolean isSynchronous() {
+        return m_synchronous;
+    }
+
+    @Override
+    public boolean canOfferTask() {
+        return !m_synchronous;
+    }
+
+    @Override
+    public void registerDurabilityListener(DurabilityListener durabilityListener) {
+        // Listeners are carried with each logged entry
+    }
+
+    /**
+     * @return the number of syncs issued so far, each covering one group of entries
+     */
+    public long getSyncCount() {
+        return m_syncs.get();
+    }
+
+    /**
+     * @return the number of transactions made durable so far
+     */
+    public long getSyncedTxnCount() {
+        return m_syncedTxns.get();
+    }
+
+    /**
+     * A record read back from the log
+     */
+    public static class Record {
+        public final byte type;
+        // Invocation records
+        public final long spHandle;
+        public final long txnId;
+        public final long uniqueId;
+        public final int[] involvedPartitions;
+        public final StoredProcedureInvocation invocation;
+        // Fault records
+        public final long writerHSId;
+        public final int partitionId;
+        public final Set<Long> survivorHSIds;
+
+        Record(byte type, long spHandle, long txnId, long uniqueId, int[] involvedPartitions,
+               StoredProcedureInvocation invocation, long writerHSId, int partitionId,
+               Set<Long> survivorHSIds) {
+            this.type = type;
+            this.spHandle = spHandle;
+            this.txnId = txnId;
+            this.uniqueId = uniqueId;
+            this.involvedPartitions = involvedPartitions;
+            this.invocation = invocation;
+            this.writerHSId = writerHSId;
+            this.partitionId = partitionId;
+            this.survivorHSIds = survivorHSIds;
+        }
+
+        @Override
+        public String toString() {
+            if (type == FAULT_RECORD) {
+                return "Fault partition " + partitionId + " writer " + writerHSId +
+                        " spHandle " + spHandle + " survivors " + survivorHSIds;
+            }
+            return "Invocation spHandle " + spHandle + " txnId " + txnId + " uniqueId " + uniqueId +
+                    " partitions " + Arrays.toString(involvedPartitions) + " " + invocation;
+        }
+    }
+
+    /**
+     * Reads every segment in a command log directory in the order it was written. A batch
+     * that is incomplete or fails its checksum ends its segment, as it can only be the
+     * tail of a segment that was being written when the process died.
+     */
+    public static class Reader implements Closeable {
+        private final ArrayDeque<File> m_segments;
+        private final ArrayDeque<Record> m_records = new ArrayDeque<Record>();
+        private FileChannel m_channel;
+        private File m_current;
+        private final CRC32 m_crc = new CRC32();
+
+        public Reader(File logDir) {
+            this(segments(logDir));
+        }
+
+        public Reader(List<File> segments) {
+            m_segments = new ArrayDeque<File>(segments);
+        }
+
+        public static List<File> segments(File logDir) {
+            File files[] = logDir.listFiles(new FileFilter() {
+                @Override
+                public boolean accept(File f) {
+                    String name = f.getName();
+                    if (!f.isFile() || !name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+                        return false;
+                    }
+                    try {
+                        segmentId(f);
+                        return true;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            });
+            if (files == null) {
+                return Collections.emptyList();
+            }
+            List<File> segments = new ArrayList<File>(Arrays.asList(files));
+            Collections.sort(segments, new Comparator<File>() {
+                @Override
+                public int compare(File o1, File o2) {
+                    return Long.compare(segmentId(o1), segmentId(o2));
+                }
+            });
+            return segments;
+        }
+
+        /**
+         * @return the next record or null once every segment has been read
+         */
+        public Record next() throws IOException {
+            while (m_records.isEmpty()) {
+                if (m_channel == null) {
+                    if (!openNext()) {
+                        return null;
+                    }
+                }
+                if (!readBatch()) {
+                    m_channel.close();
+                    m_channel = null;
+                }
+            }
+            return m_records.poll();
+        }
+
+        private boolean openNext() throws IOException {
+            m_current = m_segments.poll();
+            if (m_current == null) {
+                return false;
+            }
+            @SuppressWarnings("resource")
+            FileChannel channel = new RandomAccessFile(m_current, "r").getChannel();
+            m_channel = channel;
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            if (!readFully(header) || header.getInt(0) != SEGMENT_MAGIC) {
+                throw new IOException(m_current + " is not a command log segment");
+            }
+            if (header.getInt(4) != SEGMENT_VERSION) {
+                throw new IOException(m_current + " has unsupported version " + header.getInt(4));
+            }
+            return true;
+        }
+
+        private boolean readFully(ByteBuffer buf) throws IOException {
+            while (buf.hasRemaining()) {
+                if (m_channel.read(buf) < 0) {
+                    return false;
+                }
+            }
+            buf.flip();
+            return true;
+        }
+
+        private boolean readBatch() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+            if (!readFully(header)) {
+                return false;
+            }
+            final int length = header.getInt();
+            final long crc = header.getLong();
+            if (length <= 0 || length > m_channel.size() - m_channel.position()) {
+                LOG.warn("Ignoring incomplete batch at the end of " + m_current);
+                return false;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            if (!readFully(body)) {
+                return false;
+            }
+            m_crc.reset();
+            m_crc.update(body.array(), 0, length);
+            if (m_crc.getValue() != crc) {
+                LOG.warn("Ignoring batch with a bad checksum at the end of " + m_current);
+                return false;
+            }
+            while (body.hasRemaining()) {
+                m_records.add(readRecord(body));
+            }
+            return true;
+        }
+
+        private static Record readRecord(ByteBuffer buf) throws IOException {
+            final byte type = buf.get();
+            if (type == INVOCATION_RECORD) {
+                final long spHandle = buf.getLong();
+                final long txnId = buf.getLong();
+                final long uniqueId = buf.getLong();
+                final int partitionCount = buf.getInt();
+                int partitions[] = null;
+                if (partitionCount >= 0) {
+                    partitions = new int[partitionCount];
+                    for (int i = 0; i < partitionCount; i++) {
+                        partitions[i] = buf.getInt();
+                    }
+                }
+                final int size = buf.getInt();
+                ByteBuffer invocationBuf = buf.slice();
+                invocationBuf.limit(size);
+                buf.position(buf.position() + size);
+                StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+                invocation.initFromBuffer(invocationBuf);
+                return new Record(type, spHandle, txnId, uniqueId, partitions, invocation, 0, 0, null);
+            } else if (type == FAULT_RECORD) {
+                final long writerHSId = buf.getLong();
+                final int partitionId = buf.getInt();
+                final long spHandle = buf.getLong();
+                final int survivorCount = buf.getInt();
+                Set<Long> survivors = new HashSet<Long>();
+                for (int i = 0; i < survivorCount; i++) {
+                    survivors.add(buf.getLong());
+                }
+                return new Record(type, spHandle, 0, 0, null, null, writerHSId, partitionId, survivors);
+            }
+            throw new IOException("Unknown command log record type " + type);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (m_channel != null) {
+                m_channel.close();
+                m_channel = null;
+            }
+            m_segments.clear();
+            m_records.clear();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.TxnEgo;
+
+/**
+ * Replays the segments written by {@link GroupCommitCommandLog} on recovery.
+ *
+ * Records are sent to the initiators in log order with the uniqueIds they were logged
+ * with, for the replay sequencers to order. Each site logs in its own sequence order, so
+ * the records of a partition reach its master in that order. A multi-partition transaction
+ * is logged by every partition it involves; each occurrence becomes a sentinel at that
+ * partition and the first one also initiates the transaction at the MPI. Records covered
+ * by the restored snapshot, reads and system procedures that aren't durable are skipped.
+ *
+ * Once the MPI has been sent the end of the log and every replayed transaction has
+ * responded, the callback is told that replay is complete.
+ */
+public class GroupCommitReplayAgent implements CommandLogReinitiator {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    private static final long REPLAY_HANDLE = 0;
+
+    private final File m_logDir;
+    private final List<File> m_segments;
+    private final Map<Integer, Long> m_truncationPoint;
+    private final SimpleClientResponseAdapter m_adapter =
+            new SimpleClientResponseAdapter(ClientInterface.CL_REPLAY_BASE_CID, "CommandLogReplayAdapter", true);
+    private final Semaphore m_responses = new Semaphore(0);
+    private final AtomicLong m_failedTxns = new AtomicLong();
+
+    private Callback m_callback;
+    private TransactionCreator m_initiator;
+    private Map<Integer, Long> m_snapshotTxnIds = null;
+    private volatile boolean m_returned = false;
+    private volatile int m_replayedTxns = 0;
+
+    public GroupCommitReplayAgent(StartAction action, String logPath) {
+        m_logDir = new File(logPath);
+        if (action.doesRecover()) {
+            m_segments = GroupCommitCommandLog.Reader.segments(m_logDir);
+            Map<Integer, Long> truncationPoint = null;
+            try {
+                truncationPoint = GroupCommitCommandLog.readTruncationPoint(m_logDir);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to read the command log in " + m_logDir, false, e);
+            }
+            m_truncationPoint = truncationPoint;
+        } else {
+            m_segments = Collections.emptyList();
+            m_truncationPoint = null;
+        }
+
+        m_adapter.registerCallback(REPLAY_HANDLE, new SimpleClientResponseAdapter.Callback() {
+            @Override
+            public void handleResponse(ClientResponse response) {
+                if (response.getStatus() != ClientResponse.SUCCESS) {
+                    m_failedTxns.incrementAndGet();
+                }
+                m_responses.release();
+            }
+        });
+    }
+
+    @Override
+    public void setSnapshotTxnId(RestoreAgent.SnapshotInfo info) {
+        m_snapshotTxnIds = info == null ? null : new HashMap<Integer, Long>(info.partitionToTxnId);
+    }
+
+    @Override
+    public void setCallback(Callback callback) {
+        m_callback = callback;
+    }
+
+    @Override
+    public void setInitiator(TransactionCreator initiator) {
+        m_initiator = initiator;
+        m_initiator.bindAdapter(m_adapter);
+    }
+
+    @Override
+    public void initPartitionTracking() {}
+
+    @Override
+    public void generateReplayPlan(long snapshotTimeStamp, long snapshotTxnId,
+            int newPartitionCount, boolean isMPINode) {
+        if (!m_segments.isEmpty()) {
+            LOG.info("Replaying " + m_segments.size() + " command log segments from " + m_logDir);
+        }
+    }
+
+    @Override
+    public void replay() {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    replaySegments();
+                } catch (IOException e) {
+                    VoltDB.crashGlobalVoltDB("Unable to replay the command log in " + m_logDir, false, e);
+                }
+                if (m_callback != null) {
+                    m_callback.onReplayCompletion();
+                }
+            }
+        }, "Command log replay").start();
+    }
+
+    void replaySegments() throws IOException {
+        if (m_returned || m_segments.isEmpty()) {
+            return;
+        }
+        if (m_truncationPoint != null && m_snapshotTxnIds == null) {
+            VoltDB.crashGlobalVoltDB("The command log in " + m_logDir + " starts after a snapshot, " +
+                                     "but no snapshot was restored", false, null);
+        }
+
+        final CatalogContext context = VoltDB.instance().getCatalogContext();
+        final Set<Long> initiatedMpTxnIds = new HashSet<Long>();
+        GroupCommitCommandLog.Reader reader = new GroupCommitCommandLog.Reader(m_segments);
+        try {
+            GroupCommitCommandLog.Record record;
+            while ((record = reader.next()) != null) {
+                if (record.type != GroupCommitCommandLog.INVOCATION_RECORD) {
+                    continue;
+                }
+                final int partition = TxnEgo.getPartitionId(record.spHandle);
+                if (isInSnapshot(partition, record.spHandle) ||
+                    !isReplayed(record.invocation.getProcName(), context)) {
+                    continue;
+                }
+                if (record.involvedPartitions == null) {
+                    initiate(record, true, partition);
+                } else {
+                    m_initiator.sendSentinel(record.uniqueId, partition);
+                    if (initiatedMpTxnIds.add(record.txnId)) {
+                        initiate(record, false, MpInitiator.MP_INIT_PID);
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (m_replayedTxns > 0) {
+            // Lets the partitions drain anything still waiting on a sentinel
+            m_initiator.sendEOLMessage(MpInitiator.MP_INIT_PID);
+            m_responses.acquireUninterruptibly(m_replayedTxns);
+        }
+        LOG.info("Replayed " + m_replayedTxns + " transactions from the command log, " +
+                 m_failedTxns.get() + " of them did not succeed");
+    }
+
+    private boolean isInSnapshot(int partition, long spHandle) {
+        if (m_snapshotTxnIds == null) {
+            return false;
+        }
+        final Long snapshotTxnId = m_snapshotTxnIds.get(partition);
+        return snapshotTxnId != null && spHandle <= snapshotTxnId;
+    }
+
+    /**
+     * Reads have nothing to replay. Only durable system procedures are replayed, the others
+     * are every-site or administrative work.
+     */
+    static boolean isReplayed(String procName, CatalogContext context) {
+        final SystemProcedureCatalog.Config sysproc = SystemProcedureCatalog.listing.get(procName);
+        if (sysproc != null) {
+            return sysproc.isDurable();
+        }
+        // Procedures added by a replayed catalog update aren't in the catalog yet
+        final Procedure proc = InvocationDispatcher.getProcedureFromName(procName, context);
+        return proc == null || !proc.getReadonly();
+    }
+
+    private void initiate(GroupCommitCommandLog.Record record, boolean isSinglePartition, int partition) {
+        final StoredProcedureInvocation invocation = record.invocation;
+        invocation.setClientHandle(REPLAY_HANDLE);
+        if (!m_initiator.createTransaction(m_adapter.connectionId(), record.txnId, record.uniqueId,
+                                           invocation, false, isSinglePartition, false, partition,
+                                           invocation.getSerializedSize(), System.nanoTime())) {
+            VoltDB.crashGlobalVoltDB("Unable to replay " + record, false, null);
+        }
+        m_replayedTxns++;
+    }
+
+    @Override
+    public boolean hasReplayedSegments() {
+        return !m_segments.isEmpty();
+    }
+
+    @Override
+    public boolean hasReplayedTxns() {
+        return m_replayedTxns > 0;
+    }
+
+    @Override
+    public Long getMaxLastSeenTxn() {
+        return null;
+    }
+
+    /**
+     * A snapshot must be at least as recent as the one that last truncated the log,
+     * anything older misses the deleted segments
+     */
+    @Override
+    public Map<Integer, Long> getMaxLastSeenTxnByPartition() {
+        return m_truncationPoint;
+    }
+
+    @Override
+    public InstanceId getInstanceId() {
+        return null;
+    }
+
+    @Override
+    public void returnAllSegments() {
+        m_returned = true;
+    }
+
+    @Override
+    public boolean checkAndBalancePartitions() {
+        return true;
+    }
+}
@@ -69,7 +69,12 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
-
+        // Links to other hosts may compress what they write. Bytes of the messages
+        // sent compressed, how much smaller they got and the microseconds spent
+        // compressing, also for batches that turned out not to compress.
+        columns.add(new ColumnInfo("BYTES_COMPRESSED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COMPRESSION_RATIO", VoltType.FLOAT));
+        columns.add(new ColumnInfo("COMPRESSION_TIME", VoltType.BIGINT));
     }
 
     @Override
@@ -83,6 +88,10 @@ public class IOStats extends StatsSource {
         rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
         rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
         rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        rowValues[columnNameToIndex.get("BYTES_COMPRESSED")] = counters[4];
+        rowValues[columnNameToIndex.get("COMPRESSION_RATIO")] =
+                counters[5] == 0 ? 1.0 : (double) counters[4] / counters[5];
+        rowValues[columnNameToIndex.get("COMPRESSION_TIME")] = counters[6] / 1000;
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -26,6 +26,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +35,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.zookeeper_voltpatches.CreateMode;
 import org.apache.zookeeper_voltpatches.KeeperException;
@@ -83,10 +86,13 @@ public class Inits {
     final PriorityBlockingQueue<InitWork> m_readyJobs = new PriorityBlockingQueue<>();
     final int m_threadCount;
     final Set<Thread> m_initThreads = new HashSet<>();
+    // in order of completion, guarded by this
+    final List<InitWork> m_completedJobs = new ArrayList<>();
 
     abstract class InitWork implements Comparable<InitWork>, Runnable {
         Set<Class<? extends InitWork>> m_blockers = new HashSet<>();
         Set<Class<? extends InitWork>> m_blockees = new HashSet<>();
+        long m_durationNanos = 0;
 
         protected void dependsOn(Class<? extends InitWork> cls) {
             m_blockers.add(cls);
@@ -112,7 +118,9 @@ public class Inits {
                 if (iw instanceof COMPLETION_WORK)
                     return;
                 //hostLog.info("Running InitWorker: " + iw.getClass().getName());
+                final long start = System.nanoTime();
                 iw.run();
+                iw.m_durationNanos = System.nanoTime() - start;
                 completeInitWork(iw);
             }
         }
@@ -167,6 +175,7 @@ public class Inits {
 
     synchronized void completeInitWork(InitWork iw) {
         m_jobs.remove(iw.getClass());
+        m_completedJobs.add(iw);
         for (Class<? extends InitWork> cls : iw.m_blockees) {
             InitWork blockee = m_jobs.get(cls);
             boolean success = blockee.m_blockers.remove(iw.getClass());
@@ -184,6 +193,7 @@ public class Inits {
     }
 
     void doInitializationWork() {
+        final long start = System.nanoTime();
         for (int i = 0; i < m_threadCount - 1; ++i) {
             Thread t = new Thread(new InitializerWorker());
             t.start();
@@ -191,6 +201,31 @@ public class Inits {
         }
         new InitializerWorker().run();
         // when any worker finishes, that means they're all done
+        logInitWorkTimes(System.nanoTime() - start);
+    }
+
+    /**
+     * Log how long each piece of work took, slowest first, to show which
+     * ones hold up the startup of this node.
+     */
+    private synchronized void logInitWorkTimes(long elapsedNanos) {
+        List<InitWork> works = new ArrayList<>(m_completedJobs);
+        Collections.sort(works, new Comparator<InitWork>() {
+            @Override
+            public int compare(InitWork a, InitWork b) {
+                return Long.compare(b.m_durationNanos, a.m_durationNanos);
+            }
+        });
+        long totalNanos = 0;
+        StringBuilder sb = new StringBuilder();
+        for (InitWork iw : works) {
+            totalNanos += iw.m_durationNanos;
+            sb.append("\n  ").append(iw.getClass().getSimpleName()).append(": ")
+              .append(TimeUnit.NANOSECONDS.toMillis(iw.m_durationNanos)).append(" ms");
+        }
+        hostLog.info("Initialization took " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms using " +
+                m_threadCount + " threads, " + TimeUnit.NANOSECONDS.toMillis(totalNanos) +
+                " ms of work:" + sb);
     }
 
     /**
@@ -466,6 +501,15 @@ public class Inits {
                     } catch (Exception e) {
                         VoltDB.crashLocalVoltDB("Unable to instantiate command log", true, e);
                     }
+                } else if (GroupCommitCommandLog.isSupported(m_rvdb.m_clusterSettings.get().hostcount())) {
+                    m_rvdb.m_commandLog = new GroupCommitCommandLog(logConfig.getSynchronous(),
+                                                                    logConfig.getFsyncinterval(),
+                                                                    logConfig.getMaxtxns(),
+                                                                    VoltDB.instance().getCommandLogPath(),
+                                                                    VoltDB.instance().getCommandLogSnapshotPath());
+                } else if (GroupCommitCommandLog.ENABLED) {
+                    hostLog.warn("The community command log only supports single host clusters, " +
+                                 "command logging is disabled");
                 }
             }
         }
@@ -28,7 +28,6 @@ import org.voltdb.catalog.Table;
 import org.voltdb.client.BatchTimeoutOverrideType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcedureCallback;
-import org.voltdb.utils.MiscUtils;
 
 /**
  * This class packs the parameters and dispatches the transactions.
@@ -103,10 +102,8 @@ public class InternalConnectionHandler {
 
         StoredProcedureInvocation task = new StoredProcedureInvocation();
         task.setProcName(procName);
-        task.setParams(args);
-
         try {
-            task = MiscUtils.roundTripForCL(task);
+            task.setAndSerializeParams(args);
             task.setClientHandle(m_adapter.connectionId());
         } catch (Exception e) {
             String fmt = "Cannot invoke procedure %s. failed to create task.";
@@ -158,12 +155,11 @@ public class InternalConnectionHandler {
             applyBackPressure();
         }
 
+        final long startNanos = System.nanoTime();
         StoredProcedureInvocation task = new StoredProcedureInvocation();
-
         task.setProcName(proc);
-        task.setParams(fieldList);
         try {
-            task = MiscUtils.roundTripForCL(task);
+            task.setAndSerializeParams(fieldList);
             task.setClientHandle(m_adapter.connectionId());
         } catch (Exception e) {
             String fmt = "Cannot invoke procedure %s from streaming interface %s. failed to create task.";
@@ -190,6 +186,10 @@ public class InternalConnectionHandler {
             return false;
         }
         m_submitSuccessCount.incrementAndGet();
+        if (statsCollector != null) {
+            statsCollector.reportSubmitted(caller.getName(), proc,
+                    task.getSerializedSize(), System.nanoTime() - startNanos);
+        }
         return true;
     }
 
@@ -33,4 +33,14 @@ public interface InternalConnectionStatsCollector
      * @param response ClientResponse with response details
      */
     public void reportCompletion(String callerName, String procName, ClientResponse response);
+
+    /**
+     * Used to report that a request was handed off for execution.
+     *
+     * @param callerName a name identifying the request invoker
+     * @param procName name of the procedure that is used in the transaction request.
+     * @param serializedSize size in bytes of the serialized invocation
+     * @param submitNanos time spent packing and submitting the request
+     */
+    public void reportSubmitted(String callerName, String procName, int serializedSize, long submitNanos);
 }
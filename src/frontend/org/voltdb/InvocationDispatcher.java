@@ -485,13 +485,23 @@ public final class InvocationDispatcher {
             // unable to hash to a site, return an error
             return getMispartitionedErrorResponse(task, catProc, e);
         }
+        final int messageSize = task.getSerializedSize();
+        final String quotaError =
+                AdmissionController.instance().checkQuotas(user.m_name, procName, messageSize);
+        if (quotaError != null) {
+            return new ClientResponseImpl(ClientResponseImpl.SERVER_UNAVAILABLE,
+                    new VoltTable[0],
+                    quotaError + ". The work was not started, it is safe to resend it once "
+                    + "outstanding work completes.",
+                    task.clientHandle);
+        }
         boolean success = createTransaction(handler.connectionId(),
                         task,
                         catProc.getReadonly(),
                         catProc.getSinglepartition(),
                         catProc.getEverysite(),
                         partition,
-                        task.getSerializedSize(),
+                        messageSize,
                         nowNanos);
         if (!success) {
             // when VoltDB.crash... is called, we close off the client interface
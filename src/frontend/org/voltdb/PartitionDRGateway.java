@@ -84,7 +84,7 @@ public class PartitionDRGateway implements DurableUniqueIdListener {
      * @param overflowDir
      * @return Instance of PartitionDRGateway
      */
-    public static PartitionDRGateway getInstance(int partitionId,
+    public static synchronized PartitionDRGateway getInstance(int partitionId,
                                                  ProducerDRGateway producerGateway,
                                                  StartAction startAction)
     {
@@ -105,8 +105,8 @@ public class PartitionDRGateway implements DurableUniqueIdListener {
             VoltDB.crashLocalVoltDB(e.getMessage(), false, e);
         }
 
-        // Regarding apparent lack of thread safety: this is called serially
-        // while looping over the SPIs during database initialization
+        // The SPIs are configured concurrently during database initialization,
+        // so publishing the new map is serialized by synchronizing this method
         assert !m_partitionDRGateways.containsKey(partitionId);
         ImmutableMap.Builder<Integer, PartitionDRGateway> builder = ImmutableMap.builder();
         builder.putAll(m_partitionDRGateways);
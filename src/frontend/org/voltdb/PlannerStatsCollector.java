@@ -181,9 +181,21 @@ public class PlannerStatsCollector extends StatsSource {
      * Called before doing planning. Starts timer.
      */
     public void startStatsCollection() {
+        m_currentStartTime = sampleStartTime();
+    }
+
+    /**
+     * Starts a timer without storing it in the collector, for callers that
+     * plan on several threads at once and pass the start time back to
+     * {@link #endStatsCollection(Long, long, long, CacheUse, long)}.
+     *
+     * @return  start time in nanoseconds, or null if this invocation isn't sampled
+     */
+    public Long sampleStartTime() {
         if (getInvocations() % m_collectionFrequency == 0) {
-            m_currentStartTime = System.nanoTime();
+            return System.nanoTime();
         }
+        return null;
     }
 
     /**
@@ -195,8 +207,19 @@ public class PlannerStatsCollector extends StatsSource {
      * @param partitionId  partition id
      */
     public void endStatsCollection(long cache1Size, long cache2Size, CacheUse cacheUse, long partitionId) {
-        if (m_currentStartTime != null) {
-            long delta = System.nanoTime() - m_currentStartTime;
+        Long startTime = m_currentStartTime;
+        m_currentStartTime = null;
+        endStatsCollection(startTime, cache1Size, cache2Size, cacheUse, partitionId);
+    }
+
+    /**
+     * Called after planning or failing to plan with the start time returned
+     * by {@link #sampleStartTime()}. Safe to call from several threads.
+     */
+    public synchronized void endStatsCollection(Long startTime, long cache1Size, long cache2Size,
+            CacheUse cacheUse, long partitionId) {
+        if (startTime != null) {
+            long delta = System.nanoTime() - startTime;
             if (delta < 0) {
                 if (Math.abs(delta) > 1000000000) {
                     log.info("Planner statistics recorded a negative planning time larger than one second: " +
@@ -210,7 +233,6 @@ public class PlannerStatsCollector extends StatsSource {
                 m_lastMinPlanningTime = Math.min(delta, m_lastMinPlanningTime);
                 m_lastMaxPlanningTime = Math.max(delta, m_lastMaxPlanningTime);
             }
-            m_currentStartTime = null;
         }
 
         m_cache1Level = cache1Size;
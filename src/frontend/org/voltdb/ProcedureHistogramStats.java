@@ -0,0 +1,157 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.AtomicHistogram;
+import org.HdrHistogram_voltpatches.Histogram;
+import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashMap;
+import org.voltcore.utils.CompressionStrategySnappy;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Host wide execution time histograms, one per procedure. Every site running the
+ * procedure records its sampled invocations into the same histogram, so the rows are
+ * already merged across the sites of this host. Values are in microseconds.
+ *
+ * The HISTOGRAM column holds the Snappy compressed histogram, the same encoding as
+ * LATENCY, so clients can merge the rows from every host with
+ * AbstractHistogram.fromCompressedBytes().
+ */
+public class ProcedureHistogramStats extends StatsSource {
+
+    // One hour, like the client latency histograms, at two significant digits
+    // to keep the footprint of one histogram per procedure small
+    static final long HIGHEST_TRACKABLE_MICROS = 60L * 60L * 1000000L;
+    static final int SIGNIFICANT_DIGITS = 2;
+
+    static class Entry {
+        final String m_procedure;
+        final String m_statement;
+        // Recorded into by the sites
+        final AtomicHistogram m_live = new AtomicHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        // Only touched while collecting stats
+        Histogram m_lastInterval = null;
+        Histogram m_rowValues = null;
+
+        Entry(String procedure, String statement) {
+            m_procedure = procedure;
+            m_statement = statement;
+        }
+    }
+
+    private final NonBlockingHashMap<String, Entry> m_entries = new NonBlockingHashMap<String, Entry>();
+
+    public ProcedureHistogramStats() {
+        super(false);
+    }
+
+    /**
+     * Record a duration in the given histogram. Allocation free and safe to call from any site.
+     */
+    public static void record(AbstractHistogram histogram, long nanos) {
+        histogram.recordValue(Math.min(Math.max(nanos / 1000, 0), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public AbstractHistogram histogramFor(String procedure) {
+        return entryFor(procedure, null).m_live;
+    }
+
+    protected Entry entryFor(String procedure, String statement) {
+        final String key = statement == null ? procedure : procedure + "." + statement;
+        Entry entry = m_entries.get(key);
+        if (entry == null) {
+            entry = new Entry(procedure, statement);
+            Entry existing = m_entries.putIfAbsent(key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    protected boolean hasStatementColumn() {
+        return false;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("PROCEDURE", VoltType.STRING));
+        if (hasStatementColumn()) {
+            columns.add(new ColumnInfo("STATEMENT", VoltType.STRING));
+        }
+        columns.add(new ColumnInfo("TIMED_INVOCATIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MIN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("P50", VoltType.BIGINT));
+        columns.add(new ColumnInfo("P95", VoltType.BIGINT));
+        columns.add(new ColumnInfo("P99", VoltType.BIGINT));
+        columns.add(new ColumnInfo("P99_9", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MAX", VoltType.BIGINT));
+        columns.add(new ColumnInfo("HISTOGRAM", VoltType.VARBINARY));
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        // Snapshot every histogram up front so rows without samples can be skipped
+        List<Object> keys = new ArrayList<Object>();
+        for (Entry entry : m_entries.values()) {
+            if (entry.m_rowValues == null) {
+                entry.m_rowValues = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+            }
+            entry.m_live.copyInto(entry.m_rowValues);
+            if (interval) {
+                if (entry.m_lastInterval == null) {
+                    entry.m_lastInterval = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+                    entry.m_rowValues.copyInto(entry.m_lastInterval);
+                } else {
+                    Histogram current = entry.m_rowValues.copy();
+                    entry.m_rowValues.subtract(entry.m_lastInterval);
+                    entry.m_lastInterval = current;
+                }
+            }
+            if (entry.m_rowValues.getTotalCount() > 0) {
+                keys.add(entry);
+            }
+        }
+        return keys.iterator();
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final Entry entry = (Entry)rowKey;
+        final Histogram h = entry.m_rowValues;
+        rowValues[columnNameToIndex.get("PROCEDURE")] = entry.m_procedure;
+        if (hasStatementColumn()) {
+            rowValues[columnNameToIndex.get("STATEMENT")] = entry.m_statement;
+        }
+        rowValues[columnNameToIndex.get("TIMED_INVOCATIONS")] = h.getTotalCount();
+        rowValues[columnNameToIndex.get("MIN")] = h.getMinValue();
+        rowValues[columnNameToIndex.get("P50")] = h.getValueAtPercentile(50.0);
+        rowValues[columnNameToIndex.get("P95")] = h.getValueAtPercentile(95.0);
+        rowValues[columnNameToIndex.get("P99")] = h.getValueAtPercentile(99.0);
+        rowValues[columnNameToIndex.get("P99_9")] = h.getValueAtPercentile(99.9);
+        rowValues[columnNameToIndex.get("MAX")] = h.getMaxValue();
+        rowValues[columnNameToIndex.get("HISTOGRAM")] = h.toCompressedBytes(CompressionStrategySnappy.INSTANCE);
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
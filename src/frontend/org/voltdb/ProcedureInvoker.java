@@ -0,0 +1,130 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Calls the <code>run(...)</code> method of a Java stored procedure.
+ *
+ * An invoker is built once per procedure instance when the ProcedureRunner is
+ * created, so the per-transaction path doesn't go through
+ * {@link Method#invoke(Object, Object...)} with its access checks, varargs
+ * copying and native/generated accessor dispatch. The default implementation
+ * binds the procedure instance into a {@link MethodHandle} and spreads the
+ * already converted parameter array straight onto the primitive-typed
+ * signature of <code>run</code>.
+ *
+ * Whatever the procedure throws is reported as the cause of an
+ * {@link InvocationTargetException}, exactly as reflection did, so callers
+ * keep a single error handling path.
+ */
+public abstract class ProcedureInvoker {
+
+    /**
+     * Set to fall back to {@link Method#invoke(Object, Object...)}, mostly
+     * useful for comparing the two in benchmarks.
+     */
+    public static final boolean REFLECTIVE_INVOKE = Boolean.getBoolean("REFLECTIVE_PROC_INVOKE");
+
+    protected final Method m_method;
+
+    protected ProcedureInvoker(Method method) {
+        m_method = method;
+    }
+
+    public Method getMethod() {
+        return m_method;
+    }
+
+    /**
+     * Run the procedure with parameters that have already been made
+     * compatible with the declared parameter types.
+     */
+    public abstract Object invoke(Object[] params) throws InvocationTargetException;
+
+    /**
+     * Build an invoker for the given run method bound to a procedure
+     * instance. Falls back to reflection if a method handle can't be created
+     * for the method (e.g. it is declared in a non-public class).
+     */
+    public static ProcedureInvoker create(Object procedure, Method method) {
+        if (!REFLECTIVE_INVOKE) {
+            try {
+                return new MethodHandleInvoker(procedure, method);
+            }
+            catch (IllegalAccessException e) {
+                // fall through to reflection
+            }
+        }
+        return new ReflectiveInvoker(procedure, method);
+    }
+
+    static final class MethodHandleInvoker extends ProcedureInvoker {
+        private final MethodHandle m_handle;
+
+        MethodHandleInvoker(Object procedure, Method method) throws IllegalAccessException {
+            super(method);
+            final int paramCount = method.getParameterTypes().length;
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(procedure);
+            }
+            // (Object[])Object, with unboxing/casting of each argument
+            // folded into the handle
+            m_handle = handle
+                    .asSpreader(Object[].class, paramCount)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        }
+
+        @Override
+        public Object invoke(Object[] params) throws InvocationTargetException {
+            try {
+                return m_handle.invokeExact(params);
+            }
+            catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    static final class ReflectiveInvoker extends ProcedureInvoker {
+        private final Object m_procedure;
+
+        ReflectiveInvoker(Object procedure, Method method) {
+            super(method);
+            m_procedure = procedure;
+        }
+
+        @Override
+        public Object invoke(Object[] params) throws InvocationTargetException {
+            try {
+                return m_method.invoke(m_procedure, params);
+            }
+            catch (IllegalAccessException e) {
+                // If reflection fails, invoke the same error handling that other exceptions do
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+}
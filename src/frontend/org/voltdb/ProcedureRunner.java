@@ -36,6 +36,7 @@ import java.util.concurrent.ExecutionException;
 import org.apache.hadoop_voltpatches.util.PureJavaCrc32C;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool;
 import org.voltdb.CatalogContext.ProcedurePartitionInfo;
 import org.voltdb.VoltProcedure.VoltAbortException;
 import org.voltdb.catalog.PlanFragment;
@@ -57,6 +58,7 @@ import org.voltdb.exceptions.SpecifiedException;
 import org.voltdb.groovy.GroovyScriptProcedureDelegate;
 import org.voltdb.iv2.MpInitiator;
 import org.voltdb.iv2.UniqueIdGenerator;
+import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.planner.ActivePlanRepository;
 import org.voltdb.sysprocs.AdHocBase;
@@ -102,6 +104,7 @@ public class ProcedureRunner {
     protected final String m_procedureName;
     protected final VoltProcedure m_procedure;
     protected Method m_procMethod;
+    protected ProcedureInvoker m_procInvoker;
     protected Class<?>[] m_paramTypes;
 
     // per txn state (are reset after call)
@@ -147,6 +150,11 @@ public class ProcedureRunner {
     /** boolean flag to mark whether the previous batch execution has EE exception or not.*/
     private long m_spBigBatchBeginToken;
 
+    // Containers backing pooled EE result tables for the current call. They are handed
+    // to the response and discarded once it has been sent to the client.
+    // Null unless ExecutionEngine.EE_POOLED_RESULTS is on and this is a user SP procedure.
+    private final ArrayList<DBBPool.BBContainer> m_resultContainers;
+
     // Used to get around the "abstract" for StmtProcedures.
     // Path of least resistance?
     static class StmtProcedure extends VoltProcedure {
@@ -205,13 +213,22 @@ public class ProcedureRunner {
         m_site = site;
         m_systemProcedureContext = sysprocContext;
         m_csp = csp;
+        if (ExecutionEngine.EE_POOLED_RESULTS && m_isSinglePartition && !m_isSysProc &&
+                m_site.getCorrespondingPartitionId() != MpInitiator.MP_INIT_PID) {
+            m_resultContainers = new ArrayList<DBBPool.BBContainer>();
+        }
+        else {
+            m_resultContainers = null;
+        }
 
         m_procedure.init(this);
 
         m_statsCollector = new ProcedureStatsCollector(
                 m_site.getCorrespondingSiteId(),
                 m_site.getCorrespondingPartitionId(),
-                m_catProc);
+                m_catProc,
+                VoltDB.instance().getStatsAgent().getProcedureHistograms(),
+                VoltDB.instance().getStatsAgent().getStatementHistograms());
         VoltDB.instance().getStatsAgent().registerStatsSource(
                 StatsSelector.PROCEDURE,
                 site.getCorrespondingSiteId(),
@@ -264,6 +281,9 @@ public class ProcedureRunner {
 
         // set procedure name in the site/ee
         m_site.setProcedureName(m_procedureName);
+        if (m_resultContainers != null) {
+            m_site.setResultContainerCollector(m_resultContainers);
+        }
 
         // use local var to avoid warnings about reassigning method argument
         Object[] paramList = paramListIn;
@@ -319,14 +339,8 @@ public class ProcedureRunner {
                         if (HOST_TRACE_ENABLED) {
                             log.trace("invoking... procMethod=" + m_procMethod.getName() + ", class=" + m_procMethod.getDeclaringClass().getName());
                         }
-                        try {
-                            Object rawResult = m_procMethod.invoke(m_procedure, paramList);
-                            results = getResultsFromRawResults(rawResult);
-                        }
-                        catch (IllegalAccessException e) {
-                            // If reflection fails, invoke the same error handling that other exceptions do
-                            throw new InvocationTargetException(e);
-                        }
+                        Object rawResult = m_procInvoker.invoke(paramList);
+                        results = getResultsFromRawResults(rawResult);
                     }
                     else if (m_language == Language.GROOVY) {
                         if (HOST_TRACE_ENABLED) {
@@ -438,6 +452,22 @@ public class ProcedureRunner {
             m_seenFinalBatch = false;
 
             m_site.setProcedureName(null);
+            if (m_resultContainers != null) {
+                m_site.setResultContainerCollector(null);
+                if (!m_resultContainers.isEmpty()) {
+                    if (retval != null) {
+                        // the response may hold any of the tables, release them all with it
+                        retval.setResultContainers(m_resultContainers.toArray(
+                                new DBBPool.BBContainer[m_resultContainers.size()]));
+                    }
+                    else {
+                        for (DBBPool.BBContainer container : m_resultContainers) {
+                            container.discard();
+                        }
+                    }
+                    m_resultContainers.clear();
+                }
+            }
         }
 
         return retval;
@@ -771,6 +801,8 @@ public class ProcedureRunner {
             return new VoltTable[] {};
         }
 
+        final long batchStartTime = m_statsCollector.isTimingProcedure() ? System.nanoTime() : -1;
+
         // If this is a non-VoltDB backend, run the queries directly in that
         // database (e.g. HSQL or PostgreSQL)
         if (getNonVoltDBBackendIfExists() != null) {
@@ -788,6 +820,10 @@ public class ProcedureRunner {
             results = slowPath(batch, isFinalSQL);
         }
 
+        if (batchStartTime > 0) {
+            m_statsCollector.endStatementBatch(batch, System.nanoTime() - batchStartTime);
+        }
+
         // check expectations
         int i = 0; for (QueuedSQL qs : batch) {
             Expectation.check(m_procedureName, qs.stmt,
@@ -970,8 +1006,9 @@ public class ProcedureRunner {
 
         for (PlanFragment frag : catStmt.getFragments()) {
             byte[] planHash = Encoder.hexDecode(frag.getPlanhash());
-            byte[] plan = Encoder.decodeBase64AndDecompressToBytes(frag.getPlannodetree());
-            long id = ActivePlanRepository.loadOrAddRefPlanFragment(planHash, plan, catStmt.getSqltext());
+            // every site loads the same plans, only the first one needs to decode each plan
+            long id = ActivePlanRepository.loadOrAddRefPlanFragment(
+                    planHash, frag.getPlannodetree(), catStmt.getSqltext());
             boolean transactional = frag.getNontransactional() == false;
 
             SQLStmt.Frag stmtFrag = new SQLStmt.Frag(id, planHash, transactional);
@@ -986,6 +1023,7 @@ public class ProcedureRunner {
 
         stmt.isReadOnly = catStmt.getReadonly();
         stmt.isReplicatedTableDML = catStmt.getReplicatedtabledml();
+        stmt.stmtName = catStmt.getTypeName();
 
         stmt.site = m_site;
 
@@ -1020,6 +1058,9 @@ public class ProcedureRunner {
             if (m_procMethod == null && m_language == Language.JAVA) {
                 throw new RuntimeException("No \"run\" method found in: " + m_procedure.getClass().getName());
             }
+            if (m_procMethod != null) {
+                m_procInvoker = ProcedureInvoker.create(m_procedure, m_procMethod);
+            }
             // iterate through the fields and deal with sql statements
             stmtMap = m_language.accept(sqlStatementsRetriever, this);
         }
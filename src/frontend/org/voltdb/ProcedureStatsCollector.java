@@ -18,8 +18,11 @@
 package org.voltdb;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 
+import org.HdrHistogram_voltpatches.AbstractHistogram;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.catalog.Procedure;
 
@@ -127,13 +130,66 @@ class ProcedureStatsCollector extends SiteStatsSource {
     private final Procedure m_catProc;
     private final int m_partitionId;
 
+    /**
+     * Host wide histograms shared with the other sites, null when not registered
+     */
+    private final AbstractHistogram m_histogram;
+    private final StatementHistogramStats m_statementHistograms;
+    private final IdentityHashMap<SQLStmt, AbstractHistogram> m_statementHistogramCache =
+            new IdentityHashMap<SQLStmt, AbstractHistogram>();
+    private AbstractHistogram m_batchHistogram = null;
+
     /**
      * Constructor requires no args because it has access to the enclosing classes members.
      */
-    public ProcedureStatsCollector(long siteId, int partitionId, Procedure catProc) {
+    public ProcedureStatsCollector(long siteId, int partitionId, Procedure catProc,
+            ProcedureHistogramStats procedureHistograms,
+            StatementHistogramStats statementHistograms) {
         super(siteId, false);
         m_partitionId = partitionId;
         m_catProc = catProc;
+        m_histogram = procedureHistograms == null ? null :
+            procedureHistograms.histogramFor(m_catProc.getClassname());
+        m_statementHistograms = statementHistograms;
+    }
+
+    /**
+     * @return true if the current invocation is being timed
+     */
+    public final boolean isTimingProcedure() {
+        return m_currentStartTime > 0;
+    }
+
+    /**
+     * Called after a batch of SQL statements of a timed invocation finished executing.
+     * A batch of one statement is attributed to that statement, larger batches to the
+     * procedure's batch pseudo statement since they are executed in one go.
+     */
+    final void endStatementBatch(List<ProcedureRunner.QueuedSQL> batch, long nanos) {
+        if (m_statementHistograms == null || batch.isEmpty()) {
+            return;
+        }
+        AbstractHistogram histogram;
+        if (batch.size() == 1) {
+            final SQLStmt stmt = batch.get(0).stmt;
+            histogram = m_statementHistogramCache.get(stmt);
+            if (histogram == null) {
+                if (stmt.stmtName == null) {
+                    // Not a catalog statement, ad hoc SQL is not tracked per statement
+                    return;
+                }
+                histogram = m_statementHistograms.histogramFor(m_catProc.getClassname(), stmt.stmtName);
+                m_statementHistogramCache.put(stmt, histogram);
+            }
+        }
+        else {
+            if (m_batchHistogram == null) {
+                m_batchHistogram = m_statementHistograms.histogramFor(m_catProc.getClassname(),
+                                                                      StatementHistogramStats.BATCH);
+            }
+            histogram = m_batchHistogram;
+        }
+        ProcedureHistogramStats.record(histogram, nanos);
     }
 
     /**
@@ -172,6 +228,9 @@ class ProcedureStatsCollector extends SiteStatsSource {
             {
                 m_totalTimedExecutionTime += delta;
                 m_timedInvocations++;
+                if (m_histogram != null) {
+                    ProcedureHistogramStats.record(m_histogram, delta);
+                }
 
                 // sampled timings
                 m_minExecutionTime = Math.min( delta, m_minExecutionTime);
@@ -106,12 +106,15 @@ import org.voltdb.common.NodeState;
 import org.voltdb.compiler.AdHocCompilerCache;
 import org.voltdb.compiler.AsyncCompilerAgent;
 import org.voltdb.compiler.ClusterConfig;
+import org.voltdb.compiler.deploymentfile.AdmissionQuotaType;
+import org.voltdb.compiler.deploymentfile.AdmissionType;
 import org.voltdb.compiler.deploymentfile.ClusterType;
 import org.voltdb.compiler.deploymentfile.ConsistencyType;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.compiler.deploymentfile.HeartbeatType;
 import org.voltdb.compiler.deploymentfile.PartitionDetectionType;
 import org.voltdb.compiler.deploymentfile.PathsType;
+import org.voltdb.compiler.deploymentfile.SiteQueueType;
 import org.voltdb.compiler.deploymentfile.SystemSettingsType;
 import org.voltdb.dtxn.InitiatorStats;
 import org.voltdb.dtxn.LatencyHistogramStats;
@@ -125,6 +128,8 @@ import org.voltdb.iv2.Initiator;
 import org.voltdb.iv2.KSafetyStats;
 import org.voltdb.iv2.LeaderAppointer;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.SiteTaskerQueue;
+import org.voltdb.iv2.SiteTaskerRingQueue;
 import org.voltdb.iv2.SpInitiator;
 import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
 import org.voltdb.iv2.TxnEgo;
@@ -556,7 +561,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
 
     private final List<String> pathsWithRecoverableArtifacts(DeploymentType deployment) {
         ImmutableList.Builder<String> nonEmptyPaths = ImmutableList.builder();
-        if (!MiscUtils.isPro()) {
+        if (!MiscUtils.isPro() && !GroupCommitCommandLog.ENABLED) {
             return nonEmptyPaths.build();
         }
         PathsType paths = deployment.getPaths();
@@ -1037,6 +1042,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_latencyHistogramStats = new LatencyHistogramStats(m_myHostId);
             getStatsAgent().registerStatsSource(StatsSelector.LATENCY_HISTOGRAM,
                     0, m_latencyHistogramStats);
+            getStatsAgent().registerHistogramStatsSources(new ProcedureHistogramStats(),
+                    new StatementHistogramStats());
+            getStatsAgent().registerStatsSource(StatsSelector.ADMISSION,
+                    0, AdmissionController.instance());
 
 
             BalancePartitionsStatistics rebalanceStats = new BalancePartitionsStatistics();
@@ -1140,28 +1149,63 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
              * Configure and start all the IV2 sites
              */
             try {
-                final String serializedCatalog = m_catalogContext.catalog.serialize();
+                final long configureStart = System.nanoTime();
+                // Encode the catalog once, the EE of every site loads it from the same bytes
+                final byte[] serializedCatalog =
+                        ExecutionEngine.getStringBytes(m_catalogContext.catalog.serialize());
+                // The MP DR gateway and the core bindings are handed out in initiator
+                // order before the initiators are configured concurrently
+                List<Callable<Void>> configureTasks = new ArrayList<Callable<Void>>();
                 boolean createMpDRGateway = true;
-                for (Initiator iv2init : m_iv2Initiators.values()) {
-                    iv2init.configure(
-                            getBackendTargetType(),
-                            m_catalogContext,
-                            serializedCatalog,
-                            m_catalogContext.getDeployment().getCluster().getKfactor(),
-                            csp,
-                            m_configuredNumberOfPartitions,
-                            m_config.m_startAction,
-                            getStatsAgent(),
-                            m_memoryStats,
-                            m_commandLog,
-                            m_producerDRGateway,
-                            iv2init != m_MPI && createMpDRGateway, // first SPI gets it
-                            m_config.m_executionCoreBindings.poll());
+                for (final Initiator iv2init : m_iv2Initiators.values()) {
+                    final boolean initCreatesMpDRGateway = iv2init != m_MPI && createMpDRGateway; // first SPI gets it
+                    final String coreBindIds = m_config.m_executionCoreBindings.poll();
+                    configureTasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            iv2init.configure(
+                                    getBackendTargetType(),
+                                    m_catalogContext,
+                                    serializedCatalog,
+                                    m_catalogContext.getDeployment().getCluster().getKfactor(),
+                                    csp,
+                                    m_configuredNumberOfPartitions,
+                                    m_config.m_startAction,
+                                    getStatsAgent(),
+                                    m_memoryStats,
+                                    m_commandLog,
+                                    m_producerDRGateway,
+                                    initCreatesMpDRGateway,
+                                    coreBindIds);
+                            return null;
+                        }
+                    });
 
                     if (iv2init != m_MPI) {
                         createMpDRGateway = false;
                     }
                 }
+                // Loading the procedures of each site dominates, the threads share the
+                // decoded plan fragments. INITIATOR_CONFIGURE_THREADS=1 configures serially.
+                final int configureThreads = Math.max(1, Math.min(configureTasks.size(),
+                        Integer.getInteger("INITIATOR_CONFIGURE_THREADS", CoreUtils.availableProcessors())));
+                if (configureThreads == 1) {
+                    for (Callable<Void> task : configureTasks) {
+                        task.call();
+                    }
+                } else {
+                    ListeningExecutorService configureService =
+                            CoreUtils.getListeningExecutorService("Initiator configure", configureThreads);
+                    try {
+                        for (Future<Void> configured : configureService.invokeAll(configureTasks)) {
+                            configured.get();
+                        }
+                    } finally {
+                        configureService.shutdown();
+                    }
+                }
+                hostLog.info("Configured " + configureTasks.size() + " initiators using " + configureThreads +
+                        " threads in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - configureStart) + " ms");
 
                 // LeaderAppointer startup blocks if the initiators are not initialized.
                 // So create the LeaderAppointer after the initiators.
@@ -1249,7 +1293,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             if (m_configuredReplicationFactor == 0) {
                 consoleLog.warn("This is not a highly available cluster. K-Safety is set to 0.");
             }
-            boolean usingCommandLog = m_config.m_isEnterprise
+            boolean usingCommandLog = (m_config.m_isEnterprise
+                                       || GroupCommitCommandLog.isSupported(m_clusterSettings.get().hostcount()))
                     && (m_catalogContext.cluster.getLogconfig() != null)
                     && (m_catalogContext.cluster.getLogconfig().get("log") != null)
                     && m_catalogContext.cluster.getLogconfig().get("log").getEnabled();
@@ -1847,6 +1892,63 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         }
     }
 
+    private void configureSiteTaskerQueue(SystemSettingsType.Sitequeue siteQueue) {
+        if (siteQueue.getType() == SiteQueueType.RING) {
+            SiteTaskerRingQueue.WaitStrategy waitStrategy;
+            switch (siteQueue.getWait()) {
+            case BUSYSPIN:
+                waitStrategy = SiteTaskerRingQueue.WaitStrategy.BUSY_SPIN;
+                break;
+            case SPINYIELD:
+                waitStrategy = SiteTaskerRingQueue.WaitStrategy.SPIN_YIELD;
+                break;
+            case SPINPARK:
+                waitStrategy = SiteTaskerRingQueue.WaitStrategy.SPIN_PARK;
+                break;
+            default:
+                waitStrategy = SiteTaskerRingQueue.WaitStrategy.BLOCKING;
+                break;
+            }
+            SiteTaskerQueue.setConfiguredQueue(SiteTaskerQueue.QueueType.RING,
+                    siteQueue.getCapacity(), waitStrategy);
+            hostLog.info("Site task queue set to a " + siteQueue.getCapacity() +
+                    " entry ring with " + siteQueue.getWait().value() + " wait strategy");
+        }
+        else {
+            SiteTaskerQueue.setConfiguredQueue(SiteTaskerQueue.QueueType.LINKED,
+                    SiteTaskerRingQueue.DEFAULT_CAPACITY, SiteTaskerRingQueue.WaitStrategy.BLOCKING);
+        }
+    }
+
+    private void configureAdmission(AdmissionType admission) {
+        AdmissionController controller = AdmissionController.instance();
+        controller.setAdaptive(admission.isAdaptive(), admission.getTargetqueuewait());
+        if (admission.isAdaptive()) {
+            hostLog.info("Adaptive admission control enabled with a target queue wait of " +
+                    admission.getTargetqueuewait() + " milliseconds");
+        }
+        List<String> priorityProcedures = new ArrayList<String>();
+        for (String procName : admission.getPriorityprocedures().split(",")) {
+            if (!procName.trim().isEmpty()) {
+                priorityProcedures.add(procName.trim());
+            }
+        }
+        controller.setPriorityProcedures(priorityProcedures);
+        if (!priorityProcedures.isEmpty()) {
+            hostLog.info("Read-only invocations of " + priorityProcedures + " will run in the priority lane");
+        }
+        for (AdmissionQuotaType quota : admission.getQuota()) {
+            if ((quota.getUser() == null) == (quota.getProcedure() == null)) {
+                VoltDB.crashLocalVoltDB("An admission quota must name either a user or a procedure");
+            }
+            if (quota.getUser() != null) {
+                controller.setUserQuota(quota.getUser(), quota.getMaxtxns(), quota.getMaxbytes());
+            } else {
+                controller.setProcedureQuota(quota.getProcedure(), quota.getMaxtxns(), quota.getMaxbytes());
+            }
+        }
+    }
+
     int readDeploymentAndCreateStarterCatalogContext(VoltDB.Configuration config) {
         /*
          * Debate with the cluster what the deployment file should be
@@ -1944,7 +2046,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
                 }
-                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled())) {
+                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled())
+                        && !GroupCommitCommandLog.ENABLED) {
                     consoleLog.error("Command logging is not supported " +
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
@@ -1954,8 +2057,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
                 }
-                // check the start action for the community edition
-                if (m_config.m_startAction != StartAction.CREATE) {
+                // check the start action for the community edition, which can only
+                // recover from the community command log
+                if (m_config.m_startAction != StartAction.CREATE
+                        && !(GroupCommitCommandLog.ENABLED && m_config.m_startAction.doesRecover())) {
                     consoleLog.error("Start action \"" + m_config.m_startAction.getClass().getSimpleName() +
                             "\" is not supported in the community edition of VoltDB.");
                     shutdownAction = true;
@@ -2046,6 +2151,12 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                         m_config.m_queryTimeout = 0;
                     }
                 }
+                if (sysType.getSitequeue() != null) {
+                    configureSiteTaskerQueue(sysType.getSitequeue());
+                }
+                if (sysType.getAdmission() != null) {
+                    configureAdmission(sysType.getAdmission());
+                }
             }
 
             // create a dummy catalog to load deployment info into
@@ -2200,7 +2311,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
                 }
-                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled())) {
+                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled())
+                        && !GroupCommitCommandLog.ENABLED) {
                     consoleLog.error("Command logging is not supported " +
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
@@ -2210,8 +2322,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
                 }
-                // check the start action for the community edition
-                if (m_config.m_startAction != StartAction.CREATE) {
+                // check the start action for the community edition, which can only
+                // recover from the community command log
+                if (m_config.m_startAction != StartAction.CREATE
+                        && !(GroupCommitCommandLog.ENABLED && m_config.m_startAction.doesRecover())) {
                     consoleLog.error("Start action \"" + m_config.m_startAction.getClass().getSimpleName() +
                             "\" is not supported in the community edition of VoltDB.");
                     shutdownAction = true;
@@ -2371,6 +2485,17 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 return m_clusterSettings.get().hostcount();
             }
         };
+        // The community command log can only be replayed by the single host that wrote it
+        final Supplier<String> addRefusalSupplier = new Supplier<String>() {
+            @Override
+            public String get() {
+                if (m_commandLog instanceof GroupCommitCommandLog) {
+                    return "Hosts cannot be added to this cluster, the community command log " +
+                           "only supports single host clusters";
+                }
+                return null;
+            }
+        };
 
         ClusterType clusterType = readDepl.deployment.getCluster();
 
@@ -2386,6 +2511,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 .paused(m_config.m_isPaused)
                 .nodeStateSupplier(m_statusTracker.getNodeStateSupplier())
                 .addAllowed(m_config.m_enableAdd)
+                .addRefusalSupplier(addRefusalSupplier)
                 .safeMode(m_config.m_safeMode)
                 .terminusNonce(getTerminusNonce())
                 .build();
@@ -2827,6 +2953,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 m_latencyHistogramStats = null;
 
                 AdHocCompilerCache.clearHashCache();
+                AdmissionController.instance().reset();
                 org.voltdb.iv2.InitiatorMailbox.m_allInitiatorMailboxes.clear();
 
                 PartitionDRGateway.m_partitionDRGateways = ImmutableMap.of();
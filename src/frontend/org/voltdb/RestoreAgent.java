@@ -473,11 +473,12 @@ SnapshotCompletionInterest, Promotable
         m_action = action;
         m_hostMessenger = hostMessenger;
         m_zk = hostMessenger.getZK();
-        m_clEnabled = VoltDB.instance().getConfig().m_isEnterprise ? clEnabled : false;
+        m_liveHosts = ImmutableSet.copyOf(hostMessenger.getLiveHostIds());
+        m_clEnabled = (VoltDB.instance().getConfig().m_isEnterprise ||
+                       GroupCommitCommandLog.isSupported(m_liveHosts.size())) ? clEnabled : false;
         m_clPath = clPath;
         m_clSnapshotPath = clSnapshotPath;
         m_snapshotPath = snapshotPath;
-        m_liveHosts = ImmutableSet.copyOf(hostMessenger.getLiveHostIds());
         m_voltdbrootPath = voltdbrootPath;
         m_terminusNonce = terminusNonce;
 
@@ -503,6 +504,8 @@ SnapshotCompletionInterest, Promotable
                                                                     m_hostMessenger,
                                                                     m_clPath,
                                                                     m_liveHosts);
+            } else if (m_clEnabled) {
+                m_replayAgent = new GroupCommitReplayAgent(startAction, m_clPath);
             }
         } catch (Exception e) {
             VoltDB.crashGlobalVoltDB("Unable to instantiate command log reinitiator",
@@ -1136,7 +1139,7 @@ SnapshotCompletionInterest, Promotable
         // Reluctant to muck with the first predicate here, even though
         // the newest == null should cover all of the 'no viable snapshot' possiblities
         if ((clStartTxnId != null && clStartTxnId != Long.MIN_VALUE &&
-            snapshotFragments.size() == 0) || newest == null) {
+            snapshotFragments.size() == 0) || (newest == null && isTruncatedBySnapshot())) {
             if (m_snapshotErrLogStr.length() > 0) {
                 LOG.error(m_snapshotErrLogStr.toString());
             }
@@ -1291,6 +1294,7 @@ SnapshotCompletionInterest, Promotable
 
     @Override
     public void onReplayCompletion() {
+        final boolean truncatesBySnapshot = isTruncatedBySnapshot();
         if (!m_hasRestored && !m_replayAgent.hasReplayedSegments() &&
             m_action.doesRecover()) {
             /*
@@ -1298,7 +1302,7 @@ SnapshotCompletionInterest, Promotable
              * log to replay. But the user asked for recover
              */
             VoltDB.crashGlobalVoltDB("Nothing to recover from", false, null);
-        } else if (!m_clEnabled && !m_replayAgent.hasReplayedTxns()) {
+        } else if ((!m_clEnabled && !m_replayAgent.hasReplayedTxns()) || !truncatesBySnapshot) {
             // Nothing was replayed, so no need to initiate truncation snapshot
             m_state = State.TRUNCATE;
         }
@@ -1329,7 +1333,7 @@ SnapshotCompletionInterest, Promotable
          * ENG-1516: Use truncation snapshot to save the catalog if CL is
          * enabled.
          */
-        if (m_clEnabled || m_replayAgent.hasReplayedTxns()) {
+        if (truncatesBySnapshot && (m_clEnabled || m_replayAgent.hasReplayedTxns())) {
             /*
              * If this has the lowest host ID, initiate the snapshot that
              * will truncate the logs
@@ -1350,6 +1354,15 @@ SnapshotCompletionInterest, Promotable
         }
     }
 
+    /**
+     * The community command log keeps every segment when there are no snapshots to
+     * truncate it, recovery replays all of them into an empty database.
+     */
+    private boolean isTruncatedBySnapshot() {
+        return !(m_replayAgent instanceof GroupCommitReplayAgent) ||
+               GroupCommitCommandLog.truncatesBySnapshot();
+    }
+
     /**
      * Finds all the snapshots in all the places we know of which could possibly
      * store snapshots, like command log snapshots, auto snapshots, etc.
@@ -1362,7 +1375,7 @@ SnapshotCompletionInterest, Promotable
          * they can be set individually
          */
         Map<String, SnapshotPathType> paths = new HashMap<String, SnapshotPathType>();
-        if (VoltDB.instance().getConfig().m_isEnterprise) {
+        if (VoltDB.instance().getConfig().m_isEnterprise || m_clEnabled) {
             if (m_clSnapshotPath != null) {
                 paths.put(m_clSnapshotPath, SnapshotPathType.SNAP_CL);
             }
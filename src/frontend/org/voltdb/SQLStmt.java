@@ -64,6 +64,9 @@ public class SQLStmt {
 
     boolean inCatalog;
 
+    // catalog name of the statement, used to key its execution time histogram
+    String stmtName;
+
     // used to clean up plans
     SiteProcedureConnection site;
 
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
 
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
 import org.voltdb.VoltProcedure.VoltAbortException;
 import org.voltdb.dtxn.TransactionState;
@@ -125,6 +126,13 @@ public interface SiteProcedureConnection {
      */
     public void setProcedureName(String procedureName);
 
+    /**
+     * Ask the EE to back result tables with pooled buffers and add their containers
+     * to the collector, or pass null to go back to heap copies.
+     * See ExecutionEngine.EE_POOLED_RESULTS.
+     */
+    public void setResultContainerCollector(List<BBContainer> collector);
+
     public void setBatchTimeout(int batchTimeout);
     public int getBatchTimeout();
 
@@ -116,6 +116,9 @@ public class SnapshotStatus extends StatsSource {
         columns.add(new ColumnInfo("THROUGHPUT", VoltType.FLOAT));
         columns.add(new ColumnInfo("RESULT", VoltType.STRING));
         columns.add(new ColumnInfo("TYPE", VoltType.STRING));
+        columns.add(new ColumnInfo("WRITER", VoltType.STRING));
+        columns.add(new ColumnInfo("WRITE_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("SYNC_TIME", VoltType.BIGINT));
     }
 
     @SuppressWarnings("unchecked")
@@ -145,6 +148,9 @@ public class SnapshotStatus extends StatsSource {
         rowValues[columnNameToIndex.get("THROUGHPUT")] = throughput;
         rowValues[columnNameToIndex.get("RESULT")] = t.error == null ? "SUCCESS" : "FAILURE";
         rowValues[columnNameToIndex.get("TYPE")] = getSnapshotType(s.path);
+        rowValues[columnNameToIndex.get("WRITER")] = t.writer;
+        rowValues[columnNameToIndex.get("WRITE_TIME")] = t.writeMillis;
+        rowValues[columnNameToIndex.get("SYNC_TIME")] = t.syncMillis;
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -81,6 +81,14 @@ public class StarvationTracker extends SiteStatsSource {
         m_lastMin = Math.min(m_lastMin, delta);
     }
 
+    /**
+     * @return the time spent starved in completed starvations since the tracker was
+     * created, in nanoseconds. Read without synchronization from other threads.
+     */
+    public long getTotalStarvationNanos() {
+        return m_totalTime;
+    }
+
     @Override
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
@@ -0,0 +1,40 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+
+/**
+ * Host wide execution time histograms, one per statement of each procedure. Only
+ * SQL batches holding a single statement can be attributed to that statement, since
+ * the EE runs a batch in one call; larger batches are recorded against the
+ * {@link #BATCH} pseudo statement of the procedure.
+ */
+public class StatementHistogramStats extends ProcedureHistogramStats {
+
+    public static final String BATCH = "BATCH";
+
+    public AbstractHistogram histogramFor(String procedure, String statement) {
+        return entryFor(procedure, statement).m_live;
+    }
+
+    @Override
+    protected boolean hasStatementColumn() {
+        return true;
+    }
+}
@@ -38,6 +38,10 @@ public class StatsAgent extends OpsAgent
     private final NonBlockingHashMap<StatsSelector, NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>> registeredStatsSources =
             new NonBlockingHashMap<StatsSelector, NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>>();
 
+    // Host wide histograms the procedure runners of every site record into
+    private volatile ProcedureHistogramStats m_procedureHistograms = null;
+    private volatile StatementHistogramStats m_statementHistograms = null;
+
     public StatsAgent()
     {
         super("StatsAgent");
@@ -436,6 +440,18 @@ public class StatsAgent extends OpsAgent
         case IMPORTER:
             stats = collectStats(StatsSelector.IMPORTER, interval);
             break;
+        case PROCEDUREHISTOGRAM:
+            stats = collectStats(StatsSelector.PROCEDUREHISTOGRAM, interval);
+            break;
+        case STATEMENTHISTOGRAM:
+            stats = collectStats(StatsSelector.STATEMENTHISTOGRAM, interval);
+            break;
+        case QUEUE:
+            stats = collectStats(StatsSelector.QUEUE, interval);
+            break;
+        case ADMISSION:
+            stats = collectStats(StatsSelector.ADMISSION, interval);
+            break;
         default:
             // Should have been successfully groomed in collectStatsImpl().  Log something
             // for our information but let the null check below return harmlessly
@@ -537,6 +553,32 @@ public class StatsAgent extends OpsAgent
         statsSources.add(source);
     }
 
+    /**
+     * Register the host wide procedure and statement histograms. Unlike other sources
+     * these survive catalog updates since they are keyed by procedure name.
+     */
+    public void registerHistogramStatsSources(ProcedureHistogramStats procedures,
+                                              StatementHistogramStats statements) {
+        registerStatsSource(StatsSelector.PROCEDUREHISTOGRAM, 0, procedures);
+        registerStatsSource(StatsSelector.STATEMENTHISTOGRAM, 0, statements);
+        m_procedureHistograms = procedures;
+        m_statementHistograms = statements;
+    }
+
+    /**
+     * @return the host wide procedure histograms or null if none are registered
+     */
+    public ProcedureHistogramStats getProcedureHistograms() {
+        return m_procedureHistograms;
+    }
+
+    /**
+     * @return the host wide statement histograms or null if none are registered
+     */
+    public StatementHistogramStats getStatementHistograms() {
+        return m_statementHistograms;
+    }
+
     public void deregisterStatsSourcesFor(StatsSelector selector, long siteId) {
         assert selector != null;
         final NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>> siteIdToStatsSources = registeredStatsSources.get(selector);
@@ -606,7 +648,10 @@ public class StatsAgent extends OpsAgent
         }
 
         // Append to previous results if provided.
-        final VoltTable resultTable = prevResults != null ? prevResults : new VoltTable(columns);
+        final VoltTableBuilder resultBuilder = new VoltTableBuilder(columns, siteIdToStatsSources.size());
+        if (prevResults != null) {
+            resultBuilder.appendRows(prevResults);
+        }
 
         for (NonBlockingHashSet<StatsSource> statsSources : siteIdToStatsSources.values()) {
 
@@ -626,19 +671,16 @@ public class StatsAgent extends OpsAgent
                     final VoltTable table = ss.getStatsTable();
                     // this table can be null during recovery, at least
                     if (table != null) {
-                        while (table.advanceRow()) {
-                            resultTable.add(table);
-                        }
-                        table.resetRowPosition();
+                        resultBuilder.appendRows(table);
                     }
                 } else {
                     Object statsRows[][] = ss.getStatsRows(interval, now);
                     for (Object[] row : statsRows) {
-                        resultTable.addRow(row);
+                        resultBuilder.appendRow(row);
                     }
                 }
             }
         }
-        return resultTable;
+        return resultBuilder.build();
     }
 }
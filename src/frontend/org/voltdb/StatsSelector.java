@@ -34,6 +34,10 @@ public enum StatsSelector {
     SNAPSHOTSTATUS,
     PROCEDUREINPUT,
     PROCEDUREOUTPUT,
+    PROCEDUREHISTOGRAM, // execution time percentiles of each procedure
+    STATEMENTHISTOGRAM, // execution time percentiles of each procedure statement
+    QUEUE,            // site task queue depth and wait of each lane
+    ADMISSION,        // admission control limits and quota usage
 
     /*
      * DRPRODUCERPARTITION and DRPRODUCERNODE are internal names
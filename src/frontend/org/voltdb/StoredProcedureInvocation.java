@@ -124,6 +124,25 @@ public class StoredProcedureInvocation implements JSONString {
         serializedParams = null;
     }
 
+    /**
+     * Set the parameters and serialize them once, up front. The invocation then carries the
+     * serialized form needed by the command log and partition routing, while execution uses
+     * the parameter set that was built here instead of one parsed back from the buffer.
+     */
+    public void setAndSerializeParams(final Object... parameters) throws IOException {
+        final ParameterSet pset = ParameterSet.fromArrayWithCopy(parameters);
+        final ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        buf.flip();
+        params = new FutureTask<ParameterSet>(new Callable<ParameterSet>() {
+            @Override
+            public ParameterSet call() {
+                return pset;
+            }
+        });
+        serializedParams = buf;
+    }
+
     public ProcedureInvocationType getType() {
         return type;
     }
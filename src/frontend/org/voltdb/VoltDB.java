@@ -804,8 +804,10 @@ public class VoltDB {
                 hostLog.fatal("The hostname is missing.");
             }
 
-            // check if start action is not valid in community
-            if ((!m_isEnterprise) && (m_startAction.isEnterpriseOnly())) {
+            // check if start action is not valid in community, recover is only
+            // valid when the community command log is enabled
+            if ((!m_isEnterprise) && (m_startAction.isEnterpriseOnly())
+                    && !(GroupCommitCommandLog.ENABLED && m_startAction.doesRecover())) {
                 isValid = false;
                 hostLog.fatal("VoltDB Community Edition only supports the \"create\" start action.");
                 String msg = m_startAction.featureNameForErrorString();
@@ -265,6 +265,11 @@ public abstract class VoltProcedure {
      * Any call to voltExecuteSQL() after calling this with the argument set to true
      * will cause the entire procedure to roll back.
      *
+     * When the server is started with -DEE_POOLED_RESULTS=true, the result tables of a
+     * single partition procedure are backed by pooled buffers that are reused as soon as
+     * the response has been sent. They must not be retained past the end of the run()
+     * call that produced them; copy any data that has to outlive the call.
+     *
      * @param isFinalSQL Is this the final batch for a procedure?
      * @return Result {@link org.voltdb.VoltTable tables} generated by executing the queued
      * query {@link org.voltdb.SQLStmt statements}
@@ -142,6 +142,12 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     private int m_memoizedRowOffset = NO_MEMOIZED_ROW_OFFSET;
     private int m_memoizedBufferOffset;
 
+    // start of each row (its length prefix) for random access, built lazily
+    // and only as far as the rows that have been looked up
+    private int[] m_rowOffsets = null;
+    // number of leading entries of m_rowOffsets that are valid
+    private int m_indexedRowCount = 0;
+
     // JSON KEYS FOR SERIALIZATION
     static final String JSON_NAME_KEY = "name";
     static final String JSON_TYPE_KEY = "type";
@@ -508,6 +514,8 @@ public final class VoltTable extends VoltTableRow implements JSONString {
         m_buffer.position(m_rowStart);
         m_buffer.putInt(0);
         m_rowCount = 0;
+        m_memoizedRowOffset = NO_MEMOIZED_ROW_OFFSET;
+        m_indexedRowCount = 0;
         assert(verifyTableInvariants());
     }
 
@@ -579,6 +587,11 @@ public final class VoltTable extends VoltTableRow implements JSONString {
             return VoltTable.this.getRowStart();
         }
 
+        @Override
+        int getRowPosition(int rowIndex) {
+            return VoltTable.this.getRowPosition(rowIndex);
+        }
+
         @Override
         public VoltTableRow cloneRow() {
             Row retval = new Row(m_position);
@@ -718,10 +731,10 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     }
 
     /**
-     * Return a {@link VoltTableRow} instance with the specified index. This method
-     * is not performant because it has to scan the length prefix of every row preceding
-     * the requested row in order to find the position of the requested row. Use advanceRow
-     * or advanceToRow instead.
+     * Return a {@link VoltTableRow} instance with the specified index. Fetching rows in
+     * order steps from the previously fetched row. Any other access goes through an index
+     * of row positions, which is built on first use as far as the requested row. Prefer
+     * advanceRow or advanceToRow, which do not allocate a new row instance per call.
      * @param index Index of the row
      * @return The requested {@link VoltTableRow Row}.
      * @throws IndexOutOfBoundsException if no row exists at the given index.
@@ -734,16 +747,15 @@ public final class VoltTable extends VoltTableRow implements JSONString {
             throw new IndexOutOfBoundsException("index = " + index + "; rows = " + m_rowCount);
         }
 
-        // if no memoized value or looking in front of the memoized value, reset
-        if ((m_memoizedRowOffset == NO_MEMOIZED_ROW_OFFSET) || (index < m_memoizedRowOffset)) {
-            m_memoizedRowOffset = 0; m_memoizedBufferOffset = m_rowStart + ROW_COUNT_SIZE;
-        }
-
-        while (m_memoizedRowOffset < index) {
-            // add 4 bytes as the row size is non-inclusive
+        if ((m_memoizedRowOffset == index - 1) && (m_memoizedRowOffset != NO_MEMOIZED_ROW_OFFSET)) {
+            // the next row, add 4 bytes as the row size is non-inclusive
             m_memoizedBufferOffset += m_buffer.getInt(m_memoizedBufferOffset) + ROW_HEADER_SIZE;
             m_memoizedRowOffset++;
         }
+        else if (m_memoizedRowOffset != index) {
+            m_memoizedBufferOffset = getRowPosition(index) - ROW_HEADER_SIZE;
+            m_memoizedRowOffset = index;
+        }
         Row retval = new Row(m_memoizedBufferOffset + ROW_HEADER_SIZE);
         retval.m_activeRowIndex = index;
         return retval;
@@ -1823,6 +1835,45 @@ public final class VoltTable extends VoltTableRow implements JSONString {
         return m_rowStart;
     }
 
+    @Override
+    final int getRowPosition(int rowIndex) {
+        assert((rowIndex >= 0) && (rowIndex < m_rowCount));
+        if (rowIndex >= m_indexedRowCount) {
+            if ((m_rowOffsets == null) || (rowIndex >= m_rowOffsets.length)) {
+                // grow geometrically, but never past the rows in the table
+                int capacity = (m_rowOffsets == null) ? 16 : m_rowOffsets.length * 2;
+                capacity = Math.min(Math.max(capacity, rowIndex + 1), m_rowCount);
+                m_rowOffsets = (m_rowOffsets == null) ?
+                        new int[capacity] : Arrays.copyOf(m_rowOffsets, capacity);
+            }
+            // rows are only ever appended, so continue from the last indexed row
+            int position;
+            if (m_indexedRowCount == 0) {
+                position = m_rowStart + ROW_COUNT_SIZE;
+            }
+            else {
+                position = m_rowOffsets[m_indexedRowCount - 1];
+                position += m_buffer.getInt(position) + ROW_HEADER_SIZE;
+            }
+            for (int i = m_indexedRowCount; i < rowIndex; i++) {
+                m_rowOffsets[i] = position;
+                final int rowLength = m_buffer.getInt(position);
+                if (rowLength <= 0) {
+                    m_indexedRowCount = i;
+                    throw new RuntimeException("Invalid row length.");
+                }
+                position += rowLength + ROW_HEADER_SIZE;
+            }
+            if (position >= m_buffer.limit()) {
+                m_indexedRowCount = rowIndex;
+                throw new RuntimeException("Row length exceeds table boundary.");
+            }
+            m_rowOffsets[rowIndex] = position;
+            m_indexedRowCount = rowIndex + 1;
+        }
+        return m_rowOffsets[rowIndex] + ROW_HEADER_SIZE;
+    }
+
     @Override
     public final int getColumnCount() {
         return m_colCount;
@@ -1918,6 +1969,8 @@ public final class VoltTable extends VoltTableRow implements JSONString {
 
         m_colCount = m_buffer.getShort(5);
         m_rowCount = m_buffer.getInt(m_rowStart);
+        m_memoizedRowOffset = NO_MEMOIZED_ROW_OFFSET;
+        m_indexedRowCount = 0;
 
         assert(verifyTableInvariants());
     }
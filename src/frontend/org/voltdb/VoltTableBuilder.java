@@ -0,0 +1,529 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+import org.voltdb.utils.Encoder;
+
+/**
+ * <p>Builds a read-only {@link VoltTable} from values appended one column at a time,
+ * for code that produces many rows. Unlike {@link VoltTable#addRow(Object...)},
+ * primitive values are not boxed, the column types are looked up once when the
+ * builder is created, and the buffer space for the fixed size part of a row is
+ * checked once per row. {@link #build()} wraps the serialized rows without copying
+ * them.</p>
+ *
+ * <p>A row is complete once a value has been appended for each of its columns. If
+ * an append throws, the values already appended to that row are discarded.</p>
+ *
+ * <p>After {@link #reset()} the builder starts a new table in the same buffer, which
+ * may be direct. Tables built before are overwritten by the new rows, so only reset
+ * the builder once they are no longer used, e.g. once they have been serialized as
+ * a procedure call parameter.</p>
+ *
+ * <p>Not thread safe.</p>
+ */
+public final class VoltTableBuilder {
+
+    private static final int ROW_HEADER_SIZE = 4;
+    private static final int LENGTH_PREFIX_SIZE = 4;
+
+    private final VoltType[] m_types;
+    private final String[] m_names;
+    private final boolean m_direct;
+    // the serialized table header up to the row count
+    private final byte[] m_header;
+    // bytes needed by the columns from each index to the end of the row, counting the
+    // fixed size columns and the length prefix of the variable length ones
+    private final int[] m_minRemainingSize;
+
+    private ByteBuffer m_buffer;
+    private int m_rowCount = 0;
+    // next column of the row being built, 0 between rows
+    private int m_column = 0;
+    // position of the length prefix of the row being built, -1 between rows
+    private int m_rowPosition = -1;
+    private boolean m_built = false;
+
+    /**
+     * Create a builder for tables with the given columns.
+     *
+     * @param columns The columns of the tables to build.
+     * @param expectedRows The number of rows to size the buffer for. Rows with variable
+     *        length values may need more space, the buffer grows as needed.
+     * @param direct Whether to build the tables in a direct buffer.
+     */
+    public VoltTableBuilder(ColumnInfo[] columns, int expectedRows, boolean direct) {
+        m_types = new VoltType[columns.length];
+        m_names = new String[columns.length];
+        m_minRemainingSize = new int[columns.length + 1];
+        for (int i = 0; i < columns.length; i++) {
+            m_types[i] = columns[i].type;
+            m_names[i] = columns[i].name;
+        }
+        for (int i = columns.length - 1; i >= 0; i--) {
+            int size = m_types[i].isVariableLength() ?
+                    LENGTH_PREFIX_SIZE : m_types[i].getLengthInBytesForFixedTypes();
+            m_minRemainingSize[i] = m_minRemainingSize[i + 1] + size;
+        }
+        m_direct = direct;
+
+        // Let VoltTable serialize the header
+        VoltTable empty = new VoltTable(columns);
+        m_header = new byte[empty.getRowStart()];
+        empty.getBuffer().get(m_header);
+
+        int capacity = m_header.length + 4 +
+                Math.max(expectedRows, 1) * (ROW_HEADER_SIZE + m_minRemainingSize[0]);
+        m_buffer = m_direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        m_buffer.put(m_header);
+        m_buffer.putInt(0);
+    }
+
+    /**
+     * Create a builder for tables with the given columns, backed by a heap buffer.
+     *
+     * @param columns The columns of the tables to build.
+     * @param expectedRows The number of rows to size the buffer for.
+     */
+    public VoltTableBuilder(ColumnInfo[] columns, int expectedRows) {
+        this(columns, expectedRows, false);
+    }
+
+    /**
+     * @return The number of complete rows appended since the builder was created or reset.
+     */
+    public int getRowCount() {
+        return m_rowCount;
+    }
+
+    /**
+     * @return The number of columns of the tables being built.
+     */
+    public int getColumnCount() {
+        return m_types.length;
+    }
+
+    /**
+     * Append the null value of the column type.
+     */
+    public VoltTableBuilder appendNull() {
+        switch (beginValue()) {
+        case TINYINT:
+            m_buffer.put(VoltType.NULL_TINYINT);
+            break;
+        case SMALLINT:
+            m_buffer.putShort(VoltType.NULL_SMALLINT);
+            break;
+        case INTEGER:
+            m_buffer.putInt(VoltType.NULL_INTEGER);
+            break;
+        case BIGINT:
+        case TIMESTAMP:
+            m_buffer.putLong(VoltType.NULL_BIGINT);
+            break;
+        case FLOAT:
+            m_buffer.putDouble(VoltType.NULL_FLOAT);
+            break;
+        case STRING:
+        case VARBINARY:
+        case GEOGRAPHY:
+            m_buffer.putInt(VoltTable.NULL_STRING_INDICATOR);
+            break;
+        case GEOGRAPHY_POINT:
+            GeographyPointValue.serializeNull(m_buffer);
+            break;
+        case DECIMAL:
+            VoltDecimalHelper.serializeNull(m_buffer);
+            break;
+        default:
+            throw unsupported();
+        }
+        return endValue();
+    }
+
+    /**
+     * Append an integer to a TINYINT, SMALLINT, INTEGER, BIGINT, TIMESTAMP (as
+     * microseconds since the epoch) or FLOAT column.
+     *
+     * @throws VoltTypeException if the value does not fit the column
+     */
+    public VoltTableBuilder appendLong(long value) {
+        final VoltType type = beginValue();
+        switch (type) {
+        case TINYINT:
+            if (value <= Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+                throw overflow(type);
+            }
+            m_buffer.put((byte) value);
+            break;
+        case SMALLINT:
+            if (value <= Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                throw overflow(type);
+            }
+            m_buffer.putShort((short) value);
+            break;
+        case INTEGER:
+            if (value <= Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw overflow(type);
+            }
+            m_buffer.putInt((int) value);
+            break;
+        case BIGINT:
+        case TIMESTAMP:
+            m_buffer.putLong(value);
+            break;
+        case FLOAT:
+            m_buffer.putDouble(value);
+            break;
+        default:
+            throw mismatch("long");
+        }
+        return endValue();
+    }
+
+    /**
+     * Append a value to a FLOAT column.
+     */
+    public VoltTableBuilder appendDouble(double value) {
+        if (beginValue() != VoltType.FLOAT) {
+            throw mismatch("double");
+        }
+        m_buffer.putDouble(value);
+        return endValue();
+    }
+
+    /**
+     * Append microseconds since the epoch to a TIMESTAMP column.
+     */
+    public VoltTableBuilder appendTimestamp(long micros) {
+        if (beginValue() != VoltType.TIMESTAMP) {
+            throw mismatch("timestamp");
+        }
+        m_buffer.putLong(micros);
+        return endValue();
+    }
+
+    /**
+     * Append UTF-8 encoded bytes to a STRING column, or null.
+     */
+    public VoltTableBuilder appendString(byte[] utf8) {
+        if (beginValue() != VoltType.STRING) {
+            throw mismatch("byte[]");
+        }
+        return appendBytes(utf8);
+    }
+
+    /**
+     * Append a string to a STRING column, or null.
+     */
+    public VoltTableBuilder appendString(String value) {
+        if (beginValue() != VoltType.STRING) {
+            throw mismatch("String");
+        }
+        return appendBytes(value == null ? null : value.getBytes(VoltTable.ROWDATA_ENCODING));
+    }
+
+    /**
+     * Append bytes to a VARBINARY column, or null.
+     */
+    public VoltTableBuilder appendVarbinary(byte[] value) {
+        if (beginValue() != VoltType.VARBINARY) {
+            throw mismatch("byte[]");
+        }
+        return appendBytes(value);
+    }
+
+    /**
+     * Append a value to a DECIMAL column, or null.
+     */
+    public VoltTableBuilder appendDecimal(BigDecimal value) {
+        if (beginValue() != VoltType.DECIMAL) {
+            throw mismatch("BigDecimal");
+        }
+        try {
+            VoltDecimalHelper.serializeBigDecimal(value, m_buffer);
+        }
+        catch (RuntimeException e) {
+            discardRow();
+            throw e;
+        }
+        return endValue();
+    }
+
+    /**
+     * Append a value of any type accepted by {@link VoltTable#addRow(Object...)}.
+     *
+     * @throws VoltTypeException if the value can not be stored in the column
+     */
+    public VoltTableBuilder appendValue(Object value) {
+        final VoltType type = beginValue();
+        if (VoltType.isVoltNullValue(value)) {
+            return appendNull();
+        }
+        try {
+            switch (type) {
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+                if (value instanceof BigDecimal) {
+                    throw new ClassCastException();
+                }
+                return appendLong(((Number) value).longValue());
+            case FLOAT:
+                if (value instanceof BigDecimal) {
+                    throw new ClassCastException();
+                }
+                return appendDouble(((Number) value).doubleValue());
+            case TIMESTAMP:
+                if (value instanceof BigDecimal) {
+                    throw new ClassCastException();
+                }
+                if (value instanceof java.util.Date || value instanceof TimestampType) {
+                    return appendTimestamp(ParameterSet.timestampToMicroseconds(value));
+                }
+                return appendTimestamp(((Number) value).longValue());
+            case STRING:
+                if (value instanceof byte[]) {
+                    return appendString((byte[]) value);
+                }
+                return appendString((String) value);
+            case VARBINARY:
+                if (value instanceof String) {
+                    return appendVarbinary(Encoder.hexDecode((String) value));
+                }
+                return appendVarbinary((byte[]) value);
+            case DECIMAL:
+                return appendDecimal((BigDecimal) value);
+            case GEOGRAPHY: {
+                GeographyValue gv = (GeographyValue) value;
+                ensureCapacity(gv.getLengthInBytes());
+                m_buffer.putInt(gv.getLengthInBytes());
+                gv.flattenToBuffer(m_buffer);
+                return endValue();
+            }
+            case GEOGRAPHY_POINT:
+                ((GeographyPointValue) value).flattenToBuffer(m_buffer);
+                return endValue();
+            default:
+                throw unsupported();
+            }
+        }
+        catch (ClassCastException cce) {
+            throw mismatch(value.getClass().getSimpleName());
+        }
+        catch (RuntimeException e) {
+            discardRow();
+            throw e;
+        }
+    }
+
+    /**
+     * Append a whole row.
+     *
+     * @param values Values of each column in the row, of any type accepted by
+     *        {@link #appendValue(Object)}.
+     */
+    public VoltTableBuilder appendRow(Object... values) {
+        if (m_column != 0) {
+            throw new IllegalStateException("A row is already partially built");
+        }
+        if (values.length != m_types.length) {
+            throw new IllegalArgumentException(values.length + " arguments but table has " +
+                    m_types.length + " columns");
+        }
+        for (Object value : values) {
+            appendValue(value);
+        }
+        return this;
+    }
+
+    /**
+     * Append all the rows of a table. If the table has the same column types, its
+     * serialized rows are copied as a single block.
+     */
+    public VoltTableBuilder appendRows(VoltTable table) {
+        if (m_column != 0) {
+            throw new IllegalStateException("A row is already partially built");
+        }
+        if (table.getColumnCount() != m_types.length) {
+            throw new IllegalArgumentException(table.getColumnCount() + " columns but table has " +
+                    m_types.length + " columns");
+        }
+        boolean sameTypes = true;
+        for (int i = 0; i < m_types.length; i++) {
+            if (table.getColumnType(i) != m_types[i]) {
+                sameTypes = false;
+                break;
+            }
+        }
+        if (sameTypes) {
+            checkNotBuilt();
+            ByteBuffer rows = table.getBuffer();
+            rows.position(table.getRowStart() + 4);
+            ensureCapacity(rows.remaining());
+            m_buffer.put(rows);
+            m_rowCount += table.getRowCount();
+        }
+        else {
+            VoltTableRow row = table.cloneRow();
+            row.resetRowPosition();
+            while (row.advanceRow()) {
+                for (int i = 0; i < m_types.length; i++) {
+                    appendValue(row.get(i, row.getColumnType(i)));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Wrap the rows appended so far in a read-only table, without copying them.
+     * Nothing can be appended afterwards until the builder is reset.
+     */
+    public VoltTable build() {
+        checkNotBuilt();
+        if (m_column != 0) {
+            throw new IllegalStateException("Row " + m_rowCount + " only has values for " + m_column +
+                    " of " + m_types.length + " columns");
+        }
+        m_buffer.putInt(m_header.length, m_rowCount);
+        m_built = true;
+        ByteBuffer data = m_buffer.duplicate();
+        data.flip();
+        return new VoltTable(data.slice(), true);
+    }
+
+    /**
+     * Discard all rows to start a new table in the same buffer. The tables built
+     * before must no longer be used.
+     */
+    public void reset() {
+        m_buffer.position(m_header.length + 4);
+        m_rowCount = 0;
+        m_column = 0;
+        m_rowPosition = -1;
+        m_built = false;
+    }
+
+    private void checkNotBuilt() {
+        if (m_built) {
+            throw new IllegalStateException("Table already built, reset the builder to start a new one");
+        }
+    }
+
+    /**
+     * Start the next value, reserving the fixed size part of the row at its first
+     * column.
+     *
+     * @return the type of the column
+     */
+    private VoltType beginValue() {
+        if (m_rowPosition < 0) {
+            checkNotBuilt();
+            ensureCapacity(ROW_HEADER_SIZE + m_minRemainingSize[0]);
+            m_rowPosition = m_buffer.position();
+            m_buffer.position(m_rowPosition + ROW_HEADER_SIZE);
+        }
+        return m_types[m_column];
+    }
+
+    private VoltTableBuilder endValue() {
+        if (++m_column == m_types.length) {
+            final int rowSize = m_buffer.position() - m_rowPosition - ROW_HEADER_SIZE;
+            if (rowSize > VoltTableRow.MAX_TUPLE_LENGTH) {
+                discardRow();
+                throw new VoltOverflowException(
+                        "Table row total length larger than allowed max " + VoltTableRow.MAX_TUPLE_LENGTH_STR);
+            }
+            m_buffer.putInt(m_rowPosition, rowSize);
+            m_rowCount++;
+            m_column = 0;
+            m_rowPosition = -1;
+        }
+        return this;
+    }
+
+    private VoltTableBuilder appendBytes(byte[] value) {
+        if (value == null) {
+            m_buffer.putInt(VoltTable.NULL_STRING_INDICATOR);
+            return endValue();
+        }
+        if (value.length > VoltType.MAX_VALUE_LENGTH) {
+            discardRow();
+            throw new VoltOverflowException(
+                    "Value in VoltTableBuilder larger than allowed max " +
+                            VoltType.humanReadableSize(VoltType.MAX_VALUE_LENGTH));
+        }
+        ensureCapacity(value.length);
+        m_buffer.putInt(value.length);
+        m_buffer.put(value);
+        return endValue();
+    }
+
+    /**
+     * Make room for extra bytes of the current value, beyond the space reserved for
+     * the rest of the row.
+     */
+    private void ensureCapacity(int extra) {
+        final int needed = extra + (m_rowPosition < 0 ? 0 : m_minRemainingSize[m_column]);
+        if (m_buffer.remaining() >= needed) {
+            return;
+        }
+        final int capacity = Math.max(m_buffer.capacity() * 2, m_buffer.position() + needed);
+        final ByteBuffer grown = m_direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        m_buffer.flip();
+        grown.put(m_buffer);
+        m_buffer = grown;
+    }
+
+    private void discardRow() {
+        if (m_rowPosition >= 0) {
+            m_buffer.position(m_rowPosition);
+            m_column = 0;
+            m_rowPosition = -1;
+        }
+    }
+
+    private VoltTypeException mismatch(String valueType) {
+        final VoltTypeException e = new VoltTypeException("Value for column " + m_column + " (" +
+                m_names[m_column] + ") is type " + valueType + " when type " + m_types[m_column] +
+                " was expected.");
+        discardRow();
+        return e;
+    }
+
+    private VoltTypeException overflow(VoltType type) {
+        discardRow();
+        return new VoltTypeException("Cast to " + type + " would overflow");
+    }
+
+    private VoltTypeException unsupported() {
+        final VoltTypeException e = new VoltTypeException("Unsupported type: " + m_types[m_column]);
+        discardRow();
+        return e;
+    }
+}
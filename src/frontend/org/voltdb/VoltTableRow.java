@@ -123,6 +123,14 @@ public abstract class VoltTableRow {
 
     abstract int getRowStart();
 
+    /**
+     * Look up the position of a row's data in the buffer without walking
+     * every row before it.
+     * @param rowIndex Index of the row, which must exist.
+     * @return Offset into the buffer of the start of the row's data.
+     */
+    abstract int getRowPosition(int rowIndex);
+
     /**
      * Provide a way to efficiently compare two schemas belonging to a table or row.
      * @return A byte string uniquely identifying the schema of the table.
@@ -231,6 +239,11 @@ public abstract class VoltTableRow {
         if (m_activeRowIndex == 0) {
             m_position = getRowStart() + ROW_COUNT_SIZE + ROW_HEADER_SIZE;
         }
+        else if (rows_to_move > 1) {
+            // Skipping rows, so look the row up instead of reading the
+            // length of every row in between
+            m_position = getRowPosition(m_activeRowIndex);
+        }
         else {
             // Move n rows - this code assumes rows can be variable size, so we
             // have to fetch the size of each row in order to advance to the
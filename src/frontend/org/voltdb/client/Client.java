@@ -27,6 +27,8 @@ import java.util.List;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  *  <p>
  *  A <code>Client</code> that connects to one or more nodes in a volt cluster
@@ -110,6 +112,35 @@ public interface Client {
     public boolean callProcedure(ProcedureCallback callback, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Asynchronously invoke a procedure and return a future for its response, so that calls can be
+     * composed without a thread blocking on each one. The future completes with the response whatever its
+     * status, as a {@link ProcedureCallback} would be invoked. If the invocation can't be queued the future
+     * completes with a {@link ClientResponse#GRACEFUL_FAILURE} response. Listeners attached to the future
+     * with a direct executor run on the thread backing the client instance and must not block.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future for the {@link ClientResponse} of the invocation.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters)
+    throws IOException, NoConnectionsException;
+
+    /**
+     * <p>Asynchronously invoke several procedures at once. The invocations are routed in one pass and the
+     * invocations bound for the same server are written to it together, which is cheaper than queueing them
+     * one at a time. The futures complete as described for {@link #callProcedureAsync(String, Object...)}.</p>
+     *
+     * @param calls the procedures and parameters to invoke.
+     * @return a future for each call, in the order of <code>calls</code>.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public List<ListenableFuture<ClientResponse>> callProceduresAsync(List<ProcedureCall> calls)
+    throws IOException, NoConnectionsException;
+
     /**
      * <p>Synchronously invoke a procedure with timeout. Blocks until a result is available. A {@link ProcCallException}
      * is thrown if the response is anything other then success.</p>
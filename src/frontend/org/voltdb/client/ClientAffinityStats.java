@@ -72,11 +72,6 @@ public class ClientAffinityStats {
                m_rrReads);
     }
 
-    void addAffinityWrite()
-    {
-        m_affinityWrites++;
-    }
-
     /**
      * Get the number of writes that used affinity for this time period.
      *
@@ -87,11 +82,6 @@ public class ClientAffinityStats {
         return m_affinityWrites;
     }
 
-    void addRrWrite()
-    {
-        m_rrWrites++;
-    }
-
     /**
      * Get the number of writes that used round-robin distribution
      * for this time period.
@@ -103,11 +93,6 @@ public class ClientAffinityStats {
         return m_rrWrites;
     }
 
-    void addAffinityRead()
-    {
-        m_affinityReads++;
-    }
-
     /**
      * Get the number of reads that used affinity for this time period.
      *
@@ -118,11 +103,6 @@ public class ClientAffinityStats {
         return m_affinityReads;
     }
 
-    void addRrRead()
-    {
-        m_rrReads++;
-    }
-
     /**
      * Get the number of reads that used round-robin distribution
      * for this time period.
@@ -22,6 +22,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -43,6 +44,8 @@ import org.voltdb.common.Constants;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.collect.ImmutableSet;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
 /**
  *  A client that connects to one or more nodes in a VoltCluster
@@ -381,6 +384,57 @@ public final class ClientImpl implements Client {
         return internalAsyncCallProcedure(callback, clientTimeoutUnit.toNanos(clientTimeout), invocation);
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(
+            String procName,
+            Object... parameters)
+                    throws IOException, NoConnectionsException
+    {
+        final FutureCallback callback = new FutureCallback();
+        ProcedureInvocation invocation
+                = new ProcedureInvocation(m_handle.getAndIncrement(), procName, parameters);
+        if (!internalAsyncCallProcedure(callback, Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation)) {
+            callback.notQueued();
+        }
+        return callback.m_future;
+    }
+
+    @Override
+    public List<ListenableFuture<ClientResponse>> callProceduresAsync(List<ProcedureCall> calls)
+            throws IOException, NoConnectionsException
+    {
+        final List<ListenableFuture<ClientResponse>> futures = new ArrayList<>(calls.size());
+        if (calls.isEmpty()) {
+            return futures;
+        }
+
+        final List<ProcedureInvocation> invocations = new ArrayList<>(calls.size());
+        final List<ProcedureCallback> callbacks = new ArrayList<>(calls.size());
+        for (ProcedureCall call : calls) {
+            final FutureCallback callback = new FutureCallback();
+            invocations.add(new ProcedureInvocation(m_handle.getAndIncrement(), call.procName, call.parameters));
+            callbacks.add(callback);
+            futures.add(callback.m_future);
+        }
+
+        boolean queued[] = new boolean[calls.size()];
+        if (!m_isShutdown) {
+            //Blessed threads (the ones that invoke callbacks) are not subject to backpressure
+            final boolean isBlessed = m_blessedThreadIds.contains(Thread.currentThread().getId());
+            queued = m_distributer.queueBatch(invocations, callbacks, isBlessed,
+                    System.nanoTime(), Distributer.USE_DEFAULT_CLIENT_TIMEOUT);
+        }
+
+        // Whatever backpressure held back goes through the regular path, which blocks if configured to
+        for (int i = 0; i < queued.length; i++) {
+            if (!queued[i] &&
+                    !internalAsyncCallProcedure(callbacks.get(i), Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocations.get(i))) {
+                ((FutureCallback)callbacks.get(i)).notQueued();
+            }
+        }
+        return futures;
+    }
+
     @Deprecated
     @Override
     public int calculateInvocationSerializedSize(
@@ -943,6 +997,27 @@ public final class ClientImpl implements Client {
         }
     }
 
+    /**
+     * Completes a future with the response of an invocation.
+     */
+    private static final class FutureCallback implements ProcedureCallback {
+        private final SettableFuture<ClientResponse> m_future = SettableFuture.create();
+
+        @Override
+        public void clientCallback(ClientResponse clientResponse) {
+            m_future.set(clientResponse);
+        }
+
+        void notQueued() {
+            m_future.set(new ClientResponseImpl(
+                    ClientResponse.GRACEFUL_FAILURE,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                    "",
+                    new VoltTable[0],
+                    "Unable to queue client request."));
+        }
+    }
+
     /**
      * Procedure call back for async callAllPartitionProcedure
      */
@@ -43,6 +43,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
@@ -66,6 +67,7 @@ import org.voltdb.common.Constants;
 
 import com.google_voltpatches.common.base.Throwables;
 import com.google_voltpatches.common.collect.ImmutableList;
+import com.google_voltpatches.common.collect.ImmutableMap;
 import com.google_voltpatches.common.collect.ImmutableSet;
 
 import jsr166y.ThreadLocalRandom;
@@ -91,13 +93,13 @@ class Distributer {
     private final CopyOnWriteArrayList<NodeConnection> m_connections =
             new CopyOnWriteArrayList<>();
 
-    private final ArrayList<ClientStatusListenerExt> m_listeners = new ArrayList<>();
+    private final CopyOnWriteArrayList<ClientStatusListenerExt> m_listeners = new CopyOnWriteArrayList<>();
 
     //Selector and connection handling, does all work in blocking selection thread
     private final VoltNetworkPool m_network;
 
     // Temporary until a distribution/affinity algorithm is written
-    private int m_nextConnection = 0;
+    private final AtomicInteger m_nextConnection = new AtomicInteger(0);
 
     private final boolean m_useMultipleThreads;
     private final boolean m_useClientAffinity;
@@ -120,23 +122,94 @@ class Distributer {
         }
     }
 
+    // Only modified while holding the distributer's monitor, queue() reads m_routing instead
     private final Map<Integer, NodeConnection> m_partitionMasters = new HashMap<>();
     private final Map<Integer, NodeConnection[]> m_partitionReplicas = new HashMap<>();
     private final Map<Integer, NodeConnection> m_hostIdToConnection = new HashMap<>();
     private final Map<String, Procedure> m_procedureInfo = new HashMap<>();
 
+    /**
+     * Everything queue() needs to route an invocation. A new snapshot is built and published
+     * by publishRouting() whenever the connections, topology or procedures change, so
+     * callers read it without taking the distributer's monitor.
+     */
+    private static final class RoutingSnapshot {
+        final NodeConnection connections[];
+        final HashinatorLite hashinator;
+        final Map<Integer, NodeConnection> partitionMasters;
+        final Map<Integer, NodeConnection[]> partitionReplicas;
+        final Map<String, Procedure> procedureInfo;
+
+        RoutingSnapshot(NodeConnection connections[],
+                HashinatorLite hashinator,
+                Map<Integer, NodeConnection> partitionMasters,
+                Map<Integer, NodeConnection[]> partitionReplicas,
+                Map<String, Procedure> procedureInfo) {
+            this.connections = connections;
+            this.hashinator = hashinator;
+            this.partitionMasters = partitionMasters;
+            this.partitionReplicas = partitionReplicas;
+            this.procedureInfo = procedureInfo;
+        }
+    }
+
+    private volatile RoutingSnapshot m_routing = new RoutingSnapshot(new NodeConnection[0], null,
+            ImmutableMap.<Integer, NodeConnection>of(),
+            ImmutableMap.<Integer, NodeConnection[]>of(),
+            ImmutableMap.<String, Procedure>of());
+
     private final AtomicReference<ImmutableSet<Integer>> m_partitionKeys = new AtomicReference<ImmutableSet<Integer>>();
     private final AtomicLong m_lastPartitionKeyFetched = new AtomicLong(0);
     private final AtomicReference<ClientResponse> m_partitionUpdateStatus = new AtomicReference<ClientResponse>();
 
     //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
-    private HashinatorLite m_hashinator = null;
+    private volatile HashinatorLite m_hashinator = null;
     //This is a global timeout that will be used if a per-procedure timeout is not provided with the procedure call.
     private final long m_procedureCallTimeoutNanos;
     private static final long MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS = 30 * 60 * 1000; // 30 minutes
     private final long m_connectionResponseTimeoutNanos;
-    private final Map<Integer, ClientAffinityStats> m_clientAffinityStats =
-        new HashMap<>();
+    private final ConcurrentMap<Integer, AffinityCounters> m_clientAffinityStats =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Affinity counters of one partition, striped by thread so application threads
+     * sharing the client don't contend on them. The four counters of a stripe share
+     * one cache line.
+     */
+    static final class AffinityCounters {
+        static final int AFFINITY_WRITES = 0;
+        static final int RR_WRITES = 1;
+        static final int AFFINITY_READS = 2;
+        static final int RR_READS = 3;
+        private static final int STRIPE_WIDTH = 8;
+        private static final int STRIPES =
+            Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 64) * 2 - 1);
+
+        private final int m_partitionId;
+        private final AtomicLongArray m_counts = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+
+        AffinityCounters(int partitionId) {
+            m_partitionId = partitionId;
+        }
+
+        void increment(int counter) {
+            final int stripe = (int)(Thread.currentThread().getId() & (STRIPES - 1));
+            m_counts.incrementAndGet(stripe * STRIPE_WIDTH + counter);
+        }
+
+        long sum(int counter) {
+            long sum = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                sum += m_counts.get(stripe * STRIPE_WIDTH + counter);
+            }
+            return sum;
+        }
+
+        ClientAffinityStats snapshot() {
+            return new ClientAffinityStats(m_partitionId, sum(AFFINITY_WRITES), sum(RR_WRITES),
+                    sum(AFFINITY_READS), sum(RR_READS));
+        }
+    }
 
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
@@ -184,6 +257,7 @@ class Distributer {
                     VoltTable results[] = clientResponse.getResults();
                     if (results != null && results.length > 1) {
                         updateAffinityTopology(results);
+                        publishRouting();
                     }
                 }
             }
@@ -284,6 +358,7 @@ class Distributer {
                     if (results != null && results.length == 1) {
                         VoltTable vt = results[0];
                         updateProcedurePartitioning(vt);
+                        publishRouting();
                     }
                     m_fetchedCatalog = true;
                 }
@@ -406,6 +481,44 @@ class Distributer {
          */
         public void createWork(final long nowNanos, long handle, String name, ByteBuffer c,
                 ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
+            if (registerWork(nowNanos, handle, name, callback, ignoreBackpressure, timeoutNanos)) {
+                m_connection.writeStream().enqueue(c);
+            }
+        }
+
+        /**
+         * Register the callbacks of a batch of invocations and enqueue the ones that were
+         * registered, serialized back to back, with one write. An invocation whose callback was
+         * already invoked with a timeout while waiting on the rate limiter is left out, like a
+         * single invocation would be.
+         */
+        void createWork(final long nowNanos, ProcedureInvocation invocations[],
+                ProcedureCallback callbacks[], boolean ignoreBackpressure, long timeoutNanos) {
+            final List<ProcedureInvocation> registered = new ArrayList<>(invocations.length);
+            for (int i = 0; i < invocations.length; i++) {
+                if (registerWork(nowNanos, invocations[i].getHandle(), invocations[i].getProcName(),
+                        callbacks[i], ignoreBackpressure, timeoutNanos)) {
+                    registered.add(invocations[i]);
+                }
+            }
+            if (registered.isEmpty()) {
+                return;
+            }
+            ByteBuffer c = null;
+            try {
+                c = serializeSPIs(registered);
+            } catch (Exception e) {
+                Throwables.propagate(e);
+            }
+            m_connection.writeStream().enqueue(c);
+        }
+
+        /**
+         * Rate limit an invocation and register its callback
+         * @return true if the invocation should be written to the connection
+         */
+        private boolean registerWork(final long nowNanos, long handle, String name,
+                ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
             assert(callback != null);
 
             //How long from the starting point in time to wait to get this stuff done
@@ -432,8 +545,11 @@ class Distributer {
                  * the transaction out on the wire due to max outstanding
                  */
                 final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
+                //invokeCallbackWithTimeout counts the callback as invoked, so count it as pending first
+                //or drain could return while the rest of a batch is still outstanding
+                m_callbacksToInvoke.incrementAndGet();
                     invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos,  timeoutNanos, handle, ignoreBackpressure);
-                return;
+                return false;
             }
 
             assert(m_callbacks.containsKey(handle) == false);
@@ -460,7 +576,7 @@ class Distributer {
             if (!m_isConnected) {
                 //Check if the disconnect or expiration already handled the callback
                 if (m_callbacks.remove(handle) == null) {
-                    return;
+                    return false;
                 }
                 final ClientResponse r = new ClientResponseImpl(
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
@@ -478,10 +594,9 @@ class Distributer {
 
                 //for bookkeeping, but it feels dishonest to call this here
                 m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
-                return;
-            } else {
-                m_connection.writeStream().enqueue(c);
+                return false;
             }
+            return true;
         }
 
         /*
@@ -759,6 +874,7 @@ class Distributer {
                 }
 
                 m_connections.remove(this);
+                publishRouting();
                 //Notify listeners that a connection has been lost
                 for (ClientStatusListenerExt s : m_listeners) {
                     s.connectionLost(
@@ -970,6 +1086,7 @@ class Distributer {
             m_buildString = (String)socketChannelAndInstanceIdAndBuildString[2];
 
             m_connections.add(cxn);
+            publishRouting();
         }
 
         if (m_useClientAffinity) {
@@ -1066,134 +1183,204 @@ class Distributer {
         assert(invocation != null);
         assert(cb != null);
 
-        NodeConnection cxn = null;
-        boolean backpressure = true;
+        /*
+         * Route against the current snapshot without taking the distributer's monitor, the
+         * snapshot is immutable and replaced whenever connections or topology change.
+         */
+        final NodeConnection cxn = route(m_routing, invocation, ignoreBackpressure);
+
+        if (cxn == null) {
+            for (ClientStatusListenerExt s : m_listeners) {
+                s.backpressure(true);
+            }
+            return false;
+        }
 
         /*
-         * Synchronization is necessary to ensure that m_connections is not modified
-         * as well as to ensure that backpressure is reported correctly
+         * Do the heavy weight serialization after routing.
+         * createWork synchronizes on an individual connection which allows for more concurrency
          */
-        synchronized (this) {
-            final int totalConnections = m_connections.size();
+        ByteBuffer buf = null;
+        try {
+            buf = serializeSPI(invocation);
+        } catch (Exception e) {
+            Throwables.propagate(e);
+        }
+        cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
 
-            if (totalConnections == 0) {
-                throw new NoConnectionsException("No connections.");
+        return true;
+    }
+
+    /**
+     * Queue a batch of invocations with one routing pass over the current topology. The invocations
+     * routed to a connection are serialized into a single buffer and handed to its write stream
+     * with a single enqueue, so a batch costs one network flush per connection rather than one
+     * per invocation. Invocations that can't be routed because of backpressure are not queued.
+     * @param invocations
+     * @param callbacks callback for the invocation at the same index
+     * @param ignoreBackpressure If true the invocations will be queued even if there is backpressure
+     * @param nowNanos Current time in nanoseconds using System.nanoTime
+     * @param timeoutNanos nanoseconds from nowNanos where timeout should fire
+     * @return For each invocation, true if it was queued and false if it was not queued due to backpressure
+     * @throws NoConnectionsException
+     */
+    boolean[] queueBatch(
+            List<ProcedureInvocation> invocations,
+            List<ProcedureCallback> callbacks,
+            final boolean ignoreBackpressure, final long nowNanos, final long timeoutNanos)
+            throws NoConnectionsException {
+        assert(invocations.size() == callbacks.size());
+
+        final RoutingSnapshot routing = m_routing;
+        final boolean queued[] = new boolean[invocations.size()];
+        final Map<NodeConnection, List<Integer>> byConnection = new HashMap<>();
+        boolean backpressure = false;
+        for (int i = 0; i < queued.length; i++) {
+            final NodeConnection cxn = route(routing, invocations.get(i), ignoreBackpressure);
+            if (cxn == null) {
+                backpressure = true;
+                continue;
             }
+            List<Integer> routed = byConnection.get(cxn);
+            if (routed == null) {
+                routed = new ArrayList<>();
+                byConnection.put(cxn, routed);
+            }
+            routed.add(i);
+            queued[i] = true;
+        }
 
-            /*
-             * Check if the master for the partition is known. No back pressure check to ensure correct
-             * routing, but backpressure will be managed anyways. This is where we guess partition based on client
-             * affinity and known topology (hashinator initialized).
-             */
-            if (m_useClientAffinity && (m_hashinator != null)) {
-                final Procedure procedureInfo = m_procedureInfo.get(invocation.getProcName());
-                Integer hashedPartition = -1;
-
-                if (procedureInfo != null) {
-                    hashedPartition = Constants.MP_INIT_PID;
-                    if (( ! procedureInfo.multiPart) &&
-                        // User may have passed too few parameters to allow dispatching.
-                        // Avoid an indexing error here to fall through to the proper ProcCallException.
-                            (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
-                        hashedPartition = m_hashinator.getHashedPartitionForParameter(
-                                procedureInfo.partitionParameterType,
-                                invocation.getPartitionParamValue(procedureInfo.partitionParameter));
-                    }
-                    /*
-                     * If the procedure is read only and single part and the user wants it, load balance across replicas
-                     * This is probably slower for SAFE consistency.
-                     */
-                    if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
-                        NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
-                        if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
+        if (backpressure) {
+            for (ClientStatusListenerExt s : m_listeners) {
+                s.backpressure(true);
+            }
+        }
+
+        for (Map.Entry<NodeConnection, List<Integer>> e : byConnection.entrySet()) {
+            final List<Integer> routed = e.getValue();
+            final ProcedureInvocation batch[] = new ProcedureInvocation[routed.size()];
+            final ProcedureCallback batchCallbacks[] = new ProcedureCallback[routed.size()];
+            for (int j = 0; j < batch.length; j++) {
+                batch[j] = invocations.get(routed.get(j));
+                batchCallbacks[j] = callbacks.get(routed.get(j));
+            }
+            e.getKey().createWork(nowNanos, batch, batchCallbacks, ignoreBackpressure, timeoutNanos);
+        }
+
+        return queued;
+    }
+
+    /**
+     * Pick the connection for an invocation from a routing snapshot.
+     * @return The connection to queue the invocation on, or null if every candidate had backpressure
+     * @throws NoConnectionsException
+     */
+    private NodeConnection route(RoutingSnapshot routing, ProcedureInvocation invocation,
+            final boolean ignoreBackpressure) throws NoConnectionsException {
+        final NodeConnection connections[] = routing.connections;
+        final int totalConnections = connections.length;
+
+        if (totalConnections == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
+
+        NodeConnection cxn = null;
+        boolean backpressure = true;
+
+        /*
+         * Check if the master for the partition is known. No back pressure check to ensure correct
+         * routing, but backpressure will be managed anyways. This is where we guess partition based on client
+         * affinity and known topology (hashinator initialized).
+         */
+        if (m_useClientAffinity && (routing.hashinator != null)) {
+            final Procedure procedureInfo = routing.procedureInfo.get(invocation.getProcName());
+            Integer hashedPartition = -1;
+
+            if (procedureInfo != null) {
+                hashedPartition = Constants.MP_INIT_PID;
+                if (( ! procedureInfo.multiPart) &&
+                    // User may have passed too few parameters to allow dispatching.
+                    // Avoid an indexing error here to fall through to the proper ProcCallException.
+                        (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
+                    hashedPartition = routing.hashinator.getHashedPartitionForParameter(
+                            procedureInfo.partitionParameterType,
+                            invocation.getPartitionParamValue(procedureInfo.partitionParameter));
+                }
+                /*
+                 * If the procedure is read only and single part and the user wants it, load balance across replicas
+                 * This is probably slower for SAFE consistency.
+                 */
+                if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
+                    NodeConnection partitionReplicas[] = routing.partitionReplicas.get(hashedPartition);
+                    if (partitionReplicas != null && partitionReplicas.length > 0) {
+                        cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
+                        if (cxn.hadBackPressure()) {
+                            //See if there is one without backpressure, make sure it's still connected
+                            for (NodeConnection nc : partitionReplicas) {
+                                if (!nc.hadBackPressure() && nc.m_isConnected) {
+                                    cxn = nc;
+                                    break;
                                 }
                             }
-                            if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                                backpressure = false;
-                            }
                         }
-                    } else {
-                        /*
-                         * For writes or SAFE reads, this is the best way to go
-                         */
-                        cxn = m_partitionMasters.get(hashedPartition);
-                        if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        if (!cxn.hadBackPressure() || ignoreBackpressure) {
                             backpressure = false;
                         }
                     }
+                } else {
+                    /*
+                     * For writes or SAFE reads, this is the best way to go
+                     */
+                    cxn = routing.partitionMasters.get(hashedPartition);
+                    if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        backpressure = false;
+                    }
                 }
-                if (cxn != null && !cxn.m_isConnected) {
-                    // Would be nice to log something here
-                    // Client affinity picked a connection that was actually disconnected.  Reset to null
-                    // and let the round-robin choice pick a connection
-                    cxn = null;
-                }
-                ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
-                if (stats == null) {
-                    stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
-                    m_clientAffinityStats.put(hashedPartition, stats);
+            }
+            if (cxn != null && !cxn.m_isConnected) {
+                // Would be nice to log something here
+                // Client affinity picked a connection that was actually disconnected.  Reset to null
+                // and let the round-robin choice pick a connection
+                cxn = null;
+            }
+            AffinityCounters stats = m_clientAffinityStats.get(hashedPartition);
+            if (stats == null) {
+                stats = new AffinityCounters(hashedPartition);
+                AffinityCounters existing = m_clientAffinityStats.putIfAbsent(hashedPartition, stats);
+                if (existing != null) {
+                    stats = existing;
                 }
-                if (cxn != null) {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addAffinityRead();
-                    }
-                    else {
-                        stats.addAffinityWrite();
-                    }
+            }
+            if (cxn != null) {
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.increment(AffinityCounters.AFFINITY_READS);
                 }
-                // account these here because we lose the partition ID and procedure info once we
-                // bust out of this scope.
                 else {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addRrRead();
-                    }
-                    else {
-                        stats.addRrWrite();
-                    }
+                    stats.increment(AffinityCounters.AFFINITY_WRITES);
                 }
             }
-            if (cxn == null) {
-                for (int i=0; i < totalConnections; ++i) {
-                    cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
+            // account these here because we lose the partition ID and procedure info once we
+            // bust out of this scope.
+            else {
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.increment(AffinityCounters.RR_READS);
                 }
-            }
-
-            if (backpressure) {
-                cxn = null;
-                for (ClientStatusListenerExt s : m_listeners) {
-                    s.backpressure(true);
+                else {
+                    stats.increment(AffinityCounters.RR_WRITES);
                 }
             }
         }
-
-        /*
-         * Do the heavy weight serialization outside the synchronized block.
-         * createWork synchronizes on an individual connection which allows for more concurrency
-         */
-        if (cxn != null) {
-            ByteBuffer buf = null;
-            try {
-                buf = serializeSPI(invocation);
-            } catch (Exception e) {
-                Throwables.propagate(e);
+        if (cxn == null) {
+            for (int i=0; i < totalConnections; ++i) {
+                cxn = connections[Math.abs(m_nextConnection.incrementAndGet() % totalConnections)];
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    backpressure = false;
+                    break;
+                }
             }
-            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
         }
 
-        return !backpressure;
+        return backpressure ? null : cxn;
     }
 
     /**
@@ -1288,11 +1475,8 @@ class Distributer {
     Map<Integer, ClientAffinityStats> getAffinityStatsSnapshot()
     {
         Map<Integer, ClientAffinityStats> retval = new HashMap<>();
-        // these get modified under this lock in queue()
-        synchronized(this) {
-            for (Entry<Integer, ClientAffinityStats> e : m_clientAffinityStats.entrySet()) {
-                retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
-            }
+        for (Entry<Integer, AffinityCounters> e : m_clientAffinityStats.entrySet()) {
+            retval.put(e.getKey(), e.getValue().snapshot());
         }
         return retval;
     }
@@ -1324,6 +1508,19 @@ class Distributer {
         return Collections.unmodifiableList(addressList);
     }
 
+    /**
+     * Publish a new routing snapshot for queue(). Must be called while holding the
+     * distributer's monitor after any change to the connections, topology or procedures.
+     */
+    private void publishRouting() {
+        assert(Thread.holdsLock(this));
+        m_routing = new RoutingSnapshot(m_connections.toArray(new NodeConnection[0]),
+                m_hashinator,
+                ImmutableMap.copyOf(m_partitionMasters),
+                ImmutableMap.copyOf(m_partitionReplicas),
+                ImmutableMap.copyOf(m_procedureInfo));
+    }
+
     private void updateAffinityTopology(VoltTable tables[]) {
         //First table contains the description of partition ids master/slave relationships
         VoltTable vt = tables[0];
@@ -1453,6 +1650,25 @@ class Distributer {
         return buf;
     }
 
+    /**
+     * Serialize several invocations back to back, each with its own length prefix, into one buffer
+     */
+    private ByteBuffer serializeSPIs(List<ProcedureInvocation> pis) throws IOException {
+        int size = 0;
+        for (ProcedureInvocation pi : pis) {
+            size += pi.getSerializedSize() + 4;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        for (ProcedureInvocation pi : pis) {
+            final int lengthPosition = buf.position();
+            buf.putInt(0);
+            pi.flattenToBuffer(buf);
+            buf.putInt(lengthPosition, buf.position() - lengthPosition - 4);
+        }
+        buf.flip();
+        return buf;
+    }
+
     long getProcedureTimeoutNanos() {
         return m_procedureCallTimeoutNanos;
     }
@@ -32,7 +32,9 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.ParameterConverter;
+import org.voltdb.VoltOverflowException;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltTableBuilder;
 import org.voltdb.VoltType;
 import org.voltdb.VoltTypeException;
 import org.voltdb.client.ClientImpl;
@@ -60,8 +62,8 @@ public class PerPartitionTable {
     final int m_partitionedColumnIndex;
     //Partitioned column type
     final VoltType m_partitionColumnType;
-    //Table used to build up requests to the PartitionProcessor
-    VoltTable table;
+    //Builds the tables sent to the partition, in a direct buffer reused for every batch
+    final VoltTableBuilder m_tableBuilder;
     //Column information
     final VoltTable.ColumnInfo m_columnInfo[];
     //Column types
@@ -122,7 +124,7 @@ public class PerPartitionTable {
         m_partitionColumnType = firstLoader.m_partitionColumnType;
         m_tableName = tableName;
 
-        table = new VoltTable(m_columnInfo);
+        m_tableBuilder = new VoltTableBuilder(m_columnInfo, minBatchTriggerSize, true);
 
         m_es = CoreUtils.getSingleThreadExecutor(tableName + "-" + partitionId);
     }
@@ -138,11 +140,30 @@ public class PerPartitionTable {
         }
      }
 
+    /**
+     * Convert the row to the column types of the table and queue it. The conversion
+     * runs on the calling thread, so that rows inserted by several threads are
+     * converted in parallel and the executor of this partition only copies the
+     * converted values into its batch table.
+     *
+     * @return false if the row could not be converted and was reported as failed
+     */
+    boolean insertRowInTable(final VoltBulkLoaderRow nextRow) throws InterruptedException {
+        try {
+            nextRow.m_convertedData = convertRow(nextRow.m_rowData);
+        } catch (VoltTypeException e) {
+            nextRow.m_loader.generateError(nextRow.m_rowHandle, nextRow.m_rowData, e.getMessage());
+            return false;
+        }
+        queueRow(nextRow);
+        return true;
+    }
+
     /**
      * Synchronized so that when the a single batch is filled up, we only queue one task to
      * drain the queue. The task will drain the queue until it doesn't contain a single batch.
      */
-    synchronized void insertRowInTable(final VoltBulkLoaderRow nextRow) throws InterruptedException {
+    private synchronized void queueRow(final VoltBulkLoaderRow nextRow) throws InterruptedException {
         m_partitionRowQueue.put(nextRow);
         if (m_partitionRowQueue.size() == m_minBatchTriggerSize) {
             m_es.execute(new Runnable() {
@@ -150,7 +171,7 @@ public class PerPartitionTable {
                 public void run() {
                     try {
                         while (m_partitionRowQueue.size() >= m_minBatchTriggerSize) {
-                            loadTable(buildTable(), table);
+                            loadBatch();
                         }
                     } catch (Exception e) {
                         loaderLog.error("Failed to load batch", e);
@@ -160,6 +181,15 @@ public class PerPartitionTable {
         }
     }
 
+    private Object[] convertRow(Object[] rowData) throws VoltTypeException {
+        Object row_args[] = new Object[rowData.length];
+        for (int i = 0; i < row_args.length; i++) {
+            final VoltType type = m_columnTypes[i];
+            row_args[i] = ParameterConverter.tryToMakeCompatible(type.classFromType(), rowData[i]);
+        }
+        return row_args;
+    }
+
     /**
      * Flush all queued rows even if they are smaller than the batch size. This does not
      * guarantee that they will be reinserted if any of them fail. To make sure all rows
@@ -169,7 +199,7 @@ public class PerPartitionTable {
         return m_es.submit(new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
-                loadTable(buildTable(), table);
+                loadBatch();
                 return true;
             }
         });
@@ -188,21 +218,8 @@ public class PerPartitionTable {
     private void reinsertFailed(List<VoltBulkLoaderRow> rows) throws Exception {
         VoltTable tmpTable = new VoltTable(m_columnInfo);
         for (final VoltBulkLoaderRow row : rows) {
-            // No need to check error here if a correctedLine has come here it was
-            // previously successful.
-            try {
-                Object row_args[] = new Object[row.m_rowData.length];
-                for (int i = 0; i < row_args.length; i++) {
-                    final VoltType type = m_columnTypes[i];
-                    row_args[i] = ParameterConverter.tryToMakeCompatible(type.classFromType(),
-                            row.m_rowData[i]);
-                }
-                tmpTable.addRow(row_args);
-            } catch (VoltTypeException ex) {
-                // Should never happened because the bulk conversion in PerPartitionProcessor
-                // should have caught this
-                continue;
-            }
+            // No need to check error here, the row was converted before it was queued.
+            tmpTable.addRow(row.m_convertedData);
 
             ProcedureCallback callback = new ProcedureCallback() {
                 @Override
@@ -218,6 +235,19 @@ public class PerPartitionTable {
             };
 
             loadTable(callback, tmpTable);
+            tmpTable.clearRowData();
+        }
+    }
+
+    /**
+     * Send up to one batch of queued rows. The table is serialized by the time the call
+     * is queued, so the builder's buffer can be reused for the next batch right away.
+     */
+    private void loadBatch() throws Exception {
+        try {
+            loadTable(buildTable(), m_tableBuilder.build());
+        } finally {
+            m_tableBuilder.reset();
         }
     }
 
@@ -227,22 +257,14 @@ public class PerPartitionTable {
         ListIterator<VoltBulkLoaderRow> it = buf.listIterator();
         while (it.hasNext()) {
             VoltBulkLoaderRow currRow = it.next();
-            VoltBulkLoader loader = currRow.m_loader;
-            Object row_args[];
-            row_args = new Object[currRow.m_rowData.length];
             try {
-                for (int i = 0; i < row_args.length; i++) {
-                    final VoltType type = m_columnTypes[i];
-                    row_args[i] = ParameterConverter.tryToMakeCompatible(type.classFromType(),
-                            currRow.m_rowData[i]);
-                }
-            } catch (VoltTypeException e) {
+                m_tableBuilder.appendRow(currRow.m_convertedData);
+            } catch (VoltTypeException | VoltOverflowException e) {
+                VoltBulkLoader loader = currRow.m_loader;
                 loader.generateError(currRow.m_rowHandle, currRow.m_rowData, e.getMessage());
                 loader.m_outstandingRowCount.decrementAndGet();
                 it.remove();
-                continue;
             }
-            table.addRow(row_args);
         }
 
         return new PartitionProcedureCallback(buf);
@@ -267,6 +289,5 @@ public class PerPartitionTable {
                     "Connection to database was lost");
             callback.clientCallback(r);
         }
-        toSend.clearRowData();
     }
 }
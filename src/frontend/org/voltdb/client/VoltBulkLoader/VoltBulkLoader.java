@@ -327,17 +327,21 @@ public class VoltBulkLoader {
         }
         VoltBulkLoaderRow newRow = new VoltBulkLoaderRow(this, rowHandle, fieldList);
         if (m_isMP) {
-            m_partitionTable[m_firstPartitionTable].insertRowInTable(newRow);
+            if (!m_partitionTable[m_firstPartitionTable].insertRowInTable(newRow)) {
+                return;
+            }
         }
         else {
             try {
                 partitionId = (int)m_clientImpl.getPartitionForParameter(
                         m_partitionColumnType.getValue(), fieldList[m_partitionedColumnIndex]);
-                m_partitionTable[partitionId].insertRowInTable(newRow);
             } catch (VoltTypeException e) {
                 generateError(rowHandle, fieldList, e.getMessage());
                 return;
             }
+            if (!m_partitionTable[partitionId].insertRowInTable(newRow)) {
+                return;
+            }
         }
         m_outstandingRowCount.incrementAndGet();
     }
@@ -24,6 +24,8 @@ class VoltBulkLoaderRow {
     final VoltBulkLoader m_loader;
     Object m_rowHandle;
     final Object[] m_rowData;
+    // m_rowData converted to the column types of the table
+    Object[] m_convertedData;
 
     VoltBulkLoaderRow(VoltBulkLoader bulkLoader, Object rowHandle, Object... rowData) {
         m_loader = bulkLoader;
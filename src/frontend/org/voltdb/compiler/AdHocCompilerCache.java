@@ -17,13 +17,13 @@
 
 package org.voltdb.compiler;
 
-import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
@@ -31,6 +31,8 @@ import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.cache.Cache;
 import com.google_voltpatches.common.cache.CacheBuilder;
+import com.google_voltpatches.common.cache.RemovalListener;
+import com.google_voltpatches.common.cache.RemovalNotification;
 
 /**
  * Keep a cache two level cache of plans generated by the Ad Hoc
@@ -44,9 +46,7 @@ import com.google_voltpatches.common.cache.CacheBuilder;
  * plans need parameter values and sql literals in order to be
  * actually used.
  */
-public class AdHocCompilerCache implements Serializable {
-    private static final long serialVersionUID = 1L;
-
+public class AdHocCompilerCache {
     //////////////////////////////////////////////////////////////////////////
     // STATIC CODE TO MANAGE CACHE LIFETIMES / GLOBALNESS
     //////////////////////////////////////////////////////////////////////////
@@ -83,22 +83,27 @@ public class AdHocCompilerCache implements Serializable {
     final long MAX_LITERAL_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32*1024*1024);
     final int MAX_CORE_ENTRIES;
 
-    /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    /** cache of literals to full plans, guarded by its own monitor */
+    final AdHocStatementCache m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
-     *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
+     *  to what values to enable its specialized (expression-indexed) plan.
+     *  The variant lists are copy-on-write so planner threads can scan them
+     *  while another thread adds a variant. */
+    final Cache<String, List<BoundPlan> > m_coreCache;
 
     // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
-    long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
-    long m_planInsertions = 0;
-    long m_planEvictions = 0;
+    final AtomicLong m_literalHits = new AtomicLong();
+    final AtomicLong m_literalQueries = new AtomicLong();
+    final AtomicLong m_literalInsertions = new AtomicLong();
+    final AtomicLong m_literalEvictions = new AtomicLong();
+    final AtomicLong m_planHits = new AtomicLong();
+    final AtomicLong m_planQueries = new AtomicLong();
+    final AtomicLong m_planInsertions = new AtomicLong();
+    final AtomicLong m_planEvictions = new AtomicLong();
+
+    /** generation of the live table statistics the cached plans were costed with */
+    final AtomicLong m_statsGeneration = new AtomicLong();
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -113,8 +118,13 @@ public class AdHocCompilerCache implements Serializable {
     /**
      * Constructor with specific cache sizes is only called directly for testing.
      *
+     * The literal cache is an exact LRU bounded by both entry count and
+     * memory, and is locked on its own. The core cache is a concurrent
+     * cache split into independently locked segments, so its bound is
+     * enforced per segment and is approximate.
+     *
      * @param maxLiteralEntries cache size for literals
-     * @param maxLiteralMem cache memory for literals
+     * @param maxCoreEntries cache size for parameterized plans
      */
     AdHocCompilerCache(int maxLiteralEntries, int maxCoreEntries) {
         MAX_LITERAL_ENTRIES = maxLiteralEntries;
@@ -123,28 +133,25 @@ public class AdHocCompilerCache implements Serializable {
         // an LRU cache map
         m_literalCache = new AdHocStatementCache(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM);
 
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-
-        };
+        m_coreCache = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CORE_ENTRIES)
+                .removalListener(new RemovalListener<String, List<BoundPlan> >() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, List<BoundPlan> > notification) {
+                        if (notification.wasEvicted()) {
+                            m_planEvictions.incrementAndGet();
+                        }
+                    }
+                })
+                .build();
     }
 
     // define a LinkedHashMap based LRU cache bounds by both entry number and entry value on-heap size
     // without changing Map.Entry, only works for value of type AdHocPlannedStatement
     // only extend put, remove,clear and removeEldestEntry methods to account weight
+    // callers must hold the map's monitor
     public class AdHocStatementCache extends LinkedHashMap<String, AdHocPlannedStatement>{
-       private static final long serialVersionUID = 2988383448026641836L;
+        private static final long serialVersionUID = 2988383448026641836L;
         private final int maxEntries;
         private final long maxMemory; // in bytes
         private long currentMemory;   // in bytes
@@ -171,7 +178,7 @@ public class AdHocCompilerCache implements Serializable {
         @Override
         public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
             if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
-                ++m_literalEvictions;
+                m_literalEvictions.incrementAndGet();
                 this.currentMemory -= eldest.getValue().getSerializedSize();
                 return true;
             }
@@ -204,37 +211,34 @@ public class AdHocCompilerCache implements Serializable {
      * Stats printing method used during development.
      * Probably shouldn't live past real stats integration.
      */
-    synchronized void printStats() {
+    void printStats() {
+        long literalHits = m_literalHits.getAndSet(0);
+        long literalQueries = m_literalQueries.getAndSet(0);
+        long planHits = m_planHits.getAndSet(0);
+        long planQueries = m_planQueries.getAndSet(0);
         String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
+                literalHits, literalQueries, (literalHits * 100.0) / literalQueries,
+                m_literalInsertions.getAndSet(0), m_literalEvictions.getAndSet(0));
         String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+                planHits, planQueries, (planHits * 100.0) / planQueries,
+                m_planInsertions.getAndSet(0), m_planEvictions.getAndSet(0));
 
         System.out.print(line1 + line2);
         System.out.flush();
-
-        // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
     }
 
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
      */
-    public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
+    public AdHocPlannedStatement getWithSQL(String sql) {
+        m_literalQueries.incrementAndGet();
+        AdHocPlannedStatement retval;
+        synchronized (m_literalCache) {
+            retval = m_literalCache.get(sql);
+        }
         if (retval != null) {
-            ++m_literalHits;
+            m_literalHits.incrementAndGet();
         }
         return retval;
     }
@@ -244,11 +248,11 @@ public class AdHocCompilerCache implements Serializable {
      * SQL statement
      * @return A CorePlan that needs parameter values to run.
      */
-    public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
+    public List<BoundPlan> getWithParsedToken(String parsedToken) {
+        m_planQueries.incrementAndGet();
+        List<BoundPlan> retval = m_coreCache.getIfPresent(parsedToken);
         if (retval != null) {
-            ++m_planHits;
+            m_planHits.incrementAndGet();
         }
         return retval;
     }
@@ -271,12 +275,12 @@ public class AdHocCompilerCache implements Serializable {
      * @param hasUserQuestionMarkParameters is user provided parameterized query
      * @param hasAutoParameterizedException is the auto parameterized query has parameter exception
      */
-    public synchronized void put(String sql,
-                                 String parsedToken,
-                                 AdHocPlannedStatement planIn,
-                                 String[] extractedLiterals,
-                                 boolean hasUserQuestionMarkParameters,
-                                 boolean hasAutoParameterizedException)
+    public void put(String sql,
+                    String parsedToken,
+                    AdHocPlannedStatement planIn,
+                    String[] extractedLiterals,
+                    boolean hasUserQuestionMarkParameters,
+                    boolean hasAutoParameterizedException)
     {
         assert(sql != null);
         assert(parsedToken != null);
@@ -296,51 +300,76 @@ public class AdHocCompilerCache implements Serializable {
             BoundPlan matched = null;
             BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
             // deal with the parameterized plan cache first
-            List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
+            List<BoundPlan> boundVariants = m_coreCache.getIfPresent(parsedToken);
             if (boundVariants == null) {
-                boundVariants = new ArrayList<BoundPlan>();
-                m_coreCache.put(parsedToken, boundVariants);
-                // Note that there is an edge case in which more than one plan is getting counted as one
-                // "plan insertion". This only happens when two different plans arose from the same parameterized
-                // query (token) because one invocation used the correct constants to trigger an expression index and
-                // another invocation did not.  These are not counted separately (which would have to happen below
-                // after each call to boundVariants.add) because they are not evicted separately.
-                // It seems saner to use consistent units when counting insertions vs. evictions.
-                ++m_planInsertions;
-            } else {
+                List<BoundPlan> newVariants = new CopyOnWriteArrayList<BoundPlan>();
+                boundVariants = m_coreCache.asMap().putIfAbsent(parsedToken, newVariants);
+                if (boundVariants == null) {
+                    boundVariants = newVariants;
+                    // Note that there is an edge case in which more than one plan is getting counted as one
+                    // "plan insertion". This only happens when two different plans arose from the same parameterized
+                    // query (token) because one invocation used the correct constants to trigger an expression index and
+                    // another invocation did not.  These are not counted separately (which would have to happen below
+                    // after each call to boundVariants.add) because they are not evicted separately.
+                    // It seems saner to use consistent units when counting insertions vs. evictions.
+                    m_planInsertions.incrementAndGet();
+                }
+            }
+            // writers of the same token serialize on its variant list;
+            // readers iterate the copy-on-write list without locking
+            synchronized (boundVariants) {
                 for (BoundPlan boundPlan : boundVariants) {
                     if (boundPlan.equals(unmatched)) {
                         matched = boundPlan;
                         break;
                     }
                 }
-                if (matched != null) {
-                    // if a different core is found, reuse it
-                    // this is useful when updating the literal cache
-                    if (unmatched.m_core != matched.m_core) {
-                        plan = new AdHocPlannedStatement(planIn, matched.m_core);
-                        plan.setBoundConstants(matched.m_constants);
-                    }
+                if (matched == null) {
+                    // Don't count insertions (of possibly repeated tokens) here
+                    //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
+                    boundVariants.add(unmatched);
                 }
             }
-            if (matched == null) {
-                // Don't count insertions (of possibly repeated tokens) here
-                //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
-                boundVariants.add(unmatched);
+            if (matched != null) {
+                // if a different core is found, reuse it
+                // this is useful when updating the literal cache
+                if (unmatched.m_core != matched.m_core) {
+                    plan = new AdHocPlannedStatement(planIn, matched.m_core);
+                    plan.setBoundConstants(matched.m_constants);
+                }
             }
         }
 
         // then deal with the L1 cache
         if (! hasUserQuestionMarkParameters) {
-            AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
-            if (cachedPlan == null) {
-                //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
-                m_literalCache.put(sql, plan);
-                ++m_literalInsertions;
+            AdHocPlannedStatement cachedPlan;
+            synchronized (m_literalCache) {
+                cachedPlan = m_literalCache.get(sql);
+                if (cachedPlan == null) {
+                    //* enable to debug */ System.out.println("DEBUG: Caching literal '" + sql + "'");
+                    m_literalCache.put(sql, plan);
+                    m_literalInsertions.incrementAndGet();
+                }
             }
-            else {
-                assert(cachedPlan.equals(plan));
+            assert(cachedPlan == null || cachedPlan.equals(plan));
+        }
+    }
+
+    /**
+     * Drop every cached plan if the live table statistics have moved to a new
+     * generation since the plans were cached, so that they get re-planned
+     * with the new estimates.
+     *
+     * @param statsGeneration the current {@link TableCardinalities} generation
+     */
+    public void invalidateIfStatsChanged(long statsGeneration) {
+        long cachedGeneration = m_statsGeneration.get();
+        if (cachedGeneration != statsGeneration &&
+                m_statsGeneration.compareAndSet(cachedGeneration, statsGeneration)) {
+            synchronized (m_literalCache) {
+                m_literalCache.clear();
             }
+            m_coreCache.invalidateAll();
         }
     }
 
@@ -365,7 +394,9 @@ public class AdHocCompilerCache implements Serializable {
      * @return  literal cache size as a count
      */
     public int getLiteralCacheSize() {
-        return m_literalCache.size();
+        synchronized (m_literalCache) {
+            return m_literalCache.size();
+        }
     }
 
     /**
@@ -373,6 +404,6 @@ public class AdHocCompilerCache implements Serializable {
      * @return  core cache size as a count
      */
     public int getCoreCacheSize() {
-        return m_coreCache.size();
+        return (int) m_coreCache.size();
     }
 }
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -66,9 +67,20 @@ public class AsyncCompilerAgent {
     // of Europe, Scandinavia, and the sub-continent.
     final AsyncCompilerAgentHelper m_helper;
 
-    // do work in this executor service
+    // number of threads planning ad hoc SQL concurrently
+    static public final int PLANNER_THREADS =
+        Integer.getInteger("ADHOC_PLANNER_THREADS", Math.max(1, CoreUtils.availableProcessors() / 4));
+
+    // plan ad hoc SQL in this executor service. Each planning thread borrows
+    // its own HSQL session from the catalog's PlannerTool.
     final ListeningExecutorService m_es =
-        CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc Planner", MAX_QUEUE_DEPTH);
+        CoreUtils.getListeningExecutorService("Ad Hoc Planner", PLANNER_THREADS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUE_DEPTH), null);
+
+    // catalog changes (ad hoc DDL, @UAC, @UpdateClasses) diff against the
+    // current catalog and must stay serialized, so they get their own thread
+    final ListeningExecutorService m_catalogEs =
+        CoreUtils.getBoundedSingleThreadExecutor("Catalog Change Planner", MAX_QUEUE_DEPTH);
 
     // Enable debug hooks when the "asynccompilerdebug" sys prop is set to "true" or "yes".
     private final static MiscUtils.BooleanSystemProperty DEBUG_MODE =
@@ -86,6 +98,10 @@ public class AsyncCompilerAgent {
             m_es.shutdown();
             m_es.awaitTermination(120, TimeUnit.SECONDS);
         }
+        if (m_catalogEs != null) {
+            m_catalogEs.shutdown();
+            m_catalogEs.awaitTermination(120, TimeUnit.SECONDS);
+        }
     }
 
     public void createMailbox(final HostMessenger hostMessenger, final long hsId) {
@@ -99,17 +115,20 @@ public class AsyncCompilerAgent {
 
             @Override
             public void deliver(final VoltMessage message) {
+                final LocalObjectMessage wrapper = (LocalObjectMessage)message;
+                final boolean catalogChange = wrapper.payload instanceof CatalogChangeWork;
                 try {
-                    m_es.submit(new Runnable() {
+                    (catalogChange ? m_catalogEs : m_es).submit(new Runnable() {
                         @Override
                         public void run() {
                             handleMailboxMessage(message);
                         }
                     });
                 } catch (RejectedExecutionException rejected) {
-                    final LocalObjectMessage wrapper = (LocalObjectMessage)message;
                     AsyncCompilerWork work = (AsyncCompilerWork)(wrapper.payload);
-                    generateErrorResult("Ad Hoc Planner task queue is full. Try again.", work);
+                    generateErrorResult(catalogChange ?
+                            "Catalog change task queue is full. Try again." :
+                            "Ad Hoc Planner task queue is full. Try again.", work);
                 }
             }
         };
@@ -274,8 +293,29 @@ public class AsyncCompilerAgent {
                 w.completionHandler.onCompletion(errResult);
                 return;
             }
+            // hand the DDL over to the catalog change thread
             final CatalogChangeWork ccw = new CatalogChangeWork(w);
-            dispatchCatalogChangeWork(ccw);
+            try {
+                m_catalogEs.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            dispatchCatalogChangeWork(ccw);
+                        }
+                        catch (RuntimeException e) {
+                            AsyncCompilerResult errResult =
+                                AsyncCompilerResult.makeErrorResult(ccw,
+                                    String.format("Unexpected async compiler exception for %s: %s: %s",
+                                            ccw.getClass().getName(),
+                                            e.getLocalizedMessage(),
+                                            "Please contact VoltDB support with this message."));
+                            ccw.completionHandler.onCompletion(errResult);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException rejected) {
+                generateErrorResult("Catalog change task queue is full. Try again.", ccw);
+            }
         }
     }
 
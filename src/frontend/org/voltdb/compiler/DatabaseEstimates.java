@@ -19,6 +19,8 @@ package org.voltdb.compiler;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DatabaseEstimates {
 
@@ -26,14 +28,24 @@ public class DatabaseEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        /** estimated number of distinct keys in each index, by index name, when known */
+        public Map<String, Long> distinctKeys = new HashMap<String, Long>();
+        /** true if the tuple counts were reported by the sites rather than defaulted */
+        public boolean fromStatistics = false;
     }
 
-    HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
+    // Estimates built from live statistics are shared by concurrent planner threads.
+    ConcurrentHashMap<String, TableEstimates> tables = new ConcurrentHashMap<String, TableEstimates>();
 
     public TableEstimates getEstimatesForTable(String tableName) {
-        if (tables.containsKey(tableName) == false)
-            tables.put(tableName, new TableEstimates());
-
-        return tables.get(tableName);
+        TableEstimates estimates = tables.get(tableName);
+        if (estimates == null) {
+            estimates = new TableEstimates();
+            TableEstimates existing = tables.putIfAbsent(tableName, estimates);
+            if (existing != null) {
+                estimates = existing;
+            }
+        }
+        return estimates;
     }
 }
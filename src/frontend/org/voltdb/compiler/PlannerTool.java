@@ -17,7 +17,9 @@
 
 package org.voltdb.compiler;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.hsqldb_voltpatches.HSQLInterface;
 import org.hsqldb_voltpatches.HSQLInterface.HSQLParseException;
@@ -51,7 +53,12 @@ public class PlannerTool {
 
     private final Database m_database;
     private final Cluster m_cluster;
-    private final HSQLInterface m_hsql;
+    // HSQL sessions aren't thread safe, so each concurrent planning call
+    // borrows its own. Sessions are created on demand from the schema DDL
+    // and returned to the idle queue when planning is done.
+    private final List<String> m_ddl = new ArrayList<String>();
+    private final ConcurrentLinkedQueue<HSQLInterface> m_idleHsql =
+            new ConcurrentLinkedQueue<HSQLInterface>();
     private final byte[] m_catalogHash;
     private final AdHocCompilerCache m_cache;
     private static PlannerStatsCollector m_plannerStats;
@@ -69,7 +76,6 @@ public class PlannerTool {
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
 
         // LOAD HSQL
-        m_hsql = HSQLInterface.loadHsqldb();
         String binDDL = m_database.getSchema();
         String ddl = Encoder.decodeBase64AndDecompress(binDDL);
         String[] commands = ddl.split("\n");
@@ -78,14 +84,10 @@ public class PlannerTool {
             decoded_cmd = decoded_cmd.trim();
             if (decoded_cmd.length() == 0)
                 continue;
-            try {
-                m_hsql.runDDLCommand(decoded_cmd);
-            }
-            catch (HSQLParseException e) {
-                // need a good error message here
-                throw new RuntimeException("Error creating hsql: " + e.getMessage() + " in DDL statement: " + decoded_cmd);
-            }
+            m_ddl.add(decoded_cmd);
         }
+        // load one session up front so schema problems surface here
+        m_idleHsql.offer(loadHsql());
 
         hostLog.debug("hsql loaded");
 
@@ -104,6 +106,44 @@ public class PlannerTool {
         }
     }
 
+    private HSQLInterface loadHsql() {
+        HSQLInterface hsql;
+        // instance naming in HSQL isn't thread safe
+        synchronized (HSQLInterface.class) {
+            hsql = HSQLInterface.loadHsqldb();
+        }
+        for (String command : m_ddl) {
+            try {
+                hsql.runDDLCommand(command);
+            }
+            catch (HSQLParseException e) {
+                // need a good error message here
+                throw new RuntimeException("Error creating hsql: " + e.getMessage() + " in DDL statement: " + command);
+            }
+        }
+        return hsql;
+    }
+
+    private HSQLInterface borrowHsql() {
+        HSQLInterface hsql = m_idleHsql.poll();
+        if (hsql == null) {
+            hsql = loadHsql();
+        }
+        return hsql;
+    }
+
+    private void returnHsql(HSQLInterface hsql) {
+        m_idleHsql.offer(hsql);
+    }
+
+    /**
+     * @return the number of HSQL sessions that have been created and are
+     * currently not in use by a planning thread
+     */
+    int getIdleHsqlCount() {
+        return m_idleHsql.size();
+    }
+
     public AdHocPlannedStatement planSqlForTest(String sqlIn) {
         StatementPartitioning infer = StatementPartitioning.inferPartitioning();
         return planSql(sqlIn, infer, false, null);
@@ -116,12 +156,13 @@ public class PlannerTool {
     /**
      * Stripped down compile that is ONLY used to plan default procedures.
      */
-    public synchronized CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
+    public CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
         TrivialCostModel costModel = new TrivialCostModel();
         DatabaseEstimates estimates = new DatabaseEstimates();
+        HSQLInterface hsql = borrowHsql();
         QueryPlanner planner = new QueryPlanner(
             sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
-            partitioning, m_hsql, estimates, !VoltCompiler.DEBUG_MODE,
+            partitioning, hsql, estimates, !VoltCompiler.DEBUG_MODE,
             AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
 
         CompiledPlan plan = null;
@@ -143,6 +184,9 @@ public class PlannerTool {
             }
             throw new RuntimeException("Error compiling query: " + e.toString() + loggedMsg, e);
         }
+        finally {
+            returnHsql(hsql);
+        }
 
         if (plan == null) {
             throw new RuntimeException("Null plan received in PlannerTool.planSql");
@@ -151,13 +195,15 @@ public class PlannerTool {
         return plan;
     }
 
-    synchronized AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning,
+    AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning,
             boolean isExplainMode, final Object[] userParams) {
 
         CacheUse cacheUse = CacheUse.FAIL;
+        Long startTime = null;
         if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+            startTime = m_plannerStats.sampleStartTime();
         }
+        HSQLInterface hsql = null;
         boolean hasUserQuestionMark = false;
         boolean wrongNumberParameters = false;
         try {
@@ -167,6 +213,11 @@ public class PlannerTool {
             // remove any spaces or newlines
             String sql = sqlIn.trim();
 
+            // Cached plans were costed with the live table statistics of their time.
+            // Once those have drifted far enough, drop the plans so they get re-planned.
+            TableCardinalities cardinalities = TableCardinalities.instance();
+            m_cache.invalidateIfStatsChanged(cardinalities.getGeneration());
+
             // No caching for forced single partition or forced multi partition SQL,
             // since these options potentially get different plans that may be invalid
             // or sub-optimal in other contexts. Likewise, plans cached from other contexts
@@ -194,10 +245,14 @@ public class PlannerTool {
             //////////////////////
 
             TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
+            DatabaseEstimates estimates = cardinalities.getEstimates();
+            if (estimates == null) {
+                estimates = new DatabaseEstimates();
+            }
+            hsql = borrowHsql();
             QueryPlanner planner = new QueryPlanner(
                     sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
-                    partitioning, m_hsql, estimates, !VoltCompiler.DEBUG_MODE,
+                    partitioning, hsql, estimates, !VoltCompiler.DEBUG_MODE,
                     AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
 
             CompiledPlan plan = null;
@@ -311,8 +366,12 @@ public class PlannerTool {
             return ahps;
         }
         finally {
+            if (hsql != null) {
+                returnHsql(hsql);
+            }
             if (m_plannerStats != null) {
-                m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
+                m_plannerStats.endStatsCollection(startTime, m_cache.getLiteralCacheSize(),
+                        m_cache.getCoreCacheSize(), cacheUse, -1);
             }
         }
     }
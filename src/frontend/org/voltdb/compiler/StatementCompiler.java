@@ -108,7 +108,9 @@ public abstract class StatementCompiler {
 
         // if the key is cache-able, look for a previous statement
         if (keyPrefix != null) {
-            Statement previousStatement = compiler.getCachedStatement(keyPrefix, stmt);
+            Statement previousStatement = (catalogStmt.getParent() instanceof Procedure) ?
+                    compiler.getCachedStatement(keyPrefix, stmt) :
+                    compiler.getCachedSchemaStatement(catalogStmt, keyPrefix, stmt);
             // check if the stmt exists and if it's the same sql text
             if (previousStatement != null) {
                 catalogStmt.setAnnotation(previousStatement.getAnnotation());
@@ -0,0 +1,189 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table row counts and per-index distinct key estimates reported by the
+ * local sites, turned into {@link DatabaseEstimates} for the ad hoc planner.
+ *
+ * Each site reports what its EE returned for TABLE and INDEX statistics on
+ * its periodic stats tick. A plan fragment runs against one partition at a
+ * time, so a table is estimated by its largest per-partition row count on
+ * this host.
+ *
+ * When some table's row count moves far enough from the count it had when
+ * the generation last changed, the generation is bumped so that plans
+ * cached with the old estimates can be dropped and re-planned.
+ */
+public class TableCardinalities {
+
+    private static final TableCardinalities s_instance = new TableCardinalities();
+
+    /** Row counts must change by this factor to bump the generation */
+    static final double DRIFT_RATIO =
+            Double.parseDouble(System.getProperty("PLANNER_STATS_DRIFT_RATIO", "2.0"));
+    /** ... and by at least this many rows, so that small tables don't churn the plan cache */
+    static final long DRIFT_MIN_ROWS = Long.getLong("PLANNER_STATS_DRIFT_MIN_ROWS", 1000);
+    /**
+     * Tables are never estimated below this many rows. An empty or nearly empty
+     * table would otherwise make a sequential scan look cheaper than any index
+     * lookup, and that plan would stay cached until the table grew past the drift
+     * threshold.
+     */
+    static final long MIN_ESTIMATED_TUPLES = 1000;
+
+    private static class PartitionStats {
+        final Map<String, Long> m_tupleCounts;
+        final Map<String, Map<String, Long>> m_distinctKeys;
+
+        PartitionStats(Map<String, Long> tupleCounts, Map<String, Map<String, Long>> distinctKeys) {
+            m_tupleCounts = tupleCounts;
+            m_distinctKeys = distinctKeys;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, PartitionStats> m_partitions =
+            new ConcurrentHashMap<Integer, PartitionStats>();
+    private volatile boolean m_dirty = false;
+    // null until a site has reported
+    private volatile DatabaseEstimates m_estimates = null;
+    // guarded by this
+    private Map<String, Long> m_baseline = new HashMap<String, Long>();
+    private final AtomicLong m_generation = new AtomicLong();
+
+    public static TableCardinalities instance() {
+        return s_instance;
+    }
+
+    TableCardinalities() {
+    }
+
+    /**
+     * Record the latest statistics of one partition, replacing what it reported before.
+     *
+     * @param partitionId    the reporting site's partition
+     * @param tupleCounts    row count of each table, by table name
+     * @param distinctKeys   distinct key estimate of each index, by table name then index name
+     */
+    public void update(int partitionId,
+                       Map<String, Long> tupleCounts,
+                       Map<String, Map<String, Long>> distinctKeys) {
+        m_partitions.put(partitionId, new PartitionStats(tupleCounts, distinctKeys));
+        m_dirty = true;
+    }
+
+    /**
+     * @return estimates built from the latest reported statistics, or null if no
+     * site has reported any yet. The result must not be modified.
+     */
+    public DatabaseEstimates getEstimates() {
+        if (m_dirty) {
+            rebuild();
+        }
+        return m_estimates;
+    }
+
+    /**
+     * @return the current generation of the estimates, which only changes when
+     * the row counts have drifted enough to be worth re-planning for.
+     */
+    public long getGeneration() {
+        if (m_dirty) {
+            rebuild();
+        }
+        return m_generation.get();
+    }
+
+    private synchronized void rebuild() {
+        if ( ! m_dirty) {
+            return;
+        }
+        m_dirty = false;
+
+        Map<String, Long> maxTuples = new HashMap<String, Long>();
+        Map<String, Long> minTuples = new HashMap<String, Long>();
+        Map<String, Map<String, Long>> distinctKeys = new HashMap<String, Map<String, Long>>();
+        for (PartitionStats partition : m_partitions.values()) {
+            for (Entry<String, Long> e : partition.m_tupleCounts.entrySet()) {
+                Long max = maxTuples.get(e.getKey());
+                if (max == null || max < e.getValue()) {
+                    maxTuples.put(e.getKey(), e.getValue());
+                }
+                Long min = minTuples.get(e.getKey());
+                if (min == null || min > e.getValue()) {
+                    minTuples.put(e.getKey(), e.getValue());
+                }
+            }
+            for (Entry<String, Map<String, Long>> e : partition.m_distinctKeys.entrySet()) {
+                Map<String, Long> indexKeys = distinctKeys.get(e.getKey());
+                if (indexKeys == null) {
+                    indexKeys = new HashMap<String, Long>();
+                    distinctKeys.put(e.getKey(), indexKeys);
+                }
+                for (Entry<String, Long> index : e.getValue().entrySet()) {
+                    Long max = indexKeys.get(index.getKey());
+                    if (max == null || max < index.getValue()) {
+                        indexKeys.put(index.getKey(), index.getValue());
+                    }
+                }
+            }
+        }
+
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        for (Entry<String, Long> e : maxTuples.entrySet()) {
+            DatabaseEstimates.TableEstimates tableEstimates = estimates.getEstimatesForTable(e.getKey());
+            tableEstimates.maxTuples = Math.max(MIN_ESTIMATED_TUPLES, e.getValue());
+            tableEstimates.minTuples = Math.max(MIN_ESTIMATED_TUPLES, minTuples.get(e.getKey()));
+            tableEstimates.fromStatistics = true;
+            Map<String, Long> indexKeys = distinctKeys.get(e.getKey());
+            if (indexKeys != null) {
+                tableEstimates.distinctKeys.putAll(indexKeys);
+            }
+        }
+
+        if (hasDrifted(m_baseline, maxTuples)) {
+            m_baseline = maxTuples;
+            m_generation.incrementAndGet();
+        }
+        m_estimates = estimates;
+    }
+
+    static boolean hasDrifted(Map<String, Long> baseline, Map<String, Long> current) {
+        Set<String> tables = new HashSet<String>(baseline.keySet());
+        tables.addAll(current.keySet());
+        for (String table : tables) {
+            long before = baseline.containsKey(table) ? baseline.get(table) : 0;
+            long now = current.containsKey(table) ? current.get(table) : 0;
+            long larger = Math.max(before, now);
+            long smaller = Math.max(1, Math.min(before, now));
+            if (larger - Math.min(before, now) >= DRIFT_MIN_ROWS &&
+                    larger >= smaller * DRIFT_RATIO) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
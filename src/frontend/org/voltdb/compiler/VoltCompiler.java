@@ -63,10 +63,13 @@ import org.voltdb.VoltDB;
 import org.voltdb.VoltDBInterface;
 import org.voltdb.catalog.Catalog;
 import org.voltdb.catalog.CatalogMap;
+import org.voltdb.catalog.CatalogType;
 import org.voltdb.catalog.Column;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Deployment;
 import org.voltdb.catalog.FilteredCatalogDiffEngine;
+import org.voltdb.catalog.MaterializedViewHandlerInfo;
+import org.voltdb.catalog.MaterializedViewInfo;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
@@ -123,6 +126,9 @@ public class VoltCompiler {
     // A collection of statements from the previous catalog
     // used for Live-DDL caching of plans
     private final Map<String, Statement> m_previousCatalogStmts = new HashMap<>();
+    // The previous database, while compiling with one
+    // used for Live-DDL caching of view and row limit delete plans
+    private Database m_previousDBIfAny = null;
 
     // feedback by filename
     ArrayList<Feedback> m_infos = new ArrayList<Feedback>();
@@ -1156,6 +1162,8 @@ public class VoltCompiler {
         // DDLCompiler also provides partition descriptors for DDL PARTITION
         // and REPLICATE statements.
         final DDLCompiler ddlcompiler = new DDLCompiler(this, hsql, voltDdlTracker, m_classLoader);
+        // Set for every compile, so a reused compiler never sees a stale database
+        m_previousDBIfAny = previousDBIfAny;
 
         if (cannonicalDDLIfAny != null) {
             // add the file object's path to the list of files for the jar
@@ -1229,6 +1237,8 @@ public class VoltCompiler {
         addExtraClasses(jarOutput);
 
         compileRowLimitDeleteStmts(db, hsql, ddlcompiler.getLimitDeleteStmtToXmlEntries());
+
+        m_previousDBIfAny = null;
     }
 
     private void compileRowLimitDeleteStmts(
@@ -2052,6 +2062,12 @@ public class VoltCompiler {
      *
      * *NOTE*: Does *NOT* work with project.xml jarfiles.
      *
+     * This is not an incremental compile. The whole canonical DDL is replayed
+     * through HSQL ahead of the new DDL, and the catalog is rebuilt from the result.
+     * What carries over from oldCatalog are the plans of procedure, view and row
+     * limit delete statements that touch no table changed by the new DDL, so
+     * only those statements are replanned.
+     *
      * @return the compiled catalog is contained in the provided jarfile.
      * @throws VoltCompilerException
      *
@@ -2368,6 +2384,82 @@ public class VoltCompiler {
         m_previousCatalogStmts.put(key, stmt);
     }
 
+    /**
+     * Look for a match from the previous catalog for a statement that belongs to the
+     * schema rather than to a procedure: the fallback and create queries that maintain
+     * materialized views, and row limit delete statements. These are found at the same
+     * place in the previous catalog, and are only reused if the sql and key match and
+     * neither the tables they touch nor the view or table that owns them changed.
+     */
+    Statement getCachedSchemaStatement(Statement stmt, String keyPrefix, String sql) {
+        if (m_previousDBIfAny == null) {
+            return null;
+        }
+
+        Statement candidate = null;
+        String ownerTableName = null;
+        final CatalogType parent = stmt.getParent();
+        if (parent instanceof MaterializedViewInfo) {
+            // single table view, owned by its source table
+            MaterializedViewInfo mvi = (MaterializedViewInfo) parent;
+            Table prevSrcTable = m_previousDBIfAny.getTables().get(mvi.getParent().getTypeName());
+            MaterializedViewInfo prevMvi = prevSrcTable == null ? null : prevSrcTable.getViews().get(mvi.getTypeName());
+            if (prevMvi != null && mvi.getFallbackquerystmts().get(stmt.getTypeName()) == stmt) {
+                candidate = prevMvi.getFallbackquerystmts().get(stmt.getTypeName());
+            }
+            ownerTableName = mvi.getTypeName();
+        }
+        else if (parent instanceof MaterializedViewHandlerInfo) {
+            // join view, owned by the view table
+            MaterializedViewHandlerInfo mvhi = (MaterializedViewHandlerInfo) parent;
+            Table prevDestTable = m_previousDBIfAny.getTables().get(mvhi.getParent().getTypeName());
+            MaterializedViewHandlerInfo prevMvhi = prevDestTable == null ? null :
+                prevDestTable.getMvhandlerinfo().get(mvhi.getTypeName());
+            if (prevMvhi != null) {
+                if (mvhi.getFallbackquerystmts().get(stmt.getTypeName()) == stmt) {
+                    candidate = prevMvhi.getFallbackquerystmts().get(stmt.getTypeName());
+                }
+                else if (mvhi.getCreatequery().get(stmt.getTypeName()) == stmt) {
+                    candidate = prevMvhi.getCreatequery().get(stmt.getTypeName());
+                }
+            }
+            ownerTableName = mvhi.getParent().getTypeName();
+        }
+        else if (parent instanceof Table) {
+            Table prevTable = m_previousDBIfAny.getTables().get(parent.getTypeName());
+            if (prevTable != null) {
+                candidate = prevTable.getTuplelimitdeletestmt().get(stmt.getTypeName());
+            }
+            ownerTableName = parent.getTypeName();
+        }
+
+        if (candidate == null ||
+                m_dirtyTables.contains(ownerTableName.toLowerCase()) ||
+                !keyPrefix.equals(candidate.getCachekeyprefix()) ||
+                !sql.equals(candidate.getSqltext()) ||
+                touchesDirtyTable(candidate)) {
+            ++m_stmtCacheMisses;
+            return null;
+        }
+
+        ++m_stmtCacheHits;
+        return candidate;
+    }
+
+    private boolean touchesDirtyTable(Statement stmt) {
+        for (String tableName : stmt.getTablesread().split(",")) {
+            if (m_dirtyTables.contains(tableName.toLowerCase())) {
+                return true;
+            }
+        }
+        for (String tableName : stmt.getTablesupdated().split(",")) {
+            if (m_dirtyTables.contains(tableName.toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // track hits and misses for debugging
     static long m_stmtCacheHits = 0;
     static long m_stmtCacheMisses = 0;
@@ -2383,19 +2475,9 @@ public class VoltCompiler {
         }
 
         // check that no underlying tables have been modified since the proc had been compiled
-        String[] tablesTouched = candidate.getTablesread().split(",");
-        for (String tableName : tablesTouched) {
-            if (m_dirtyTables.contains(tableName.toLowerCase())) {
-                ++m_stmtCacheMisses;
-                return null;
-            }
-        }
-        tablesTouched = candidate.getTablesupdated().split(",");
-        for (String tableName : tablesTouched) {
-            if (m_dirtyTables.contains(tableName.toLowerCase())) {
-                ++m_stmtCacheMisses;
-                return null;
-            }
+        if (touchesDirtyTable(candidate)) {
+            ++m_stmtCacheMisses;
+            return null;
         }
 
         ++m_stmtCacheHits;
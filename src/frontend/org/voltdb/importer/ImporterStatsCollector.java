@@ -44,6 +44,9 @@ public class ImporterStatsCollector extends SiteStatsSource
     public static final String FAILURE_COUNT_COL = "FAILURES";
     public static final String PENDING_COUNT_COL = "OUTSTANDING_REQUESTS";
     public static final String RETRY_COUNT_COL = "RETRIES";
+    public static final String SUBMITTED_COUNT_COL = "SUBMITTED";
+    public static final String SUBMITTED_BYTES_COL = "SUBMITTED_BYTES";
+    public static final String AVG_SUBMIT_TIME_COL = "AVG_SUBMIT_TIME";
 
     // Holds stats info for each known importer-procname combination.
     // Using AtomicReferences with ImmutableMap to avoid locking and faster access
@@ -70,6 +73,14 @@ public class ImporterStatsCollector extends SiteStatsSource
             }
     }
 
+    @Override
+    public void reportSubmitted(String importerName, String procName, int serializedSize, long submitNanos) {
+        StatsInfo statsInfo = getStatsInfo(importerName, procName);
+        statsInfo.m_submittedCount.incrementAndGet();
+        statsInfo.m_submittedBytes.addAndGet(serializedSize);
+        statsInfo.m_submitNanos.addAndGet(submitNanos);
+    }
+
     // An insert request was queued
     public void reportQueued(String importerName, String procName) {
         StatsInfo statsInfo = getStatsInfo(importerName, procName);
@@ -153,6 +164,7 @@ public class ImporterStatsCollector extends SiteStatsSource
         rowValues[columnNameToIndex.get(FAILURE_COUNT_COL)] = getFailureCountUpdateLast(stats);
         rowValues[columnNameToIndex.get(PENDING_COUNT_COL)] = getPendingCountUpdateLast(stats);
         rowValues[columnNameToIndex.get(RETRY_COUNT_COL)] = getRetryCountUpdateLast(stats);
+        updateSubmitColumns(stats, rowValues);
 
         super.updateStatsRow(rowKey, rowValues);
     }
@@ -190,6 +202,26 @@ public class ImporterStatsCollector extends SiteStatsSource
         return value;
     }
 
+    private void updateSubmitColumns(StatsInfo stats, Object rowValues[]) {
+        long count = stats.m_submittedCount.get();
+        long bytes = stats.m_submittedBytes.get();
+        long nanos = stats.m_submitNanos.get();
+        if (m_isInterval) {
+            long currentCount = count;
+            long currentBytes = bytes;
+            long currentNanos = nanos;
+            count -= stats.m_lastSubmittedCount;
+            bytes -= stats.m_lastSubmittedBytes;
+            nanos -= stats.m_lastSubmitNanos;
+            stats.m_lastSubmittedCount = currentCount;
+            stats.m_lastSubmittedBytes = currentBytes;
+            stats.m_lastSubmitNanos = currentNanos;
+        }
+        rowValues[columnNameToIndex.get(SUBMITTED_COUNT_COL)] = count;
+        rowValues[columnNameToIndex.get(SUBMITTED_BYTES_COL)] = bytes;
+        rowValues[columnNameToIndex.get(AVG_SUBMIT_TIME_COL)] = (count == 0) ? 0L : nanos / count;
+    }
+
     private long getPendingCountUpdateLast(StatsInfo stats) {
         long current = stats.m_pendingCount.get();
         current = (current<0) ? 0 : current; // pending could be -ve if we get callback responses
@@ -219,6 +251,9 @@ public class ImporterStatsCollector extends SiteStatsSource
         columns.add(new ColumnInfo(FAILURE_COUNT_COL, VoltType.BIGINT));
         columns.add(new ColumnInfo(PENDING_COUNT_COL, VoltType.BIGINT));
         columns.add(new ColumnInfo(RETRY_COUNT_COL, VoltType.BIGINT));
+        columns.add(new ColumnInfo(SUBMITTED_COUNT_COL, VoltType.BIGINT));
+        columns.add(new ColumnInfo(SUBMITTED_BYTES_COL, VoltType.BIGINT));
+        columns.add(new ColumnInfo(AVG_SUBMIT_TIME_COL, VoltType.BIGINT));
     }
 
     private class StatsInfo
@@ -229,10 +264,16 @@ public class ImporterStatsCollector extends SiteStatsSource
         AtomicLong m_failureCount = new AtomicLong(0);
         AtomicLong m_pendingCount = new AtomicLong(0);
         AtomicLong m_retryCount = new AtomicLong(0);
+        AtomicLong m_submittedCount = new AtomicLong(0);
+        AtomicLong m_submittedBytes = new AtomicLong(0);
+        AtomicLong m_submitNanos = new AtomicLong(0);
         long m_lastSuccessCount = 0;
         long m_lastFailureCount = 0;
         long m_lastPendingCount = 0;
         long m_lastRetryCount = 0;
+        long m_lastSubmittedCount = 0;
+        long m_lastSubmittedBytes = 0;
+        long m_lastSubmitNanos = 0;
 
         public StatsInfo(String importerName, String procName) {
             m_importerName = importerName;
@@ -23,6 +23,7 @@ import org.apache.zookeeper_voltpatches.KeeperException;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.HostMessenger;
 import org.voltcore.utils.CoreUtils;
+import org.voltdb.AdmissionController;
 import org.voltdb.BackendTarget;
 import org.voltdb.CatalogContext;
 import org.voltdb.CatalogSpecificPlanner;
@@ -110,6 +111,10 @@ public abstract class BaseInitiator implements Initiator
         agent.registerStatsSource(StatsSelector.STARVATION,
                                   getInitiatorHSId(),
                                   st);
+        agent.registerStatsSource(StatsSelector.QUEUE,
+                                  getInitiatorHSId(),
+                                  new SiteTaskerQueueStats(getInitiatorHSId(), m_scheduler.getQueue()));
+        AdmissionController.instance().registerSite(m_scheduler.getQueue(), st);
 
         String partitionString = " ";
         if (m_partitionId != -1) {
@@ -121,7 +126,7 @@ public abstract class BaseInitiator implements Initiator
 
     protected void configureCommon(BackendTarget backend,
                           CatalogContext catalogContext,
-                          String serializedCatalog,
+                          byte[] serializedCatalog,
                           CatalogSpecificPlanner csp,
                           int numberOfPartitions,
                           StartAction startAction,
@@ -211,6 +216,8 @@ public abstract class BaseInitiator implements Initiator
                 tmLog.info("Interrupted during shutdown", e);
             }
         }
+
+        AdmissionController.instance().deregisterSite(m_scheduler.getQueue());
     }
 
     @Override
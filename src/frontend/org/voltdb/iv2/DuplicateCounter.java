@@ -143,8 +143,11 @@ public class DuplicateCounter
                 logRelevantMismatchInformation(hash, message);
                 return MISMATCH;
             }
-            m_lastResponse = message;
-            m_lastResultTables = resultTables;
+            // Replicas answer with the hash only, keep a response that carries results
+            if (m_lastResponse == null || !isResultsOmitted(message)) {
+                m_lastResponse = message;
+                m_lastResultTables = resultTables;
+            }
         }
 
         /*
@@ -167,6 +170,12 @@ public class DuplicateCounter
         }
     }
 
+    private static boolean isResultsOmitted(VoltMessage message)
+    {
+        return message instanceof InitiateResponseMessage &&
+               ((InitiateResponseMessage) message).isResultsOmitted();
+    }
+
     int offer(InitiateResponseMessage message)
     {
         ClientResponseImpl r = message.getClientResponseData();
@@ -176,7 +185,17 @@ public class DuplicateCounter
         if (sqlHash != null) {
             hash = sqlHash.intValue();
         }
-        return checkCommon(hash, message.isRecovering(), r.getResults(), message);
+        final VoltMessage previous = m_lastResponse;
+        final int result = checkCommon(hash, message.isRecovering(), r.getResults(), message);
+        // Only the response that goes on to the client interface gets its pooled
+        // result buffers released after it is written out, release the others here
+        if (m_lastResponse != message) {
+            message.discardResultContainers();
+        }
+        else if (previous instanceof InitiateResponseMessage && previous != message) {
+            ((InitiateResponseMessage) previous).discardResultContainers();
+        }
+        return result;
     }
 
     int offer(FragmentResponseMessage message)
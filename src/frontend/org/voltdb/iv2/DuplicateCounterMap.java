@@ -0,0 +1,174 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.iv2;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.voltdb.iv2.SpScheduler.DuplicateCounterKey;
+
+/**
+ * The outstanding duplicate counters of an SpScheduler, keyed by txnId and spHandle.
+ *
+ * Nearly all counters are for single partition writes, which the leader creates in
+ * increasing spHandle order with the txnId equal to the spHandle, and which mostly
+ * complete in that order. Those live in a ring of parallel arrays ordered by spHandle,
+ * so a lookup is a binary search over primitive longs and completing the oldest
+ * counter just advances the head, without allocating a key or rebalancing a tree.
+ * Everything else (MP fragments, every-site sysprocs, repair) goes to a TreeMap.
+ */
+class DuplicateCounterMap
+{
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Slots from m_head to m_head + m_size are in spHandle order. A slot holds a null
+    // counter when its counter was removed before the ones ahead of it.
+    private long m_spHandles[] = new long[INITIAL_CAPACITY];
+    private DuplicateCounter m_counters[] = new DuplicateCounter[INITIAL_CAPACITY];
+    private int m_head = 0;
+    private int m_size = 0;
+    private int m_ringCount = 0;
+
+    private final TreeMap<DuplicateCounterKey, DuplicateCounter> m_others =
+        new TreeMap<DuplicateCounterKey, DuplicateCounter>();
+
+    DuplicateCounter get(long txnId, long spHandle)
+    {
+        if (txnId == spHandle) {
+            final int slot = find(spHandle);
+            if (slot >= 0) {
+                return m_counters[slot];
+            }
+        }
+        if (m_others.isEmpty()) {
+            return null;
+        }
+        return m_others.get(new DuplicateCounterKey(txnId, spHandle));
+    }
+
+    void put(long txnId, long spHandle, DuplicateCounter counter)
+    {
+        if (txnId == spHandle && (m_size == 0 || spHandle > m_spHandles[slot(m_size - 1)])) {
+            append(spHandle, counter);
+        }
+        else {
+            m_others.put(new DuplicateCounterKey(txnId, spHandle), counter);
+        }
+    }
+
+    DuplicateCounter remove(long txnId, long spHandle)
+    {
+        if (txnId == spHandle) {
+            final int slot = find(spHandle);
+            if (slot >= 0) {
+                final DuplicateCounter counter = m_counters[slot];
+                m_counters[slot] = null;
+                m_ringCount--;
+                while (m_size > 0 && m_counters[m_head] == null) {
+                    m_head = (m_head + 1) & (m_counters.length - 1);
+                    m_size--;
+                }
+                return counter;
+            }
+        }
+        if (m_others.isEmpty()) {
+            return null;
+        }
+        return m_others.remove(new DuplicateCounterKey(txnId, spHandle));
+    }
+
+    int size()
+    {
+        return m_ringCount + m_others.size();
+    }
+
+    /**
+     * All outstanding counters in key order, for the rare paths that walk all of them.
+     */
+    SortedMap<DuplicateCounterKey, DuplicateCounter> toSortedMap()
+    {
+        TreeMap<DuplicateCounterKey, DuplicateCounter> all =
+            new TreeMap<DuplicateCounterKey, DuplicateCounter>(m_others);
+        for (int i = 0; i < m_size; i++) {
+            final int slot = slot(i);
+            if (m_counters[slot] != null) {
+                all.put(new DuplicateCounterKey(m_spHandles[slot], m_spHandles[slot]), m_counters[slot]);
+            }
+        }
+        return all;
+    }
+
+    private int slot(int index)
+    {
+        return (m_head + index) & (m_counters.length - 1);
+    }
+
+    // Slot of the counter for spHandle in the ring, or -1
+    private int find(long spHandle)
+    {
+        int low = 0;
+        int high = m_size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int slot = slot(mid);
+            final long midHandle = m_spHandles[slot];
+            if (midHandle < spHandle) {
+                low = mid + 1;
+            }
+            else if (midHandle > spHandle) {
+                high = mid - 1;
+            }
+            else {
+                return m_counters[slot] != null ? slot : -1;
+            }
+        }
+        return -1;
+    }
+
+    private void append(long spHandle, DuplicateCounter counter)
+    {
+        if (m_size == m_counters.length) {
+            // drop the holes and leave room for at least as many counters again
+            resize(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(m_ringCount) << 1));
+        }
+        final int slot = slot(m_size);
+        m_spHandles[slot] = spHandle;
+        m_counters[slot] = counter;
+        m_size++;
+        m_ringCount++;
+    }
+
+    private void resize(int capacity)
+    {
+        final long spHandles[] = new long[capacity];
+        final DuplicateCounter counters[] = new DuplicateCounter[capacity];
+        int count = 0;
+        for (int i = 0; i < m_size; i++) {
+            final int slot = slot(i);
+            if (m_counters[slot] != null) {
+                spHandles[count] = m_spHandles[slot];
+                counters[count] = m_counters[slot];
+                count++;
+            }
+        }
+        assert(count == m_ringCount);
+        m_spHandles = spHandles;
+        m_counters = counters;
+        m_head = 0;
+        m_size = count;
+    }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.HostMessenger;
@@ -35,6 +36,7 @@ import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.DummyTransactionTaskMessage;
 import org.voltdb.messaging.DumpMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
+import org.voltdb.messaging.Iv2InitiateTaskBatchMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.Iv2RepairLogRequestMessage;
 import org.voltdb.messaging.Iv2RepairLogResponseMessage;
@@ -70,6 +72,9 @@ public class InitiatorMailbox implements Mailbox
     private final LeaderCacheReader m_masterLeaderCache;
     private long m_hsId;
     private RepairAlgo m_algo;
+    // Deliveries offered to the site thread that haven't run yet. The scheduler
+    // flushes what it batched when the last of them has been handled.
+    private final AtomicInteger m_queuedDeliveries = new AtomicInteger(0);
 
     /*
      * Hacky global map of initiator mailboxes to support assertions
@@ -152,6 +157,7 @@ public class InitiatorMailbox implements Mailbox
         m_messenger = messenger;
         m_repairLog = repairLog;
         m_joinProducer = joinProducer;
+        m_scheduler.setBatchedDelivery(true);
 
         m_masterLeaderCache = new LeaderCache(m_messenger.getZK(), VoltZK.iv2masters);
         try {
@@ -264,23 +270,37 @@ public class InitiatorMailbox implements Mailbox
     public void deliver(final VoltMessage message)
     {
         if (SCHEDULE_IN_SITE_THREAD) {
+            m_queuedDeliveries.incrementAndGet();
             this.m_scheduler.getQueue().offer(new SiteTasker.SiteTaskerRunnable() {
                 @Override
                 void run() {
                     synchronized (InitiatorMailbox.this) {
+                        m_queuedDeliveries.decrementAndGet();
                         deliverInternal(message);
+                        if (m_queuedDeliveries.get() == 0) {
+                            m_scheduler.flushBatchedMessages();
+                        }
                     }
                 }
             });
         } else {
             synchronized (this) {
                 deliverInternal(message);
+                m_scheduler.flushBatchedMessages();
             }
         }
     }
 
     protected void deliverInternal(VoltMessage message) {
         assert(lockingVows());
+        if (message instanceof Iv2InitiateTaskBatchMessage) {
+            // SP writes the leader replicated together, handled as if they arrived one by one
+            for (Iv2InitiateTaskMessage task : ((Iv2InitiateTaskBatchMessage) message).getTasks()) {
+                task.m_sourceHSId = message.m_sourceHSId;
+                deliverInternal(task);
+            }
+            return;
+        }
         logRxMessage(message);
         boolean canDeliver = m_scheduler.sequenceForReplay(message);
         if (message instanceof DumpMessage) {
@@ -57,7 +57,7 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 new MpScheduler(
                     MP_INIT_PID,
                     buddyHSIds,
-                    new SiteTaskerQueue()),
+                    SiteTaskerQueue.create()),
                 "MP",
                 agent,
                 StartAction.CREATE /* never for rejoin */);
@@ -66,7 +66,7 @@ public class MpInitiator extends BaseInitiator implements Promotable
     @Override
     public void configure(BackendTarget backend,
                           CatalogContext catalogContext,
-                          String serializedCatalog,
+                          byte[] serializedCatalog,
                           int kfactor, CatalogSpecificPlanner csp,
                           int numberOfPartitions,
                           StartAction startAction,
@@ -622,6 +622,11 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         // don't need to do anything here I think?
     }
 
+    @Override
+    public void setResultContainerCollector(List<DBBPool.BBContainer> collector) {
+        // no EE, results never come from here
+    }
+
     @Override
     public void notifyOfSnapshotNonce(String nonce, long snapshotSpHandle) {
         // TODO Auto-generated method stub
@@ -189,6 +189,13 @@ abstract public class Scheduler implements InitiatorMessageHandler
     // Dumps the content of the scheduler for debugging
     public void dump() {}
 
+    // Tells the scheduler whether its mailbox calls flushBatchedMessages() once it
+    // has drained the deliveries queued up for it.
+    public void setBatchedDelivery(boolean batched) {}
+
+    // Sends any messages held back while a run of deliveries was being handled.
+    public void flushBatchedMessages() {}
+
     abstract public void shutdown();
 
     @Override
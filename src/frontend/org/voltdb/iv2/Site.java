@@ -29,6 +29,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.Level;
@@ -82,6 +83,7 @@ import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Deployment;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Table;
+import org.voltdb.compiler.TableCardinalities;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
@@ -195,9 +197,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     // initialize EEs in the right thread.
     private static class StartupConfig
     {
-        final String m_serializedCatalog;
+        final byte[] m_serializedCatalog;
         final long m_timestamp;
-        StartupConfig(final String catalog, final long timestamp)
+        StartupConfig(final byte[] catalog, final long timestamp)
         {
             m_serializedCatalog = catalog;
             m_timestamp = timestamp;
@@ -573,7 +575,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             long siteId,
             BackendTarget backend,
             CatalogContext context,
-            String serializedCatalog,
+            byte[] serializedCatalog,
             int partitionId,
             int numPartitions,
             StartAction startAction,
@@ -721,7 +723,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                             hashinatorConfig,
                             m_mpDrGateway != null);
             }
+            final long loadStart = System.nanoTime();
             eeTemp.loadCatalog(m_startupConfig.m_timestamp, m_startupConfig.m_serializedCatalog);
+            if (hostLog.isDebugEnabled()) {
+                hostLog.debug("Site " + CoreUtils.hsIdToString(m_siteId) + " loaded the catalog in " +
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart) + " ms");
+            }
             eeTemp.setBatchTimeout(m_context.cluster.getDeployment().get("deployment").
                             getSystemsettings().get("systemsettings").getQuerytimeout());
         }
@@ -1078,6 +1085,13 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                                     TxnEgo.getPartitionId(m_lastCommittedSpHandle) + ", " +
                                     TxnEgo.getPartitionId(spHandle), true, null);
         }
+        // Only reads may be taken out of order from the priority lane of the task queue, and
+        // they never commit here. The spHandle handed to the EE for export and DR only moves forward.
+        if (spHandle < m_lastCommittedSpHandle) {
+            VoltDB.crashLocalVoltDB("Committed spHandle moved backwards from " +
+                                    TxnEgo.txnIdToString(m_lastCommittedSpHandle) + " to " +
+                                    TxnEgo.txnIdToString(spHandle), true, null);
+        }
         m_lastCommittedSpHandle = spHandle;
         setSpHandleForSnapshotDigest(m_lastCommittedSpHandle);
     }
@@ -1209,6 +1223,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             long tupleAllocatedMem = 0;
             long indexMem = 0;
             long stringMem = 0;
+            // row counts and distinct key estimates for the ad hoc planner
+            Map<String, Long> tupleCounts = new HashMap<String, Long>();
+            Map<String, Map<String, Long>> distinctKeys = new HashMap<String, Map<String, Long>>();
 
             // update table stats
             final VoltTable[] s1 =
@@ -1222,6 +1239,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                     //Assert column index matches name for ENG-4092
                     assert(stats.getColumnName(7).equals("TUPLE_COUNT"));
                     tupleCount += stats.getLong(7);
+                    assert(stats.getColumnName(5).equals("TABLE_NAME"));
+                    tupleCounts.put(stats.getString(5), stats.getLong(7));
                     assert(stats.getColumnName(8).equals("TUPLE_ALLOCATED_MEMORY"));
                     tupleAllocatedMem += stats.getLong(8);
                     assert(stats.getColumnName(9).equals("TUPLE_DATA_MEMORY"));
@@ -1251,6 +1270,15 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                     //Assert column index matches name for ENG-4092
                     assert(stats.getColumnName(11).equals("MEMORY_ESTIMATE"));
                     indexMem += stats.getLong(11);
+                    assert(stats.getColumnName(6).equals("TABLE_NAME"));
+                    Map<String, Long> indexKeys = distinctKeys.get(stats.getString(6));
+                    if (indexKeys == null) {
+                        indexKeys = new HashMap<String, Long>();
+                        distinctKeys.put(stats.getString(6), indexKeys);
+                    }
+                    assert(stats.getColumnName(5).equals("INDEX_NAME"));
+                    assert(stats.getColumnName(12).equals("DISTINCT_KEY_ESTIMATE"));
+                    indexKeys.put(stats.getString(5), stats.getLong(12));
                 }
                 stats.resetRowPosition();
 
@@ -1262,6 +1290,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 m_indexStats.resetStatsTable();
             }
 
+            TableCardinalities.instance().update(m_partitionId, tupleCounts, distinctKeys);
+
             // update the rolled up memory statistics
             if (m_memStats != null) {
                 m_memStats.eeUpdateMemStats(m_siteId,
@@ -1563,6 +1593,11 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         m_ee.setProcedureName(procedureName);
     }
 
+    @Override
+    public void setResultContainerCollector(List<DBBPool.BBContainer> collector) {
+        m_ee.setResultContainerCollector(collector);
+    }
+
     @Override
     public void notifyOfSnapshotNonce(String nonce, long snapshotSpHandle) {
         m_initiatorMailbox.notifyOfSnapshotNonce(nonce, snapshotSpHandle);
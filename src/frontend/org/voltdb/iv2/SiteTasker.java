@@ -38,6 +38,23 @@ public abstract class SiteTasker {
         }
     }
 
+    // Set by SiteTaskerQueue when the task is offered while wait tracking is on, 0 otherwise
+    long m_queueOfferNanos;
+    // Tasks of designated procedures skip ahead of other queued work
+    private boolean m_priority = false;
+
+    /**
+     * Queue this task in the priority lane of the SiteTaskerQueue. Only
+     * tasks that may run ahead of work queued before them should be marked.
+     */
+    public void setPriority(boolean priority) {
+        m_priority = priority;
+    }
+
+    public boolean isPriority() {
+        return m_priority;
+    }
+
     /**
      * Run executes the task. Run is called on the ExecutionSite thread
      * and has exclusive access to the ee. Tasks are not preempted.
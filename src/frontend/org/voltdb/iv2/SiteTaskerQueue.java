@@ -17,54 +17,299 @@
 
 package org.voltdb.iv2;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.StarvationTracker;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ *
+ * Tasks marked as priority go to a separate lane that the site drains before
+ * the regular queue. A priority offer also puts a token in the regular queue so
+ * that a site blocked on the regular queue wakes up, tokens left behind once
+ * their task has been taken from the lane are discarded. Only the site thread
+ * may take, poll or peek.
+ *
+ * While wait tracking is on, the time each task spent queued is recorded per lane
+ * when the site takes it. Tracking is off unless adaptive admission control needs it,
+ * so by default an offer costs no clock read or counter update.
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    /**
+     * Queue implementation selected by the deployment's systemsettings/sitequeue
+     * element. LINKED is the historical unbounded LinkedTransferQueue, RING is the
+     * preallocated SiteTaskerRingQueue.
+     */
+    public static enum QueueType {
+        LINKED,
+        RING;
+    }
+
+    private static volatile QueueType s_configuredType = QueueType.LINKED;
+    private static volatile int s_configuredCapacity = SiteTaskerRingQueue.DEFAULT_CAPACITY;
+    private static volatile SiteTaskerRingQueue.WaitStrategy s_configuredWaitStrategy =
+            SiteTaskerRingQueue.WaitStrategy.BLOCKING;
+    private static volatile boolean s_trackWaits = false;
+
+    /**
+     * Set the queue implementation used by {@link #create()}. Must be called before
+     * the initiators are constructed.
+     */
+    public static void setConfiguredQueue(QueueType type, int capacity,
+                                          SiteTaskerRingQueue.WaitStrategy waitStrategy)
+    {
+        s_configuredType = type;
+        s_configuredCapacity = capacity;
+        s_configuredWaitStrategy = waitStrategy;
+    }
+
+    public static QueueType getConfiguredQueueType()
+    {
+        return s_configuredType;
+    }
+
+    /**
+     * Turn the depth and queue wait accounting of every queue on or off. Tasks
+     * offered while it is off are not counted when they are taken.
+     */
+    public static void setTrackWaits(boolean trackWaits)
+    {
+        s_trackWaits = trackWaits;
+    }
+
+    public static boolean isTrackingWaits()
+    {
+        return s_trackWaits;
+    }
+
+    /**
+     * Create a SiteTaskerQueue of the configured type for an execution site.
+     */
+    public static SiteTaskerQueue create()
+    {
+        if (s_configuredType == QueueType.RING) {
+            return new SiteTaskerRingQueue(s_configuredCapacity, s_configuredWaitStrategy);
+        }
+        return new SiteTaskerQueue();
+    }
+
+    // Stands in for a priority task in the regular queue, never run
+    private static final SiteTasker PRIORITY_TOKEN = new SiteTasker.SiteTaskerRunnable() {
+        @Override
+        void run() {
+            throw new IllegalStateException("Priority token must not be run");
+        }
+    };
+
+    /**
+     * Queue wait of the tasks taken from one lane. Only written by the site thread,
+     * read without synchronization by stats collection and admission control.
+     */
+    public static class WaitStats {
+        private long m_count = 0;
+        private long m_totalNanos = 0;
+        private long m_maxNanos = 0;
+        private long m_intervalMaxNanos = 0;
+
+        private void record(long waitNanos) {
+            m_count++;
+            m_totalNanos += waitNanos;
+            if (waitNanos > m_maxNanos) {
+                m_maxNanos = waitNanos;
+            }
+            if (waitNanos > m_intervalMaxNanos) {
+                m_intervalMaxNanos = waitNanos;
+            }
+        }
+
+        public long getCount() {
+            return m_count;
+        }
+
+        public long getTotalNanos() {
+            return m_totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return m_maxNanos;
+        }
+
+        /**
+         * @return the longest wait since the last call
+         */
+        public long getAndResetIntervalMaxNanos() {
+            final long max = m_intervalMaxNanos;
+            m_intervalMaxNanos = 0;
+            return max;
+        }
+    }
+
+    private final LinkedTransferQueue<SiteTasker> m_tasks;
+    private final ConcurrentLinkedQueue<SiteTasker> m_priorityTasks =
+            new ConcurrentLinkedQueue<SiteTasker>();
+    // Task returned by peek(), handed out by the next poll() or take()
+    private SiteTasker m_peeked = null;
+    private final AtomicLong m_offered = new AtomicLong();
+    private final AtomicLong m_priorityOffered = new AtomicLong();
+    private final WaitStats m_waitStats = new WaitStats();
+    private final WaitStats m_priorityWaitStats = new WaitStats();
     private StarvationTracker m_starvationTracker;
 
+    public SiteTaskerQueue()
+    {
+        m_tasks = new LinkedTransferQueue<SiteTasker>();
+    }
+
+    // Used by subclasses that provide their own task storage
+    protected SiteTaskerQueue(LinkedTransferQueue<SiteTasker> tasks)
+    {
+        m_tasks = tasks;
+    }
+
     public boolean offer(SiteTasker task)
     {
-        return m_tasks.offer(task);
+        final boolean track = s_trackWaits;
+        if (track) {
+            task.m_queueOfferNanos = System.nanoTime();
+        }
+        if (task.isPriority()) {
+            if (track) {
+                m_priorityOffered.incrementAndGet();
+            }
+            m_priorityTasks.offer(task);
+            return offerTask(PRIORITY_TOKEN);
+        }
+        if (track) {
+            m_offered.incrementAndGet();
+        }
+        return offerTask(task);
     }
 
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
+        SiteTasker task = poll();
         if (task == null) {
             m_starvationTracker.beginStarvation();
         } else {
             return task;
         }
         try {
-            return CoreUtils.queueSpinTake(m_tasks);
+            do {
+                task = waitForTask();
+                if (task == PRIORITY_TOKEN) {
+                    // null if the task was already taken from the lane
+                    task = m_priorityTasks.poll();
+                }
+            } while (task == null);
         } finally {
             m_starvationTracker.endStarvation();
         }
+        return taken(task);
     }
 
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        return m_tasks.poll();
+        SiteTasker task = m_peeked;
+        if (task != null) {
+            m_peeked = null;
+            return taken(task);
+        }
+        task = m_priorityTasks.poll();
+        if (task == null) {
+            while ((task = pollTask()) == PRIORITY_TOKEN) {
+                if ((task = m_priorityTasks.poll()) != null) {
+                    break;
+                }
+            }
+        }
+        return task == null ? null : taken(task);
     }
 
     // Non-blocking peek on the site tasker queue.
     public SiteTasker peek()
     {
-        return m_tasks.peek();
+        // Remove the task so that a priority task offered after this peek
+        // can't change what the next poll returns
+        if (m_peeked == null) {
+            SiteTasker task = m_priorityTasks.poll();
+            if (task == null) {
+                while ((task = pollTask()) == PRIORITY_TOKEN) {
+                    if ((task = m_priorityTasks.poll()) != null) {
+                        break;
+                    }
+                }
+            }
+            m_peeked = task;
+        }
+        return m_peeked;
     }
 
     public boolean isEmpty() {
+        return m_peeked == null && m_priorityTasks.isEmpty() && isEmptyTasks();
+    }
+
+    /**
+     * @param priority  true for the priority lane
+     * @return the number of tasks offered to the given lane and not yet taken
+     */
+    public long getDepth(boolean priority) {
+        if (priority) {
+            return m_priorityOffered.get() - m_priorityWaitStats.m_count;
+        }
+        return m_offered.get() - m_waitStats.m_count;
+    }
+
+    /**
+     * @param priority  true for the priority lane
+     * @return the queue wait of the tasks taken from the given lane
+     */
+    public WaitStats getWaitStats(boolean priority) {
+        return priority ? m_priorityWaitStats : m_waitStats;
+    }
+
+    private SiteTasker taken(SiteTasker task)
+    {
+        if (task.m_queueOfferNanos != 0) {
+            final long waitNanos = System.nanoTime() - task.m_queueOfferNanos;
+            (task.isPriority() ? m_priorityWaitStats : m_waitStats).record(waitNanos);
+            // Tasks may be offered again
+            task.m_queueOfferNanos = 0;
+        }
+        return task;
+    }
+
+    /*
+     * Storage of the regular lane. Subclasses replace these to provide their own.
+     */
+
+    protected boolean offerTask(SiteTasker task)
+    {
+        return m_tasks.offer(task);
+    }
+
+    protected SiteTasker pollTask()
+    {
+        return m_tasks.poll();
+    }
+
+    protected boolean isEmptyTasks()
+    {
         return m_tasks.isEmpty();
     }
 
+    // Block until a task is available, called by take() with starvation tracking
+    // already started.
+    protected SiteTasker waitForTask() throws InterruptedException
+    {
+        return CoreUtils.queueSpinTake(m_tasks);
+    }
+
     public void setStarvationTracker(StarvationTracker tracker) {
         m_starvationTracker = tracker;
     }
@@ -0,0 +1,90 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Queue wait of the tasks run by one site, with one row for the regular lane
+ * of its SiteTaskerQueue and one for the priority lane. Times are in microseconds.
+ * The queues only track depth and wait while adaptive admission control is on,
+ * otherwise every column but LANE is zero.
+ */
+public class SiteTaskerQueueStats extends SiteStatsSource {
+
+    private final SiteTaskerQueue m_queue;
+    // Totals at the last interval request, regular lane first
+    private final long[] m_lastCount = new long[2];
+    private final long[] m_lastTotalNanos = new long[2];
+    private boolean m_interval;
+
+    public SiteTaskerQueueStats(long siteId, SiteTaskerQueue queue) {
+        super(siteId, false);
+        m_queue = queue;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("LANE", VoltType.STRING));
+        columns.add(new ColumnInfo("DEPTH", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COUNT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("AVG_WAIT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MAX_WAIT", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        final boolean priority = (Boolean)rowKey;
+        final int lane = priority ? 1 : 0;
+        final SiteTaskerQueue.WaitStats stats = m_queue.getWaitStats(priority);
+        final long count = stats.getCount();
+        final long totalNanos = stats.getTotalNanos();
+        long maxNanos;
+        if (m_interval) {
+            maxNanos = stats.getAndResetIntervalMaxNanos();
+            final long intervalCount = count - m_lastCount[lane];
+            final long intervalNanos = totalNanos - m_lastTotalNanos[lane];
+            m_lastCount[lane] = count;
+            m_lastTotalNanos[lane] = totalNanos;
+            rowValues[columnNameToIndex.get("COUNT")] = intervalCount;
+            rowValues[columnNameToIndex.get("AVG_WAIT")] =
+                    intervalCount > 0 ? (intervalNanos / intervalCount) / 1000 : 0L;
+        } else {
+            maxNanos = stats.getMaxNanos();
+            rowValues[columnNameToIndex.get("COUNT")] = count;
+            rowValues[columnNameToIndex.get("AVG_WAIT")] = count > 0 ? (totalNanos / count) / 1000 : 0L;
+        }
+        rowValues[columnNameToIndex.get("LANE")] = priority ? "PRIORITY" : "REGULAR";
+        rowValues[columnNameToIndex.get("DEPTH")] = Math.max(0, m_queue.getDepth(priority));
+        rowValues[columnNameToIndex.get("MAX_WAIT")] = maxNanos / 1000;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        return Arrays.<Object>asList(Boolean.FALSE, Boolean.TRUE).iterator();
+    }
+}
@@ -0,0 +1,243 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A SiteTaskerQueue backed by a preallocated ring of slots. Any number of threads
+ * may offer, but only the site thread may take, poll or peek.
+ *
+ * Producers claim a slot by CAS on the tail sequence and publish it by advancing the
+ * slot's sequence number, so an offer allocates nothing. Producers never block: if the
+ * ring is full the task goes to an overflow list tagged with the tail sequence observed
+ * at the time. An overflow task is handed out once every slot claimed before it has
+ * been consumed, which keeps tasks from any one producer in FIFO order. Blocking a
+ * producer instead could deadlock, since the site thread offers to its own queue and
+ * network threads offer while holding the initiator mailbox monitor.
+ *
+ * How the site thread waits for work when the queue is empty is selected by a
+ * {@link WaitStrategy}.
+ */
+public class SiteTaskerRingQueue extends SiteTaskerQueue
+{
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+    /**
+     * How the consuming site thread waits when the queue is empty.
+     */
+    public static enum WaitStrategy {
+        /** Poll continuously. Lowest latency, burns a core per site. */
+        BUSY_SPIN,
+        /** Poll, then Thread.yield() between polls. */
+        SPIN_YIELD,
+        /** Poll, then parkNanos() for a short fixed interval between polls. */
+        SPIN_PARK,
+        /** Poll, then park until a producer wakes the site up. */
+        BLOCKING;
+    }
+
+    // Polls attempted before the spinning strategies start yielding or parking
+    static final int SPIN_TRIES = 1000;
+    static final long PARK_NANOS = 50 * 1000;
+
+    private static class OverflowTask {
+        final SiteTasker m_task;
+        final long m_afterSequence;
+
+        OverflowTask(SiteTasker task, long afterSequence) {
+            m_task = task;
+            m_afterSequence = afterSequence;
+        }
+    }
+
+    private final int m_capacity;
+    private final int m_mask;
+    private final AtomicReferenceArray<SiteTasker> m_slots;
+    // m_sequences[i] == s means slot i is free for the producer claiming sequence s,
+    // and s - 1 means it holds the published task for sequence s - 1
+    private final AtomicLongArray m_sequences;
+    private final AtomicLong m_tail = new AtomicLong();
+    private final AtomicLong m_head = new AtomicLong();
+    private final ConcurrentLinkedQueue<OverflowTask> m_overflow =
+            new ConcurrentLinkedQueue<OverflowTask>();
+    private final AtomicLong m_overflowCount = new AtomicLong();
+    private final WaitStrategy m_waitStrategy;
+    // Site thread parked in waitForTask(), only used by the BLOCKING strategy
+    private volatile Thread m_waiter;
+
+    public SiteTaskerRingQueue(int capacity, WaitStrategy waitStrategy)
+    {
+        super(null);
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Ring capacity must be at least 2, was " + capacity);
+        }
+        m_capacity = Integer.highestOneBit(capacity - 1) << 1;
+        m_mask = m_capacity - 1;
+        m_slots = new AtomicReferenceArray<SiteTasker>(m_capacity);
+        m_sequences = new AtomicLongArray(m_capacity);
+        for (int i = 0; i < m_capacity; i++) {
+            m_sequences.set(i, i);
+        }
+        m_waitStrategy = waitStrategy;
+    }
+
+    public int getCapacity()
+    {
+        return m_capacity;
+    }
+
+    public WaitStrategy getWaitStrategy()
+    {
+        return m_waitStrategy;
+    }
+
+    /**
+     * @return the number of tasks that found the ring full and went to the overflow list
+     */
+    public long getOverflowCount()
+    {
+        return m_overflowCount.get();
+    }
+
+    @Override
+    protected boolean offerTask(SiteTasker task)
+    {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        long pos = m_tail.get();
+        for (;;) {
+            final int index = (int)(pos & m_mask);
+            final long delta = m_sequences.get(index) - pos;
+            if (delta == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_slots.lazySet(index, task);
+                    m_sequences.set(index, pos + 1);
+                    break;
+                }
+                pos = m_tail.get();
+            }
+            else if (delta < 0) {
+                // The slot still holds the task from the previous lap
+                m_overflow.offer(new OverflowTask(task, pos));
+                m_overflowCount.incrementAndGet();
+                break;
+            }
+            else {
+                // Another producer claimed this sequence first
+                pos = m_tail.get();
+            }
+        }
+
+        final Thread waiter = m_waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+        return true;
+    }
+
+    @Override
+    protected SiteTasker pollTask()
+    {
+        final long pos = m_head.get();
+        OverflowTask overflow = m_overflow.peek();
+        if (overflow != null && overflow.m_afterSequence <= pos) {
+            m_overflow.poll();
+            return overflow.m_task;
+        }
+
+        final int index = (int)(pos & m_mask);
+        if (m_sequences.get(index) == pos + 1) {
+            final SiteTasker task = m_slots.get(index);
+            m_slots.lazySet(index, null);
+            // Hand the slot back to producers for the next lap
+            m_sequences.set(index, pos + m_capacity);
+            m_head.lazySet(pos + 1);
+            return task;
+        }
+        return null;
+    }
+
+    private SiteTasker peekTask()
+    {
+        final long pos = m_head.get();
+        OverflowTask overflow = m_overflow.peek();
+        if (overflow != null && overflow.m_afterSequence <= pos) {
+            return overflow.m_task;
+        }
+
+        final int index = (int)(pos & m_mask);
+        if (m_sequences.get(index) == pos + 1) {
+            return m_slots.get(index);
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean isEmptyTasks()
+    {
+        return peekTask() == null;
+    }
+
+    @Override
+    protected SiteTasker waitForTask() throws InterruptedException
+    {
+        SiteTasker task;
+        int tries = 0;
+        for (;;) {
+            if ((task = pollTask()) != null) {
+                return task;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (tries < SPIN_TRIES) {
+                tries++;
+                continue;
+            }
+            switch (m_waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case SPIN_YIELD:
+                Thread.yield();
+                break;
+            case SPIN_PARK:
+                LockSupport.parkNanos(this, PARK_NANOS);
+                break;
+            case BLOCKING:
+                // Publish the waiter before the final check so that a producer
+                // either sees the waiter or its task is seen by the poll below.
+                m_waiter = Thread.currentThread();
+                try {
+                    if ((task = pollTask()) != null) {
+                        return task;
+                    }
+                    LockSupport.park(this);
+                } finally {
+                    m_waiter = null;
+                }
+                break;
+            }
+        }
+    }
+}
@@ -41,6 +41,9 @@ public class SpDurabilityListener implements DurabilityListener {
         @Override
         public void addTask(TransactionTask task) {}
 
+        @Override
+        public void addUnloggedTask(TransactionTask task) {}
+
         @Override
         public void setLastDurableUniqueId(long uniqueId) {}
 
@@ -78,6 +81,11 @@ public class SpDurabilityListener implements DurabilityListener {
             setLastDurableUniqueId(task.m_txnState.uniqueId);
         }
 
+        @Override
+        public void addUnloggedTask(TransactionTask task) {
+            // Already offered by the scheduler, and not durable
+        }
+
         @Override
         public void setLastDurableUniqueId(long uniqueId) {
             if (UniqueIdGenerator.getPartitionIdFromUniqueId(uniqueId) == MpInitiator.MP_INIT_PID) {
@@ -135,6 +143,18 @@ public class SpDurabilityListener implements DurabilityListener {
             super.addTask(task);
         }
 
+        @Override
+        public void addUnloggedTask(TransactionTask task) {
+            // Replayed transactions are older than the task queued on leader promotion,
+            // their unique IDs would move the durable one backwards
+            m_pendingTransactions.add(task);
+        }
+
+        @Override
+        public boolean isChanged() {
+            return m_changed || !m_pendingTransactions.isEmpty();
+        }
+
         @Override
         public int getTaskListSize() {
             return m_pendingTransactions.size();
@@ -185,6 +205,11 @@ public class SpDurabilityListener implements DurabilityListener {
         m_currentCompletionChecks.addTask(pendingTask);
     }
 
+    @Override
+    public void addUnloggedTransaction(TransactionTask pendingTask) {
+        m_currentCompletionChecks.addUnloggedTask(pendingTask);
+    }
+
     @Override
     public void initializeLastDurableUniqueId(long uniqueId) {
         m_currentCompletionChecks.setLastDurableUniqueId(uniqueId);
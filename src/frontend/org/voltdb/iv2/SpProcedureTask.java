@@ -59,6 +59,16 @@ public class SpProcedureTask extends ProcedureTask
        m_drGateway = drGateway;
     }
 
+    /**
+     * Only reads may be queued in the priority lane. A write run ahead of queued
+     * writes would commit an spHandle lower than theirs.
+     */
+    @Override
+    public void setPriority(boolean priority)
+    {
+        super.setPriority(priority && m_txnState.isReadOnly());
+    }
+
     /** Run is invoked by a run-loop to execute this transaction. */
     @Override
     public void run(SiteProcedureConnection siteConnection)
@@ -194,6 +204,8 @@ public class SpProcedureTask extends ProcedureTask
     @Override
     void completeInitiateTask(SiteProcedureConnection siteConnection)
     {
+        // Prioritized tasks run out of spHandle order, they must not commit an spHandle
+        assert (!isPriority() || m_txnState.isReadOnly()) : "Prioritized write " + this;
         if (!m_txnState.isReadOnly()) {
             assert(siteConnection.getLatestUndoToken() != Site.kInvalidUndoToken) :
                 "[SP][RW] transaction found invalid latest undo token state in Iv2ExecutionSite.";
@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
-import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 
@@ -36,6 +35,7 @@ import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltdb.AdmissionController;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.CommandLog;
 import org.voltdb.CommandLog.DurabilityListener;
@@ -59,6 +59,7 @@ import org.voltdb.messaging.DumpMessage;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
+import org.voltdb.messaging.Iv2InitiateTaskBatchMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.Iv2LogFaultMessage;
 import org.voltdb.messaging.MultiPartitionParticipantMessage;
@@ -133,14 +134,22 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         public void lastUniqueIdsMadeDurable(long spUniqueId, long mpUniqueId);
     }
 
+    // Have replicas send their full results to the leader, to diagnose hash mismatches
+    static final boolean REPLICA_FULL_RESPONSES = Boolean.getBoolean("REPLICA_FULL_RESPONSES");
+
+    // Most SP writes replicated to the replicas in one message while the mailbox drains a run of deliveries
+    static final int REPLICATION_BATCH_SIZE = Integer.getInteger("SP_REPLICATION_BATCH_SIZE", 64);
+
     List<Long> m_replicaHSIds = new ArrayList<Long>();
     long m_sendToHSIds[] = new long[0];
+    // SP writes waiting to go to m_sendToHSIds, in spHandle order
+    private final List<Iv2InitiateTaskMessage> m_replicationBatch = new ArrayList<Iv2InitiateTaskMessage>();
+    private boolean m_batchedDelivery = false;
 
     private final TransactionTaskQueue m_pendingTasks;
     private final Map<Long, TransactionState> m_outstandingTxns =
         new HashMap<Long, TransactionState>();
-    private final Map<DuplicateCounterKey, DuplicateCounter> m_duplicateCounters =
-        new TreeMap<DuplicateCounterKey, DuplicateCounter>();
+    private final DuplicateCounterMap m_duplicateCounters = new DuplicateCounterMap();
     // MP fragment tasks or completion tasks pending durability
     private final Map<Long, Queue<TransactionTask>> m_mpsPendingDurability =
         new HashMap<Long, Queue<TransactionTask>>();
@@ -221,6 +230,57 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         m_tasks.offer(m_nullTask);
     }
 
+    @Override
+    public void setBatchedDelivery(boolean batched)
+    {
+        m_batchedDelivery = batched;
+    }
+
+    @Override
+    public void flushBatchedMessages()
+    {
+        flushReplicationBatch();
+    }
+
+    /**
+     * Replicate an SP write. When the mailbox drains its deliveries in runs, the writes
+     * of one run go to each replica as a single Iv2InitiateTaskBatchMessage. The replicas
+     * unpack it in order, so they still see the writes in the leader's spHandle order.
+     */
+    private void replicate(Iv2InitiateTaskMessage replmsg)
+    {
+        if (!m_batchedDelivery || REPLICATION_BATCH_SIZE <= 1) {
+            m_mailbox.send(m_sendToHSIds, replmsg);
+            return;
+        }
+        m_replicationBatch.add(replmsg);
+        if (m_replicationBatch.size() >= REPLICATION_BATCH_SIZE) {
+            flushReplicationBatch();
+        }
+    }
+
+    private void flushReplicationBatch()
+    {
+        if (m_replicationBatch.isEmpty()) {
+            return;
+        }
+        if (m_replicationBatch.size() == 1) {
+            m_mailbox.send(m_sendToHSIds, m_replicationBatch.get(0));
+        }
+        else {
+            m_mailbox.send(m_sendToHSIds,
+                    new Iv2InitiateTaskBatchMessage(new ArrayList<Iv2InitiateTaskMessage>(m_replicationBatch)));
+        }
+        m_replicationBatch.clear();
+    }
+
+    // Everything else sent to the replicas must not overtake the batched writes
+    private void sendToReplicas(VoltMessage message)
+    {
+        flushReplicationBatch();
+        m_mailbox.send(m_sendToHSIds, message);
+    }
+
     // This is going to run in the BabySitter's thread.  This and deliver are synchronized by
     // virtue of both being called on InitiatorMailbox and not directly called.
     // (That is, InitiatorMailbox's API, used by BabySitter, is synchronized on the same
@@ -228,6 +288,8 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     @Override
     public void updateReplicas(List<Long> replicas, Map<Integer, Long> partitionMasters)
     {
+        // Anything batched was sequenced for the old replica set
+        flushReplicationBatch();
         // First - correct the official replica set.
         m_replicaHSIds = replicas;
         // Update the list of remote replicas that we'll need to send to
@@ -238,7 +300,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         // Cleanup duplicate counters and collect DONE counters
         // in this list for further processing.
         List<DuplicateCounterKey> doneCounters = new LinkedList<DuplicateCounterKey>();
-        for (Entry<DuplicateCounterKey, DuplicateCounter> entry : m_duplicateCounters.entrySet()) {
+        for (Entry<DuplicateCounterKey, DuplicateCounter> entry : m_duplicateCounters.toSortedMap().entrySet()) {
             DuplicateCounter counter = entry.getValue();
             int result = counter.updateReplicas(m_replicaHSIds);
             if (result == DuplicateCounter.DONE) {
@@ -249,7 +311,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         // Maintain the CI invariant that responses arrive in txnid order.
         Collections.sort(doneCounters);
         for (DuplicateCounterKey key : doneCounters) {
-            DuplicateCounter counter = m_duplicateCounters.remove(key);
+            DuplicateCounter counter = m_duplicateCounters.remove(key.m_txnId, key.m_spHandle);
 
             final TransactionState txn = m_outstandingTxns.get(key.m_txnId);
             if (txn == null || txn.isDone()) {
@@ -533,7 +595,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                             msg.isForReplay());
                 // Update the handle in the copy since the constructor doesn't set it
                 replmsg.setSpHandle(newSpHandle);
-                m_mailbox.send(m_sendToHSIds, replmsg);
+                replicate(replmsg);
 
                 DuplicateCounter counter = new DuplicateCounter(
                         msg.getInitiatorHSId(),
@@ -541,7 +603,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         m_replicaHSIds,
                         msg);
 
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(msg.getTxnId(), newSpHandle), counter);
+                safeAddToDuplicateCounterMap(msg.getTxnId(), newSpHandle, counter);
             }
         }
         else {
@@ -576,6 +638,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         final String procedureName = msg.getStoredProcedureName();
         final SpProcedureTask task =
             new SpProcedureTask(m_mailbox, procedureName, m_pendingTasks, msg, m_drGateway);
+        // Only reads may skip ahead, replicas must run writes in the same order as the leader
+        if (msg.isReadOnly() && AdmissionController.instance().isPriorityProcedure(procedureName)) {
+            task.setPriority(true);
+        }
         if (!shortcutRead) {
             ListenableFuture<Object> durabilityBackpressureFuture =
                     m_cl.log(msg, msg.getSpHandle(), null, m_durabilityListener, task);
@@ -594,6 +660,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     @Override
     public void handleMessageRepair(List<Long> needsRepair, VoltMessage message)
     {
+        flushReplicationBatch();
         if (message instanceof Iv2InitiateTaskMessage) {
             handleIv2InitiateTaskMessageRepair(needsRepair, (Iv2InitiateTaskMessage)message);
         }
@@ -630,7 +697,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 message.getTxnId(),
                 expectedHSIds,
                 message);
-        safeAddToDuplicateCounterMap(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()), counter);
+        safeAddToDuplicateCounterMap(message.getTxnId(), message.getSpHandle(), counter);
 
         m_uniqueIdGenerator.updateMostRecentlyGeneratedUniqueId(message.getUniqueId());
         // is local repair necessary?
@@ -662,7 +729,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 message.getTxnId(),
                 expectedHSIds,
                 message);
-        safeAddToDuplicateCounterMap(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()), counter);
+        safeAddToDuplicateCounterMap(message.getTxnId(), message.getSpHandle(), counter);
 
         // is local repair necessary?
         if (needsRepair.contains(m_mailbox.getHSId())) {
@@ -717,12 +784,11 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         }
 
         final long spHandle = message.getSpHandle();
-        final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
-        DuplicateCounter counter = m_duplicateCounters.get(dcKey);
+        DuplicateCounter counter = m_duplicateCounters.get(message.getTxnId(), spHandle);
         if (counter != null) {
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
-                m_duplicateCounters.remove(dcKey);
+                m_duplicateCounters.remove(message.getTxnId(), spHandle);
                 setRepairLogTruncationHandle(spHandle);
                 m_mailbox.send(counter.m_destinationId, counter.getLastResponse());
             }
@@ -735,6 +801,11 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             // this will be on SPI without k-safety or replica only with k-safety
             assert(!message.isReadOnly());
             setRepairLogTruncationHandle(spHandle);
+            // A replica's response only goes to the leader's duplicate counter,
+            // which needs the status and hash but not the result tables
+            if (!m_isLeader && !REPLICA_FULL_RESPONSES) {
+                message.omitResults();
+            }
             m_mailbox.send(message.getInitiatorHSId(), message);
         }
     }
@@ -830,8 +901,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 FragmentTaskMessage replmsg =
                     new FragmentTaskMessage(m_mailbox.getHSId(),
                             m_mailbox.getHSId(), msg);
-                m_mailbox.send(m_sendToHSIds,
-                        replmsg);
+                sendToReplicas(replmsg);
                 DuplicateCounter counter;
                 /*
                  * Non-determinism should be impossible to happen with MP fragments.
@@ -852,7 +922,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                             m_replicaHSIds,
                             message);
                 }
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(message.getTxnId(), newSpHandle), counter);
+                safeAddToDuplicateCounterMap(message.getTxnId(), newSpHandle, counter);
             }
         }
         else {
@@ -978,7 +1048,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     {
         // Send the message to the duplicate counter, if any
         DuplicateCounter counter =
-            m_duplicateCounters.get(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()));
+            m_duplicateCounters.get(message.getTxnId(), message.getSpHandle());
         final TransactionState txn = m_outstandingTxns.get(message.getTxnId());
         if (counter != null) {
             int result = counter.offer(message);
@@ -987,7 +1057,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     setRepairLogTruncationHandle(txn.m_spHandle);
                 }
 
-                m_duplicateCounters.remove(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()));
+                m_duplicateCounters.remove(message.getTxnId(), message.getSpHandle());
                 FragmentResponseMessage resp = (FragmentResponseMessage)counter.getLastResponse();
                 // MPI is tracking deps per partition HSID.  We need to make
                 // sure we write ours into the message getting sent to the MPI
@@ -1032,7 +1102,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             msg.setSpHandle(getCurrentTxnId());
 
             if (m_sendToHSIds.length > 0 && !msg.isReadOnly()) {
-                m_mailbox.send(m_sendToHSIds, msg);
+                sendToReplicas(msg);
             }
         } else {
             setMaxSeenTxnId(msg.getSpHandle());
@@ -1050,7 +1120,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                                                msg.getTxnId(),
                                                m_replicaHSIds,
                                                msg);
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(msg.getTxnId(), msg.getSpHandle()), counter);
+                safeAddToDuplicateCounterMap(msg.getTxnId(), msg.getSpHandle(), counter);
             }
 
             Iv2Trace.logCompleteTransactionMessage(msg, m_mailbox.getHSId());
@@ -1070,8 +1140,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
 
     public void handleCompleteTransactionResponseMessage(CompleteTransactionResponseMessage msg)
     {
-        final DuplicateCounterKey duplicateCounterKey = new DuplicateCounterKey(msg.getTxnId(), msg.getSpHandle());
-        DuplicateCounter counter = m_duplicateCounters.get(duplicateCounterKey);
+        DuplicateCounter counter = m_duplicateCounters.get(msg.getTxnId(), msg.getSpHandle());
         boolean txnDone = true;
 
         if (msg.isRestart()) {
@@ -1086,7 +1155,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (txnDone) {
             assert !msg.isRestart();
             final TransactionState txn = m_outstandingTxns.remove(msg.getTxnId());
-            m_duplicateCounters.remove(duplicateCounterKey);
+            m_duplicateCounters.remove(msg.getTxnId(), msg.getSpHandle());
 
             if (txn != null) {
                 // Set the truncation handle here instead of when processing
@@ -1156,7 +1225,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (m_isLeader) {
             hostLog.warn("" + who + ": replicas: " + CoreUtils.hsIdCollectionToString(m_replicaHSIds));
             if (m_sendToHSIds.length > 0) {
-                m_mailbox.send(m_sendToHSIds, new DumpMessage());
+                sendToReplicas(new DumpMessage());
             }
         }
         hostLog.warn("" + who + ": most recent SP handle: " + TxnEgo.txnIdToString(getCurrentTxnId()));
@@ -1165,7 +1234,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         hostLog.warn("" + who + ": TransactionTaskQueue: " + m_pendingTasks.toString());
         if (m_duplicateCounters.size() > 0) {
             hostLog.warn("" + who + ": duplicate counters: ");
-            for (Entry<DuplicateCounterKey, DuplicateCounter> e : m_duplicateCounters.entrySet()) {
+            for (Entry<DuplicateCounterKey, DuplicateCounter> e : m_duplicateCounters.toSortedMap().entrySet()) {
                 hostLog.warn("\t" + who + ": " + e.getKey().toString() + ": " + e.getValue().toString());
             }
         }
@@ -1183,14 +1252,14 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             msg = new DummyTransactionTaskMessage(m_mailbox.getHSId(), newSpHandle, uniqueId);
 
             if (m_sendToHSIds.length > 0) {
-                m_mailbox.send(m_sendToHSIds, msg);
+                sendToReplicas(msg);
 
                 DuplicateCounter counter = new DuplicateCounter(
                         HostMessenger.VALHALLA,
                         msg.getTxnId(),
                         m_replicaHSIds,
                         msg);
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(msg.getTxnId(), newSpHandle), counter);
+                safeAddToDuplicateCounterMap(msg.getTxnId(), newSpHandle, counter);
             }
         } else {
             setMaxSeenTxnId(msg.getSpHandle());
@@ -1214,8 +1283,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
 
     private void handleDummyTransactionResponseMessage(DummyTransactionResponseMessage message) {
         final long spHandle = message.getSpHandle();
-        final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
-        DuplicateCounter counter = m_duplicateCounters.get(dcKey);
+        DuplicateCounter counter = m_duplicateCounters.get(message.getTxnId(), spHandle);
         if (counter == null) {
             // this will be on SPI without k-safety or replica only with k-safety
             setRepairLogTruncationHandle(spHandle);
@@ -1228,7 +1296,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         int result = counter.offer(message);
         if (result == DuplicateCounter.DONE) {
             // DummyTransactionResponseMessage ends on SPI
-            m_duplicateCounters.remove(dcKey);
+            m_duplicateCounters.remove(message.getTxnId(), spHandle);
             setRepairLogTruncationHandle(spHandle);
         }
     }
@@ -1266,8 +1334,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 written = writeIv2ViableReplayEntryInternal(faultSpHandle);
                 // Generate Iv2LogFault message and send it to replicas
                 Iv2LogFaultMessage faultMsg = new Iv2LogFaultMessage(faultSpHandle, m_uniqueIdGenerator.getLastUniqueId());
-                m_mailbox.send(m_sendToHSIds,
-                        faultMsg);
+                sendToReplicas(faultMsg);
             }
         }
         return written;
@@ -1319,15 +1386,15 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
      * Just using "put" on the dup counter map is unsafe.
      * It won't detect the case where keys collide from two different transactions.
      */
-    void safeAddToDuplicateCounterMap(DuplicateCounterKey dpKey, DuplicateCounter counter) {
-        DuplicateCounter existingDC = m_duplicateCounters.get(dpKey);
+    void safeAddToDuplicateCounterMap(long txnId, long spHandle, DuplicateCounter counter) {
+        DuplicateCounter existingDC = m_duplicateCounters.get(txnId, spHandle);
         if (existingDC != null) {
             // this is a collision and is bad
             existingDC.logWithCollidingDuplicateCounters(counter);
             VoltDB.crashGlobalVoltDB("DUPLICATE COUNTER MISMATCH: two duplicate counter keys collided.", true, null);
         }
         else {
-            m_duplicateCounters.put(dpKey, counter);
+            m_duplicateCounters.put(txnId, spHandle, counter);
         }
     }
 
@@ -1422,7 +1489,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         // Also keep the local repair log's truncation point up-to-date
                         // so that it can trigger the callbacks.
                         m_mailbox.deliver(truncMsg);
-                        m_mailbox.send(m_sendToHSIds, truncMsg);
+                        sendToReplicas(truncMsg);
                     }
                 }
             }
@@ -45,10 +45,18 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
     public static final String COMMIT_THROW_EXCEPTION = "jdbc.committhrowexception";
     public static final String ROLLBACK_THROW_EXCEPTION = "jdbc.rollbackthrowexception";
     public static final String QUERYTIMEOUT_UNIT = "jdbc.querytimeout.unit";
+    // Most statements of an executeBatch() that may be waiting for a response at once.
+    // With a window above 1 the statements are pipelined and the cluster may run them
+    // in a different order than they were added, for example when they go to different
+    // partitions or mix ad hoc and procedure calls. Only raise it for batches of
+    // statements that do not depend on one another. The default of 1 runs them in order.
+    public static final String BATCH_WINDOW = "jdbc.batch.window";
+    static final int DEFAULT_BATCH_WINDOW = 1;
 
     protected final JDBC4ClientConnection NativeConnection;
     protected final String User;
     protected TimeUnit queryTimeOutUnit = TimeUnit.SECONDS;
+    protected int batchWindow = DEFAULT_BATCH_WINDOW;
     private boolean isClosed = false;
     private Properties props;
     private boolean autoCommit = true;
@@ -61,6 +69,15 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
         if (this.props.getProperty(JDBC4Connection.QUERYTIMEOUT_UNIT, "Seconds").equalsIgnoreCase("milliseconds")) {
             this.queryTimeOutUnit = TimeUnit.MILLISECONDS;
         }
+        String window = this.props.getProperty(JDBC4Connection.BATCH_WINDOW);
+        if (window != null) {
+            try {
+                this.batchWindow = Math.max(1, Integer.parseInt(window.trim()));
+            }
+            catch (NumberFormatException e) {
+                // keep the default
+            }
+        }
     }
 
     private void checkClosed() throws SQLException
@@ -25,16 +25,18 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.parser.JDBCParser;
 import org.voltdb.parser.SQLLexer;
 import org.voltdb.parser.JDBCParser.ParsedCall;
@@ -126,24 +128,7 @@ public class JDBC4Statement implements java.sql.Statement
             {
                 ClientResponse response = e.getClientResponse();
                 if (response != null) {
-                    // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
-                    // for connection problems.
-                    switch (response.getStatus()) {
-                    case ClientResponse.CONNECTION_LOST:
-                        throw SQLError.get(e, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", e.getMessage());
-                    case ClientResponse.CONNECTION_TIMEOUT:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", e.getMessage());
-                    case ClientResponse.SERVER_UNAVAILABLE:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", e.getMessage());
-                    case ClientResponse.USER_ABORT:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "USER_ABORT", e.getMessage());
-                    case ClientResponse.UNEXPECTED_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", e.getMessage());
-                    case ClientResponse.GRACEFUL_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", e.getMessage());
-                    default:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), e.getMessage());
-                    }
+                    throw getResponseException(response, e, e.getMessage());
                 } else {
                     throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
                 }
@@ -154,6 +139,46 @@ public class JDBC4Statement implements java.sql.Statement
             }
         }
 
+        // Queue the statement without waiting for its response, which is passed to the callback.
+        // Returns false if the client could not queue it.
+        protected boolean executeAsync(JDBC4ClientConnection connection, ProcedureCallback callback,
+                long timeout, TimeUnit queryTimeOutUnit) throws SQLException {
+            try
+            {
+                if (this.type == TYPE_EXEC) {
+                    return connection.executeAsyncWithClientTimeout(callback, this.sql[0], timeout, queryTimeOutUnit, this.parameters);
+                } else {
+                    return connection.executeAsyncWithClientTimeout(callback, "@AdHoc", timeout, queryTimeOutUnit, this.sql[0]);
+                }
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+        }
+
+        public static SQLException getResponseException(ClientResponse response, Throwable cause, String message)
+        {
+            // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
+            // for connection problems.
+            switch (response.getStatus()) {
+            case ClientResponse.CONNECTION_LOST:
+                return SQLError.get(cause, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", message);
+            case ClientResponse.CONNECTION_TIMEOUT:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", message);
+            case ClientResponse.SERVER_UNAVAILABLE:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", message);
+            case ClientResponse.USER_ABORT:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "USER_ABORT", message);
+            case ClientResponse.UNEXPECTED_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", message);
+            case ClientResponse.GRACEFUL_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", message);
+            default:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), message);
+            }
+        }
+
         public static boolean isUpdateResult(VoltTable table)
         {
             return ((table.getColumnName(0).length() == 0 || table.getColumnName(0).equals("modified_tuples"))&& table.getRowCount() == 1 && table.getColumnCount() == 1 && table.getColumnType(0) == VoltType.BIGINT);
@@ -412,6 +437,10 @@ public class JDBC4Statement implements java.sql.Statement
     }
 
     // Submits a batch of commands to the database for execution and if all commands execute successfully, returns an array of update counts.
+    // The commands are queued without waiting for each response, with up to the connection's batch window
+    // of them outstanding at once. The default window of 1 runs them one at a time in batch order; a larger
+    // window lets independent commands run out of order. Once a command fails no more are queued, so the
+    // update counts of a BatchUpdateException cover the commands queued so far, in order.
     @Override
     public int[] executeBatch() throws SQLException
     {
@@ -421,33 +450,89 @@ public class JDBC4Statement implements java.sql.Statement
             return new int[0];
         }
 
-        int[] updateCounts = new int[batch.size()];
-        // keep a running total of update counts
-        int runningUpdateCount = 0;
+        final ClientResponse[] responses = new ClientResponse[batch.size()];
+        final int windowSize = sourceConnection.batchWindow;
+        final Semaphore window = new Semaphore(windowSize);
+        final AtomicBoolean failed = new AtomicBoolean(false);
 
-        int i = 0;
+        int queued = 0;
+        SQLException queueFailure = null;
         try {
-            for (; i < batch.size(); i++) {
-
-                setCurrentResult(
-                        null,
-                        (int) batch.get(i).execute(
-                                sourceConnection.NativeConnection,
-                                this.m_timeout,
-                                sourceConnection.queryTimeOutUnit)[0].fetchRow(
-                                0).getLong(0));
-                updateCounts[i] = this.lastUpdateCount;
-                runningUpdateCount += this.lastUpdateCount;
+            for (; queued < batch.size(); queued++) {
+                window.acquireUninterruptibly();
+                if (failed.get()) {
+                    window.release();
+                    break;
+                }
+                final int index = queued;
+                ProcedureCallback callback = new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse response) throws Exception {
+                        if (response.getStatus() != ClientResponse.SUCCESS) {
+                            failed.set(true);
+                        }
+                        responses[index] = response;
+                        window.release();
+                    }
+                };
+                boolean accepted;
+                try {
+                    accepted = batch.get(index).executeAsync(
+                            sourceConnection.NativeConnection,
+                            callback,
+                            this.m_timeout,
+                            sourceConnection.queryTimeOutUnit);
+                } catch (SQLException x) {
+                    window.release();
+                    queueFailure = x;
+                    break;
+                }
+                if (!accepted) {
+                    window.release();
+                    queueFailure = SQLError.get(SQLError.CONNECTION_FAILURE);
+                    break;
+                }
             }
-        } catch (SQLException x) {
-            updateCounts[i] = EXECUTE_FAILED;
-            throw new BatchUpdateException(Arrays.copyOf(updateCounts, i + 1),
-                    x);
         } finally {
+            // wait for the responses to everything queued
+            window.acquireUninterruptibly(windowSize);
             clearBatch();
         }
-        // replace the update count from the last statement with the update count
-        // from the last batch.
+
+        int[] updateCounts = new int[queueFailure == null ? queued : queued + 1];
+        // keep a running total of update counts
+        int runningUpdateCount = 0;
+        SQLException failure = null;
+        for (int i = 0; i < queued; i++) {
+            ClientResponse response = responses[i];
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                updateCounts[i] = EXECUTE_FAILED;
+                if (failure == null) {
+                    failure = VoltSQL.getResponseException(response, null, response.getStatusString());
+                }
+            }
+            else {
+                VoltTable[] results = response.getResults();
+                if (results.length > 0 && VoltSQL.isUpdateResult(results[0])) {
+                    updateCounts[i] = (int) results[0].fetchRow(0).getLong(0);
+                    runningUpdateCount += updateCounts[i];
+                }
+                else {
+                    // a procedure that does not report a modified row count
+                    updateCounts[i] = SUCCESS_NO_INFO;
+                }
+            }
+        }
+        if (queueFailure != null) {
+            updateCounts[queued] = EXECUTE_FAILED;
+            if (failure == null) {
+                failure = queueFailure;
+            }
+        }
+        if (failure != null) {
+            throw new BatchUpdateException(updateCounts, failure);
+        }
+        // the update count of a batch is the total of its statements
         this.lastUpdateCount = runningUpdateCount;
 
         return updateCounts;
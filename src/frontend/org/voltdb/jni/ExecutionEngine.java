@@ -29,6 +29,7 @@ import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
 import org.voltdb.PlannerStatsCollector;
 import org.voltdb.PlannerStatsCollector.CacheUse;
@@ -99,6 +100,19 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     // is the execution site dirty
     protected boolean m_dirty;
 
+    /*
+     * Result tables from executePlanFragments() are normally copied out of the shared
+     * EE result buffer onto the heap. Starting the JVM with -DEE_POOLED_RESULTS=true lets
+     * callers set a collector instead, in which case the tables are backed by pooled
+     * direct buffers whose containers are added to the collector. Whoever set the
+     * collector owns those containers and must discard them once the tables are
+     * no longer referenced. For user procedures that is when the response has been
+     * sent, so a procedure must not retain its result tables after run() returns
+     * (see VoltProcedure.voltExecuteSQL()).
+     */
+    public static final boolean EE_POOLED_RESULTS = Boolean.getBoolean("EE_POOLED_RESULTS");
+    protected List<BBContainer> m_resultContainerCollector = null;
+
     /** Error codes exported for JNI methods. */
     public static final int ERRORCODE_SUCCESS = 0;
     public static final int ERRORCODE_ERROR = 1; // just error or not so far.
@@ -560,11 +574,19 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
 
     /** Pass the catalog to the engine */
     public void loadCatalog(long timestamp, String serializedCatalog) {
+        loadCatalog(timestamp, getStringBytes(serializedCatalog));
+    }
+
+    /**
+     * Pass the catalog, already UTF-8 encoded, to the engine. The bytes are
+     * not modified, so the sites of a host can all load from the same array.
+     */
+    public void loadCatalog(long timestamp, byte[] serializedCatalog) {
         try {
             m_startTime = 0;
             m_logDuration = INITIAL_LOG_DURATION;
             m_fragmentContext = FragmentContext.CATALOG_LOAD;
-            coreLoadCatalog(timestamp, getStringBytes(serializedCatalog));
+            coreLoadCatalog(timestamp, serializedCatalog);
         }
         finally {
             m_fragmentContext = FragmentContext.UNKNOWN;
@@ -596,6 +618,15 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         m_currentProcedureName = procedureName;
     }
 
+    /**
+     * Set (or clear with null) the list that receives the containers backing result
+     * tables from subsequent executePlanFragments() calls. Engines that can't hand out
+     * pooled results ignore it and keep returning heap-backed tables.
+     */
+    public void setResultContainerCollector(List<BBContainer> collector) {
+        m_resultContainerCollector = collector;
+    }
+
     /** Run multiple plan fragments */
     public VoltTable[] executePlanFragments(int numFragmentIds,
                                             long[] planFragmentIds,
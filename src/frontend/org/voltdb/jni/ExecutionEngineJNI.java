@@ -104,6 +104,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     private ByteBuffer fallbackBuffer = null;
 
+    /** Reused for pooled result sets too large for the shared result buffer pool's size classes. */
+    private final ResultBufferPool.LargeResultBuffer m_largeResultBuffer = new ResultBufferPool.LargeResultBuffer();
+
     private final BBContainer exceptionBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 5);
     private ByteBuffer exceptionBuffer = exceptionBufferOrigin.b();
 
@@ -331,8 +334,24 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                 final boolean dirty = fds.readBoolean();
                 if (dirty)
                     m_dirty = true;
-                // get a copy of the buffer
-                final ByteBuffer fullBacking = fds.readBuffer(totalSize);
+                final ByteBuffer fullBacking;
+                if (m_resultContainerCollector != null) {
+                    // copy into a pooled direct buffer instead of a fresh heap array,
+                    // the collector's owner discards it after the response is sent
+                    final BBContainer container = ResultBufferPool.allocate(totalSize, m_largeResultBuffer);
+                    final ByteBuffer source = fds.buffer();
+                    final int sourceLimit = source.limit();
+                    source.limit(source.position() + totalSize);
+                    fullBacking = container.b();
+                    fullBacking.put(source);
+                    fullBacking.flip();
+                    source.limit(sourceLimit);
+                    m_resultContainerCollector.add(container);
+                }
+                else {
+                    // get a copy of the buffer
+                    fullBacking = fds.readBuffer(totalSize);
+                }
                 final VoltTable[] results = new VoltTable[batchSize];
                 for (int i = 0; i < batchSize; ++i) {
                     final int numdeps = fullBacking.getInt(); // number of dependencies for this frag
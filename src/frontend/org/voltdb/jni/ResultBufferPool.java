@@ -0,0 +1,195 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jni;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.voltcore.utils.RefCountedBBContainer;
+
+/**
+ * Pool of direct buffers that hold EE result tables handed out of
+ * ExecutionEngineJNI.executePlanFragments() when a result container collector is set.
+ *
+ * Buffers come in power of two size classes. A buffer is returned to its class when
+ * the last reference to its container is discarded, normally once the client response
+ * has been serialized to the socket. A class holds at most MAX_POOLED_BYTES_PER_CLASS
+ * of idle buffers. Results larger than the largest class go to a {@link LargeResultBuffer}
+ * owned by the site, a single buffer that grows to fit and is reused. Buffers
+ * are plain ByteBuffer.allocateDirect() allocations, so a container that is never
+ * discarded is simply reclaimed by the garbage collector.
+ */
+public class ResultBufferPool {
+    static final int MIN_SIZE_CLASS_SHIFT = 12;   // 4K
+    static final int MAX_SIZE_CLASS_SHIFT = 24;   // 16M
+    static final long MAX_POOLED_BYTES_PER_CLASS = Long.getLong("EE_RESULT_POOL_BYTES_PER_CLASS", 64L * 1024 * 1024);
+
+    private static final int SIZE_CLASSES = MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1;
+
+    private static final List<ConcurrentLinkedQueue<ByteBuffer>> s_idle =
+            new ArrayList<ConcurrentLinkedQueue<ByteBuffer>>(SIZE_CLASSES);
+    private static final AtomicInteger[] s_idleCounts = new AtomicInteger[SIZE_CLASSES];
+    static {
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            s_idle.add(new ConcurrentLinkedQueue<ByteBuffer>());
+            s_idleCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * One reusable buffer for results too big for the size classes. Each site keeps its
+     * own. The buffer is handed out while idle and grows to the next power of two when a
+     * larger result comes along. If it is still held by an earlier response, the result
+     * gets a buffer of its own, and the larger of the two is kept when both are released.
+     */
+    public static final class LargeResultBuffer {
+        private final AtomicReference<ByteBuffer> m_idle = new AtomicReference<ByteBuffer>();
+
+        ByteBuffer take(int size) {
+            ByteBuffer b = m_idle.getAndSet(null);
+            if (b == null || b.capacity() < size) {
+                // the old buffer, if any, is dropped and reclaimed by the GC
+                final int highBit = Integer.highestOneBit(size);
+                final int capacity = (highBit == size || highBit >= (1 << 30)) ? size : highBit << 1;
+                b = ByteBuffer.allocateDirect(capacity);
+            }
+            return b;
+        }
+
+        void release(ByteBuffer b) {
+            for (;;) {
+                final ByteBuffer current = m_idle.get();
+                if (current != null && current.capacity() >= b.capacity()) {
+                    return;
+                }
+                if (m_idle.compareAndSet(current, b)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return the capacity of the idle buffer, or 0 if it is in use or not allocated yet
+         */
+        int idleCapacity() {
+            final ByteBuffer b = m_idle.get();
+            return b == null ? 0 : b.capacity();
+        }
+    }
+
+    private static final class LargeContainer extends RefCountedBBContainer {
+        private final LargeResultBuffer m_owner;
+
+        LargeContainer(ByteBuffer b, LargeResultBuffer owner) {
+            super(b);
+            m_owner = owner;
+        }
+
+        @Override
+        protected void recycle(ByteBuffer b) {
+            m_owner.release(b);
+        }
+    }
+
+    private static final class PooledContainer extends RefCountedBBContainer {
+        private final int m_sizeClass;
+
+        PooledContainer(ByteBuffer b, int sizeClass) {
+            super(b);
+            m_sizeClass = sizeClass;
+        }
+
+        @Override
+        protected void recycle(ByteBuffer b) {
+            if (m_sizeClass < 0) {
+                return;
+            }
+            final int maxIdle = (int)Math.max(1, MAX_POOLED_BYTES_PER_CLASS >> (m_sizeClass + MIN_SIZE_CLASS_SHIFT));
+            if (s_idleCounts[m_sizeClass].incrementAndGet() <= maxIdle) {
+                s_idle.get(m_sizeClass).offer(b);
+            }
+            else {
+                s_idleCounts[m_sizeClass].decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Size class index for a buffer of the given size, or -1 if it is too big to pool.
+     */
+    static int sizeClass(int size) {
+        if (size <= (1 << MIN_SIZE_CLASS_SHIFT)) {
+            return 0;
+        }
+        final int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return shift > MAX_SIZE_CLASS_SHIFT ? -1 : shift - MIN_SIZE_CLASS_SHIFT;
+    }
+
+    /**
+     * Get a container whose buffer has position 0 and limit {@code size}.
+     * Results too big to pool get an unpooled buffer.
+     * The caller owns the single initial reference.
+     */
+    public static RefCountedBBContainer allocate(int size) {
+        return allocate(size, null);
+    }
+
+    /**
+     * Get a container whose buffer has position 0 and limit {@code size}.
+     * Results too big to pool use {@code large} if it is not null.
+     * The caller owns the single initial reference.
+     */
+    public static RefCountedBBContainer allocate(int size, LargeResultBuffer large) {
+        final int sizeClass = sizeClass(size);
+        ByteBuffer b = null;
+        RefCountedBBContainer container;
+        if (sizeClass >= 0) {
+            b = s_idle.get(sizeClass).poll();
+            if (b != null) {
+                s_idleCounts[sizeClass].decrementAndGet();
+            }
+            else {
+                b = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SIZE_CLASS_SHIFT));
+            }
+            container = new PooledContainer(b, sizeClass);
+        }
+        else if (large != null) {
+            b = large.take(size);
+            container = new LargeContainer(b, large);
+        }
+        else {
+            b = ByteBuffer.allocateDirect(size);
+            container = new PooledContainer(b, sizeClass);
+        }
+        b.clear();
+        b.limit(size);
+        return container;
+    }
+
+    /**
+     * @return the number of idle buffers held for the size class that fits {@code size}
+     */
+    static int idleCount(int size) {
+        final int sizeClass = sizeClass(size);
+        return sizeClass < 0 ? 0 : s_idleCounts[sizeClass].get();
+    }
+}
@@ -45,6 +45,7 @@ public class InitiateResponseMessage extends VoltMessage {
     private boolean m_commit;
     private boolean m_recovering;
     private boolean m_readOnly;
+    private boolean m_resultsOmitted;
     private ClientResponseImpl m_response;
 
     // Mis-partitioned invocation needs to send the invocation back to ClientInterface for restart
@@ -163,6 +164,9 @@ public class InitiateResponseMessage extends VoltMessage {
         m_invocation = invocation;
         m_currentHashinatorConfig = currentHashinatorConfig;
         m_commit = false;
+        if (m_response != null) {
+            m_response.discardResultContainers();
+        }
         m_response = new ClientResponseImpl(ClientResponse.TXN_RESTART, new VoltTable[]{}, "Mispartitioned");
     }
 
@@ -175,10 +179,44 @@ public class InitiateResponseMessage extends VoltMessage {
         m_response = r;
     }
 
+    /**
+     * Release the pooled buffers backing the response's result tables once the
+     * response has been written out or dropped.
+     */
+    public void discardResultContainers() {
+        if (m_response != null) {
+            m_response.discardResultContainers();
+        }
+    }
+
     public boolean isReadOnly() {
         return m_readOnly;
     }
 
+    /**
+     * Drop the result tables, keeping the status and the determinism hash. Replicas
+     * respond this way to the partition leader, which only compares the hash and
+     * answers the client with its own results.
+     */
+    public void omitResults() {
+        if (m_response == null || m_mispartitioned) {
+            return;
+        }
+        ClientResponseImpl r = new ClientResponseImpl(m_response.getStatus(),
+                m_response.getAppStatus(),
+                m_response.getAppStatusString(),
+                new VoltTable[0],
+                m_response.getStatusString());
+        r.setHash(m_response.getHash());
+        m_response.discardResultContainers();
+        m_response = r;
+        m_resultsOmitted = true;
+    }
+
+    public boolean isResultsOmitted() {
+        return m_resultsOmitted;
+    }
+
     @Override
     public int getSerializedSize()
     {
@@ -192,6 +230,7 @@ public class InitiateResponseMessage extends VoltMessage {
             + 1 // read only
             + 1 // node recovering indication
             + 1 // mispartitioned invocation
+            + 1 // results omitted
             + m_response.getSerializedSize();
 
         if (m_mispartitioned) {
@@ -217,6 +256,7 @@ public class InitiateResponseMessage extends VoltMessage {
         buf.put((byte) (m_readOnly == true ? 1 : 0));
         buf.put((byte) (m_recovering == true ? 1 : 0));
         buf.put((byte) (m_mispartitioned == true ? 1 : 0));
+        buf.put((byte) (m_resultsOmitted == true ? 1 : 0));
         m_response.flattenToBuffer(buf);
         if (m_mispartitioned) {
             buf.putLong(m_currentHashinatorConfig.getFirst());
@@ -240,6 +280,7 @@ public class InitiateResponseMessage extends VoltMessage {
         m_readOnly = buf.get() == 1;
         m_recovering = buf.get() == 1;
         m_mispartitioned = buf.get() == 1;
+        m_resultsOmitted = buf.get() == 1;
         m_response = new ClientResponseImpl();
         m_response.initFromBuffer(buf);
         m_commit = (m_response.getStatus() == ClientResponseImpl.SUCCESS);
@@ -268,6 +309,7 @@ public class InitiateResponseMessage extends VoltMessage {
         sb.append("\n READ-ONLY: ").append(m_readOnly);
         sb.append("\n RECOVERING: ").append(m_recovering);
         sb.append("\n MISPARTITIONED: ").append(m_mispartitioned);
+        sb.append("\n RESULTS OMITTED: ").append(m_resultsOmitted);
         if (m_commit)
             sb.append("\n  COMMIT");
         else
@@ -0,0 +1,108 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltcore.messaging.VoltMessage;
+
+/**
+ * Consecutive single-partition initiations sent from an SPI to its replicas as one
+ * message. The replica's mailbox unpacks the tasks and handles them in order as if
+ * they had arrived one at a time.
+ */
+public class Iv2InitiateTaskBatchMessage extends VoltMessage {
+
+    private List<Iv2InitiateTaskMessage> m_tasks;
+
+    public Iv2InitiateTaskBatchMessage() {}
+
+    public Iv2InitiateTaskBatchMessage(List<Iv2InitiateTaskMessage> tasks)
+    {
+        m_tasks = tasks;
+    }
+
+    public List<Iv2InitiateTaskMessage> getTasks()
+    {
+        return m_tasks;
+    }
+
+    @Override
+    public int getSerializedSize()
+    {
+        int msgsize = super.getSerializedSize() + 4; // task count
+        for (Iv2InitiateTaskMessage task : m_tasks) {
+            msgsize += 4 + task.getSerializedSize(); // length prefixed task
+        }
+        return msgsize;
+    }
+
+    @Override
+    protected void initFromBuffer(ByteBuffer buf) throws IOException
+    {
+        final int count = buf.getInt();
+        m_tasks = new ArrayList<Iv2InitiateTaskMessage>(count);
+        for (int i = 0; i < count; i++) {
+            final int length = buf.getInt();
+            // each task expects a buffer of exactly its own size
+            ByteBuffer taskBuf = buf.duplicate();
+            taskBuf.limit(taskBuf.position() + length);
+            taskBuf = taskBuf.slice();
+            buf.position(buf.position() + length);
+
+            final byte type = taskBuf.get();
+            assert(type == VoltDbMessageFactory.IV2_INITIATE_TASK_ID);
+            Iv2InitiateTaskMessage task = new Iv2InitiateTaskMessage();
+            task.initFromBuffer(taskBuf.slice().asReadOnlyBuffer());
+            m_tasks.add(task);
+        }
+
+        assert(buf.capacity() == buf.position());
+    }
+
+    @Override
+    public void flattenToBuffer(ByteBuffer buf) throws IOException
+    {
+        buf.put(VoltDbMessageFactory.IV2_INITIATE_TASK_BATCH_ID);
+        buf.putInt(m_tasks.size());
+        for (Iv2InitiateTaskMessage task : m_tasks) {
+            final int length = task.getSerializedSize();
+            buf.putInt(length);
+            ByteBuffer taskBuf = buf.duplicate();
+            taskBuf.limit(taskBuf.position() + length);
+            task.flattenToBuffer(taskBuf.slice());
+            buf.position(buf.position() + length);
+        }
+
+        assert(buf.capacity() == buf.position());
+        buf.limit(buf.position());
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("IV2 INITIATE_TASK_BATCH OF ").append(m_tasks.size()).append(" TASKS");
+        for (Iv2InitiateTaskMessage task : m_tasks) {
+            sb.append("\n").append(task.toString());
+        }
+        return sb.toString();
+    }
+}
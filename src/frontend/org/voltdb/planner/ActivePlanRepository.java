@@ -23,6 +23,7 @@ import java.util.TreeMap;
 
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.jni.Sha1Wrapper;
+import org.voltdb.utils.Encoder;
 
 public abstract class ActivePlanRepository {
 
@@ -109,23 +110,47 @@ public abstract class ActivePlanRepository {
                     evictLRUfragment();
                 }
             }
+            return addRef(frag, stmtText);
+        }
+    }
 
-            // Bit of a hack to work around an issue where a statement-less adhoc
-            // fragment could be identical to a statement-needing regular procedure.
-            // This doesn't really address the broader issue that fragment hashes
-            // are not 1-1 with SQL statements.
-            if (frag.stmtText == null) {
-                frag.stmtText = stmtText;
+    /**
+     * Like {@link #loadOrAddRefPlanFragment(byte[], byte[], String)}, for a plan that is
+     * still base64 encoded and compressed as it is stored in the catalog.
+     * The plan is only decoded if it isn't known yet, so the sites of a host loading
+     * the same catalog decode each plan once between them.
+     */
+    public static long loadOrAddRefPlanFragment(byte[] planHash, String encodedPlan, String stmtText) {
+        Sha1Wrapper key = new Sha1Wrapper(planHash);
+        synchronized (FragInfo.class) {
+            FragInfo frag = m_plansByHash.get(key);
+            if (frag != null) {
+                return addRef(frag, stmtText);
             }
+        }
+        // Decode outside of the lock. Sites racing to load the same new plan
+        // may each decode it, but only the first one's copy is kept.
+        byte[] plan = Encoder.decodeBase64AndDecompressToBytes(encodedPlan);
+        return loadOrAddRefPlanFragment(planHash, plan, stmtText);
+    }
 
-            // The fragment MAY be in the LRU map.
-            // An incremented refCount is a lazy way to keep it safe from eviction
-            // without having to update the map.
-            // This optimizes for popular fragments in a small or stable cache that may be reused
-            // many times before the eviction process needs to take any notice.
-            frag.refCount++;
-            return frag.fragId;
+    // Must be called while synchronized on FragInfo.class
+    private static long addRef(FragInfo frag, String stmtText) {
+        // Bit of a hack to work around an issue where a statement-less adhoc
+        // fragment could be identical to a statement-needing regular procedure.
+        // This doesn't really address the broader issue that fragment hashes
+        // are not 1-1 with SQL statements.
+        if (frag.stmtText == null) {
+            frag.stmtText = stmtText;
         }
+
+        // The fragment MAY be in the LRU map.
+        // An incremented refCount is a lazy way to keep it safe from eviction
+        // without having to update the map.
+        // This optimizes for popular fragments in a small or stable cache that may be reused
+        // many times before the eviction process needs to take any notice.
+        frag.refCount++;
+        return frag.fragId;
     }
 
     private static void evictLRUfragment() {
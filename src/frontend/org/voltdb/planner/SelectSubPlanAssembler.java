@@ -25,22 +25,28 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.voltdb.VoltType;
 import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
 import org.voltdb.planner.parseinfo.JoinNode;
 import org.voltdb.planner.parseinfo.StmtSubqueryScan;
 import org.voltdb.planner.parseinfo.StmtTableScan;
+import org.voltdb.planner.parseinfo.StmtTargetTableScan;
 import org.voltdb.planner.parseinfo.SubqueryLeafNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
 import org.voltdb.utils.PermutationGenerator;
@@ -62,16 +68,22 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<JoinNode>();
 
+    /** Table size estimates used to choose between hash and nested loop joins */
+    private final DatabaseEstimates m_estimates;
+
     /**
      *
      * @param db The catalog's Database object.
      * @param selectStmt The parsed and dissected statement object describing the sql to execute.
      * @param partitioning in/out param first element is partition key value, forcing a single-partition statement if non-null,
      * second may be an inferred partition key if no explicit single-partitioning was specified
+     * @param estimates The table size estimates used to cost the join alternatives.
      */
-    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning)
+    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning,
+                           DatabaseEstimates estimates)
     {
         super(db, selectStmt, partitioning);
+        m_estimates = estimates;
         if (selectStmt.hasJoinOrder()) {
             // If a join order was provided or large number of tables join
             m_joinOrders.addAll(selectStmt.getJoinOrder());
@@ -704,7 +716,6 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -745,6 +756,18 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
+
+            // When the inner side has no index to drive the join, the NLJ evaluates
+            // the join predicate for every outer/inner pair. An equi-join can instead
+            // hash the inner rows once and probe them with each outer row.
+            AbstractJoinPlanNode nljNode = null;
+            if ( ! (innerPlan instanceof IndexScanPlanNode) &&
+                 ! (innerPlan instanceof NestLoopIndexPlanNode)) {
+                nljNode = getHashJoinIfCheaper(joinNode, joinClauses, outerPlan, innerPlan);
+            }
+            if (nljNode == null) {
+                nljNode = new NestLoopPlanNode();
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -792,6 +815,132 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Build a hash join node for the join clauses if any of them is an equality
+     * (= or IS NOT DISTINCT FROM) between an outer-only and an inner-only expression of the same hashable type
+     * and hashing the inner rows is estimated to be cheaper than a nested loop.
+     * Unless hash joins are forced, the estimate must be backed by live statistics
+     * for every table on both sides of the join.
+     *
+     * @param joinNode A parent join node.
+     * @param joinClauses The join clauses that the join node will evaluate.
+     * @param outerPlan The outer node plan-sub-graph.
+     * @param innerPlan The inner node plan-sub-graph.
+     * @return A hash join node with its hash keys set or null if a NLJ should be used.
+     */
+    private HashJoinPlanNode getHashJoinIfCheaper(BranchNode joinNode,
+                                                  List<AbstractExpression> joinClauses,
+                                                  AbstractPlanNode outerPlan,
+                                                  AbstractPlanNode innerPlan)
+    {
+        if ( ! HashJoinPlanNode.isForced() && ! hasTableStatistics(joinNode)) {
+            return null;
+        }
+        Collection<String> outerTables = joinNode.getLeftNode().generateTableJoinOrder();
+        Collection<String> innerTables = joinNode.getRightNode().generateTableJoinOrder();
+        HashJoinPlanNode hjNode = null;
+        for (AbstractExpression clause : joinClauses) {
+            boolean notDistinct = clause.getExpressionType() == ExpressionType.COMPARE_NOTDISTINCT;
+            if (clause.getExpressionType() != ExpressionType.COMPARE_EQUAL && ! notDistinct) {
+                continue;
+            }
+            AbstractExpression left = clause.getLeft();
+            AbstractExpression right = clause.getRight();
+            if (left.getValueType() != right.getValueType() ||
+                    ! isHashableType(left.getValueType())) {
+                continue;
+            }
+            if (isHashKeyOfTables(left, outerTables) && isHashKeyOfTables(right, innerTables)) {
+                // keep left as the outer key
+            }
+            else if (isHashKeyOfTables(right, outerTables) && isHashKeyOfTables(left, innerTables)) {
+                AbstractExpression temp = left;
+                left = right;
+                right = temp;
+            }
+            else {
+                continue;
+            }
+            if (hjNode == null) {
+                hjNode = new HashJoinPlanNode();
+            }
+            hjNode.addHashExpressions(left, right, notDistinct);
+        }
+        if (hjNode == null) {
+            return null;
+        }
+
+        PlanStatistics stats = new PlanStatistics();
+        outerPlan.computeEstimatesRecursively(stats, null, m_db, m_estimates, null);
+        innerPlan.computeEstimatesRecursively(stats, null, m_db, m_estimates, null);
+        if ( ! HashJoinPlanNode.isCheaperThanNestLoop(outerPlan.getEstimatedOutputTupleCount(),
+                                                      innerPlan.getEstimatedOutputTupleCount())) {
+            return null;
+        }
+        return hjNode;
+    }
+
+    /**
+     * @return true if the tuple counts of all the tables under the join node were
+     * reported by the sites. Subqueries have no such statistics.
+     */
+    private boolean hasTableStatistics(JoinNode joinNode) {
+        if (m_estimates == null) {
+            return false;
+        }
+        for (JoinNode leaf : joinNode.generateLeafNodesJoinOrder()) {
+            StmtTableScan tableScan = leaf.getTableScan();
+            if ( ! (tableScan instanceof StmtTargetTableScan)) {
+                return false;
+            }
+            String tableName = ((StmtTargetTableScan)tableScan).getTargetTable().getTypeName();
+            if ( ! m_estimates.getEstimatesForTable(tableName).fromStatistics) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A hash key must reference at least one column, all of them from the given tables.
+     * Subqueries are not hashed since they may need to be re-evaluated for each row.
+     */
+    private static boolean isHashKeyOfTables(AbstractExpression expr, Collection<String> tableAliases) {
+        if (expr.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class)) {
+            return false;
+        }
+        List<AbstractExpression> tves = expr.findAllTupleValueSubexpressions();
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (AbstractExpression tve : tves) {
+            if ( ! tableAliases.contains(((TupleValueExpression) tve).getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Floating point values are not hashed since equal values may have distinct
+     * representations (e.g. -0.0 and 0.0).
+     */
+    private static boolean isHashableType(VoltType type) {
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case TIMESTAMP:
+        case DECIMAL:
+        case STRING:
+        case VARBINARY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
@@ -41,8 +41,8 @@ public abstract class MicroOptimization {
             plan.rootPlanGraph = planGraph;
         }
         finally {
-            // Avoid leaking a long-term reference from static optimizations
-            // to a large parsed statement structure.
+            // Avoid holding on to a large parsed statement structure
+            // longer than the optimization pass.
             m_parsedStmt = null;
         }
     }
@@ -25,8 +25,10 @@ import org.voltdb.planner.CompiledPlan;
 public class MicroOptimizationRunner {
 
     // list all of the micro optimizations here
-    static ArrayList<MicroOptimization> optimizations = new ArrayList<MicroOptimization>();
-    static {
+    // The optimizations hold the statement being optimized in a field and ad hoc
+    // statements are planned on several threads at once, so each call builds its own.
+    static ArrayList<MicroOptimization> optimizations() {
+        ArrayList<MicroOptimization> optimizations = new ArrayList<MicroOptimization>();
         // The orders here is important
         optimizations.add(new PushdownLimits());
         optimizations.add(new ReplaceWithIndexCounter());
@@ -37,10 +39,12 @@ public class MicroOptimizationRunner {
 
         // MP ORDER BY Optimization
         optimizations.add(new InlineOrderByIntoMergeReceive());
+        return optimizations;
     }
 
     public static void applyAll(CompiledPlan plan, AbstractParsedStmt parsedStmt)
     {
+        ArrayList<MicroOptimization> optimizations = optimizations();
         for (int i = 0; i < optimizations.size(); i++) {
             MicroOptimization opt = optimizations.get(i);
             opt.apply(plan, parsedStmt);
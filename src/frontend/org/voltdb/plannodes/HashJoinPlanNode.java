@@ -0,0 +1,222 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * An equi-join that builds a hash table over the inner child's output keyed
+ * on the inner hash expressions and probes it with the outer hash expressions
+ * of each outer tuple. The full join predicate is still evaluated against every
+ * inner tuple found in the probed bucket, so hash collisions and any
+ * non-equality join conditions are handled the same way as by the NLJ.
+ * Like the NLJ, the outer child's output order is preserved for INNER and LEFT joins.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS,
+        NOT_DISTINCT_KEYS;
+    }
+
+    // Relative per-tuple costs of building and probing the hash table,
+    // compared to a single evaluation of the join predicate by the NLJ.
+    private static final double HASH_BUILD_COST_FACTOR = 3.0;
+    private static final double HASH_PROBE_COST_FACTOR = 2.0;
+
+    // Without live table statistics every table is estimated at the same default size,
+    // which always favors hashing. Planning a hash join on those defaults must be asked for.
+    static final String FORCE_HASH_JOIN_PROPERTY = "PLANNER_HASH_JOIN";
+
+    protected List<AbstractExpression> m_outerHashExpressions = new ArrayList<>();
+    protected List<AbstractExpression> m_innerHashExpressions = new ArrayList<>();
+    // Indexes of the keys compared with IS NOT DISTINCT FROM, for which NULLs match.
+    // NULLs in any other key can never satisfy the join predicate and are not hashed.
+    protected List<Integer> m_notDistinctKeys = new ArrayList<>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    /**
+     * Add a pair of hash key expressions taken from an outer = inner join clause.
+     * @param outerExpr the side of the clause that references only the outer tables
+     * @param innerExpr the side of the clause that references only the inner tables
+     * @param notDistinct true if the clause is IS NOT DISTINCT FROM rather than =
+     */
+    public void addHashExpressions(AbstractExpression outerExpr, AbstractExpression innerExpr,
+                                   boolean notDistinct) {
+        assert(outerExpr.getValueType() == innerExpr.getValueType());
+        if (notDistinct) {
+            m_notDistinctKeys.add(m_outerHashExpressions.size());
+        }
+        m_outerHashExpressions.add(outerExpr.clone());
+        m_innerHashExpressions.add(innerExpr.clone());
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return m_outerHashExpressions;
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return m_innerHashExpressions;
+    }
+
+    /**
+     * @return true if hash joins may be planned even when the tuple counts of the
+     * joined tables are defaults rather than values reported by the sites.
+     */
+    public static boolean isForced() {
+        return Boolean.getBoolean(FORCE_HASH_JOIN_PROPERTY);
+    }
+
+    /**
+     * Compare the work done by a hash join against that of a nested loop join
+     * for the given outer and inner tuple count estimates. The NLJ evaluates
+     * the join predicate for every outer/inner pair while the hash join reads
+     * each inner tuple once to build the table and each outer tuple once to probe it.
+     */
+    public static boolean isCheaperThanNestLoop(long outerTupleCount, long innerTupleCount) {
+        double nestLoopCost = (double) outerTupleCount * innerTupleCount;
+        double hashJoinCost = HASH_BUILD_COST_FACTOR * innerTupleCount +
+                HASH_PROBE_COST_FACTOR * outerTupleCount;
+        return hashJoinCost < nestLoopCost;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Hash join node " + this +
+                    " has mismatched outer and inner hash expressions");
+        }
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            expr.validate();
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            expr.validate();
+        }
+    }
+
+    @Override
+    public void resolveColumnIndexes()
+    {
+        super.resolveColumnIndexes();
+
+        final NodeSchema outer_schema = m_children.get(0).getOutputSchema();
+        final NodeSchema inner_schema = m_children.get(1).getOutputSchema();
+        // The outer keys are evaluated against the outer tuple only and
+        // the inner keys against the inner tuple only, so each side must
+        // resolve entirely to its own child.
+        resolvePredicate(m_outerHashExpressions, outer_schema, inner_schema);
+        resolvePredicate(m_innerHashExpressions, outer_schema, inner_schema);
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     Cluster cluster,
+                                     Database db,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        // Cost the same as the NLJ so the choice between join orders is not
+        // affected. The choice between the two join algorithms is made by
+        // isCheaperThanNestLoop when the join is planned.
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        assert(m_children.size() == 2);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
+                m_children.get(1).m_estimatedProcessedTupleCount;
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+
+        stringer.key(Members.OUTER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            stringer.object();
+            expr.toJSONString(stringer);
+            stringer.endObject();
+        }
+        stringer.endArray();
+
+        stringer.key(Members.INNER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            stringer.object();
+            expr.toJSONString(stringer);
+            stringer.endObject();
+        }
+        stringer.endArray();
+
+        if ( ! m_notDistinctKeys.isEmpty()) {
+            stringer.key(Members.NOT_DISTINCT_KEYS.name()).array();
+            for (Integer key : m_notDistinctKeys) {
+                stringer.value(key.longValue());
+            }
+            stringer.endArray();
+        }
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db)
+            throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        m_outerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        m_innerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                Members.INNER_HASH_EXPRESSIONS.name(), null);
+        m_notDistinctKeys.clear();
+        if ( ! jobj.isNull(Members.NOT_DISTINCT_KEYS.name())) {
+            JSONArray jarray = jobj.getJSONArray(Members.NOT_DISTINCT_KEYS.name());
+            for (int ii = 0; ii < jarray.length(); ++ii) {
+                m_notDistinctKeys.add(jarray.getInt(ii));
+            }
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        return "HASH " + this.m_joinType.toString() + " JOIN" +
+                (m_sortDirection == SortDirectionType.INVALID ? "" : " (" + m_sortDirection + ")") +
+                explainFilters(indent);
+    }
+
+}
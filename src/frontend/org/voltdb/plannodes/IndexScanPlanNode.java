@@ -634,7 +634,15 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            double selectivity = Math.pow(0.10, keyWidth);
+            // When live statistics give the index's distinct key count, an equality
+            // match on the whole key is expected to find the average number of rows
+            // per key instead, so low cardinality indexes are no longer overrated.
+            Long distinctKeys = tableEstimates.distinctKeys.get(m_catalogIndex.getTypeName());
+            if (distinctKeys != null && distinctKeys > 0 && colCount == keyWidth) {
+                selectivity = 1.0 / distinctKeys;
+            }
+            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * selectivity);
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
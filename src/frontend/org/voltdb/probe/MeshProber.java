@@ -194,6 +194,8 @@ public class MeshProber implements JoinAcceptor {
     protected final boolean m_paused;
     protected final Supplier<NodeState> m_nodeStateSupplier;
     protected final boolean m_addAllowed;
+    /** reason this node refuses to let hosts be added to the cluster, or null */
+    protected final Supplier<String> m_addRefusalSupplier;
     protected final boolean m_safeMode;
     protected final String m_terminusNonce;
     protected final HostCriteriaRef m_hostCriteria = new HostCriteriaRef();
@@ -208,13 +210,15 @@ public class MeshProber implements JoinAcceptor {
             VersionChecker versionChecker, boolean enterprise, StartAction startAction,
             boolean bare, UUID configHash, Supplier<Integer> hostCountSupplier,
             int kFactor, boolean paused, Supplier<NodeState> nodeStateSupplier,
-            boolean addAllowed, boolean safeMode, String terminusNonce) {
+            boolean addAllowed, Supplier<String> addRefusalSupplier, boolean safeMode,
+            String terminusNonce) {
 
         checkArgument(versionChecker != null, "version checker is null");
         checkArgument(configHash != null, "config hash is null");
         checkArgument(startAction != null, "start action is null");
         checkArgument(nodeStateSupplier != null, "nodeStateSupplier is null");
         checkArgument(hostCountSupplier != null, "hostCountSupplier is null");
+        checkArgument(addRefusalSupplier != null, "addRefusalSupplier is null");
         checkArgument(kFactor >= 0, "invalid kFactor value: %s", kFactor);
         checkArgument(coordinators != null &&
                 coordinators.stream().allMatch(h->isValidCoordinatorSpec(h)),
@@ -236,6 +240,7 @@ public class MeshProber implements JoinAcceptor {
         this.m_paused = paused;
         this.m_nodeStateSupplier = nodeStateSupplier;
         this.m_addAllowed = addAllowed;
+        this.m_addRefusalSupplier = addRefusalSupplier;
         this.m_safeMode = safeMode;
         this.m_terminusNonce = terminusNonce;
 
@@ -434,6 +439,10 @@ public class MeshProber implements JoinAcceptor {
         }
         // connecting to already wholly formed cluster
         if (stat.getNumChildren() >= getHostCount()) {
+            final String addRefusal = hc.isAddAllowed() ? m_addRefusalSupplier.get() : null;
+            if (addRefusal != null) {
+                return new JoinAcceptor.PleaDecision(addRefusal, false, false);
+            }
             return new JoinAcceptor.PleaDecision(
                     hc.isAddAllowed()? null : "Cluster is already complete",
                     hc.isAddAllowed(), false);
@@ -752,6 +761,7 @@ public class MeshProber implements JoinAcceptor {
         protected Supplier<NodeState> m_nodeStateSupplier =
                 Suppliers.ofInstance(NodeState.INITIALIZING);
         protected boolean m_addAllowed = false;
+        protected Supplier<String> m_addRefusalSupplier = Suppliers.ofInstance((String)null);
         protected boolean m_safeMode = false;
         protected String m_terminusNonce = null;
 
@@ -770,6 +780,7 @@ public class MeshProber implements JoinAcceptor {
             m_paused = o.m_paused;
             m_nodeStateSupplier = o.m_nodeStateSupplier;
             m_addAllowed = o.m_addAllowed;
+            m_addRefusalSupplier = o.m_addRefusalSupplier;
             m_safeMode = o.m_safeMode;
             m_terminusNonce = o.m_terminusNonce;
             return this;
@@ -848,6 +859,11 @@ public class MeshProber implements JoinAcceptor {
             return this;
         }
 
+        public Builder addRefusalSupplier(Supplier<String> supplier) {
+            m_addRefusalSupplier = checkNotNull(supplier);
+            return this;
+        }
+
         public Builder safeMode(boolean safeMode) {
             m_safeMode = safeMode;
             return this;
@@ -874,6 +890,7 @@ public class MeshProber implements JoinAcceptor {
                     m_paused,
                     m_nodeStateSupplier,
                     m_addAllowed,
+                    m_addRefusalSupplier,
                     m_safeMode,
                     m_terminusNonce
                     );
@@ -136,19 +136,33 @@ public class SnapshotRegistry {
             public final String filename;
             public final long size;
             public final Throwable error;
+            // the writer (device) the file was written by and the time spent writing and syncing it
+            public final String writer;
+            public final long writeMillis;
+            public final long syncMillis;
 
             private Table(String name, String filename) {
                 this.name = name;
                 this.filename = filename;
                 size = 0;
                 error = null;
+                writer = "";
+                writeMillis = 0;
+                syncMillis = 0;
             }
 
             public Table(Table t, long size, Throwable error) {
+                this(t, size, error, "", 0, 0);
+            }
+
+            public Table(Table t, long size, Throwable error, String writer, long writeMillis, long syncMillis) {
                 this.name = t.name;
                 this.filename = t.filename;
                 this.size = size;
                 this.error = error;
+                this.writer = writer;
+                this.writeMillis = writeMillis;
+                this.syncMillis = syncMillis;
             }
         }
     }
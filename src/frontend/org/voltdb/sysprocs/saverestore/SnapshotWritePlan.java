@@ -30,6 +30,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.json_voltpatches.JSONObject;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
+import org.voltdb.DefaultSnapshotDataTarget;
 import org.voltdb.DevNullSnapshotTarget;
 import org.voltdb.ExtensibleSnapshotDigestData;
 import org.voltdb.SnapshotDataTarget;
@@ -100,6 +101,16 @@ public abstract class SnapshotWritePlan
                         @Override
                         public SnapshotRegistry.Snapshot.Table update(
                             SnapshotRegistry.Snapshot.Table registryTable) {
+                            if (m_sdt instanceof DefaultSnapshotDataTarget) {
+                                final DefaultSnapshotDataTarget target = (DefaultSnapshotDataTarget)m_sdt;
+                                return m_snapshotRecord.new Table(
+                                    registryTable,
+                                    target.getBytesWritten(),
+                                    target.getLastWriteException(),
+                                    target.getWriterName(),
+                                    target.getWriteMillis(),
+                                    target.getSyncMillis());
+                            }
                             return m_snapshotRecord.new Table(
                                 registryTable,
                                 m_sdt.getBytesWritten(),
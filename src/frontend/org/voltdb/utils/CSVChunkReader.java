@@ -0,0 +1,242 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Splits CSV input into chunks of whole records so that each chunk can be
+ * tokenized independently of the others.
+ *
+ * A record ends at the first line end that is not inside a quoted column, so
+ * quoted columns spanning several lines always stay in one chunk. The scan
+ * follows the rules of the tokenizer closely enough to find the same record
+ * ends, including where the tokenizer gives up on a record because of
+ * --strictquotes or --columnsizelimit. Inside a chunk the tokenizer re-parses
+ * every line, so a disagreement between the two only matters if it falls on
+ * a chunk boundary.
+ *
+ * Lines skipped by --skip and the --header line are consumed here and never
+ * appear in a chunk.
+ */
+class CSVChunkReader {
+
+    /**
+     * Consecutive records of the input joined by newlines.
+     */
+    static class Chunk {
+        final String m_text;
+        // line number of the first line of m_text in the input, starting at 1
+        final long m_firstLineNumber;
+        // number of records, not counting blank lines
+        final int m_records;
+
+        Chunk(String text, long firstLineNumber, int records) {
+            m_text = text;
+            m_firstLineNumber = firstLineNumber;
+            m_records = records;
+        }
+    }
+
+    private final BufferedReader m_reader;
+    private final int m_quoteChar;
+    private final int m_delimiterChar;
+    private final int m_escapeChar;
+    private final boolean m_strictQuotes;
+    private final long m_columnSizeLimit;
+    private final int m_chunkRows;
+    private long m_skip;
+    private boolean m_header;
+
+    private long m_lineNumber = 0;
+    private boolean m_eof = false;
+    private String m_headerRow = null;
+
+    // scan state of the record being read
+    private boolean m_inQuotes;
+    private boolean m_expectQuote;
+    private boolean m_sawNewLineInQuotes;
+    private long m_columnLength;
+
+    CSVChunkReader(BufferedReader reader, CSVLoader.CSVConfig config, int chunkRows) {
+        m_reader = reader;
+        m_quoteChar = config.quotechar;
+        m_delimiterChar = config.separator;
+        m_escapeChar = config.escape;
+        m_strictQuotes = config.strictquotes;
+        m_columnSizeLimit = config.columnsizelimit;
+        m_chunkRows = chunkRows;
+        m_skip = config.skip;
+        m_header = config.header;
+    }
+
+    /**
+     * Read the header record, if --header was given. Must be called before
+     * the first chunk is read.
+     *
+     * @return the untokenized header record, or null if there is none
+     */
+    String readHeader() throws IOException {
+        if (m_header) {
+            m_header = false;
+            String line;
+            do {
+                line = readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty());
+            StringBuilder record = new StringBuilder();
+            appendRecord(record, line);
+            // without the newline ending the record
+            m_headerRow = record.substring(0, record.length() - 1);
+            // the tokenizer skips --skip lines in addition to the header line
+            m_skip++;
+        }
+        return m_headerRow;
+    }
+
+    /**
+     * Read up to the configured number of records, not counting blank lines.
+     *
+     * @param limit   the most records to read, used to honor --limitrows
+     * @return the chunk, or null at the end of input
+     */
+    Chunk readChunk(long limit) throws IOException {
+        if (m_header) {
+            readHeader();
+        }
+        StringBuilder text = null;
+        long firstLineNumber = 0;
+        int records = 0;
+        String line;
+        while (records < Math.min(limit, m_chunkRows) && (line = readLine()) != null) {
+            if (m_lineNumber <= m_skip) {
+                continue;
+            }
+            if (text == null) {
+                text = new StringBuilder();
+                firstLineNumber = m_lineNumber;
+            }
+            if (line.trim().isEmpty()) {
+                text.append(line).append('\n');
+                continue;
+            }
+            appendRecord(text, line);
+            records++;
+        }
+        return text == null ? null : new Chunk(text.toString(), firstLineNumber, records);
+    }
+
+    /**
+     * @return the number of input lines consumed so far
+     */
+    long getLineNumber() {
+        return m_lineNumber;
+    }
+
+    private String readLine() throws IOException {
+        if (m_eof) {
+            return null;
+        }
+        String line = m_reader.readLine();
+        if (line == null) {
+            m_eof = true;
+        } else {
+            m_lineNumber++;
+        }
+        return line;
+    }
+
+    /**
+     * Append the record starting with firstLine, and any further lines it spans.
+     */
+    private void appendRecord(StringBuilder text, String firstLine) throws IOException {
+        m_inQuotes = false;
+        m_expectQuote = m_strictQuotes;
+        m_sawNewLineInQuotes = false;
+        m_columnLength = 0;
+        String line = firstLine;
+        while (true) {
+            text.append(line).append('\n');
+            if (endsRecord(line)) {
+                return;
+            }
+            if (m_columnLength > m_columnSizeLimit) {
+                // the tokenizer rejects the oversized column at this line end
+                return;
+            }
+            m_sawNewLineInQuotes = true;
+            m_columnLength++;
+            line = readLine();
+            if (line == null) {
+                // unterminated quote, the tokenizer reports it
+                return;
+            }
+        }
+    }
+
+    /**
+     * Scan one line of a record, carrying the quote state over from the previous line.
+     *
+     * @return true if the record ends with this line
+     */
+    private boolean endsRecord(String line) {
+        final int length = line.length();
+        for (int i = 0; i < length; i++) {
+            final char c = line.charAt(i);
+            if (m_inQuotes) {
+                if (m_sawNewLineInQuotes && m_columnLength > m_columnSizeLimit) {
+                    return true;
+                }
+                if (c == m_quoteChar) {
+                    if (i + 1 < length && line.charAt(i + 1) == m_quoteChar) {
+                        m_columnLength++;
+                        i++;
+                    } else {
+                        m_inQuotes = false;
+                        m_sawNewLineInQuotes = false;
+                        if (m_columnLength > m_columnSizeLimit) {
+                            return true;
+                        }
+                    }
+                } else {
+                    m_columnLength++;
+                }
+            } else if (c == m_escapeChar && !(i + 1 < length && line.charAt(i + 1) == 'N')) {
+                if (m_strictQuotes && m_expectQuote) {
+                    return true;
+                }
+                m_columnLength++;
+                i++;
+            } else if (c == m_delimiterChar) {
+                m_expectQuote = true;
+                m_columnLength = 0;
+            } else if (c == m_quoteChar) {
+                m_expectQuote = false;
+                m_inQuotes = true;
+            } else if (c != ' ' && m_strictQuotes && m_expectQuote) {
+                // the tokenizer throws away the rest of the line
+                return true;
+            } else {
+                m_columnLength++;
+            }
+        }
+        return !m_inQuotes;
+    }
+}
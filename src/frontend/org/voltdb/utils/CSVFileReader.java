@@ -16,17 +16,28 @@
  */
 package org.voltdb.utils;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.supercsv.exception.SuperCsvException;
+import org.supercsv.io.CsvListReader;
 import org.supercsv.io.ICsvListReader;
+import org.supercsv.prefs.CsvPreference;
+import org.supercsv_voltpatches.tokenizer.Tokenizer;
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.VoltType;
 import org.voltdb.client.Client;
 import org.voltdb.common.Constants;
@@ -36,8 +47,10 @@ import com.google_voltpatches.common.collect.HashBiMap;
 
 /**
  *
- * This is a single thread reader which feeds the lines after validating syntax
- * to CSVDataLoader.
+ * This reader feeds the lines after validating syntax to CSVDataLoader. It
+ * either tokenizes the input on its own thread, or splits the input into
+ * chunks of whole records that a pool of --parsers threads tokenize,
+ * validate and hand to the loader in parallel.
  *
  */
 class CSVFileReader implements Runnable {
@@ -54,11 +67,16 @@ class CSVFileReader implements Runnable {
             "Whitespace detected in column %d while --nowhitespace is used. " +
             "To proceed, either remove the whitespaces from the column or remove --nowhitespace.";
 
+    /** Records per chunk handed to a parser thread */
+    private static final int CHUNK_ROWS = Integer.getInteger("CSVLOADER_CHUNK_ROWS", 5000);
+
     static AtomicLong m_totalRowCount = new AtomicLong(0);
     static AtomicLong m_totalLineCount = new AtomicLong(0);
     static CSVLoader.CSVConfig m_config = null;
     static Client m_csvClient = null;
     static ICsvListReader m_listReader = null;
+    static BufferedReader m_chunkInput = null;
+    static CsvPreference m_csvPreference = null;
     long m_parsingTime = 0;
     private static final Map<VoltType, String> m_blankStrings = new EnumMap<VoltType, String>(VoltType.class);
     private static final VoltLogger m_log = new VoltLogger("CSVLOADER");
@@ -85,6 +103,36 @@ class CSVFileReader implements Runnable {
         m_config = config;
         m_csvClient = csvClient;
         m_listReader = reader;
+        m_chunkInput = null;
+    }
+
+    /**
+     * Read the input in chunks on a pool of parser threads.
+     */
+    public static void initializeParallelReader(CSVLoader.CSVConfig config, Client csvClient,
+            CsvPreference preference, BufferedReader input) {
+        m_config = config;
+        m_csvClient = csvClient;
+        m_listReader = null;
+        m_chunkInput = input;
+        m_csvPreference = preference;
+    }
+
+    /**
+     * Whether the rows of the given configuration may be loaded by several parser
+     * threads. Rows then reach the database out of file order, which changes the
+     * outcome of --update for repeated keys, and of procedures that depend on the
+     * order of their invocations.
+     */
+    public static boolean canParseInParallel(CSVLoader.CSVConfig config) {
+        return config.parsers > 1 && !config.update && !config.useSuppliedProcedure;
+    }
+
+    static ICsvListReader newListReader(Reader reader, CSVLoader.CSVConfig config, CsvPreference preference,
+            long skip, boolean header) {
+        Tokenizer tokenizer = new Tokenizer(reader, preference, config.strictquotes, config.escape,
+                config.columnsizelimit, skip, header);
+        return new CsvListReader(tokenizer, preference);
     }
 
     public CSVFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler)    {
@@ -96,6 +144,24 @@ class CSVFileReader implements Runnable {
 
     @Override
     public void run() {
+        if (m_chunkInput != null) {
+            runParallel();
+        } else {
+            runSerial();
+        }
+
+        //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
+        try {
+            m_log.debug("Waiting for CSVDataLoader to finish.");
+            m_loader.close();
+            m_log.debug("CSVDataLoader Done.");
+        } catch (Exception ex) {
+            m_log.warn("Stopped processing because of connection error. "
+                    + "A report will be generated with what we processed so far. Error: " + ex);
+        }
+    }
+
+    private void runSerial() {
         List<String> lineList;
 
         //if header option is true, check whether csv first line is valid
@@ -169,56 +235,181 @@ class CSVFileReader implements Runnable {
                 break;
             }
         }
+    }
+
+    private void runParallel() {
+        final CSVChunkReader chunkReader = new CSVChunkReader(m_chunkInput, m_config, CHUNK_ROWS);
+        final AtomicLong parsingTime = new AtomicLong(0);
+        ExecutorService parsers = Executors.newFixedThreadPool(m_config.parsers,
+                CoreUtils.getThreadFactory("CSVParser"));
+        // Bound the chunks read ahead of the parsers
+        final Semaphore pendingChunks = new Semaphore(m_config.parsers * 2);
 
-        //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
         try {
-            m_log.debug("Waiting for CSVDataLoader to finish.");
-            m_loader.close();
-            m_log.debug("CSVDataLoader Done.");
-        } catch (Exception ex) {
-            m_log.warn("Stopped processing because of connection error. "
-                    + "A report will be generated with what we processed so far. Error: " + ex);
+            //if header option is true, check whether csv first line is valid
+            if (m_config.header) {
+                String headerRow = chunkReader.readHeader();
+                if (headerRow == null || !checkHeader(headerRow)) {
+                    m_log.error("In the CSV file " + m_config.file + ", the header "+ headerRow +" does not match "
+                            + "an existing column in the table " + m_config.table + ".");
+                    System.exit(-1);
+                }
+            }
+
+            while (m_config.limitrows-- > 0) {
+                if (m_errHandler.hasReachedErrorLimit()) {
+                    break;
+                }
+                long st = System.nanoTime();
+                final CSVChunkReader.Chunk chunk = chunkReader.readChunk(m_config.limitrows + 1);
+                parsingTime.addAndGet(System.nanoTime() - st);
+                if (chunk == null) {
+                    break;
+                }
+                m_config.limitrows -= chunk.m_records - 1;
+                m_totalLineCount.set(chunkReader.getLineNumber());
+
+                pendingChunks.acquire();
+                parsers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            parseChunk(chunk, parsingTime);
+                        } finally {
+                            pendingChunks.release();
+                        }
+                    }
+                });
+            }
+        } catch (IOException ex) {
+            m_log.error("Failed to read CSV line from file: " + ex);
+        } catch (InterruptedException e) {
+            m_log.error("CSVLoader interrupted: " + e);
+        } finally {
+            parsers.shutdown();
+            try {
+                parsers.awaitTermination(365, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                m_log.error("CSVLoader interrupted: " + e);
+            }
         }
+        // Report the parsing time per thread
+        m_parsingTime = parsingTime.get() / m_config.parsers;
     }
 
-    private boolean checkHeader() {
-        try {
-            String[] firstline = m_listReader.getHeader(false);
-            Set<String> firstset = new HashSet<String>();
-            BiMap<Integer, String> colNames = HashBiMap.create(m_loader.getColumnNames());
-            headerlen = firstline.length;
-            // remove duplicate.
-            for (String name : firstline) {
-                if (name != null) {
-                    firstset.add(name.toUpperCase());
-                } else {
-                    return false;
+    /**
+     * Tokenize and validate the records of one chunk and insert them, on a parser thread.
+     */
+    private void parseChunk(CSVChunkReader.Chunk chunk, AtomicLong parsingTime) {
+        ICsvListReader listReader = newListReader(new StringReader(chunk.m_text), m_config,
+                m_csvPreference, 0, false);
+        final long lineOffset = chunk.m_firstLineNumber - 1;
+        List<String> lineList;
+        while (!m_errHandler.hasReachedErrorLimit()) {
+            // line number of the end of the previous record
+            long previousLine = lineOffset + listReader.getLineNumber();
+            try {
+                long st = System.nanoTime();
+                lineList = listReader.read();
+                parsingTime.addAndGet(System.nanoTime() - st);
+                if (lineList == null) {
+                    break;
                 }
-            }
-            // whether column num matches.
-            if (headerlen < m_columnCount) {
-                return false;
-            } else {
-                // whether column name has according table column.
-                int matchColCount = 0;
-                for (String name : firstset) {
-                    if (colNames.containsValue(name)) {
-                        matchColCount++;
+                m_totalRowCount.incrementAndGet();
+
+                if (lineList.isEmpty()) {
+                    continue;
+                }
+
+                String[] lineValues = lineList.toArray(new String[0]);
+                String lineCheckResult;
+                String[] reorderValues = new String[m_columnCount];
+                if ((lineCheckResult = checkparams_trimspace_reorder(lineValues, reorderValues)) != null) {
+                    final RowWithMetaData metaData
+                            = new RowWithMetaData(listReader.getUntokenizedRow(), previousLine + 1);
+                    if (m_errHandler.handleError(metaData, null, lineCheckResult)) {
+                        break;
                     }
+                    continue;
                 }
-                if (matchColCount != m_columnCount) {
-                    return false;
+
+                RowWithMetaData lineData
+                        = new RowWithMetaData(listReader.getUntokenizedRow(),
+                                lineOffset + listReader.getLineNumber());
+                m_loader.insertRow(lineData, reorderValues);
+            } catch (SuperCsvException e) {
+                final RowWithMetaData metaData
+                        = new RowWithMetaData(listReader.getUntokenizedRow(), previousLine + 1);
+                if (m_errHandler.handleError(metaData, null, e.getMessage())) {
+                    break;
                 }
+            } catch (IOException ex) {
+                m_log.error("Failed to read CSV line from chunk: " + ex);
+                break;
+            } catch (InterruptedException e) {
+                m_log.error("CSVLoader interrupted: " + e);
+                break;
             }
-            // get the mapping from file column num to table column num.
-            order = new Integer[headerlen];
-            for (int fileCol = 0; fileCol < headerlen; fileCol++) {
-                String name = firstline[fileCol];
-                Integer tableCol = colNames.inverse().get(name.toUpperCase());
-                order[fileCol] = tableCol;
-            }
+        }
+    }
+
+    private boolean checkHeader() {
+        try {
+            return checkHeader(m_listReader.getHeader(false));
+        } catch (IOException ex) {
+            m_log.error("Failed to read CSV line from file: " + ex);
+        }
+        return true;
+    }
+
+    private boolean checkHeader(String headerRow) {
+        try {
+            return checkHeader(newListReader(new StringReader(headerRow), m_config, m_csvPreference, 0, false)
+                    .getHeader(false));
         } catch (IOException ex) {
             m_log.error("Failed to read CSV line from file: " + ex);
+        } catch (SuperCsvException ex) {
+            m_log.error("Failed to read CSV header: " + ex.getMessage());
+        }
+        return false;
+    }
+
+    private boolean checkHeader(String[] firstline) {
+        if (firstline == null) {
+            return false;
+        }
+        Set<String> firstset = new HashSet<String>();
+        BiMap<Integer, String> colNames = HashBiMap.create(m_loader.getColumnNames());
+        headerlen = firstline.length;
+        // remove duplicate.
+        for (String name : firstline) {
+            if (name != null) {
+                firstset.add(name.toUpperCase());
+            } else {
+                return false;
+            }
+        }
+        // whether column num matches.
+        if (headerlen < m_columnCount) {
+            return false;
+        } else {
+            // whether column name has according table column.
+            int matchColCount = 0;
+            for (String name : firstset) {
+                if (colNames.containsValue(name)) {
+                    matchColCount++;
+                }
+            }
+            if (matchColCount != m_columnCount) {
+                return false;
+            }
+        }
+        // get the mapping from file column num to table column num.
+        order = new Integer[headerlen];
+        for (int fileCol = 0; fileCol < headerlen; fileCol++) {
+            String name = firstline[fileCol];
+            Integer tableCol = colNames.inverse().get(name.toUpperCase());
+            order[fileCol] = tableCol;
         }
         return true;
     }
@@ -27,10 +27,8 @@ import java.io.InputStreamReader;
 import java.util.TimeZone;
 import java.util.concurrent.LinkedBlockingQueue;
 
-import org.supercsv.io.CsvListReader;
 import org.supercsv.io.ICsvListReader;
 import org.supercsv.prefs.CsvPreference;
-import org.supercsv_voltpatches.tokenizer.Tokenizer;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.CLIConfig;
 import org.voltdb.client.Client;
@@ -305,6 +303,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
         @Option(desc = "First line of csv file is column name.", hasArg = false)
         boolean header = DEFAULT_HEADER;
 
+        @Option(desc = "number of threads parsing the input when loading a table without --update (default: number of cores)")
+        int parsers = Runtime.getRuntime().availableProcessors();
+
         /**
          * Table name to insert CSV data into.
          */
@@ -341,6 +342,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
             if (batch < 0) {
                 exitWithMessageAndUsage("batch size number must be >= 0");
             }
+            if (parsers < 1) {
+                exitWithMessageAndUsage("number of parsers must be >= 1");
+            }
             if(!customNullString.isEmpty() && !blank.equals("error")){
                 blank = "empty";
             }
@@ -406,19 +410,17 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
 
         configuration();
-        final Tokenizer tokenizer;
+        BufferedReader input = null;
         ICsvListReader listReader = null;
         try {
             if (CSVLoader.standin) {
-                tokenizer = new Tokenizer(new BufferedReader(new InputStreamReader(System.in)), csvPreference,
-                        config.strictquotes, config.escape, config.columnsizelimit,
-                        config.skip, config.header);
-                listReader = new CsvListReader(tokenizer, csvPreference);
+                input = new BufferedReader(new InputStreamReader(System.in));
             } else {
-                tokenizer = new Tokenizer(new FileReader(config.file), csvPreference,
-                        config.strictquotes, config.escape, config.columnsizelimit,
+                input = new BufferedReader(new FileReader(config.file));
+            }
+            if (!CSVFileReader.canParseInParallel(config)) {
+                listReader = CSVFileReader.newListReader(input, config, csvPreference,
                         config.skip, config.header);
-                listReader = new CsvListReader(tokenizer, csvPreference);
             }
         } catch (FileNotFoundException e) {
             m_log.error("CSV file '" + config.file + "' could not be found.");
@@ -460,7 +462,11 @@ public class CSVLoader implements BulkLoaderErrorHandler {
                 dataLoader = new CSVBulkDataLoader((ClientImpl) csvClient, config.table, config.batch, config.update, errHandler);
             }
 
-            CSVFileReader.initializeReader(cfg, csvClient, listReader);
+            if (listReader != null) {
+                CSVFileReader.initializeReader(cfg, csvClient, listReader);
+            } else {
+                CSVFileReader.initializeParallelReader(cfg, csvClient, csvPreference, input);
+            }
 
             CSVFileReader csvReader = new CSVFileReader(dataLoader, errHandler);
 
@@ -485,7 +491,11 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             //Close the reader.
             try {
-               listReader.close();
+                if (listReader != null) {
+                    listReader.close();
+                } else {
+                    input.close();
+                }
             } catch (Exception ex) {
                 m_log.error("Error closing reader: " + ex);
             } finally {
@@ -70,6 +70,7 @@ import org.mindrot.BCrypt;
 import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.Pair;
+import org.voltdb.GroupCommitCommandLog;
 import org.voltdb.ResourceUsageMonitor;
 import org.voltdb.SystemProcedureCatalog;
 import org.voltdb.VoltDB;
@@ -100,6 +101,7 @@ import org.voltdb.client.ClientAuthScheme;
 import org.voltdb.common.Constants;
 import org.voltdb.compiler.VoltCompiler;
 import org.voltdb.compiler.deploymentfile.AdminModeType;
+import org.voltdb.compiler.deploymentfile.AdmissionType;
 import org.voltdb.compiler.deploymentfile.ClusterType;
 import org.voltdb.compiler.deploymentfile.CommandLogType;
 import org.voltdb.compiler.deploymentfile.CommandLogType.Frequency;
@@ -954,6 +956,16 @@ public abstract class CatalogUtil {
             tt = new SystemSettingsType.Temptables();
             ss.setTemptables(tt);
         }
+        SystemSettingsType.Sitequeue sq = ss.getSitequeue();
+        if (sq == null) {
+            sq = new SystemSettingsType.Sitequeue();
+            ss.setSitequeue(sq);
+        }
+        AdmissionType admission = ss.getAdmission();
+        if (admission == null) {
+            admission = new AdmissionType();
+            ss.setAdmission(admission);
+        }
         ResourceMonitorType rm = ss.getResourcemonitor();
         if (rm == null) {
             rm = new ResourceMonitorType();
@@ -1763,7 +1775,7 @@ public abstract class CatalogUtil {
     }
 
     public static void setupCommandLog(PathsType.Commandlog paths, File voltDbRoot) {
-        if (!VoltDB.instance().getConfig().m_isEnterprise) {
+        if (!VoltDB.instance().getConfig().m_isEnterprise && !GroupCommitCommandLog.ENABLED) {
             // dumb defaults if you ask for logging in community version
             return;
         }
@@ -1786,7 +1798,7 @@ public abstract class CatalogUtil {
     }
 
     public static void setupCommandLogSnapshot(PathsType.Commandlogsnapshot paths, File voltDbRoot) {
-        if (!VoltDB.instance().getConfig().m_isEnterprise) {
+        if (!VoltDB.instance().getConfig().m_isEnterprise && !GroupCommitCommandLog.ENABLED) {
             // dumb defaults if you ask for logging in community version
             new VoltFile(voltDbRoot, "command_log_snapshot");
             return;
@@ -30,18 +30,66 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Objects placed in the deque are stored in file segments that are up to 64 megabytes.
  * Segments only support appending objects. A segment will throw an IOException if an attempt
  * to insert an object that exceeds the remaining space is made. A segment can be used
  * for reading and writing, but not both at the same time.
+ *
+ * With -DPBD_MAPPED_READS=true a segment that was opened only for reading is mapped
+ * into memory on the first poll and all of its cursors read from that one mapping.
+ * Uncompressed entries are returned as read only slices of the mapping and compressed
+ * entries are decompressed straight from it into the caller's container. The tail
+ * segment is still open for writing while it is read, so it always uses the channel.
  */
 public class PBDRegularSegment extends PBDSegment {
     private static final VoltLogger LOG = new VoltLogger("HOST");
 
+    // Not final so that tests can compare both read paths
+    static boolean s_mappedReads = Boolean.getBoolean("PBD_MAPPED_READS");
+    // Mappings created and mappings still holding their memory, for tests
+    static final AtomicInteger s_mappingsCreated = new AtomicInteger();
+    static final AtomicInteger s_liveMappings = new AtomicInteger();
+
+    /**
+     * A mapping of the whole segment file. The segment holds one reference while it
+     * is open and every slice handed out holds another, so the segment can be closed
+     * and deleted while slices of it are still in use.
+     */
+    private static class SegmentMapping {
+        private final DBBPool.MBBContainer m_cont;
+        private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+        SegmentMapping(DBBPool.MBBContainer cont) {
+            m_cont = cont;
+            s_mappingsCreated.incrementAndGet();
+            s_liveMappings.incrementAndGet();
+        }
+
+        ByteBuffer slice(int offset, int length) {
+            final ByteBuffer dup = m_cont.b().duplicate();
+            dup.limit(offset + length);
+            dup.position(offset);
+            return dup.slice();
+        }
+
+        void retain() {
+            m_refCount.incrementAndGet();
+        }
+
+        void release() {
+            if (m_refCount.decrementAndGet() == 0) {
+                m_cont.discard();
+                s_liveMappings.decrementAndGet();
+            }
+        }
+    }
+
     private final Map<String, SegmentReader> m_readCursors = new HashMap<>();
     private final Map<String, SegmentReader> m_closedCursors = new HashMap<>();
 
@@ -53,6 +101,10 @@ public class PBDRegularSegment extends PBDSegment {
 
     private DBBPool.BBContainer m_tmpHeaderBuf = null;
 
+    private boolean m_openForWrite = false;
+    // Created by the first poll of a segment that is only open for reading
+    private SegmentMapping m_mapping = null;
+
     public PBDRegularSegment(Long index, File file) {
         super(file);
         m_index = index;
@@ -157,6 +209,7 @@ public class PBDRegularSegment extends PBDSegment {
         assert(m_ras == null);
         m_ras = new RandomAccessFile( m_file, forWrite ? "rw" : "r");
         m_fc = m_ras.getChannel();
+        m_openForWrite = forWrite;
         m_tmpHeaderBuf = DBBPool.allocateDirect(SEGMENT_HEADER_BYTES);
 
         if (emptyFile) {
@@ -226,6 +279,10 @@ public class PBDRegularSegment extends PBDSegment {
 
     private void closeReadersAndFile() throws IOException {
         m_readCursors.clear();
+        if (m_mapping != null) {
+            m_mapping.release();
+            m_mapping = null;
+        }
         try {
             if (m_ras != null) {
                 m_ras.close();
@@ -238,6 +295,17 @@ public class PBDRegularSegment extends PBDSegment {
         }
     }
 
+    /**
+     * @return the mapping shared by the readers of this segment, or null if
+     * reads should go through the channel
+     */
+    private SegmentMapping mapping() throws IOException {
+        if (m_mapping == null && s_mappedReads && !m_openForWrite) {
+            m_mapping = new SegmentMapping(DBBPool.wrapMBB(m_fc.map(MapMode.READ_ONLY, 0, m_fc.size())));
+        }
+        return m_mapping;
+    }
+
     @Override
     public void sync() throws IOException {
         if (m_closed) throw new IOException("Segment closed");
@@ -398,6 +466,11 @@ public class PBDRegularSegment extends PBDSegment {
                 return null;
             }
 
+            final SegmentMapping mapping = mapping();
+            if (mapping != null) {
+                return pollMapped(mapping, factory);
+            }
+
             final long writePos = m_fc.position();
             m_fc.position(m_readOffset);
 
@@ -455,26 +528,83 @@ public class PBDRegularSegment extends PBDSegment {
                 m_bytesRead += uncompressedLen;
                 m_objectReadIndex++;
 
-                return new DBBPool.BBContainer(retcont.b()) {
-                    private boolean m_discarded = false;
+                return wrapRetCont(retcont);
+            } finally {
+                m_readOffset = m_fc.position();
+                m_fc.position(writePos);
+            }
+        }
+
+        private BBContainer pollMapped(final SegmentMapping mapping, OutputContainerFactory factory) throws IOException {
+            final ByteBuffer map = mapping.m_cont.b();
+            final int headerOffset = (int)m_readOffset;
+            if (headerOffset + OBJECT_HEADER_BYTES > map.limit()) {
+                throw new EOFException();
+            }
+            final int length = map.getInt(headerOffset);
+            final int flags = map.getInt(headerOffset + 4);
+            final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+            final int uncompressedLen;
+
+            if (length < 1) {
+                throw new IOException("Read an invalid length");
+            }
+            final int entryOffset = headerOffset + OBJECT_HEADER_BYTES;
+            if (entryOffset + length > map.limit()) {
+                throw new EOFException();
+            }
 
+            final ByteBuffer entry = mapping.slice(entryOffset, length);
+            final DBBPool.BBContainer retcont;
+            if (compressed) {
+                uncompressedLen = CompressionService.uncompressedLength(entry.duplicate());
+                retcont = factory.getContainer(uncompressedLen);
+                retcont.b().limit(uncompressedLen);
+                boolean decompressed = false;
+                try {
+                    CompressionService.decompressBuffer(entry, retcont.b());
+                    decompressed = true;
+                } finally {
+                    if (!decompressed) {
+                        retcont.discard();
+                    }
+                }
+            } else {
+                uncompressedLen = length;
+                mapping.retain();
+                retcont = new DBBPool.BBContainer(entry) {
                     @Override
                     public void discard() {
                         checkDoubleFree();
-                        if (m_discarded) {
-                            LOG.error("PBD Container discarded more than once");
-                            return;
-                        }
-
-                        m_discarded = true;
-                        retcont.discard();
-                        m_discardCount++;
+                        mapping.release();
                     }
                 };
-            } finally {
-                m_readOffset = m_fc.position();
-                m_fc.position(writePos);
             }
+
+            m_readOffset = entryOffset + length;
+            m_bytesRead += uncompressedLen;
+            m_objectReadIndex++;
+
+            return wrapRetCont(retcont);
+        }
+
+        private BBContainer wrapRetCont(final BBContainer retcont) {
+            return new DBBPool.BBContainer(retcont.b()) {
+                private boolean m_discarded = false;
+
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    if (m_discarded) {
+                        LOG.error("PBD Container discarded more than once");
+                        return;
+                    }
+
+                    m_discarded = true;
+                    retcont.discard();
+                    m_discardCount++;
+                }
+            };
         }
 
         @Override
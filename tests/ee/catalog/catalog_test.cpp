@@ -1098,6 +1098,32 @@ TEST_F(CatalogTest, HexDecode) {
     Catalog::hexDecodeString(val, output);
     output[len / 2] = '\0';
 }
+
+TEST_F(CatalogTest, SharedCommands) {
+    const string stmts =
+        "add / clusters cluster"
+        "\nadd /clusters#cluster databases database";
+
+    CatalogCommands::Shared first(stmts);
+    CatalogCommands::Shared second(stmts);
+    EXPECT_EQ(&*first, &*second);
+    EXPECT_EQ(2, first->commands().size());
+
+    // Two catalogs built from the same parsed commands are independent.
+    Catalog one;
+    Catalog two;
+    one.execute(*first);
+    two.execute(*second);
+    EXPECT_TRUE(one.clusters().get("cluster")->databases().get("database") != NULL);
+    EXPECT_TRUE(two.clusters().get("cluster")->databases().get("database") != NULL);
+    EXPECT_TRUE(one.clusters().get("cluster") != two.clusters().get("cluster"));
+
+    // A different payload is parsed on its own.
+    CatalogCommands::Shared other("add / clusters cluster");
+    EXPECT_TRUE(&*other != &*first);
+    EXPECT_EQ(1, other->commands().size());
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
@@ -0,0 +1,345 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "catalog/cluster.h"
+#include "catalog/constraint.h"
+#include "catalog/database.h"
+#include "catalog/table.h"
+#include "common/value_defs.h"
+#include "storage/persistenttable.h"
+#include "storage/temptable.h"
+#include "test_utils/plan_testing_config.h"
+#include "test_utils/LoadTableFrom.hpp"
+#include "test_utils/plan_testing_baseclass.h"
+
+#include <cstdio>
+#include <sstream>
+#include <string>
+#include <sys/time.h>
+#include <vector>
+
+/*
+ * Times
+ *     select * from AAA join BBB on AAA.A = BBB.A;
+ * planned as a NESTLOOP and as a HASHJOIN over growing tables without
+ * indexes. Every outer row matches exactly one inner row, so both joins
+ * return as many rows as the outer table has.
+ */
+namespace {
+
+extern DBConfig emptyDB;
+
+// Both tables grow to each of these sizes in turn. The nested loop is
+// quadratic, so debug builds stop early.
+#ifdef NDEBUG
+const int SCALES[] = { 1000, 4000, 16000 };
+#else
+const int SCALES[] = { 1000, 4000 };
+#endif
+const int RUNS = 3;
+
+int64_t getMicrosNow() {
+    timeval tv;
+    gettimeofday(&tv, NULL);
+    return tv.tv_sec * 1000000 + tv.tv_usec;
+}
+
+std::string tupleValue(int columnIdx, int tableIdx = 0) {
+    std::ostringstream out;
+    out << "{\"COLUMN_IDX\": " << columnIdx << ", ";
+    if (tableIdx != 0) {
+        out << "\"TABLE_IDX\": " << tableIdx << ", ";
+    }
+    out << "\"TYPE\": 32, \"VALUE_TYPE\": 5}";
+    return out.str();
+}
+
+std::string outputSchema(int numCols) {
+    static const char *names[] = { "A", "B", "C" };
+    std::ostringstream out;
+    out << "[";
+    for (int col = 0; col < numCols; col += 1) {
+        out << (col == 0 ? "" : ", ")
+            << "{\"COLUMN_NAME\": \"" << names[col % 3] << "\", "
+            << "\"EXPRESSION\": " << tupleValue(col) << "}";
+    }
+    out << "]";
+    return out.str();
+}
+
+std::string seqScan(int id, const char *tableName) {
+    std::ostringstream out;
+    out << "{\"ID\": " << id << ", "
+        << "\"INLINE_NODES\": [{\"ID\": " << id + 1 << ", "
+        << "\"OUTPUT_SCHEMA\": " << outputSchema(3) << ", "
+        << "\"PLAN_NODE_TYPE\": \"PROJECTION\"}], "
+        << "\"PLAN_NODE_TYPE\": \"SEQSCAN\", "
+        << "\"TARGET_TABLE_ALIAS\": \"" << tableName << "\", "
+        << "\"TARGET_TABLE_NAME\": \"" << tableName << "\"}";
+    return out.str();
+}
+
+std::string joinPlan(bool hash) {
+    std::ostringstream out;
+    out << "{\"EXECUTE_LIST\": [3, 5, 2, 1], "
+        << "\"PLAN_NODES\": ["
+        << "{\"CHILDREN_IDS\": [2], \"ID\": 1, \"PLAN_NODE_TYPE\": \"SEND\"}, "
+        << "{\"CHILDREN_IDS\": [3, 5], \"ID\": 2, ";
+    if (hash) {
+        out << "\"INNER_HASH_EXPRESSIONS\": [" << tupleValue(0, 1) << "], ";
+    }
+    out << "\"JOIN_PREDICATE\": {\"LEFT\": " << tupleValue(0) << ", "
+        << "\"RIGHT\": " << tupleValue(0, 1) << ", "
+        << "\"TYPE\": " << voltdb::EXPRESSION_TYPE_COMPARE_EQUAL << ", "
+        << "\"VALUE_TYPE\": 23}, "
+        << "\"JOIN_TYPE\": \"INNER\", ";
+    if (hash) {
+        out << "\"NOT_DISTINCT_KEYS\": [], "
+            << "\"OUTER_HASH_EXPRESSIONS\": [" << tupleValue(0) << "], ";
+    }
+    out << "\"OUTPUT_SCHEMA\": " << outputSchema(6) << ", "
+        << "\"PLAN_NODE_TYPE\": \"" << (hash ? "HASHJOIN" : "NESTLOOP") << "\", "
+        << "\"PRE_JOIN_PREDICATE\": null, "
+        << "\"WHERE_PREDICATE\": null}, "
+        << seqScan(3, "AAA") << ", "
+        << seqScan(5, "BBB")
+        << "]}";
+    return out.str();
+}
+
+}
+
+class HashJoinBenchmark : public PlanTestingBaseClass<EngineTestTopend> {
+public:
+    HashJoinBenchmark() : m_numRows(0) {
+        initialize(emptyDB, (uint32_t)time(NULL));
+    }
+
+protected:
+    // Add rows to both tables until they hold nRows each
+    void growTables(int nRows) {
+        std::vector<int32_t> values;
+        for (int row = m_numRows; row < nRows; row += 1) {
+            values.push_back(row);
+            values.push_back(row % 100);
+            values.push_back(nRows - row);
+        }
+        initializeTableOfInt("AAA", NULL, NULL, nRows - m_numRows, 3, &values[0]);
+        initializeTableOfInt("BBB", NULL, NULL, nRows - m_numRows, 3, &values[0]);
+        m_numRows = nRows;
+    }
+
+    // Best of RUNS executions of the join, in microseconds
+    int64_t timeJoin(bool hash) {
+        const std::string plan = joinPlan(hash);
+        int64_t best = -1;
+        for (int run = 0; run < RUNS; run += 1) {
+            // Results are appended to the buffer until it is reset
+            m_engine->resetReusedResultOutputBuffer();
+            const int64_t start = getMicrosNow();
+            executeFragment(m_fragmentNumber++, plan.c_str());
+            const int64_t elapsed = getMicrosNow() - start;
+            if (best < 0 || elapsed < best) {
+                best = elapsed;
+            }
+            EXPECT_EQ(m_numRows, resultRowCount());
+        }
+        return best;
+    }
+
+    int resultRowCount() {
+        boost::scoped_ptr<voltdb::TempTable> result(
+                voltdb::loadTableFrom(m_result_buffer.get(), m_engine->getResultsSize()));
+        voltdb::TableTuple tuple(result->schema());
+        voltdb::TableIterator &iter = result->iterator();
+        int count = 0;
+        while (iter.next(tuple)) {
+            count += 1;
+        }
+        return count;
+    }
+
+    int m_numRows;
+};
+
+TEST_F(HashJoinBenchmark, EquiJoinWithoutIndex) {
+    printf("\n%10s %16s %16s %10s\n", "rows", "nestloop (us)", "hashjoin (us)", "speedup");
+    for (int i = 0; i < sizeof(SCALES) / sizeof(SCALES[0]); i += 1) {
+        growTables(SCALES[i]);
+        const int64_t nestLoop = timeJoin(false);
+        const int64_t hashJoin = timeJoin(true);
+        printf("%10d %16lld %16lld %9.1fx\n", m_numRows,
+               (long long)nestLoop, (long long)hashJoin,
+               (double)nestLoop / (double)(hashJoin > 0 ? hashJoin : 1));
+    }
+}
+
+namespace {
+
+const char *catalogString =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 0\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno 0\n"
+    "set $PREV jsonapi false\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV adminport 0\n"
+    "set $PREV adminstartup false\n"
+    "set $PREV heartbeatTimeout 0\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled false\n"
+    "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 0\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"eJy1TkEOgDAIu/saVljZrhr9/5MEs5ubN9NAAqUtNAcvF4gbC8GDFWIlAWEno1dv7K5urrpvnEuQWEk0JJUlBHWehBYlOT8WZ17SwwY4BoMloy8m9/07ePz7U/ANeEhGWQ==\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables AAA\n"
+    "set /clusters#cluster/databases#database/tables#AAA isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"AAA|iii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns A\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns B\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns C\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#C index 2\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"C\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database tables BBB\n"
+    "set /clusters#cluster/databases#database/tables#BBB isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"BBB|iii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns A\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns B\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns C\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#C index 2\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"C\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database procedures testplanseegenerator\n"
+    "set /clusters#cluster/databases#database/procedures#testplanseegenerator classname \"\"\n"
+    "set $PREV readonly false\n"
+    "set $PREV singlepartition false\n"
+    "set $PREV everysite false\n"
+    "set $PREV systemproc false\n"
+    "set $PREV defaultproc false\n"
+    "set $PREV hasjava false\n"
+    "set $PREV hasseqscans false\n"
+    "set $PREV language \"\"\n"
+    "set $PREV partitiontable null\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV partitionparameter 0\n"
+    "";
+
+// Both tables start empty and are filled by the fixture
+DBConfig emptyDB = {
+    "",
+    catalogString,
+    0,
+    NULL
+};
+
+}
+
+int main() {
+     return TestSuite::globalInstance()->runAll();
+}
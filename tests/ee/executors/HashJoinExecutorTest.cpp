@@ -0,0 +1,484 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "catalog/cluster.h"
+#include "catalog/constraint.h"
+#include "catalog/database.h"
+#include "catalog/table.h"
+#include "common/value_defs.h"
+#include "storage/persistenttable.h"
+#include "storage/temptable.h"
+#include "test_utils/plan_testing_config.h"
+#include "test_utils/LoadTableFrom.hpp"
+#include "test_utils/plan_testing_baseclass.h"
+
+#include <algorithm>
+#include <sstream>
+#include <string>
+#include <vector>
+
+/*
+ * These tests run hand written HASHJOIN plans of
+ *     select * from AAA <join type> join BBB on AAA.A <op> BBB.A;
+ * where <op> is = or IS NOT DISTINCT FROM. The hash join does not
+ * promise any particular order of the inner rows for a key, so the
+ * results are compared as sorted rows.
+ */
+namespace {
+
+const int32_t NULL_INT = INT32_NULL;
+
+extern DBConfig hashJoinDB;
+extern DBConfig largeInnerDB;
+
+std::string tupleValue(int columnIdx, int tableIdx = 0) {
+    std::ostringstream out;
+    out << "{\"COLUMN_IDX\": " << columnIdx << ", ";
+    if (tableIdx != 0) {
+        out << "\"TABLE_IDX\": " << tableIdx << ", ";
+    }
+    out << "\"TYPE\": 32, \"VALUE_TYPE\": 5}";
+    return out.str();
+}
+
+std::string outputSchema(int numCols) {
+    static const char *names[] = { "A", "B", "C" };
+    std::ostringstream out;
+    out << "[";
+    for (int col = 0; col < numCols; col += 1) {
+        out << (col == 0 ? "" : ", ")
+            << "{\"COLUMN_NAME\": \"" << names[col % 3] << "\", "
+            << "\"EXPRESSION\": " << tupleValue(col) << "}";
+    }
+    out << "]";
+    return out.str();
+}
+
+std::string seqScan(int id, const char *tableName) {
+    std::ostringstream out;
+    out << "{\"ID\": " << id << ", "
+        << "\"INLINE_NODES\": [{\"ID\": " << id + 1 << ", "
+        << "\"OUTPUT_SCHEMA\": " << outputSchema(3) << ", "
+        << "\"PLAN_NODE_TYPE\": \"PROJECTION\"}], "
+        << "\"PLAN_NODE_TYPE\": \"SEQSCAN\", "
+        << "\"TARGET_TABLE_ALIAS\": \"" << tableName << "\", "
+        << "\"TARGET_TABLE_NAME\": \"" << tableName << "\"}";
+    return out.str();
+}
+
+std::string hashJoinPlan(const char *joinType, bool notDistinct) {
+    std::ostringstream out;
+    out << "{\"EXECUTE_LIST\": [3, 5, 2, 1], "
+        << "\"PLAN_NODES\": ["
+        << "{\"CHILDREN_IDS\": [2], \"ID\": 1, \"PLAN_NODE_TYPE\": \"SEND\"}, "
+        << "{\"CHILDREN_IDS\": [3, 5], \"ID\": 2, "
+        << "\"INNER_HASH_EXPRESSIONS\": [" << tupleValue(0, 1) << "], "
+        << "\"JOIN_PREDICATE\": {\"LEFT\": " << tupleValue(0) << ", "
+        << "\"RIGHT\": " << tupleValue(0, 1) << ", "
+        << "\"TYPE\": " << (notDistinct ? voltdb::EXPRESSION_TYPE_COMPARE_NOTDISTINCT
+                                        : voltdb::EXPRESSION_TYPE_COMPARE_EQUAL) << ", "
+        << "\"VALUE_TYPE\": 23}, "
+        << "\"JOIN_TYPE\": \"" << joinType << "\", "
+        << "\"NOT_DISTINCT_KEYS\": [" << (notDistinct ? "0" : "") << "], "
+        << "\"OUTER_HASH_EXPRESSIONS\": [" << tupleValue(0) << "], "
+        << "\"OUTPUT_SCHEMA\": " << outputSchema(6) << ", "
+        << "\"PLAN_NODE_TYPE\": \"HASHJOIN\", "
+        << "\"PRE_JOIN_PREDICATE\": null, "
+        << "\"WHERE_PREDICATE\": null}, "
+        << seqScan(3, "AAA") << ", "
+        << seqScan(5, "BBB")
+        << "]}";
+    return out.str();
+}
+
+typedef std::vector<std::vector<int32_t> > RowList;
+
+RowList toRows(const int32_t *values, int nRows, int nCols) {
+    RowList rows;
+    for (int row = 0; row < nRows; row += 1) {
+        rows.push_back(std::vector<int32_t>(values + row * nCols, values + (row + 1) * nCols));
+    }
+    std::sort(rows.begin(), rows.end());
+    return rows;
+}
+
+}
+
+class HashJoinExecutorTest : public PlanTestingBaseClass<EngineTestTopend> {
+public:
+    HashJoinExecutorTest() {
+        initialize(hashJoinDB, (uint32_t)time(NULL));
+    }
+
+protected:
+    HashJoinExecutorTest(const DBConfig &db, int64_t tempTableMemoryLimit) {
+        initialize(db, (uint32_t)time(NULL), tempTableMemoryLimit);
+    }
+
+    void executeHashJoin(const char *joinType, bool notDistinct,
+                         const int32_t *answer, int nRows) {
+        std::string plan = hashJoinPlan(joinType, notDistinct);
+        executeFragment(m_fragmentNumber, plan.c_str());
+        validateUnorderedResult(answer, nRows, 6);
+    }
+
+    void validateUnorderedResult(const int32_t *answer, int nRows, int nCols) {
+        size_t result_size = m_engine->getResultsSize();
+        boost::scoped_ptr<voltdb::TempTable> result(voltdb::loadTableFrom(m_result_buffer.get(), result_size));
+        ASSERT_TRUE(result != NULL);
+        ASSERT_EQ(nCols, result->columnCount());
+
+        std::vector<int32_t> values;
+        voltdb::TableTuple tuple(result->schema());
+        voltdb::TableIterator &iter = result->iterator();
+        while (iter.next(tuple)) {
+            for (int col = 0; col < nCols; col += 1) {
+                values.push_back(voltdb::ValuePeeker::peekAsInteger(tuple.getNValue(col)));
+            }
+        }
+        ASSERT_EQ(nRows * nCols, (int)values.size());
+        ASSERT_TRUE(toRows(answer, nRows, nCols) == toRows(&values[0], nRows, nCols));
+    }
+};
+
+/*
+ * The inner table holds 60000 rows, the first one with a NULL key, and the
+ * temp table memory limit is low enough that the hash table would pass half
+ * of it, so the executor has to give up hashing part way through and join
+ * with a nested loop.
+ */
+class HashJoinExecutorFallbackTest : public HashJoinExecutorTest {
+public:
+    static const int NUM_INNER_ROWS = 60000;
+
+    HashJoinExecutorFallbackTest()
+        : HashJoinExecutorTest(largeInnerDB, 4 * 1024 * 1024) {
+        std::vector<int32_t> innerValues;
+        for (int row = 0; row < NUM_INNER_ROWS; row += 1) {
+            innerValues.push_back(row == 0 ? NULL_INT : row);
+            innerValues.push_back(2 * row);
+            innerValues.push_back(row + 1000);
+        }
+        initializeTableOfInt("BBB", NULL, NULL, NUM_INNER_ROWS, 3, &innerValues[0]);
+    }
+};
+
+TEST_F(HashJoinExecutorTest, InnerJoinSkipsNullKeys) {
+    const int32_t answer[] = {
+        1, 10, 100,  1, 11, 110,
+        1, 10, 100,  1, 12, 120,
+    };
+    executeHashJoin("INNER", false, answer, 2);
+}
+
+TEST_F(HashJoinExecutorTest, InnerJoinNotDistinctMatchesNullKeys) {
+    const int32_t answer[] = {
+        1, 10, 100,  1, 11, 110,
+        1, 10, 100,  1, 12, 120,
+        NULL_INT, 30, 300,  NULL_INT, 33, 330,
+    };
+    executeHashJoin("INNER", true, answer, 3);
+}
+
+TEST_F(HashJoinExecutorTest, LeftJoin) {
+    const int32_t answer[] = {
+        1, 10, 100,  1, 11, 110,
+        1, 10, 100,  1, 12, 120,
+        2, 20, 200,  NULL_INT, NULL_INT, NULL_INT,
+        NULL_INT, 30, 300,  NULL_INT, NULL_INT, NULL_INT,
+        4, 40, 400,  NULL_INT, NULL_INT, NULL_INT,
+    };
+    executeHashJoin("LEFT", false, answer, 5);
+}
+
+TEST_F(HashJoinExecutorTest, LeftJoinNotDistinct) {
+    const int32_t answer[] = {
+        1, 10, 100,  1, 11, 110,
+        1, 10, 100,  1, 12, 120,
+        2, 20, 200,  NULL_INT, NULL_INT, NULL_INT,
+        NULL_INT, 30, 300,  NULL_INT, 33, 330,
+        4, 40, 400,  NULL_INT, NULL_INT, NULL_INT,
+    };
+    executeHashJoin("LEFT", true, answer, 5);
+}
+
+TEST_F(HashJoinExecutorTest, FullJoin) {
+    const int32_t answer[] = {
+        1, 10, 100,  1, 11, 110,
+        1, 10, 100,  1, 12, 120,
+        2, 20, 200,  NULL_INT, NULL_INT, NULL_INT,
+        NULL_INT, 30, 300,  NULL_INT, NULL_INT, NULL_INT,
+        4, 40, 400,  NULL_INT, NULL_INT, NULL_INT,
+        NULL_INT, NULL_INT, NULL_INT,  NULL_INT, 33, 330,
+        NULL_INT, NULL_INT, NULL_INT,  3, 44, 440,
+    };
+    executeHashJoin("FULL", false, answer, 7);
+}
+
+TEST_F(HashJoinExecutorTest, FullJoinNotDistinct) {
+    const int32_t answer[] = {
+        1, 10, 100,  1, 11, 110,
+        1, 10, 100,  1, 12, 120,
+        2, 20, 200,  NULL_INT, NULL_INT, NULL_INT,
+        NULL_INT, 30, 300,  NULL_INT, 33, 330,
+        4, 40, 400,  NULL_INT, NULL_INT, NULL_INT,
+        NULL_INT, NULL_INT, NULL_INT,  3, 44, 440,
+    };
+    executeHashJoin("FULL", true, answer, 6);
+}
+
+TEST_F(HashJoinExecutorFallbackTest, LeftJoinFallsBackToNestLoop) {
+    const int32_t answer[] = {
+        5, 50, 500,  5, 10, 1005,
+        59999, 60, 600,  59999, 119998, 60999,
+        70000, 70, 700,  NULL_INT, NULL_INT, NULL_INT,
+        NULL_INT, 80, 800,  NULL_INT, NULL_INT, NULL_INT,
+    };
+    executeHashJoin("LEFT", false, answer, 4);
+}
+
+TEST_F(HashJoinExecutorFallbackTest, InnerJoinNotDistinctFallsBackToNestLoop) {
+    const int32_t answer[] = {
+        5, 50, 500,  5, 10, 1005,
+        59999, 60, 600,  59999, 119998, 60999,
+        NULL_INT, 80, 800,  NULL_INT, 0, 1000,
+    };
+    executeHashJoin("INNER", true, answer, 3);
+}
+
+namespace {
+
+const char *tableColumnNames[] = {
+    "A",
+    "B",
+    "C",
+};
+
+const int AAAData[] = {
+    1, 10, 100,
+    2, 20, 200,
+    NULL_INT, 30, 300,
+    4, 40, 400,
+};
+
+const int BBBData[] = {
+    1, 11, 110,
+    1, 12, 120,
+    NULL_INT, 33, 330,
+    3, 44, 440,
+};
+
+const int largeInnerAAAData[] = {
+    5, 50, 500,
+    59999, 60, 600,
+    70000, 70, 700,
+    NULL_INT, 80, 800,
+};
+
+const TableConfig AAAConfig = {
+    "AAA",
+    tableColumnNames,
+    4,
+    3,
+    AAAData
+};
+
+const TableConfig BBBConfig = {
+    "BBB",
+    tableColumnNames,
+    4,
+    3,
+    BBBData
+};
+
+const TableConfig largeInnerAAAConfig = {
+    "AAA",
+    tableColumnNames,
+    4,
+    3,
+    largeInnerAAAData
+};
+
+const TableConfig *allTables[] = {
+    &AAAConfig,
+    &BBBConfig,
+};
+
+// BBB is filled in by the fixture
+const TableConfig *largeInnerTables[] = {
+    &largeInnerAAAConfig,
+};
+
+const char *catalogString =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 0\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno 0\n"
+    "set $PREV jsonapi false\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV adminport 0\n"
+    "set $PREV adminstartup false\n"
+    "set $PREV heartbeatTimeout 0\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled false\n"
+    "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 0\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"eJy1TkEOgDAIu/saVljZrhr9/5MEs5ubN9NAAqUtNAcvF4gbC8GDFWIlAWEno1dv7K5urrpvnEuQWEk0JJUlBHWehBYlOT8WZ17SwwY4BoMloy8m9/07ePz7U/ANeEhGWQ==\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables AAA\n"
+    "set /clusters#cluster/databases#database/tables#AAA isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"AAA|iii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns A\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns B\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns C\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#C index 2\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"C\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database tables BBB\n"
+    "set /clusters#cluster/databases#database/tables#BBB isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"BBB|iii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns A\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns B\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns C\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#C index 2\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"C\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database procedures testplanseegenerator\n"
+    "set /clusters#cluster/databases#database/procedures#testplanseegenerator classname \"\"\n"
+    "set $PREV readonly false\n"
+    "set $PREV singlepartition false\n"
+    "set $PREV everysite false\n"
+    "set $PREV systemproc false\n"
+    "set $PREV defaultproc false\n"
+    "set $PREV hasjava false\n"
+    "set $PREV hasseqscans false\n"
+    "set $PREV language \"\"\n"
+    "set $PREV partitiontable null\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV partitionparameter 0\n"
+    "";
+
+DBConfig hashJoinDB = {
+    "",
+    catalogString,
+    2,
+    allTables
+};
+
+DBConfig largeInnerDB = {
+    "",
+    catalogString,
+    1,
+    largeInnerTables
+};
+
+}
+
+int main() {
+     return TestSuite::globalInstance()->runAll();
+}
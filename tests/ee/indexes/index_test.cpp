@@ -268,9 +268,8 @@ public:
     }
 
     void init(std::string name, TableIndexType type, std::vector<int32_t> &ix_columnIndices,
-              std::vector<ValueType> &ix_columnTypes, bool unique)
+              std::vector<ValueType> &ix_columnTypes, bool unique, bool countable = true)
     {
-        bool countable = true;
         TupleSchema *initiallyNullTupleSchema = NULL;
         TableIndexScheme index(name, type,
                                ix_columnIndices, TableIndex::simplyIndexColumns(),
@@ -1113,6 +1112,62 @@ TEST_F(IndexTest, ReentrantHashMultiple) {
     delete[] searchkey.address();
 }
 
+TEST_F(IndexTest, DistinctKeyEstimate) {
+    vector<int> ixm_column_indices;
+    vector<ValueType> ixm_column_types;
+    ixm_column_indices.push_back(2);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixm",
+         BALANCED_TREE_INDEX,
+         ixm_column_indices,
+         ixm_column_types,
+         false);
+
+    // column 2 holds i % 3, so the countable tree index has 3 keys
+    TableIndex* index = table->index("ixm");
+    EXPECT_TRUE(index != NULL);
+    EXPECT_EQ(3, index->getDistinctKeyEstimate());
+
+    // the unique primary key index holds one entry per key
+    EXPECT_EQ(NUM_OF_TUPLES, table->primaryKeyIndex()->getDistinctKeyEstimate());
+}
+
+TEST_F(IndexTest, DistinctKeyEstimateNotCountable) {
+    vector<int> ixm_column_indices;
+    vector<ValueType> ixm_column_types;
+    ixm_column_indices.push_back(1);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixm",
+         BALANCED_TREE_INDEX,
+         ixm_column_indices,
+         ixm_column_types,
+         false,
+         false);
+
+    // column 1 holds i % 2, so the first key alone has 500 entries.
+    // The scan stops after 256 of them and scales one key up to 1000 tuples.
+    TableIndex* index = table->index("ixm");
+    EXPECT_TRUE(index != NULL);
+    EXPECT_EQ(4, index->getDistinctKeyEstimate());
+}
+
+TEST_F(IndexTest, DistinctKeyEstimateHash) {
+    vector<int> ixh_column_indices;
+    vector<ValueType> ixh_column_types;
+    ixh_column_indices.push_back(1);
+    ixh_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixh",
+         HASH_TABLE_INDEX,
+         ixh_column_indices,
+         ixh_column_types,
+         false);
+
+    // column 1 holds i % 2
+    TableIndex* index = table->index("ixh");
+    EXPECT_TRUE(index != NULL);
+    EXPECT_EQ(2, index->getDistinctKeyEstimate());
+}
+
 
 int main()
 {
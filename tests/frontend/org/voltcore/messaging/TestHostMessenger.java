@@ -25,6 +25,7 @@ package org.voltcore.messaging;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -45,6 +46,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.voltcore.common.Constants;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.zk.CoreZK;
 import org.voltdb.StartAction;
 import org.voltdb.VoltDB;
@@ -53,6 +55,7 @@ import org.voltdb.probe.MeshProber;
 import org.voltdb.probe.MeshProber.Determination;
 
 import com.google_voltpatches.common.base.Supplier;
+import com.google_voltpatches.common.base.Suppliers;
 
 public class TestHostMessenger {
 
@@ -94,9 +97,15 @@ public class TestHostMessenger {
     }
 
     private HostMessenger createHostMessenger(int index, boolean start, int hostcount) throws Exception {
+        return createHostMessenger(index, start, hostcount, 0);
+    }
+
+    private HostMessenger createHostMessenger(int index, boolean start, int hostcount, int dataConnections)
+            throws Exception {
 
         assertTrue("index is bigger than hostcount", index < hostcount);
         final HostMessenger.Config config = new HostMessenger.Config();
+        config.dataConnections = dataConnections;
         String [] coordinators = IntStream.range(0, hostcount)
                 .mapToObj(i -> ":" + (i+config.internalPort))
                 .toArray(s -> new String[s]);
@@ -977,6 +986,42 @@ public class TestHostMessenger {
         assertTrue(hostids3.equals(hostids4));
     }
 
+    @Test
+    public void testProbedJoinRefusedByCluster() throws Exception {
+        VoltDB.ignoreCrash = true;
+
+        NodeStateRef upNodesState = new NodeStateRef(NodeState.INITIALIZING);
+        final String refusal = "Hosts cannot be added to this cluster";
+        MeshProber.Builder jcb = MeshProber.builder()
+                .coordinators(coordinators(1))
+                .startAction(StartAction.PROBE)
+                .nodeStateSupplier(upNodesState)
+                .addRefusalSupplier(Suppliers.ofInstance(refusal))
+                .bare(true);
+
+        HostMessenger hm1 = createHostMessenger(0, jcb.build(), true);
+
+        Determination dtm = prober(hm1).waitForDetermination();
+        assertEquals(StartAction.CREATE, dtm.startAction);
+        assertEquals(1, dtm.hostCount);
+
+        assertTrue(upNodesState.compareAndSet(NodeState.INITIALIZING, NodeState.UP));
+
+        jcb.nodeState(NodeState.INITIALIZING)
+                .addRefusalSupplier(Suppliers.ofInstance((String)null))
+                .addAllowed(true)
+                .hostCount(2);
+        HostMessenger hm2 = createHostMessenger(1, jcb.build(), false);
+
+        try {
+            hm2.start();
+            fail("did not crash on a refused join");
+        } catch (AssertionError pass) {
+            assertTrue(VoltDB.wasCrashCalled);
+            assertTrue(VoltDB.crashMessage.contains(refusal));
+        }
+    }
+
     @Test
     public void testTwoProbedConcuncurrentRejoins() throws Exception {
 
@@ -1527,6 +1572,76 @@ public class TestHostMessenger {
         hm3.waitForGroupJoin(2);
     }
 
+    @Test
+    public void testStripeSelection() throws Exception {
+        // agreement traffic always stays on the primary connection
+        assertEquals(-1, ForeignHost.stripeFor(CoreUtils.getHSIdFromHostAndSite(3, HostMessenger.AGREEMENT_SITE_ID), 4));
+        // without data connections everything uses the primary connection
+        assertEquals(-1, ForeignHost.stripeFor(CoreUtils.getHSIdFromHostAndSite(3, 7), 0));
+
+        Set<Integer> used = new HashSet<Integer>();
+        for (int site = -4; site < 32; site++) {
+            if (site == HostMessenger.AGREEMENT_SITE_ID) continue;
+            long hsId = CoreUtils.getHSIdFromHostAndSite(1, site);
+            int stripe = ForeignHost.stripeFor(hsId, 4);
+            assertTrue(stripe >= 0 && stripe < 4);
+            // a mailbox is pinned to a single stripe regardless of host
+            assertEquals(stripe, ForeignHost.stripeFor(CoreUtils.getHSIdFromHostAndSite(2, site), 4));
+            used.add(stripe);
+        }
+        assertEquals(4, used.size());
+    }
+
+    @Test
+    public void testMultiHostWithDataConnections() throws Exception {
+        HostMessenger hm1 = createHostMessenger(0, true, 3, 2);
+        final HostMessenger hm2 = createHostMessenger(1, false, 3, 2);
+        final HostMessenger hm3 = createHostMessenger(2, false, 3, 2);
+
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+        HostMessengerThread hm2Start = new HostMessengerThread(hm2, exception);
+        HostMessengerThread hm3Start = new HostMessengerThread(hm3, exception);
+
+        hm2Start.start();
+        hm3Start.start();
+        hm2Start.join();
+        hm3Start.join();
+
+        if (exception.get() != null) {
+            fail(exception.get().toString());
+        }
+        hm1.waitForGroupJoin(3);
+
+        for (HostMessenger hm : new HostMessenger[] { hm1, hm2, hm3 }) {
+            assertEquals(2, hm.m_foreignHosts.size());
+            for (ForeignHost fh : hm.m_foreignHosts.values()) {
+                assertEquals(2, fh.getStripeCount());
+            }
+        }
+
+        // fan a sequence of messages out to mailboxes spread over every stripe
+        // and check each mailbox sees them in the order they were sent
+        Mailbox source = hm2.createMailbox();
+        Mailbox targets[] = new Mailbox[5];
+        long targetHSIds[] = new long[targets.length];
+        for (int ii = 0; ii < targets.length; ii++) {
+            targets[ii] = hm1.createMailbox();
+            targetHSIds[ii] = targets[ii].getHSId();
+        }
+
+        final int messageCount = 100;
+        for (int ii = 0; ii < messageCount; ii++) {
+            source.send(targetHSIds, new BinaryPayloadMessage(new byte[] { (byte)ii }, new byte[0]));
+        }
+        for (Mailbox target : targets) {
+            for (int ii = 0; ii < messageCount; ii++) {
+                BinaryPayloadMessage bpm = (BinaryPayloadMessage)target.recvBlocking(10000);
+                assertNotNull(bpm);
+                assertEquals((byte)ii, bpm.m_metadata[0]);
+            }
+        }
+    }
+
     @Test
     public void testPartitionDetectionMinoritySet() throws Exception
     {
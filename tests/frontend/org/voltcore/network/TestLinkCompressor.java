@@ -0,0 +1,242 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import junit.framework.TestCase;
+
+public class TestLinkCompressor extends TestCase {
+
+    private static final int THRESHOLD = 1024;
+
+    /**
+     * Deflates batches into a frame of the compressed length, a marker and the
+     * uncompressed length
+     */
+    private static class DeflateCompressor extends LinkCompressor {
+        static final int MARKER = -2;
+
+        DeflateCompressor() {
+            super(THRESHOLD);
+        }
+
+        @Override
+        protected int maxCompressedLength(int length) {
+            return length + length / 100 + 64;
+        }
+
+        @Override
+        protected int compress(byte[] src, int length, byte[] dest, int destOffset) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(src, 0, length);
+            deflater.finish();
+            int compressed = deflater.deflate(dest, destOffset, dest.length - destOffset);
+            deflater.end();
+            return compressed;
+        }
+
+        @Override
+        protected int frameHeaderLength() {
+            return 12;
+        }
+
+        @Override
+        protected void writeFrameHeader(ByteBuffer frame, int compressedLength, int uncompressedLength) {
+            frame.putInt(8 + compressedLength);
+            frame.putInt(MARKER);
+            frame.putInt(uncompressedLength);
+        }
+    }
+
+    /** Takes no data until opened, then keeps everything written to it */
+    private static class CapturingChannel implements GatheringByteChannel {
+        boolean m_full = true;
+        final ByteArrayOutputStream m_written = new ByteArrayOutputStream();
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (m_full) {
+                return 0;
+            }
+            int remaining = src.remaining();
+            byte bytes[] = new byte[remaining];
+            src.get(bytes);
+            m_written.write(bytes, 0, remaining);
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long written = 0;
+            for (int ii = offset; ii < offset + length; ii++) {
+                written += write(srcs[ii]);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private NetworkDBBPool m_pool;
+
+    @Override
+    public void setUp() {
+        m_pool = new NetworkDBBPool(64, 4);
+    }
+
+    @Override
+    public void tearDown() {
+        m_pool.clear();
+    }
+
+    private static ByteBuffer message(int length, boolean compressible) {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        buf.putInt(length - 4);
+        Random r = new Random(length);
+        while (buf.hasRemaining()) {
+            buf.put(compressible ? (byte) (buf.position() % 7) : (byte) r.nextInt());
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static byte[] inflate(byte[] compressed, int uncompressedLength) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte batch[] = new byte[uncompressedLength];
+        assertEquals(uncompressedLength, inflater.inflate(batch));
+        inflater.end();
+        return batch;
+    }
+
+    public void testOnlyLargeBackloggedBatchesAreCompressed() {
+        DeflateCompressor compressor = new DeflateCompressor();
+        assertFalse(compressor.shouldCompress(THRESHOLD - 1, true));
+        assertFalse(compressor.shouldCompress(THRESHOLD * 10, false));
+        assertTrue(compressor.shouldCompress(THRESHOLD, true));
+    }
+
+    public void testIncompressibleBatchesAreProbed() {
+        DeflateCompressor compressor = new DeflateCompressor();
+        ByteBuffer random = message(THRESHOLD * 4, false);
+        assertNull(compressor.compress(random.array(), random.remaining()));
+        compressor.linkSample(1024 * 1024, 1000000);
+
+        // not worth it, but every PROBE_INTERVAL'th batch is tried again
+        for (int ii = 1; ii < LinkCompressor.PROBE_INTERVAL; ii++) {
+            assertFalse(compressor.shouldCompress(THRESHOLD * 4, true));
+        }
+        assertTrue(compressor.shouldCompress(THRESHOLD * 4, true));
+
+        long stats[] = compressor.getStats(false);
+        assertEquals(0, stats[0]);
+        assertEquals(0, stats[1]);
+        assertTrue(stats[2] > 0);
+    }
+
+    public void testBackloggedWritesAreCompressed() throws Exception {
+        PicoNIOWriteStream stream = new PicoNIOWriteStream();
+        DeflateCompressor compressor = new DeflateCompressor();
+        stream.setCompressor(compressor);
+        CapturingChannel channel = new CapturingChannel();
+
+        // the socket takes everything, no need to compress
+        ByteBuffer first = message(THRESHOLD * 4, true);
+        stream.enqueue(first.duplicate());
+        assertEquals(1, stream.serializeQueuedWrites(m_pool));
+        assertEquals(0, stream.drainTo(channel));
+
+        // the socket didn't take the first message, so the next ones are compressed together
+        ByteBuffer second = message(THRESHOLD * 2, true);
+        ByteBuffer third = message(THRESHOLD * 3, true);
+        stream.enqueue(second.duplicate());
+        stream.enqueue(third.duplicate());
+        assertEquals(2, stream.serializeQueuedWrites(m_pool));
+
+        channel.m_full = false;
+        stream.drainTo(channel);
+        assertTrue(stream.isEmpty());
+
+        ByteBuffer written = ByteBuffer.wrap(channel.m_written.toByteArray());
+        byte firstWritten[] = new byte[first.remaining()];
+        written.get(firstWritten);
+        assertTrue(Arrays.equals(first.array(), firstWritten));
+
+        int frameLength = written.getInt();
+        assertEquals(DeflateCompressor.MARKER, written.getInt());
+        int uncompressedLength = written.getInt();
+        assertEquals(second.remaining() + third.remaining(), uncompressedLength);
+        byte compressed[] = new byte[frameLength - 8];
+        written.get(compressed);
+        assertFalse(written.hasRemaining());
+
+        ByteBuffer expected = ByteBuffer.allocate(uncompressedLength);
+        expected.put(second.duplicate()).put(third.duplicate());
+        assertTrue(Arrays.equals(expected.array(), inflate(compressed, uncompressedLength)));
+
+        long stats[] = compressor.getStats(true);
+        assertEquals(uncompressedLength, stats[0]);
+        assertEquals(12 + compressed.length, stats[1]);
+        assertEquals(0, compressor.getStats(true)[0]);
+        stream.shutdown();
+    }
+
+    public void testMessagesAreBatchedUpToTheLimit() throws IOException {
+        PicoNIOWriteStream stream = new PicoNIOWriteStream();
+        DeflateCompressor compressor = new DeflateCompressor();
+        stream.setCompressor(compressor);
+        stream.enqueue(message(THRESHOLD, true));
+        stream.serializeQueuedWrites(m_pool);
+
+        int size = PicoNIOWriteStream.MAX_BATCH_BYTES / 2 + 1;
+        for (int ii = 0; ii < 3; ii++) {
+            stream.enqueue(message(size, true));
+        }
+        assertEquals(3, stream.serializeQueuedWrites(m_pool));
+        // no two of the messages fit in one batch
+        assertEquals(3L * size, compressor.getStats(false)[0]);
+        stream.shutdown();
+    }
+}
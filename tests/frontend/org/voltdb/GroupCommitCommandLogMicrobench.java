@@ -0,0 +1,150 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.rejoin.TaskLog;
+
+/**
+ * Measures synchronous command log throughput and commit latency with 1 ms and 10 ms
+ * fsync intervals. Each site thread keeps a window of transactions outstanding, like a
+ * site with that many transactions queued behind durability, and logs a new one as
+ * soon as one is made durable.
+ *
+ * Usage: GroupCommitCommandLogMicrobench [directory] [sites] [window] [txns per site]
+ */
+public class GroupCommitCommandLogMicrobench {
+
+    static void run(File dir, final int fsyncInterval, int sites, final int window, final int perSite)
+            throws Exception
+    {
+        final GroupCommitCommandLog log =
+                new GroupCommitCommandLog(true, fsyncInterval, 0, dir.getPath(), dir.getPath());
+        log.init(1024, Long.MIN_VALUE, sites, null, new HashMap<Integer, Long>());
+
+        final AtomicLong latencyNanos = new AtomicLong();
+        final CyclicBarrier barrier = new CyclicBarrier(sites + 1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int s = 0; s < sites; s++) {
+            final int site = s;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    final Semaphore permits = new Semaphore(window);
+                    final long logged[] = new long[perSite];
+                    TestGroupCommitCommandLog.RecordingListener listener =
+                            new TestGroupCommitCommandLog.RecordingListener(
+                                    new TestGroupCommitCommandLog.RecordingListener.Callback() {
+                                @Override
+                                public void durable(List<TransactionTask> tasks) {
+                                    final long now = System.nanoTime();
+                                    long total = 0;
+                                    for (TransactionTask task : tasks) {
+                                        total += now - logged[(int)task.getSpHandle()];
+                                    }
+                                    latencyNanos.addAndGet(total);
+                                    permits.release(tasks.size());
+                                }
+                            });
+                    Iv2InitiateTaskMessage message =
+                            TestGroupCommitCommandLog.newInvocation(site, site, "a short string parameter");
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < perSite; i++) {
+                            permits.acquire();
+                            logged[i] = System.nanoTime();
+                            log.log(message, i, null, listener, newTask(i));
+                        }
+                        permits.acquire(window);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        barrier.await();
+        final long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.join();
+        }
+        final long elapsed = System.nanoTime() - start;
+        log.shutdown();
+
+        final long txns = (long)sites * perSite;
+        System.out.printf("fsync %2d ms: %,10d txns in %8.1f ms => %,9.0f txns/s, " +
+                "%6.2f ms avg commit latency, %,7d syncs, %6.1f txns/sync%n",
+                fsyncInterval, txns, elapsed / 1000000.0, txns / (elapsed / 1000000000.0),
+                latencyNanos.get() / 1000000.0 / txns, log.getSyncCount(),
+                (double)txns / log.getSyncCount());
+
+        for (File f : GroupCommitCommandLog.Reader.segments(dir)) {
+            f.delete();
+        }
+    }
+
+    static TransactionTask newTask(final long spHandle) {
+        return new TransactionTask(null, null) {
+            @Override
+            public long getSpHandle() {
+                return spHandle;
+            }
+
+            @Override
+            public void run(SiteProcedureConnection siteConnection) {}
+
+            @Override
+            public void runFromTaskLog(SiteProcedureConnection siteConnection) {}
+
+            @Override
+            public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog rejoinTaskLog) {}
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        final File dir = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"),
+                "cl-microbench");
+        final int sites = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int window = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        final int perSite = args.length > 3 ? Integer.parseInt(args[3]) : 50000;
+        dir.mkdirs();
+
+        // Warm up before timing anything
+        run(dir, 1, sites, window, perSite / 10);
+        run(dir, 1, sites, window, perSite);
+        run(dir, 10, sites, window, perSite);
+        dir.delete();
+    }
+}
@@ -0,0 +1,92 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.lang.reflect.Method;
+import java.util.Date;
+
+/**
+ * In-process companion to {@link ProcedureCallMicrobench}: measures only the
+ * cost of dispatching into a procedure's run method, using the same two
+ * procedure shapes, through reflection and through the generated
+ * {@link ProcedureInvoker}. Run with an optional iteration count.
+ */
+public class ProcedureInvokerMicrobench {
+
+    static Method runMethod(Class<?> clz) {
+        for (Method m : clz.getDeclaredMethods()) {
+            if (m.getName().equals("run")) {
+                return m;
+            }
+        }
+        throw new RuntimeException("no run method in " + clz.getName());
+    }
+
+    static long time(ProcedureInvoker invoker, Object[] params, int iterations) throws Exception {
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            invoker.invoke(params);
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = 10 * 1000 * 1000;
+        if (args.length >= 1) {
+            iterations = Integer.parseInt(args[0]);
+        }
+
+        final Object[][] params = new Object[][] {
+            new Object[] { 0L },
+            new Object[] { 0L, 0L, 0L,
+                    "String c_first", "String c_middle",
+                    "String c_last", "String c_street_1",
+                    "String c_street_2", "String d_city",
+                    "String d_state", "String d_zip",
+                    "String c_phone", new Date(), "String c_credit", 0.0,
+                    0.0, 0.0, 0.0, 0L, 0L, "String c_data" }
+        };
+        final Class<?>[] procs = new Class<?>[] { EmptyProcedure.class, MultivariateEmptyProcedure.class };
+
+        for (int p = 0; p < procs.length; p++) {
+            final Method m = runMethod(procs[p]);
+            final ProcedureInvoker reflective = new ProcedureInvoker.ReflectiveInvoker(null, m);
+            final ProcedureInvoker handle = new ProcedureInvoker.MethodHandleInvoker(null, m);
+
+            // warm up both paths past reflection inflation and JIT compilation
+            for (int round = 0; round < 3; round++) {
+                time(reflective, params[p], iterations / 10);
+                time(handle, params[p], iterations / 10);
+            }
+
+            final long reflectNanos = time(reflective, params[p], iterations);
+            final long handleNanos = time(handle, params[p], iterations);
+            System.out.printf("%s: reflective %.1f ns/call, method handle %.1f ns/call (%.2fx)\n",
+                    procs[p].getSimpleName(),
+                    (double) reflectNanos / iterations,
+                    (double) handleNanos / iterations,
+                    (double) reflectNanos / handleNanos);
+        }
+    }
+}
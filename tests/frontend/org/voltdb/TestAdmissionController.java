@@ -0,0 +1,181 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltdb.iv2.SiteTasker;
+import org.voltdb.iv2.SiteTaskerQueue;
+import org.voltdb.rejoin.TaskLog;
+
+public class TestAdmissionController extends TestCase
+{
+    static class NoopTask extends SiteTasker {
+        @Override
+        public void run(SiteProcedureConnection siteConnection) {}
+
+        @Override
+        public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog rejoinTaskLog) {}
+    }
+
+    public void testQuotas() {
+        AdmissionController controller = new AdmissionController();
+        assertFalse(controller.hasQuotas());
+        assertNull(controller.checkQuotas("alice", "Insert", 100));
+
+        controller.setUserQuota("alice", 2, 0);
+        controller.setProcedureQuota("Insert", 0, 250);
+        AdmissionController.Quota user = controller.getUserQuota("alice");
+        AdmissionController.Quota proc = controller.getProcedureQuota("Insert");
+        assertNull(controller.getUserQuota("bob"));
+        assertNull(controller.getProcedureQuota("@Statistics"));
+
+        assertNull(controller.checkQuotas("alice", "Insert", 200));
+        user.acquire(200);
+        proc.acquire(200);
+        // Over the byte quota of the procedure
+        assertNotNull(controller.checkQuotas("bob", "Insert", 100));
+        assertNull(controller.checkQuotas("bob", "Select", 100));
+        assertNull(controller.checkQuotas("alice", "Select", 100));
+        user.acquire(100);
+        // Over the transaction quota of the user, system procedures are exempt
+        assertNotNull(controller.checkQuotas("alice", "Select", 100));
+        assertNull(controller.checkQuotas("alice", "@Statistics", 100));
+        assertEquals(1, user.getRejected());
+        assertEquals(1, proc.getRejected());
+
+        user.release(200);
+        proc.release(200);
+        assertNull(controller.checkQuotas("alice", "Insert", 100));
+        // A request larger than the byte quota is admitted when nothing is pending
+        assertNull(controller.checkQuotas("bob", "Insert", 1000));
+        assertEquals(1, user.getPendingTxns());
+        assertEquals(100, user.getPendingBytes());
+    }
+
+    public void testProcedureQuotaWithoutSecurity() {
+        AdmissionController controller = new AdmissionController();
+        controller.setUserQuota("alice", 1, 0);
+        controller.setProcedureQuota("Insert", 1, 0);
+        // Without security the dispatcher passes no user name
+        assertNull(controller.getUserQuota(null));
+        assertNull(controller.checkQuotas(null, "Insert", 100));
+        controller.getProcedureQuota("Insert").acquire(100);
+        assertNotNull(controller.checkQuotas(null, "Insert", 100));
+        assertNull(controller.checkQuotas(null, "Select", 100));
+        assertEquals(1, controller.getProcedureQuota("Insert").getRejected());
+    }
+
+    public void testPriorityProcedures() {
+        AdmissionController controller = new AdmissionController();
+        assertFalse(controller.isPriorityProcedure("Lookup"));
+        controller.setPriorityProcedures(Arrays.asList("Lookup", "Status"));
+        assertTrue(controller.isPriorityProcedure("Lookup"));
+        assertFalse(controller.isPriorityProcedure("Insert"));
+    }
+
+    public void testAdaptiveLimit() throws Exception {
+        AdmissionController controller = new AdmissionController();
+        controller.setAdaptive(true, 1);
+        SiteTaskerQueue queue = new SiteTaskerQueue();
+        queue.setStarvationTracker(new StarvationTracker(0));
+        controller.registerSite(queue, null);
+
+        long now = System.nanoTime();
+        assertEquals(AdmissionController.MAX_PENDING_TXNS, controller.adjust(now));
+
+        // Tasks waiting longer than the target cut the limit
+        int limit = AdmissionController.MAX_PENDING_TXNS;
+        for (int i = 0; i < 30; i++) {
+            queue.offer(new NoopTask());
+            Thread.sleep(2);
+            queue.poll();
+            now += TimeUnit.MILLISECONDS.toNanos(AdmissionController.ADJUST_INTERVAL_MILLIS);
+            int newLimit = controller.adjust(now);
+            assertEquals(Math.max(AdmissionController.MIN_PENDING_TXNS,
+                                  (int)(limit * AdmissionController.DECREASE_FACTOR)), newLimit);
+            limit = newLimit;
+        }
+        assertEquals(AdmissionController.MIN_PENDING_TXNS, limit);
+
+        // ... and it recovers up to the configured limit once the queue drains quickly
+        while (limit < AdmissionController.MAX_PENDING_TXNS) {
+            queue.offer(new NoopTask());
+            queue.poll();
+            now += TimeUnit.MILLISECONDS.toNanos(AdmissionController.ADJUST_INTERVAL_MILLIS);
+            int newLimit = controller.adjust(now);
+            assertEquals(Math.min(AdmissionController.MAX_PENDING_TXNS,
+                                  limit + AdmissionController.INCREASE_STEP), newLimit);
+            limit = newLimit;
+        }
+        assertEquals(AdmissionController.MAX_PENDING_TXNS, controller.getPendingTxnLimit());
+    }
+
+    public void testDeregisterAndReset() throws Exception {
+        AdmissionController controller = new AdmissionController();
+        controller.setAdaptive(true, 1);
+        assertTrue(SiteTaskerQueue.isTrackingWaits());
+        controller.setUserQuota("alice", 1, 0);
+        controller.setPriorityProcedures(Arrays.asList("Lookup"));
+        SiteTaskerQueue queue = new SiteTaskerQueue();
+        queue.setStarvationTracker(new StarvationTracker(0));
+        controller.registerSite(queue, null);
+
+        long now = System.nanoTime();
+        controller.adjust(now);
+        // A site that shut down no longer drives the limit
+        controller.deregisterSite(queue);
+        queue.offer(new NoopTask());
+        Thread.sleep(2);
+        queue.poll();
+        assertEquals(AdmissionController.MAX_PENDING_TXNS,
+                controller.adjust(now + TimeUnit.MILLISECONDS.toNanos(AdmissionController.ADJUST_INTERVAL_MILLIS)));
+
+        // Nothing of the previous configuration survives a restart
+        controller.reset();
+        assertFalse(controller.isAdaptive());
+        assertFalse(SiteTaskerQueue.isTrackingWaits());
+        assertFalse(controller.hasQuotas());
+        assertNull(controller.getUserQuota("alice"));
+        assertFalse(controller.isPriorityProcedure("Lookup"));
+        assertEquals(AdmissionController.MAX_PENDING_TXNS, controller.getPendingTxnLimit());
+    }
+
+    public void testFixedLimit() throws Exception {
+        AdmissionController controller = new AdmissionController();
+        SiteTaskerQueue queue = new SiteTaskerQueue();
+        queue.setStarvationTracker(new StarvationTracker(0));
+        controller.registerSite(queue, null);
+        long now = System.nanoTime();
+        controller.adjust(now);
+        queue.offer(new NoopTask());
+        Thread.sleep(20);
+        queue.poll();
+        assertEquals(AdmissionController.MAX_PENDING_TXNS,
+                controller.adjust(now + TimeUnit.MILLISECONDS.toNanos(AdmissionController.ADJUST_INTERVAL_MILLIS)));
+    }
+}
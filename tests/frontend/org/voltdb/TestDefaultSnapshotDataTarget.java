@@ -0,0 +1,135 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.VoltTable.ColumnInfo;
+
+public class TestDefaultSnapshotDataTarget extends TestCase {
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        // writes checksum their blocks natively
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        m_dir = File.createTempFile("snapshot-writer", null);
+        assertTrue(m_dir.delete());
+        assertTrue(m_dir.mkdir());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : m_dir.listFiles()) {
+            f.delete();
+        }
+        m_dir.delete();
+    }
+
+    private DefaultSnapshotDataTarget createTarget(String tableName) throws Exception {
+        VoltTable schema = new VoltTable(new ColumnInfo("ID", VoltType.INTEGER));
+        return new DefaultSnapshotDataTarget(
+                new File(m_dir, tableName + ".vpt"),
+                0, "cluster", "database", tableName, 1, false,
+                Arrays.asList(0), schema, 1L, System.currentTimeMillis());
+    }
+
+    public void testTargetsOnOneDeviceShareAWriter() throws Exception {
+        final int writers = DefaultSnapshotDataTarget.writerCount();
+        DefaultSnapshotDataTarget first = createTarget("FIRST");
+        DefaultSnapshotDataTarget second = createTarget("SECOND");
+        try {
+            assertFalse(first.getWriterName().isEmpty());
+            assertEquals(first.getWriterName(), second.getWriterName());
+            assertEquals(writers + 1, DefaultSnapshotDataTarget.writerCount());
+        } finally {
+            first.close();
+            second.close();
+        }
+        // the writer's threads go away with the last target using it
+        assertEquals(writers, DefaultSnapshotDataTarget.writerCount());
+
+        // the header was written through the writer and counted
+        final long headerBytes = new File(m_dir, "FIRST.vpt").length();
+        assertTrue(headerBytes > 0);
+        assertEquals(headerBytes, first.getBytesWritten());
+    }
+
+    public void testWritesAreCounted() throws Exception {
+        final int tupleBytes = 64 * 1024;
+        DefaultSnapshotDataTarget target = createTarget("COUNTED");
+        try {
+            // random bytes so the block stays about as large once compressed
+            final byte[] data = new byte[tupleBytes];
+            new Random(42).nextBytes(data);
+            final BBContainer tuples = DBBPool.allocateDirect(4 + tupleBytes);
+            tuples.b().putInt(0); // partition id
+            tuples.b().put(data);
+            tuples.b().flip();
+            // the writer is a single thread, the header is written first
+            target.write(new Callable<BBContainer>() {
+                @Override
+                public BBContainer call() {
+                    return tuples;
+                }
+            }, 0).get();
+
+            assertTrue(target.getBytesWritten() > tupleBytes);
+            assertEquals(new File(m_dir, "COUNTED.vpt").length(), target.getBytesWritten());
+        } finally {
+            target.close();
+        }
+    }
+
+    public void testWriterRecreatedForNextSnapshot() throws Exception {
+        DefaultSnapshotDataTarget.SnapshotWriter writer =
+                DefaultSnapshotDataTarget.acquireWriter(new File(m_dir, "T.vpt"));
+        DefaultSnapshotDataTarget.releaseWriter(writer);
+        assertTrue(writer.m_es.isShutdown());
+        assertTrue(writer.m_syncService.isShutdown());
+
+        DefaultSnapshotDataTarget target = createTarget("NEXT");
+        try {
+            assertEquals(writer.m_name, target.getWriterName());
+        } finally {
+            target.close();
+        }
+        assertTrue(new File(m_dir, "NEXT.vpt").length() > 0);
+    }
+
+    public void testWriterKeyFallsBackToDirectory() throws Exception {
+        File missing = new File(new File(m_dir, "does-not-exist-" + CoreUtils.getHostnameOrAddress()), "T.vpt");
+        assertEquals(missing.getAbsoluteFile().getParentFile().getPath(),
+                     DefaultSnapshotDataTarget.writerKey(missing));
+    }
+}
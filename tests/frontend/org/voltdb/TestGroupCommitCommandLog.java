@@ -0,0 +1,369 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltdb.CommandLog.CompletionChecks;
+import org.voltdb.CommandLog.DurabilityListener;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.rejoin.TaskLog;
+
+import com.google_voltpatches.common.collect.ImmutableSet;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+public class TestGroupCommitCommandLog extends TestCase {
+
+    /**
+     * Hands each group of durable tasks to a callback the way SpDurabilityListener hands
+     * them to the scheduler
+     */
+    static class RecordingListener implements DurabilityListener {
+        interface Callback {
+            void durable(List<TransactionTask> tasks);
+        }
+
+        class Checks implements CompletionChecks {
+            final List<TransactionTask> m_tasks;
+
+            Checks(int startSize) {
+                m_tasks = new ArrayList<TransactionTask>(startSize);
+            }
+
+            @Override
+            public CompletionChecks startNewCheckList(int startSize) {
+                return new Checks(startSize);
+            }
+
+            @Override
+            public void addTask(TransactionTask task) {
+                m_tasks.add(task);
+            }
+
+            @Override
+            public void addUnloggedTask(TransactionTask task) {
+                m_tasks.add(task);
+            }
+
+            @Override
+            public void setLastDurableUniqueId(long uniqueId) {
+                m_lastDurableUniqueId = uniqueId;
+            }
+
+            @Override
+            public boolean isChanged() {
+                return !m_tasks.isEmpty();
+            }
+
+            @Override
+            public int getTaskListSize() {
+                return m_tasks.size();
+            }
+
+            @Override
+            public void processChecks() {
+                m_callback.durable(m_tasks);
+            }
+        }
+
+        final Callback m_callback;
+        volatile long m_lastDurableUniqueId = Long.MIN_VALUE;
+        private Checks m_current = new Checks(16);
+
+        RecordingListener(Callback callback) {
+            m_callback = callback;
+        }
+
+        @Override
+        public void setUniqueIdListener(DurableUniqueIdListener listener) {}
+
+        @Override
+        public void createFirstCompletionCheck(boolean isSyncLogging, boolean commandLoggingEnabled) {}
+
+        @Override
+        public boolean completionCheckInitialized() {
+            return true;
+        }
+
+        @Override
+        public void addTransaction(TransactionTask pendingTask) {
+            m_current.addTask(pendingTask);
+        }
+
+        @Override
+        public void addUnloggedTransaction(TransactionTask pendingTask) {
+            m_current.addUnloggedTask(pendingTask);
+        }
+
+        @Override
+        public void initializeLastDurableUniqueId(long uniqueId) {
+            m_current.setLastDurableUniqueId(uniqueId);
+        }
+
+        @Override
+        public int getNumberOfTasks() {
+            return m_current.getTaskListSize();
+        }
+
+        @Override
+        public CompletionChecks startNewTaskList(int nextMaxRowCnt) {
+            Checks last = m_current;
+            m_current = (Checks)m_current.startNewCheckList(nextMaxRowCnt);
+            return last;
+        }
+
+        @Override
+        public void processDurabilityChecks(CompletionChecks completionChecks) {
+            if (completionChecks.isChanged()) {
+                completionChecks.processChecks();
+            }
+        }
+    }
+
+    static TransactionTask newTask() {
+        return new TransactionTask(null, null) {
+            @Override
+            public void run(SiteProcedureConnection siteConnection) {}
+
+            @Override
+            public void runFromTaskLog(SiteProcedureConnection siteConnection) {}
+
+            @Override
+            public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog rejoinTaskLog) {}
+        };
+    }
+
+    static Iv2InitiateTaskMessage newInvocation(long txnId, Object... params) {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("Insert");
+        spi.setParams(params);
+        return new Iv2InitiateTaskMessage(0, 0, 0, txnId, txnId, false, true, spi, 0, 0, false);
+    }
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        m_dir = File.createTempFile("command-log", null);
+        assertTrue(m_dir.delete());
+        assertTrue(m_dir.mkdir());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : m_dir.listFiles()) {
+            f.delete();
+        }
+        m_dir.delete();
+    }
+
+    private GroupCommitCommandLog createLog(boolean synchronous, int fsyncInterval) {
+        GroupCommitCommandLog log =
+                new GroupCommitCommandLog(synchronous, fsyncInterval, 0, m_dir.getPath(), m_dir.getPath());
+        assertTrue(log.needsInitialization());
+        log.init(1, Long.MIN_VALUE, 2, null, new HashMap<Integer, Long>());
+        assertFalse(log.needsInitialization());
+        return log;
+    }
+
+    public void testSyncReleasesTasksOnceDurable() throws Exception {
+        final List<TransactionTask> durable = new ArrayList<TransactionTask>();
+        RecordingListener listener = new RecordingListener(new RecordingListener.Callback() {
+            @Override
+            public void durable(List<TransactionTask> tasks) {
+                synchronized (durable) {
+                    durable.addAll(tasks);
+                    durable.notifyAll();
+                }
+            }
+        });
+
+        GroupCommitCommandLog log = createLog(true, 10);
+        assertTrue(log.isSynchronous());
+        assertFalse(log.canOfferTask());
+
+        List<TransactionTask> tasks = new ArrayList<TransactionTask>();
+        for (int i = 0; i < 100; i++) {
+            TransactionTask task = newTask();
+            tasks.add(task);
+            assertNull(log.log(newInvocation(i, i, "value" + i), i, null, listener, task));
+        }
+        // A task without an invocation still waits for the group it was logged with
+        TransactionTask dummy = newTask();
+        tasks.add(dummy);
+        assertNull(log.log(null, 100, null, listener, dummy));
+
+        synchronized (durable) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (durable.size() < tasks.size() && System.nanoTime() < deadline) {
+                durable.wait(100);
+            }
+            assertEquals(tasks, durable);
+        }
+        // Grouped, rather than one sync per transaction
+        assertTrue(log.getSyncCount() < tasks.size());
+        assertEquals(tasks.size(), log.getSyncedTxnCount());
+
+        log.initializeLastDurableUniqueId(listener, 42);
+        assertTrue(log.logIv2Fault(1, ImmutableSet.of(1L, 2L), 0, 100).get(10, TimeUnit.SECONDS));
+        assertEquals(42, listener.m_lastDurableUniqueId);
+        log.shutdown();
+
+        GroupCommitCommandLog.Reader reader = new GroupCommitCommandLog.Reader(m_dir);
+        for (int i = 0; i < 100; i++) {
+            GroupCommitCommandLog.Record record = reader.next();
+            assertEquals(GroupCommitCommandLog.INVOCATION_RECORD, record.type);
+            assertEquals(i, record.spHandle);
+            assertEquals(i, record.txnId);
+            assertNull(record.involvedPartitions);
+            assertEquals("Insert", record.invocation.getProcName());
+            assertEquals("value" + i, record.invocation.getParams().toArray()[1]);
+        }
+        GroupCommitCommandLog.Record fault = reader.next();
+        assertEquals(GroupCommitCommandLog.FAULT_RECORD, fault.type);
+        assertEquals(ImmutableSet.of(1L, 2L), fault.survivorHSIds);
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    public void testAsyncAndRestartAppendsSegment() throws Exception {
+        RecordingListener listener = new RecordingListener(new RecordingListener.Callback() {
+            @Override
+            public void durable(List<TransactionTask> tasks) {}
+        });
+        GroupCommitCommandLog log = createLog(false, 1);
+        assertTrue(log.canOfferTask());
+        ListenableFuture<Object> future =
+                log.log(newInvocation(1, 1), 1, new int[] {0, 1}, listener, newTask());
+        assertNotNull(future);
+        future.get(10, TimeUnit.SECONDS);
+        log.shutdown();
+
+        log = createLog(false, 1);
+        log.log(newInvocation(2, 2), 2, null, listener, newTask());
+        log.shutdown();
+        assertEquals(2, GroupCommitCommandLog.Reader.segments(m_dir).size());
+
+        Map<String, Integer> columns = new HashMap<String, Integer>();
+        for (CommandLogStats.StatName name : CommandLogStats.StatName.values()) {
+            columns.put(name.name(), columns.size());
+        }
+        Object row[] = new Object[columns.size()];
+        log.populateCommandLogStats(columns, row);
+        assertEquals(0L, row[columns.get(CommandLogStats.StatName.OUTSTANDING_TXNS.name())]);
+        assertEquals(2, row[columns.get(CommandLogStats.StatName.SEGMENT_COUNT.name())]);
+
+        // A torn batch at the end of the last segment is ignored
+        File last = GroupCommitCommandLog.Reader.segments(m_dir).get(1);
+        RandomAccessFile raf = new RandomAccessFile(last, "rw");
+        raf.setLength(raf.length() - 1);
+        raf.close();
+
+        GroupCommitCommandLog.Reader reader = new GroupCommitCommandLog.Reader(m_dir);
+        GroupCommitCommandLog.Record record = reader.next();
+        assertEquals(1, record.txnId);
+        assertEquals(2, record.involvedPartitions.length);
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    public void testSyncLogBeforeInitReleasesTask() throws Exception {
+        final List<TransactionTask> durable = new ArrayList<TransactionTask>();
+        RecordingListener listener = new RecordingListener(new RecordingListener.Callback() {
+            @Override
+            public void durable(List<TransactionTask> tasks) {
+                durable.addAll(tasks);
+            }
+        });
+        GroupCommitCommandLog log =
+                new GroupCommitCommandLog(true, 10, 0, m_dir.getPath(), m_dir.getPath());
+        // Restore and replay run before the log is initialized, they must not wait on it
+        TransactionTask task = newTask();
+        assertNull(log.log(newInvocation(1, 1), 1, null, listener, task));
+        assertEquals(1, durable.size());
+        assertSame(task, durable.get(0));
+        assertTrue(log.logIv2Fault(1, ImmutableSet.of(1L), 0, 1).get(10, TimeUnit.SECONDS));
+        assertEquals(0, m_dir.listFiles().length);
+    }
+
+    public void testTruncationDeletesCoveredSegments() throws Exception {
+        RecordingListener listener = new RecordingListener(new RecordingListener.Callback() {
+            @Override
+            public void durable(List<TransactionTask> tasks) {}
+        });
+        TxnEgo p0 = TxnEgo.makeZero(0).makeNext();
+        TxnEgo p1 = TxnEgo.makeZero(1).makeNext();
+
+        GroupCommitCommandLog log = createLog(false, 1);
+        log.log(newInvocation(1, 1), p0.getTxnId(), null, listener, newTask()).get(10, TimeUnit.SECONDS);
+        log.log(newInvocation(2, 2), p1.getTxnId(), null, listener, newTask()).get(10, TimeUnit.SECONDS);
+        log.shutdown();
+
+        // The segment from before the restart is closed
+        log = createLog(false, 1);
+        p0 = p0.makeNext();
+        log.log(newInvocation(3, 3), p0.getTxnId(), null, listener, newTask()).get(10, TimeUnit.SECONDS);
+
+        // A snapshot that misses a partition of the closed segment leaves it alone
+        Map<Integer, Long> partial = new TreeMap<Integer, Long>();
+        partial.put(0, p0.getTxnId());
+        log.truncate(partial);
+        assertEquals(2, GroupCommitCommandLog.Reader.segments(m_dir).size());
+        assertNull(GroupCommitCommandLog.readTruncationPoint(m_dir));
+
+        Map<Integer, Long> snapshot = new TreeMap<Integer, Long>(partial);
+        snapshot.put(1, p1.getTxnId());
+        log.truncate(snapshot);
+        log.shutdown();
+        assertEquals(snapshot, GroupCommitCommandLog.readTruncationPoint(m_dir));
+        List<File> segments = GroupCommitCommandLog.Reader.segments(m_dir);
+        assertEquals(1, segments.size());
+
+        GroupCommitCommandLog.Reader reader = new GroupCommitCommandLog.Reader(segments);
+        assertEquals(3, reader.next().txnId);
+        assertNull(reader.next());
+        reader.close();
+
+        // Initializing after the truncation snapshot of a restore drops the whole log
+        log = new GroupCommitCommandLog(false, 1, 0, m_dir.getPath(), m_dir.getPath());
+        log.init(1, Long.MIN_VALUE, 2, null, snapshot);
+        log.shutdown();
+        reader = new GroupCommitCommandLog.Reader(m_dir);
+        assertNull(reader.next());
+        reader.close();
+        assertEquals(snapshot, GroupCommitCommandLog.readTruncationPoint(m_dir));
+    }
+}
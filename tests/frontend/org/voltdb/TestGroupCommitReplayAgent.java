@@ -0,0 +1,206 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltcore.network.Connection;
+import org.voltdb.InvocationDispatcher.OverrideCheck;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.sysprocs.saverestore.SnapshotPathType;
+
+public class TestGroupCommitReplayAgent extends TestCase {
+
+    /**
+     * Records what replay sends and answers every transaction through the bound adapter
+     */
+    static class RecordingCreator implements TransactionCreator {
+        final List<String> m_sent = Collections.synchronizedList(new ArrayList<String>());
+        SimpleClientResponseAdapter m_adapter;
+
+        @Override
+        public boolean createTransaction(long connectionId, StoredProcedureInvocation invocation,
+                boolean isReadOnly, boolean isSinglePartition, boolean isEverySite, int partition,
+                int messageSize, long nowNanos) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean createTransaction(long connectionId, long txnId, long uniqueId,
+                StoredProcedureInvocation invocation, boolean isReadOnly, boolean isSinglePartition,
+                boolean isEverySite, int partition, int messageSize, long nowNanos) {
+            assertEquals(m_adapter.connectionId(), connectionId);
+            m_sent.add((isSinglePartition ? "SP " : "MP ") + invocation.getProcName() + " " + txnId + " " + partition);
+            ClientResponseImpl response =
+                    new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0], null, invocation.getClientHandle());
+            ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+            buf.putInt(buf.capacity() - 4);
+            response.flattenToBuffer(buf);
+            buf.flip();
+            m_adapter.enqueue(buf);
+            return true;
+        }
+
+        @Override
+        public ClientResponseImpl dispatch(StoredProcedureInvocation invocation, Connection connection,
+                boolean isAdmin, OverrideCheck bypass) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sendSentinel(long uniqueId, int partitionId) {
+            m_sent.add("Sentinel " + uniqueId + " " + partitionId);
+        }
+
+        @Override
+        public void sendEOLMessage(int partitionId) {
+            m_sent.add("EOL " + partitionId);
+        }
+
+        @Override
+        public void bindAdapter(Connection adapter) {
+            m_adapter = (SimpleClientResponseAdapter)adapter;
+        }
+    }
+
+    private File m_dir;
+    private MockVoltDB m_voltdb;
+
+    @Override
+    public void setUp() throws Exception {
+        m_dir = File.createTempFile("command-log", null);
+        assertTrue(m_dir.delete());
+        assertTrue(m_dir.mkdir());
+        m_voltdb = new MockVoltDB();
+        m_voltdb.addProcedureForTest("Insert");
+        m_voltdb.addProcedureForTest("Select").setReadonly(true);
+        VoltDB.replaceVoltDBInstanceForTest(m_voltdb);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (File f : m_dir.listFiles()) {
+            f.delete();
+        }
+        m_dir.delete();
+        m_voltdb.shutdown(null);
+        VoltDB.replaceVoltDBInstanceForTest(null);
+    }
+
+    private static Iv2InitiateTaskMessage newInvocation(String procName, long txnId) {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName(procName);
+        spi.setParams(txnId);
+        return new Iv2InitiateTaskMessage(0, 0, 0, txnId, txnId + 100, false, true, spi, 0, 0, false);
+    }
+
+    private List<String> replay(RestoreAgent.SnapshotInfo snapshot) throws Exception {
+        GroupCommitReplayAgent agent = new GroupCommitReplayAgent(StartAction.RECOVER, m_dir.getPath());
+        RecordingCreator creator = new RecordingCreator();
+        final CountDownLatch done = new CountDownLatch(1);
+        agent.setCallback(new CommandLogReinitiator.Callback() {
+            @Override
+            public void onReplayCompletion() {
+                done.countDown();
+            }
+        });
+        agent.setInitiator(creator);
+        agent.setSnapshotTxnId(snapshot);
+        agent.generateReplayPlan(0, 0, 2, true);
+        agent.replay();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return creator.m_sent;
+    }
+
+    public void testReplaysLogInOrder() throws Exception {
+        TxnEgo p0 = TxnEgo.makeZero(0);
+        TxnEgo p1 = TxnEgo.makeZero(1);
+        TestGroupCommitCommandLog.RecordingListener listener =
+                new TestGroupCommitCommandLog.RecordingListener(new TestGroupCommitCommandLog.RecordingListener.Callback() {
+                    @Override
+                    public void durable(List<TransactionTask> tasks) {}
+                });
+        GroupCommitCommandLog log = new GroupCommitCommandLog(false, 1, 0, m_dir.getPath(), m_dir.getPath());
+        log.init(1, Long.MIN_VALUE, 2, null, new HashMap<Integer, Long>());
+        p0 = p0.makeNext();
+        log.log(newInvocation("Insert", 1), p0.getTxnId(), null, listener, TestGroupCommitCommandLog.newTask());
+        p1 = p1.makeNext();
+        log.log(newInvocation("Insert", 2), p1.getTxnId(), null, listener, TestGroupCommitCommandLog.newTask());
+        // Reads have nothing to replay
+        p1 = p1.makeNext();
+        log.log(newInvocation("Select", 3), p1.getTxnId(), null, listener, TestGroupCommitCommandLog.newTask());
+        // A multi-partition write is logged by both partitions
+        p0 = p0.makeNext();
+        log.log(newInvocation("Insert", 4), p0.getTxnId(), new int[] {0, 1}, listener, TestGroupCommitCommandLog.newTask());
+        p1 = p1.makeNext();
+        log.log(newInvocation("Insert", 4), p1.getTxnId(), new int[] {0, 1}, listener, TestGroupCommitCommandLog.newTask());
+        log.logIv2Fault(1, Collections.singleton(1L), 0, p0.getTxnId());
+        p0 = p0.makeNext();
+        log.log(newInvocation("Insert", 5), p0.getTxnId(), null, listener, TestGroupCommitCommandLog.newTask())
+                .get(10, TimeUnit.SECONDS);
+        log.shutdown();
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("SP Insert 1 0");
+        expected.add("SP Insert 2 1");
+        expected.add("Sentinel 104 0");
+        expected.add("MP Insert 4 " + MpInitiator.MP_INIT_PID);
+        expected.add("Sentinel 104 1");
+        expected.add("SP Insert 5 0");
+        expected.add("EOL " + MpInitiator.MP_INIT_PID);
+        assertEquals(expected, replay(null));
+
+        // Records the restored snapshot already holds are skipped
+        RestoreAgent.SnapshotInfo snapshot =
+                new RestoreAgent.SnapshotInfo(0, m_dir.getPath(), "nonce", 2, 2, 0, 0, null,
+                                              Collections.<String>emptySet(), SnapshotPathType.SNAP_CL);
+        snapshot.partitionToTxnId.put(0, TxnEgo.makeZero(0).makeNext().makeNext().getTxnId());
+        snapshot.partitionToTxnId.put(1, TxnEgo.makeZero(1).makeNext().makeNext().makeNext().getTxnId());
+        expected.clear();
+        expected.add("SP Insert 5 0");
+        expected.add("EOL " + MpInitiator.MP_INIT_PID);
+        assertEquals(expected, replay(snapshot));
+    }
+
+    public void testNoReplayWithoutRecover() throws Exception {
+        GroupCommitReplayAgent agent = new GroupCommitReplayAgent(StartAction.CREATE, m_dir.getPath());
+        assertFalse(agent.hasReplayedSegments());
+        assertNull(agent.getMaxLastSeenTxnByPartition());
+        assertEquals(Collections.emptyList(), replay(null));
+    }
+}
@@ -0,0 +1,97 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import junit.framework.TestCase;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.voltcore.utils.CompressionStrategySnappy;
+
+public class TestProcedureHistogramStats extends TestCase {
+
+    private static Object column(StatsSource source, Object row[], String name) {
+        for (int i = 0; i < source.getColumnSchema().size(); i++) {
+            if (source.getColumnSchema().get(i).name.equals(name)) {
+                return row[i];
+            }
+        }
+        fail("No column " + name);
+        return null;
+    }
+
+    public void testSitesShareOneHistogram() throws Exception {
+        ProcedureHistogramStats stats = new ProcedureHistogramStats();
+        assertEquals(0, stats.getStatsRows(false, 0L).length);
+
+        // Two sites running the same procedure record into the same histogram
+        AbstractHistogram site1 = stats.histogramFor("Insert");
+        AbstractHistogram site2 = stats.histogramFor("Insert");
+        assertSame(site1, site2);
+        for (int i = 1; i <= 1000; i++) {
+            ProcedureHistogramStats.record(i % 2 == 0 ? site1 : site2, i * 1000L);
+        }
+        ProcedureHistogramStats.record(stats.histogramFor("Select"), -5);
+
+        Object rows[][] = stats.getStatsRows(false, 0L);
+        assertEquals(2, rows.length);
+        Object insert[] = "Insert".equals(column(stats, rows[0], "PROCEDURE")) ? rows[0] : rows[1];
+        assertEquals(1000L, column(stats, insert, "TIMED_INVOCATIONS"));
+        assertEquals(1L, column(stats, insert, "MIN"));
+        long p99 = (Long)column(stats, insert, "P99");
+        assertTrue(Math.abs(p99 - 990) <= 10);
+        assertTrue((Long)column(stats, insert, "P99_9") >= p99);
+        assertTrue(Math.abs((Long)column(stats, insert, "MAX") - 1000) <= 10);
+
+        AbstractHistogram merged = AbstractHistogram.fromCompressedBytes(
+                (byte[])column(stats, insert, "HISTOGRAM"), CompressionStrategySnappy.INSTANCE);
+        assertEquals(1000, merged.getTotalCount());
+        assertEquals(p99, merged.getValueAtPercentile(99.0));
+    }
+
+    public void testIntervals() throws Exception {
+        StatementHistogramStats stats = new StatementHistogramStats();
+        AbstractHistogram histogram = stats.histogramFor("Insert", "insert");
+        assertNotSame(histogram, stats.histogramFor("Insert", StatementHistogramStats.BATCH));
+        for (int i = 0; i < 10; i++) {
+            ProcedureHistogramStats.record(histogram, 1000000);
+        }
+
+        // The first interval covers everything so far
+        Object rows[][] = stats.getStatsRows(true, 0L);
+        assertEquals(1, rows.length);
+        assertEquals("insert", column(stats, rows[0], "STATEMENT"));
+        assertEquals(10L, column(stats, rows[0], "TIMED_INVOCATIONS"));
+
+        ProcedureHistogramStats.record(histogram, 5000);
+        rows = stats.getStatsRows(true, 0L);
+        assertEquals(1, rows.length);
+        assertEquals(1L, column(stats, rows[0], "TIMED_INVOCATIONS"));
+        assertEquals(5L, column(stats, rows[0], "MAX"));
+
+        // Nothing new, nothing to report, but the totals are still there
+        assertEquals(0, stats.getStatsRows(true, 0L).length);
+        rows = stats.getStatsRows(false, 0L);
+        assertEquals(11L, column(stats, rows[0], "TIMED_INVOCATIONS"));
+    }
+}
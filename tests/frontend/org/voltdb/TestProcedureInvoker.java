@@ -0,0 +1,122 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltProcedure.VoltAbortException;
+
+public class TestProcedureInvoker extends TestCase {
+
+    public static class PrimitiveProc extends VoltProcedure {
+        public long run(long a, int b, double c, String d, byte[] e, Date f) {
+            return a + b + (long) c + d.length() + e.length + (f == null ? 0 : 1);
+        }
+    }
+
+    public static class VoidProc extends VoltProcedure {
+        public int m_calls = 0;
+        public void run() {
+            m_calls++;
+        }
+    }
+
+    public static class AbortingProc extends VoltProcedure {
+        public VoltTable[] run(long a) {
+            throw new VoltAbortException("abort " + a);
+        }
+    }
+
+    public static class ErrorProc extends VoltProcedure {
+        public VoltTable[] run() {
+            throw new OutOfMemoryError("fatal");
+        }
+    }
+
+    static class HiddenProc extends VoltProcedure {
+        public long run(long a) {
+            return a;
+        }
+    }
+
+    private static Method runMethod(Class<?> clz) {
+        for (Method m : clz.getDeclaredMethods()) {
+            if (m.getName().equals("run")) {
+                return m;
+            }
+        }
+        throw new RuntimeException("no run method in " + clz.getName());
+    }
+
+    public void testPrimitiveArguments() throws Exception {
+        PrimitiveProc proc = new PrimitiveProc();
+        ProcedureInvoker invoker = ProcedureInvoker.create(proc, runMethod(PrimitiveProc.class));
+        assertTrue(invoker instanceof ProcedureInvoker.MethodHandleInvoker);
+        Object result = invoker.invoke(new Object[] { 1L, 2, 3.5, "abcd", new byte[5], new Date() });
+        assertEquals(16L, result);
+        // invokers are reused across transactions
+        result = invoker.invoke(new Object[] { 10L, 0, 0.0, "", new byte[0], null });
+        assertEquals(10L, result);
+    }
+
+    public void testVoidReturn() throws Exception {
+        VoidProc proc = new VoidProc();
+        ProcedureInvoker invoker = ProcedureInvoker.create(proc, runMethod(VoidProc.class));
+        assertNull(invoker.invoke(new Object[0]));
+        assertEquals(1, proc.m_calls);
+    }
+
+    public void testExceptionsAreWrapped() throws Exception {
+        ProcedureInvoker invoker = ProcedureInvoker.create(new AbortingProc(), runMethod(AbortingProc.class));
+        try {
+            invoker.invoke(new Object[] { 7L });
+            fail();
+        }
+        catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof VoltAbortException);
+            assertEquals("abort 7", e.getCause().getMessage());
+        }
+
+        invoker = ProcedureInvoker.create(new ErrorProc(), runMethod(ErrorProc.class));
+        try {
+            invoker.invoke(new Object[0]);
+            fail();
+        }
+        catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof OutOfMemoryError);
+        }
+    }
+
+    public void testNonPublicClassFallsBackToReflection() throws Exception {
+        Method m = runMethod(HiddenProc.class);
+        ProcedureInvoker invoker = ProcedureInvoker.create(new HiddenProc(), m);
+        assertTrue(invoker instanceof ProcedureInvoker.ReflectiveInvoker);
+        // reflection still works here since the invoker shares the package
+        assertEquals(3L, invoker.invoke(new Object[] { 3L }));
+    }
+}
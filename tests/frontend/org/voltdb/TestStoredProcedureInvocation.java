@@ -292,4 +292,34 @@ public class TestStoredProcedureInvocation extends TestCase {
             }
         }
     }
+
+    public void testSetAndSerializeParams() throws IOException {
+        Object[] args = new Object[] { 7, "seven", null, new byte[] { 7, 7 } };
+
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("Foo");
+        spi.setClientHandle(7);
+        spi.setAndSerializeParams(args);
+
+        // the serialized form matches what a parameter set would write
+        ParameterSet expected = ParameterSet.fromArrayWithCopy(args);
+        ByteBuffer expectedBuf = ByteBuffer.allocate(expected.getSerializedSize());
+        expected.flattenToBuffer(expectedBuf);
+        expectedBuf.flip();
+        assertEquals(expectedBuf, spi.getSerializedParams());
+
+        // partition routing reads from the serialized form
+        assertEquals("seven", spi.getParameterAtIndex(1));
+
+        // and it survives being flattened again, e.g. by the command log
+        ByteBuffer buf = ByteBuffer.allocate(spi.getSerializedSize());
+        spi.flattenToBuffer(buf);
+        buf.flip();
+        StoredProcedureInvocation copy = new StoredProcedureInvocation();
+        copy.initFromBuffer(buf);
+        assertEquals("Foo", copy.getProcName());
+        assertEquals(7, copy.getClientHandle());
+        assertEquals(expected, copy.getParams());
+        assertEquals(expected, spi.getParams());
+    }
 }
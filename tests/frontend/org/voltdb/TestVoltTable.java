@@ -1366,6 +1366,63 @@ public class TestVoltTable extends TestCase {
         assertTrue(fetchRowTime < (advanceRowTime * 20));
     }
 
+    public void testRandomRowAccess() {
+        final int ROW_COUNT = 1000;
+        VoltTable t = new VoltTable(new ColumnInfo("ID", VoltType.BIGINT),
+                                    new ColumnInfo("NAME", VoltType.STRING));
+        for (int i = 0; i < ROW_COUNT; i++) {
+            // vary the row lengths so a wrong offset reads the wrong row
+            t.addRow(i, (i % 3 == 0) ? null : String.valueOf(i));
+        }
+
+        // backwards and skipping with fetchRow()
+        for (int i = ROW_COUNT - 1; i >= 0; i -= 7) {
+            assertEquals(i, t.fetchRow(i).getLong(0));
+        }
+        assertEquals(500, t.fetchRow(500).getLong(0));
+        assertEquals(501, t.fetchRow(501).getLong(0));
+        assertEquals(3, t.fetchRow(3).getLong(0));
+
+        // the way JDBC result sets move backwards
+        for (int i = ROW_COUNT - 1; i >= 0; i -= 13) {
+            t.resetRowPosition();
+            assertTrue(t.advanceToRow(0));
+            assertTrue(t.advanceToRow(i));
+            assertEquals(i, t.getLong(0));
+            assertEquals((i % 3 == 0) ? null : String.valueOf(i), t.getString(1));
+        }
+
+        // a row fetched from the table can also jump ahead
+        VoltTableRow row = t.fetchRow(10);
+        assertTrue(row.advanceToRow(900));
+        assertEquals(900, row.getLong(0));
+
+        // rows appended after the index was built
+        for (int i = ROW_COUNT; i < 2 * ROW_COUNT; i++) {
+            t.addRow(i, String.valueOf(i));
+        }
+        assertEquals(2 * ROW_COUNT - 1, t.fetchRow(2 * ROW_COUNT - 1).getLong(0));
+        t.resetRowPosition();
+        assertTrue(t.advanceToRow(1500));
+        assertEquals(1500, t.getLong(0));
+
+        // new rows of different lengths after clearing
+        t.clearRowData();
+        for (int i = 0; i < 100; i++) {
+            t.addRow(-i, "a much longer string than before " + i);
+        }
+        assertEquals(-99, t.fetchRow(99).getLong(0));
+        assertEquals(-50, t.fetchRow(50).getLong(0));
+        t.resetRowPosition();
+        assertTrue(t.advanceToRow(75));
+        assertEquals(-75, t.getLong(0));
+
+        // a deserialized copy builds its own index
+        VoltTable copy = roundTrip(t);
+        assertEquals(-42, copy.fetchRow(42).getLong(0));
+        assertEquals(-7, copy.fetchRow(7).getLong(0));
+    }
+
     public void testFetchRowAccuracy() {
         final int ROW_COUNT = 10000;
 
@@ -0,0 +1,230 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
+import org.voltdb.types.TimestampType;
+
+import junit.framework.TestCase;
+
+public class TestVoltTableBuilder extends TestCase {
+
+    private static final ColumnInfo[] ALL_TYPES = new ColumnInfo[] {
+        new ColumnInfo("TINY", VoltType.TINYINT),
+        new ColumnInfo("SMALL", VoltType.SMALLINT),
+        new ColumnInfo("INT", VoltType.INTEGER),
+        new ColumnInfo("BIG", VoltType.BIGINT),
+        new ColumnInfo("FLT", VoltType.FLOAT),
+        new ColumnInfo("TS", VoltType.TIMESTAMP),
+        new ColumnInfo("STR", VoltType.STRING),
+        new ColumnInfo("BIN", VoltType.VARBINARY),
+        new ColumnInfo("DEC", VoltType.DECIMAL),
+        new ColumnInfo("PT", VoltType.GEOGRAPHY_POINT),
+        new ColumnInfo("GEO", VoltType.GEOGRAPHY)
+    };
+
+    private static final GeographyValue GEOG_VALUE = GeographyValue.fromWKT("POLYGON((0 0, 0 1, -1 1, -1 0, 0 0))");
+    private static final GeographyPointValue GEOG_PT_VALUE = GeographyPointValue.fromWKT("POINT(-122.0264 36.9719)");
+
+    private static Object[] row(int i) {
+        return new Object[] {
+            (byte) i, (short) (i * 2), i * 3, i * 4L, i * 1.5, new TimestampType(i * 1000L),
+            "string " + i, new byte[] { (byte) i, 1, 2 }, new BigDecimal(i + ".25"),
+            GEOG_PT_VALUE, GEOG_VALUE
+        };
+    }
+
+    private static void assertSameBytes(VoltTable expected, VoltTable actual) {
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        ByteBuffer e = expected.getBuffer();
+        ByteBuffer a = actual.getBuffer();
+        assertEquals(e, a);
+    }
+
+    public void testAppendValueMatchesAddRow() {
+        VoltTable expected = new VoltTable(ALL_TYPES);
+        VoltTableBuilder builder = new VoltTableBuilder(ALL_TYPES, 1, true);
+        for (int i = 1; i < 100; i++) {
+            expected.addRow(row(i));
+            builder.appendRow(row(i));
+        }
+        Object[] nulls = new Object[ALL_TYPES.length];
+        expected.addRow(nulls);
+        builder.appendRow(nulls);
+
+        VoltTable built = builder.build();
+        assertSameBytes(expected, built);
+        assertTrue(built.hasSameContents(expected));
+        assertTrue(built.advanceRow());
+        assertEquals("string 1", built.getString("STR"));
+    }
+
+    public void testTypedAppends() {
+        ColumnInfo[] columns = new ColumnInfo[] {
+            new ColumnInfo("INT", VoltType.INTEGER),
+            new ColumnInfo("BIG", VoltType.BIGINT),
+            new ColumnInfo("FLT", VoltType.FLOAT),
+            new ColumnInfo("TS", VoltType.TIMESTAMP),
+            new ColumnInfo("STR", VoltType.STRING),
+            new ColumnInfo("BIN", VoltType.VARBINARY),
+            new ColumnInfo("DEC", VoltType.DECIMAL)
+        };
+        VoltTable expected = new VoltTable(columns);
+        expected.addRow(7, 8L, 9.5, new TimestampType(10), "eleven", new byte[] { 12 }, new BigDecimal("13.5"));
+        expected.addRow(null, null, null, null, null, null, null);
+
+        VoltTableBuilder builder = new VoltTableBuilder(columns, 2);
+        builder.appendLong(7).appendLong(8).appendDouble(9.5).appendTimestamp(10)
+               .appendString("eleven".getBytes(VoltTable.ROWDATA_ENCODING))
+               .appendVarbinary(new byte[] { 12 }).appendDecimal(new BigDecimal("13.5"));
+        for (int i = 0; i < columns.length; i++) {
+            builder.appendNull();
+        }
+        assertEquals(2, builder.getRowCount());
+        assertSameBytes(expected, builder.build());
+    }
+
+    public void testGrowsForLargeValues() {
+        ColumnInfo[] columns = new ColumnInfo[] {
+            new ColumnInfo("ID", VoltType.BIGINT),
+            new ColumnInfo("STR", VoltType.STRING),
+            new ColumnInfo("N", VoltType.INTEGER)
+        };
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            large.append('x');
+        }
+        VoltTable expected = new VoltTable(columns);
+        VoltTableBuilder builder = new VoltTableBuilder(columns, 1, true);
+        for (int i = 0; i < 50; i++) {
+            String value = large.substring(0, i * 200);
+            expected.addRow(i, value, i);
+            builder.appendLong(i).appendString(value).appendLong(i);
+        }
+        assertSameBytes(expected, builder.build());
+    }
+
+    public void testFailedAppendDiscardsRow() {
+        ColumnInfo[] columns = new ColumnInfo[] {
+            new ColumnInfo("ID", VoltType.BIGINT),
+            new ColumnInfo("T", VoltType.TINYINT)
+        };
+        VoltTableBuilder builder = new VoltTableBuilder(columns, 4);
+        builder.appendLong(1).appendLong(1);
+
+        builder.appendLong(2);
+        try {
+            builder.appendLong(1000);
+            fail();
+        } catch (VoltTypeException e) {
+            assertTrue(e.getMessage().contains("overflow"));
+        }
+        builder.appendLong(3);
+        try {
+            builder.appendString("three");
+            fail();
+        } catch (VoltTypeException e) {
+            assertTrue(e.getMessage().contains("(T)"));
+        }
+        try {
+            builder.appendRow(4L, "four");
+            fail();
+        } catch (VoltTypeException e) {
+        }
+        builder.appendRow(5L, (byte) 5);
+
+        VoltTable expected = new VoltTable(columns);
+        expected.addRow(1L, (byte) 1);
+        expected.addRow(5L, (byte) 5);
+        assertSameBytes(expected, builder.build());
+    }
+
+    public void testBuildAndReset() {
+        ColumnInfo[] columns = new ColumnInfo[] {
+            new ColumnInfo("ID", VoltType.BIGINT),
+            new ColumnInfo("STR", VoltType.STRING)
+        };
+        VoltTableBuilder builder = new VoltTableBuilder(columns, 4, true);
+        builder.appendLong(1);
+        try {
+            builder.build();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        builder.appendString("one");
+
+        VoltTable first = builder.build();
+        assertEquals(1, first.getRowCount());
+        try {
+            first.addRow(2L, "two");
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        try {
+            builder.appendLong(2);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        builder.reset();
+        builder.appendRow(2L, "two");
+        builder.appendRow(3L, "three");
+        VoltTable second = builder.build();
+        assertEquals(2, second.getRowCount());
+        assertTrue(second.advanceRow());
+        assertEquals(2L, second.getLong(0));
+        assertEquals("two", second.getString(1));
+    }
+
+    public void testAppendRows() {
+        ColumnInfo[] columns = new ColumnInfo[] {
+            new ColumnInfo("ID", VoltType.BIGINT),
+            new ColumnInfo("STR", VoltType.STRING)
+        };
+        VoltTable source = new VoltTable(columns);
+        source.addRow(1L, "one");
+        source.addRow(null, null);
+        VoltTable otherTypes = new VoltTable(new ColumnInfo("ID", VoltType.INTEGER),
+                new ColumnInfo("STR", VoltType.STRING));
+        otherTypes.addRow(3, "three");
+
+        VoltTableBuilder builder = new VoltTableBuilder(columns, 1);
+        builder.appendRows(source);
+        builder.appendRow(2L, "two");
+        builder.appendRows(otherTypes);
+        builder.appendRows(new VoltTable(columns));
+
+        VoltTable expected = new VoltTable(columns);
+        expected.addRow(1L, "one");
+        expected.addRow(null, null);
+        expected.addRow(2L, "two");
+        expected.addRow(3L, "three");
+        assertSameBytes(expected, builder.build());
+    }
+}
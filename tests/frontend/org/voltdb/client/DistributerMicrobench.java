@@ -0,0 +1,115 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Measures how many invocations per second application threads sharing one
+ * client can route and queue through the Distributer. The mock servers withhold
+ * their responses and backpressure is ignored, so queue() never waits and the
+ * run measures routing and queueing only.
+ *
+ * Usage: DistributerMicrobench [servers] [calls per thread]
+ */
+public class DistributerMicrobench {
+
+    static void run(final Distributer dist, int threadCount, final int perThread)
+            throws Exception
+    {
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+        final ProcedureCallback callback = new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse response) {
+            }
+        };
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < perThread; i++) {
+                            dist.queue(new ProcedureInvocation(i, "@Ping"), callback, true,
+                                    System.nanoTime(), 0);
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        barrier.await();
+        final long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long calls = (long)threadCount * perThread;
+        System.out.printf("%2d threads: %,11d calls/s%n", threadCount, calls * 1000000000L / elapsed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int servers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        final int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        // the mock servers report every message they withhold
+        System.setErr(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+
+        TestDistributer harness = new TestDistributer();
+        List<TestDistributer.MockVolt> volts = new ArrayList<TestDistributer.MockVolt>();
+        Distributer dist = new Distributer();
+        try {
+            for (int s = 0; s < servers; s++) {
+                TestDistributer.MockVolt volt = harness.new MockVolt(20000 + s);
+                volt.start();
+                volts.add(volt);
+                dist.createConnection("localhost", "", "", 20000 + s, ClientAuthScheme.HASH_SHA1);
+                volt.handler.sendResponses.set(false);
+            }
+            // warm up
+            run(dist, 1, perThread);
+            for (int threads : new int[] { 1, 2, 4, 8, 16 }) {
+                run(dist, threads, perThread);
+            }
+        }
+        finally {
+            dist.shutdown();
+            for (TestDistributer.MockVolt volt : volts) {
+                volt.shutdown();
+            }
+        }
+    }
+}
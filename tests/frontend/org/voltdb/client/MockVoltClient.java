@@ -67,6 +67,8 @@ import org.voltdb.VoltTable;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /** Hack subclass of VoltClient that fakes callProcedure. */
 public class MockVoltClient implements Client {
     public MockVoltClient() {
@@ -345,6 +347,20 @@ public class MockVoltClient implements Client {
         return null;
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters)
+            throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public List<ListenableFuture<ClientResponse>> callProceduresAsync(List<ProcedureCall> calls)
+            throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
     @Override
     public boolean callAllPartitionProcedure(AllPartitionProcedureCallback callback, String procedureName,
             Object... params)  throws IOException, NoConnectionsException, ProcCallException {
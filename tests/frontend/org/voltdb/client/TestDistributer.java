@@ -474,6 +474,116 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    @Test
+    public void testQueueBatch() throws Exception {
+
+        // A batch is spread round-robin over uncongested connections and every callback runs.
+        MockVolt volt0, volt1, volt2;
+        volt0 = volt1 = volt2 = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+            volt1 = new MockVolt(20001);
+            volt1.start();
+            volt2 = new MockVolt(20002);
+            volt2.start();
+
+            Distributer dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false, false, null /* subject */);
+            dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+            dist.createConnection("localhost", "", "", 20001, ClientAuthScheme.HASH_SHA1);
+            dist.createConnection("localhost", "", "", 20002, ClientAuthScheme.HASH_SHA1);
+
+            final AtomicInteger responses = new AtomicInteger();
+            List<ProcedureInvocation> invocations = new ArrayList<ProcedureInvocation>();
+            List<ProcedureCallback> callbacks = new ArrayList<ProcedureCallback>();
+            for (int handle = 1; handle <= 6; handle++) {
+                invocations.add(new ProcedureInvocation(handle, "i1", new Integer(handle)));
+                callbacks.add(new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        assertEquals(ClientResponse.SUCCESS, clientResponse.getStatus());
+                        responses.incrementAndGet();
+                    }
+                });
+            }
+
+            boolean queued[] = dist.queueBatch(invocations, callbacks, true, System.nanoTime(), 0);
+            for (boolean q : queued) {
+                assertTrue(q);
+            }
+            dist.drain();
+
+            assertEquals(6, responses.get());
+            assertEquals(2, volt0.handler.roundTrips.get());
+            assertEquals(2, volt1.handler.roundTrips.get());
+            assertEquals(2, volt2.handler.roundTrips.get());
+        }
+        finally {
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+            if (volt1 != null) {
+                volt1.shutdown();
+            }
+            if (volt2 != null) {
+                volt2.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testQueueBatchSkipsTimedOutInvocations() throws Exception {
+
+        // With one outstanding transaction allowed, the second invocation of the batch
+        // times out in the rate limiter and must not be sent.
+        MockVolt volt0 = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+
+            Distributer dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false, false, null /* subject */);
+            dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+            // let the calls made while connecting finish before limiting outstanding transactions
+            dist.drain();
+            dist.m_rateLimiter.setLimits(Integer.MAX_VALUE, 1);
+            final int roundTripsBefore = volt0.handler.roundTrips.get();
+
+            final int statuses[] = new int[2];
+            List<ProcedureInvocation> invocations = new ArrayList<ProcedureInvocation>();
+            List<ProcedureCallback> callbacks = new ArrayList<ProcedureCallback>();
+            for (int i = 0; i < 2; i++) {
+                final int index = i;
+                invocations.add(new ProcedureInvocation(i + 1, "i1", new Integer(i)));
+                callbacks.add(new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        statuses[index] = clientResponse.getStatus();
+                    }
+                });
+            }
+
+            // A timeout of at least a second is left to the periodic expiration check.
+            // The first invocation may also time out by the time the batch is written,
+            // but it is still sent and drain waits for its response.
+            dist.queueBatch(invocations, callbacks, false, System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(1500));
+            dist.drain();
+
+            assertEquals(ClientResponse.CONNECTION_TIMEOUT, statuses[1]);
+            assertEquals(roundTripsBefore + 1, volt0.handler.roundTrips.get());
+        }
+        finally {
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testQueueMixed() throws Exception {
 
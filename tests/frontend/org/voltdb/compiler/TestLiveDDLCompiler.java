@@ -26,9 +26,11 @@ package org.voltdb.compiler;
 import java.io.File;
 
 import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.CatalogDiffEngine;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Table;
 import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.InMemoryJarfile;
 import org.voltdb.utils.MiscUtils;
 
 import junit.framework.TestCase;
@@ -108,4 +110,93 @@ public class TestLiveDDLCompiler extends TestCase {
         Table t = db.getTables().get("T");
         assertEquals(null, t);
     }
+
+    private static final String LIVE_DDL_BASE_SCHEMA =
+        "CREATE TABLE T1 (A INTEGER NOT NULL, B INTEGER NOT NULL, C INTEGER);\n" +
+        "PARTITION TABLE T1 ON COLUMN A;\n" +
+        "CREATE INDEX T1_B ON T1 (B);\n" +
+        "CREATE TABLE T2 (B INTEGER NOT NULL, C INTEGER NOT NULL);\n" +
+        "CREATE TABLE T3 (A INTEGER NOT NULL, B INTEGER NOT NULL, " +
+        "LIMIT PARTITION ROWS 10 EXECUTE (DELETE FROM T3 WHERE B < 5));\n" +
+        "PARTITION TABLE T3 ON COLUMN A;\n" +
+        "CREATE VIEW V1 (A, CNT, MINC) AS SELECT A, COUNT(*), MIN(C) FROM T1 GROUP BY A;\n" +
+        "CREATE VIEW V2 (A, CNT, MAXC) AS " +
+        "SELECT T1.A, COUNT(*), MAX(T2.C) FROM T1 JOIN T2 ON T1.B = T2.B GROUP BY T1.A;\n" +
+        "CREATE PROCEDURE P1 AS SELECT * FROM T1 WHERE A = ? AND B > ?;\n" +
+        "PARTITION PROCEDURE P1 ON TABLE T1 COLUMN A;\n" +
+        "CREATE PROCEDURE P2 AS SELECT * FROM T2 WHERE C = ?;\n" +
+        "CREATE PROCEDURE P3 AS SELECT B, COUNT(*) FROM T3 GROUP BY B;\n";
+
+    private static Catalog catalogFromJarBytes(byte[] jarBytes) throws Exception
+    {
+        Catalog catalog = new Catalog();
+        catalog.execute(CatalogUtil.getSerializedCatalogStringFromJar(
+                    CatalogUtil.loadAndUpgradeCatalogFromJar(jarBytes).getFirst()));
+        return catalog;
+    }
+
+    private static Catalog compileFully(String schema) throws Exception
+    {
+        File jarOut = File.createTempFile("liveddl", ".jar");
+        jarOut.deleteOnExit();
+        VoltCompiler compiler = new VoltCompiler();
+        boolean success = compiler.compileFromDDL(jarOut.getPath(),
+                VoltProjectBuilder.writeStringToTempFile(schema).getPath());
+        assertTrue("Compilation failed unexpectedly", success);
+        return catalogFromJarBytes(MiscUtils.fileToBytes(jarOut));
+    }
+
+    private static Catalog compileIncrementally(String schema, String newDDL) throws Exception
+    {
+        File jarOut = File.createTempFile("liveddl", ".jar");
+        jarOut.deleteOnExit();
+        VoltCompiler compiler = new VoltCompiler();
+        boolean success = compiler.compileFromDDL(jarOut.getPath(),
+                VoltProjectBuilder.writeStringToTempFile(schema).getPath());
+        assertTrue("Compilation failed unexpectedly", success);
+
+        byte[] jarBytes = MiscUtils.fileToBytes(jarOut);
+        InMemoryJarfile jarfile = CatalogUtil.loadInMemoryJarFile(jarBytes);
+        new VoltCompiler().compileInMemoryJarfileWithNewDDL(jarfile, newDDL, catalogFromJarBytes(jarBytes));
+        return catalogFromJarBytes(jarfile.getFullJarBytes());
+    }
+
+    private static void assertSameCatalog(Catalog expected, Catalog actual)
+    {
+        CatalogDiffEngine diff = new CatalogDiffEngine(expected, actual);
+        // Only the compile time epoch and the log of DDL statements fed to HSQL
+        // (which live DDL replays from the canonical DDL) are allowed to differ
+        for (String command : diff.commands().split("\n")) {
+            if (!command.isEmpty()) {
+                assertTrue("Unexpected catalog difference: " + command,
+                        command.contains(" localepoch ") || command.contains(" schema "));
+            }
+        }
+    }
+
+    // Live DDL reuses the plans of statements whose tables didn't change, which
+    // must give the same catalog as compiling the whole schema from scratch.
+    public void testLiveDDLMatchesFullCompile() throws Exception
+    {
+        String[] newDDLs = new String[] {
+                // changes T2, so P2 and the join view V2 are replanned
+                "CREATE INDEX T2_C ON T2 (C);\n",
+                // changes T1, the view on it and the join view
+                "CREATE INDEX T1_C ON T1 (C);\n",
+                // changes T3 and its row limit delete statement
+                "CREATE INDEX T3_B ON T3 (B);\n",
+                // changes nothing any statement reads
+                "CREATE TABLE T4 (A INTEGER NOT NULL);\n",
+                // drops an index the view plans may have used
+                "DROP INDEX T1_B;\n",
+                // adds a procedure
+                "CREATE PROCEDURE P4 AS SELECT * FROM T1, T2 WHERE T1.B = T2.B;\n",
+        };
+        for (String newDDL : newDDLs) {
+            long hitsBefore = VoltCompiler.m_stmtCacheHits;
+            Catalog incremental = compileIncrementally(LIVE_DDL_BASE_SCHEMA, newDDL);
+            assertTrue("No plans were reused for " + newDDL, VoltCompiler.m_stmtCacheHits > hitsBefore);
+            assertSameCatalog(compileFully(LIVE_DDL_BASE_SCHEMA + newDDL), incremental);
+        }
+    }
 }
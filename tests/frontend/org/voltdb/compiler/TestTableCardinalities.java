@@ -0,0 +1,95 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestTableCardinalities extends TestCase {
+
+    private static Map<String, Long> counts(Object... tableAndCount)
+    {
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (int i = 0; i < tableAndCount.length; i += 2) {
+            counts.put((String) tableAndCount[i], ((Number) tableAndCount[i + 1]).longValue());
+        }
+        return counts;
+    }
+
+    private static Map<String, Map<String, Long>> noIndexes()
+    {
+        return new HashMap<String, Map<String, Long>>();
+    }
+
+    public void testEstimatesFromPartitions() throws Exception
+    {
+        TableCardinalities cardinalities = new TableCardinalities();
+        assertNull(cardinalities.getEstimates());
+
+        Map<String, Map<String, Long>> keys = noIndexes();
+        keys.put("T", counts("T_IDX", 40));
+        cardinalities.update(0, counts("T", 50000, "R", 10), keys);
+        keys = noIndexes();
+        keys.put("T", counts("T_IDX", 30));
+        cardinalities.update(1, counts("T", 20000, "R", 10), keys);
+
+        DatabaseEstimates estimates = cardinalities.getEstimates();
+        DatabaseEstimates.TableEstimates t = estimates.getEstimatesForTable("T");
+        assertEquals(50000, t.maxTuples);
+        assertEquals(20000, t.minTuples);
+        assertEquals(Long.valueOf(40), t.distinctKeys.get("T_IDX"));
+        // tiny tables are costed at the floor
+        assertEquals(TableCardinalities.MIN_ESTIMATED_TUPLES,
+                estimates.getEstimatesForTable("R").maxTuples);
+        // tables no site has reported keep the default guesses
+        assertEquals(new DatabaseEstimates.TableEstimates().maxTuples,
+                estimates.getEstimatesForTable("UNKNOWN").maxTuples);
+    }
+
+    public void testGenerationChangesOnlyOnDrift() throws Exception
+    {
+        TableCardinalities cardinalities = new TableCardinalities();
+        long generation = cardinalities.getGeneration();
+
+        // small tables never change the generation
+        cardinalities.update(0, counts("T", 10), noIndexes());
+        assertEquals(generation, cardinalities.getGeneration());
+
+        cardinalities.update(0, counts("T", 100000), noIndexes());
+        assertEquals(generation + 1, cardinalities.getGeneration());
+
+        // modest growth keeps the plans
+        cardinalities.update(0, counts("T", 150000), noIndexes());
+        assertEquals(generation + 1, cardinalities.getGeneration());
+        // slow growth is measured from the last generation change, so it adds up
+        cardinalities.update(0, counts("T", 210000), noIndexes());
+        assertEquals(generation + 2, cardinalities.getGeneration());
+
+        // shrinking counts too
+        cardinalities.update(0, counts("T", 90000), noIndexes());
+        assertEquals(generation + 3, cardinalities.getGeneration());
+    }
+}
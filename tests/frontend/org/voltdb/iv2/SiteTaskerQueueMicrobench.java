@@ -0,0 +1,112 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import org.voltdb.StarvationTracker;
+
+/**
+ * Compares the default LinkedTransferQueue backed SiteTaskerQueue against the ring
+ * queue with each wait strategy. N producer threads offer tasks as fast as they can
+ * while one consumer takes them, as the network threads and the site thread do.
+ *
+ * Usage: SiteTaskerQueueMicrobench [producers] [tasks per producer]
+ */
+public class SiteTaskerQueueMicrobench {
+
+    static final SiteTasker TASK = new SiteTasker.SiteTaskerRunnable() {
+        @Override
+        void run() {}
+    };
+
+    static long run(final SiteTaskerQueue queue, int producerCount, final int perProducer)
+            throws Exception
+    {
+        queue.setStarvationTracker(new StarvationTracker(0));
+        final CyclicBarrier barrier = new CyclicBarrier(producerCount + 1);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int p = 0; p < producerCount; p++) {
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.offer(TASK);
+                    }
+                }
+            };
+            t.start();
+            producers.add(t);
+        }
+
+        barrier.await();
+        final long start = System.nanoTime();
+        final long total = (long)producerCount * perProducer;
+        for (long i = 0; i < total; i++) {
+            queue.take();
+        }
+        final long elapsed = System.nanoTime() - start;
+        for (Thread t : producers) {
+            t.join();
+        }
+        return elapsed;
+    }
+
+    static void report(String name, long elapsedNanos, long tasks) {
+        System.out.printf("%-28s %,12d tasks in %8.1f ms => %6.1f ns/task => %,.0f tasks/s%n",
+                name, tasks, elapsedNanos / 1000000.0, (double)elapsedNanos / tasks,
+                tasks / (elapsedNanos / 1000000000.0));
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final int perProducer = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        final long tasks = (long)producers * perProducer;
+
+        // Warm up every implementation before timing anything
+        for (int i = 0; i < 3; i++) {
+            run(new SiteTaskerQueue(), producers, perProducer / 10);
+            for (SiteTaskerRingQueue.WaitStrategy strategy : SiteTaskerRingQueue.WaitStrategy.values()) {
+                run(new SiteTaskerRingQueue(SiteTaskerRingQueue.DEFAULT_CAPACITY, strategy),
+                        producers, perProducer / 10);
+            }
+        }
+
+        report("LinkedTransferQueue", run(new SiteTaskerQueue(), producers, perProducer), tasks);
+        for (SiteTaskerRingQueue.WaitStrategy strategy : SiteTaskerRingQueue.WaitStrategy.values()) {
+            SiteTaskerRingQueue queue =
+                    new SiteTaskerRingQueue(SiteTaskerRingQueue.DEFAULT_CAPACITY, strategy);
+            long elapsed = run(queue, producers, perProducer);
+            report("Ring " + strategy, elapsed, tasks);
+            System.out.printf("%-28s %,12d overflowed%n", "", queue.getOverflowCount());
+        }
+    }
+}
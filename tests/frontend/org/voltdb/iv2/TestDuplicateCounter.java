@@ -0,0 +1,77 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.RefCountedBBContainer;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.jni.ResultBufferPool;
+import org.voltdb.messaging.InitiateResponseMessage;
+
+public class TestDuplicateCounter extends TestCase
+{
+    private static InitiateResponseMessage response(long sourceHSId, RefCountedBBContainer container)
+    {
+        ClientResponseImpl r = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0], null);
+        r.setHash(42);
+        r.setResultContainers(new BBContainer[] { container });
+        InitiateResponseMessage message = new InitiateResponseMessage();
+        message.setResults(r);
+        message.m_sourceHSId = sourceHSId;
+        return message;
+    }
+
+    // Local replicas hand their responses over without serializing them, the counter
+    // must release the pooled result buffers of every response it doesn't pass on.
+    public void testReleasesResultsOfDroppedResponses()
+    {
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(1L);
+        replicas.add(2L);
+        DuplicateCounter counter = new DuplicateCounter(0L, 1L, replicas, null);
+
+        RefCountedBBContainer first = ResultBufferPool.allocate(1024);
+        RefCountedBBContainer second = ResultBufferPool.allocate(1024);
+        InitiateResponseMessage firstResponse = response(1L, first);
+        InitiateResponseMessage secondResponse = response(2L, second);
+
+        assertEquals(DuplicateCounter.WAITING, counter.offer(firstResponse));
+        assertEquals(1, first.refCount());
+        assertEquals(DuplicateCounter.DONE, counter.offer(secondResponse));
+        assertSame(secondResponse, counter.getLastResponse());
+        assertEquals(0, first.refCount());
+        assertEquals(1, second.refCount());
+
+        // The kept response is released by the client interface once it is written out
+        secondResponse.discardResultContainers();
+        assertEquals(0, second.refCount());
+    }
+}
@@ -0,0 +1,115 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+
+import org.voltdb.iv2.SpScheduler.DuplicateCounterKey;
+
+public class TestDuplicateCounterMap extends TestCase
+{
+    static DuplicateCounter counter(long txnId)
+    {
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(1L);
+        replicas.add(2L);
+        return new DuplicateCounter(0L, txnId, replicas, null);
+    }
+
+    public void testInOrder()
+    {
+        DuplicateCounterMap map = new DuplicateCounterMap();
+        List<DuplicateCounter> counters = new ArrayList<DuplicateCounter>();
+        // enough to wrap and grow the ring
+        for (long i = 0; i < 1000; i++) {
+            DuplicateCounter dc = counter(i);
+            counters.add(dc);
+            map.put(i, i, dc);
+            if (i >= 100) {
+                assertSame(counters.get((int) i - 100), map.remove(i - 100, i - 100));
+            }
+        }
+        assertEquals(100, map.size());
+        for (long i = 0; i < 1000; i++) {
+            assertEquals(i >= 900 ? counters.get((int) i) : null, map.get(i, i));
+        }
+    }
+
+    public void testOutOfOrderRemoval()
+    {
+        DuplicateCounterMap map = new DuplicateCounterMap();
+        for (long i = 0; i < 600; i++) {
+            map.put(i, i, counter(i));
+        }
+        // remove every odd counter, then the evens
+        for (long i = 1; i < 600; i += 2) {
+            assertNotNull(map.remove(i, i));
+            assertNull(map.remove(i, i));
+        }
+        assertEquals(300, map.size());
+        for (long i = 600; i < 1200; i++) {
+            map.put(i, i, counter(i));
+        }
+        for (long i = 0; i < 1200; i++) {
+            boolean present = i >= 600 || i % 2 == 0;
+            assertEquals(present, map.get(i, i) != null);
+        }
+        for (long i = 0; i < 600; i += 2) {
+            assertEquals(i, map.remove(i, i).getTxnId());
+        }
+        assertEquals(600, map.size());
+    }
+
+    public void testOtherKeys()
+    {
+        DuplicateCounterMap map = new DuplicateCounterMap();
+        map.put(10, 10, counter(10));
+        // an every-site sysproc with an MP txnId, and an spHandle out of order
+        map.put(3, 11, counter(3));
+        map.put(5, 5, counter(5));
+        map.put(12, 12, counter(12));
+
+        assertEquals(4, map.size());
+        assertEquals(3, map.get(3, 11).getTxnId());
+        assertNull(map.get(11, 11));
+        assertEquals(5, map.get(5, 5).getTxnId());
+
+        long expected[] = new long[] { 3, 5, 10, 12 };
+        int i = 0;
+        for (Entry<DuplicateCounterKey, DuplicateCounter> e : map.toSortedMap().entrySet()) {
+            assertEquals(expected[i++], e.getValue().getTxnId());
+        }
+
+        assertEquals(5, map.remove(5, 5).getTxnId());
+        assertEquals(3, map.remove(3, 11).getTxnId());
+        assertEquals(10, map.remove(10, 10).getTxnId());
+        assertEquals(12, map.remove(12, 12).getTxnId());
+        assertEquals(0, map.size());
+        assertTrue(map.toSortedMap().isEmpty());
+    }
+}
@@ -152,6 +152,29 @@ public class TestDurabilityListener {
         }
     }
 
+    @Test
+    public void testUnloggedOutOfOrder()
+    {
+        final SpProcedureTask promotion = newInitMsg(true, m_taskQueue, UniqueIdGenerator.makeIdFromComponents(10, 0, 0));
+        final SpProcedureTask replayed = newInitMsg(true, m_taskQueue, UniqueIdGenerator.makeIdFromComponents(5, 0, 0));
+
+        dut.createFirstCompletionCheck(true, true);
+        dut.addUnloggedTransaction(promotion);
+        dut.addUnloggedTransaction(replayed);
+        CompletionChecks checks = dut.startNewTaskList(dut.getNumberOfTasks());
+        assertTrue(checks.isChanged());
+        checks.processChecks();
+
+        // Both are released, neither is durable
+        verify(m_taskQueue).offer(promotion);
+        verify(m_taskQueue).offer(replayed);
+        assertFalse(m_listener.m_notified);
+
+        final List<Long> spUniqIds = logSp(7);
+        dut.startNewTaskList(dut.getNumberOfTasks()).processChecks();
+        assertEquals(spUniqIds.get(0).longValue(), m_listener.m_spUniqueId);
+    }
+
     @Test
     public void testProcessDurabilityChecks()
     {
@@ -0,0 +1,256 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltcore.messaging.Mailbox;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.ProcedureRunner;
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.StarvationTracker;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.TheHashinator;
+import org.voltdb.VoltTable;
+import org.voltdb.dtxn.TransactionState;
+import org.voltdb.dtxn.UndoAction;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TestSiteTaskerQueue extends TestCase
+{
+    static class NumberedTask extends SiteTasker.SiteTaskerRunnable {
+        final int m_number;
+
+        NumberedTask(int number, boolean priority) {
+            m_number = number;
+            setPriority(priority);
+        }
+
+        @Override
+        void run() {}
+    }
+
+    @Override
+    public void setUp() {
+        SiteTaskerQueue.setTrackWaits(true);
+    }
+
+    @Override
+    public void tearDown() {
+        SiteTaskerQueue.setTrackWaits(false);
+    }
+
+    private static SiteTaskerQueue[] getQueues() {
+        SiteTaskerQueue[] queues = new SiteTaskerQueue[] {
+                new SiteTaskerQueue(),
+                new SiteTaskerRingQueue(64, SiteTaskerRingQueue.WaitStrategy.BLOCKING)
+        };
+        for (SiteTaskerQueue queue : queues) {
+            queue.setStarvationTracker(new StarvationTracker(0));
+        }
+        return queues;
+    }
+
+    public void testPriorityLaneRunsFirst() throws Exception {
+        for (SiteTaskerQueue queue : getQueues()) {
+            queue.offer(new NumberedTask(0, false));
+            queue.offer(new NumberedTask(1, false));
+            queue.offer(new NumberedTask(2, true));
+            queue.offer(new NumberedTask(3, false));
+            queue.offer(new NumberedTask(4, true));
+            assertEquals(3, queue.getDepth(false));
+            assertEquals(2, queue.getDepth(true));
+
+            int[] expected = new int[] { 2, 4, 0, 1, 3 };
+            for (int number : expected) {
+                assertFalse(queue.isEmpty());
+                assertEquals(number, ((NumberedTask)queue.take()).m_number);
+            }
+            // The tokens of the priority tasks are discarded
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+            assertEquals(0, queue.getDepth(false));
+            assertEquals(0, queue.getDepth(true));
+            assertEquals(3, queue.getWaitStats(false).getCount());
+            assertEquals(2, queue.getWaitStats(true).getCount());
+        }
+    }
+
+    public void testPeekPinsTask() throws Exception {
+        for (SiteTaskerQueue queue : getQueues()) {
+            queue.offer(new NumberedTask(0, false));
+            SiteTasker peeked = queue.peek();
+            // A priority task offered after the peek doesn't change what poll returns
+            queue.offer(new NumberedTask(1, true));
+            assertSame(peeked, queue.peek());
+            assertSame(peeked, queue.poll());
+            assertEquals(1, ((NumberedTask)queue.peek()).m_number);
+            assertEquals(1, ((NumberedTask)queue.poll()).m_number);
+            assertNull(queue.peek());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    public void testBlockingTakeIsWokenByPriorityTask() throws Exception {
+        for (final SiteTaskerQueue queue : getQueues()) {
+            final CountDownLatch taken = new CountDownLatch(1);
+            Thread consumer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        if (((NumberedTask)queue.take()).m_number == 7) {
+                            taken.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                    }
+                }
+            };
+            consumer.start();
+            Thread.sleep(50);
+            queue.offer(new NumberedTask(7, true));
+            assertTrue(taken.await(10, TimeUnit.SECONDS));
+            consumer.join();
+        }
+    }
+
+    public void testWaitStats() throws Exception {
+        for (SiteTaskerQueue queue : getQueues()) {
+            queue.offer(new NumberedTask(0, false));
+            Thread.sleep(20);
+            queue.take();
+            SiteTaskerQueue.WaitStats stats = queue.getWaitStats(false);
+            assertEquals(1, stats.getCount());
+            assertTrue(stats.getTotalNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertEquals(stats.getTotalNanos(), stats.getMaxNanos());
+            assertEquals(stats.getMaxNanos(), stats.getAndResetIntervalMaxNanos());
+            assertEquals(0, stats.getAndResetIntervalMaxNanos());
+            assertEquals(0, queue.getWaitStats(true).getCount());
+        }
+    }
+
+    public void testWaitsNotTrackedWhenOff() throws Exception {
+        for (SiteTaskerQueue queue : getQueues()) {
+            SiteTaskerQueue.setTrackWaits(false);
+            NumberedTask untracked = new NumberedTask(0, false);
+            queue.offer(untracked);
+            queue.offer(new NumberedTask(1, true));
+            assertEquals(0, queue.getDepth(false));
+            assertEquals(0, queue.getDepth(true));
+            // Turning tracking on doesn't count the tasks offered before
+            SiteTaskerQueue.setTrackWaits(true);
+            queue.offer(new NumberedTask(2, false));
+            assertEquals(1, queue.getDepth(false));
+            assertEquals(1, ((NumberedTask)queue.take()).m_number);
+            assertSame(untracked, queue.take());
+            assertEquals(2, ((NumberedTask)queue.take()).m_number);
+            assertEquals(0, queue.getDepth(false));
+            assertEquals(1, queue.getWaitStats(false).getCount());
+            assertEquals(0, queue.getWaitStats(true).getCount());
+
+            // A task taken once is not counted again when offered with tracking off
+            queue.offer(untracked);
+            queue.take();
+            SiteTaskerQueue.setTrackWaits(false);
+            queue.offer(untracked);
+            queue.take();
+            assertEquals(2, queue.getWaitStats(false).getCount());
+            SiteTaskerQueue.setTrackWaits(true);
+        }
+    }
+
+    private static SpProcedureTask newSpTask(Mailbox mailbox, String procName, boolean readOnly, long spHandle) {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName(procName);
+        spi.setParams(1);
+        Iv2InitiateTaskMessage msg =
+                new Iv2InitiateTaskMessage(0, 0, 0, spHandle, spHandle, readOnly, true, spi, 0, 0, false);
+        msg.setSpHandle(spHandle);
+        return new SpProcedureTask(mailbox, procName, null, msg, null);
+    }
+
+    private static ProcedureRunner newRunner(byte status) {
+        ProcedureRunner runner = mock(ProcedureRunner.class);
+        doReturn(true).when(runner).checkPartition(any(TransactionState.class), any(TheHashinator.class));
+        doReturn(new ClientResponseImpl(status, new VoltTable[0], null)).when(runner).call(anyVararg());
+        return runner;
+    }
+
+    /**
+     * A prioritized read that runs ahead of a queued export write must not commit its spHandle,
+     * so the write that then aborts rolls back at its own spHandle.
+     */
+    public void testPrioritizedReadDoesNotCommitSpHandle() throws Exception {
+        final long writeSpHandle = TxnEgo.makeZero(0).makeNext().getTxnId();
+        final long readSpHandle = TxnEgo.makeZero(0).makeNext().makeNext().getTxnId();
+        for (SiteTaskerQueue queue : getQueues()) {
+            Mailbox mailbox = mock(Mailbox.class);
+            SiteProcedureConnection site = mock(SiteProcedureConnection.class);
+            doReturn(newRunner(ClientResponseImpl.USER_ABORT)).when(site).getProcedureRunner("InsertExport");
+            doReturn(newRunner(ClientResponseImpl.SUCCESS)).when(site).getProcedureRunner("Select");
+
+            queue.offer(newSpTask(mailbox, "InsertExport", false, writeSpHandle));
+            SpProcedureTask read = newSpTask(mailbox, "Select", true, readSpHandle);
+            read.setPriority(true);
+            queue.offer(read);
+
+            SiteTasker first = queue.take();
+            assertSame(read, first);
+            first.run(site);
+            verify(site, never()).truncateUndoLog(any(Boolean.class), anyLong(), anyLong(),
+                                                  anyListOf(UndoAction.class));
+            verify(site, never()).setSpHandleForSnapshotDigest(anyLong());
+
+            queue.take().run(site);
+            assertNull(queue.poll());
+            // The write rolls back at its own spHandle, nothing commits
+            verify(site, times(1)).truncateUndoLog(eq(true), anyLong(), eq(writeSpHandle),
+                                                   anyListOf(UndoAction.class));
+            verify(site, never()).truncateUndoLog(eq(false), anyLong(), anyLong(),
+                                                  anyListOf(UndoAction.class));
+        }
+    }
+
+    public void testWritesAreNeverPrioritized() {
+        SpProcedureTask write = newSpTask(mock(Mailbox.class), "Insert", false, TxnEgo.makeZero(0).getTxnId());
+        write.setPriority(true);
+        assertFalse(write.isPriority());
+        SpProcedureTask read = newSpTask(mock(Mailbox.class), "Select", true, TxnEgo.makeZero(0).getTxnId());
+        read.setPriority(true);
+        assertTrue(read.isPriority());
+    }
+}
@@ -0,0 +1,178 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltdb.StarvationTracker;
+
+public class TestSiteTaskerRingQueue extends TestCase
+{
+    static class NumberedTask extends SiteTasker.SiteTaskerRunnable {
+        final int m_producer;
+        final int m_number;
+
+        NumberedTask(int producer, int number) {
+            m_producer = producer;
+            m_number = number;
+        }
+
+        @Override
+        void run() {}
+    }
+
+    private static SiteTaskerRingQueue getQueue(int capacity, SiteTaskerRingQueue.WaitStrategy strategy) {
+        SiteTaskerRingQueue queue = new SiteTaskerRingQueue(capacity, strategy);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        return queue;
+    }
+
+    public void testCapacityRoundsUp() {
+        assertEquals(64, getQueue(64, SiteTaskerRingQueue.WaitStrategy.BLOCKING).getCapacity());
+        assertEquals(128, getQueue(65, SiteTaskerRingQueue.WaitStrategy.BLOCKING).getCapacity());
+    }
+
+    public void testFifoAcrossLaps() throws Exception {
+        SiteTaskerRingQueue queue = getQueue(8, SiteTaskerRingQueue.WaitStrategy.BLOCKING);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        int next = 0;
+        for (int lap = 0; lap < 10; lap++) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(queue.offer(new NumberedTask(0, lap * 5 + i)));
+            }
+            for (int i = 0; i < 5; i++) {
+                NumberedTask task = (NumberedTask)queue.peek();
+                assertEquals(next, task.m_number);
+                assertSame(task, queue.take());
+                next++;
+            }
+            assertTrue(queue.isEmpty());
+        }
+        assertEquals(0, queue.getOverflowCount());
+    }
+
+    public void testOverflowPreservesOrder() throws Exception {
+        SiteTaskerRingQueue queue = getQueue(4, SiteTaskerRingQueue.WaitStrategy.BLOCKING);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        assertEquals(6, queue.getOverflowCount());
+        // Interleave offers that land back in the ring with the drain
+        int offered = 10;
+        for (int i = 0; i < 20; i++) {
+            NumberedTask task = (NumberedTask)queue.poll();
+            assertEquals(i, task.m_number);
+            if (offered < 20) {
+                queue.offer(new NumberedTask(0, offered++));
+            }
+        }
+        assertNull(queue.poll());
+    }
+
+    public void testMultipleProducers() throws Exception {
+        for (SiteTaskerRingQueue.WaitStrategy strategy : SiteTaskerRingQueue.WaitStrategy.values()) {
+            final SiteTaskerRingQueue queue = getQueue(64, strategy);
+            final int producers = 4;
+            final int perProducer = 50000;
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                Thread t = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int i = 0; i < perProducer; i++) {
+                            queue.offer(new NumberedTask(producer, i));
+                        }
+                    }
+                };
+                t.start();
+                threads.add(t);
+            }
+            start.countDown();
+
+            int[] expected = new int[producers];
+            for (int i = 0; i < producers * perProducer; i++) {
+                NumberedTask task = (NumberedTask)queue.take();
+                assertEquals(strategy.toString(), expected[task.m_producer], task.m_number);
+                expected[task.m_producer]++;
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    public void testBlockingTakeIsWoken() throws Exception {
+        final SiteTaskerRingQueue queue = getQueue(64, SiteTaskerRingQueue.WaitStrategy.BLOCKING);
+        final CountDownLatch taken = new CountDownLatch(1);
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.take();
+                    taken.countDown();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(100);
+        queue.offer(new NumberedTask(0, 0));
+        assertTrue(taken.await(10, TimeUnit.SECONDS));
+        consumer.join();
+    }
+
+    public void testTakeIsInterruptible() throws Exception {
+        final SiteTaskerRingQueue queue = getQueue(64, SiteTaskerRingQueue.WaitStrategy.BLOCKING);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.take();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(100);
+        consumer.interrupt();
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        consumer.join();
+    }
+}
@@ -56,6 +56,9 @@ import org.voltdb.SnapshotCompletionMonitor;
 import org.voltdb.StarvationTracker;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltDBInterface;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
@@ -165,6 +168,59 @@ public class TestSpSchedulerDedupe extends TestCase
         verify(mbox, times(1)).send(eq(primary_hsid), eq(resp));
     }
 
+    @Test
+    public void testReplicaInitiateTaskResponseOmitsResults() throws Exception
+    {
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        long primary_hsid = 1111l;
+
+        createObjs();
+        Iv2InitiateTaskMessage sptask = createMsg(txnid, false, true, primary_hsid);
+        sptask.setSpHandle(txnid);
+        dut.deliver(sptask);
+        InitiateResponseMessage resp = new InitiateResponseMessage(sptask);
+        resp.setResults(newResponse(42));
+        dut.deliver(resp);
+        verify(mbox, times(1)).send(eq(primary_hsid), eq(resp));
+        // the leader only needs the status and hash from a replica
+        assertTrue(resp.isResultsOmitted());
+        assertEquals(0, resp.getClientResponseData().getResults().length);
+        assertEquals(Integer.valueOf(42), resp.getClientResponseData().getHash());
+        assertTrue(resp.shouldCommit());
+    }
+
+    @Test
+    public void testDuplicateCounterKeepsFullResponse() throws Exception
+    {
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(1l);
+        replicas.add(2l);
+        Iv2InitiateTaskMessage sptask = createMsg(txnid, false, true, 1111l);
+        DuplicateCounter counter = new DuplicateCounter(1111l, txnid, replicas, sptask);
+
+        InitiateResponseMessage leaderResp = new InitiateResponseMessage(sptask);
+        leaderResp.m_sourceHSId = 1l;
+        leaderResp.setResults(newResponse(42));
+        InitiateResponseMessage replicaResp = new InitiateResponseMessage(sptask);
+        replicaResp.m_sourceHSId = 2l;
+        replicaResp.setResults(newResponse(42));
+        replicaResp.omitResults();
+
+        assertEquals(DuplicateCounter.WAITING, counter.offer(leaderResp));
+        assertEquals(DuplicateCounter.DONE, counter.offer(replicaResp));
+        assertSame(leaderResp, counter.getLastResponse());
+    }
+
+    private static ClientResponseImpl newResponse(int hash)
+    {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("c", VoltType.BIGINT));
+        table.addRow(1);
+        ClientResponseImpl cr = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, "");
+        cr.setHash(hash);
+        return cr;
+    }
+
     @Test
     public void testReplicaInitiateTaskResponseShortCircuitRead() throws Exception
     {
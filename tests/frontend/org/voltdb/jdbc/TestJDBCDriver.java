@@ -33,6 +33,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -40,6 +41,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Arrays;
@@ -581,6 +583,58 @@ public class TestJDBCDriver {
         }
     }
 
+    @Test
+    public void testCallableBatch() throws SQLException {
+        CallableStatement cs = conn.prepareCall("{call InsertA(?, ?)}");
+        for (int i = 1000; i < 1500; i++) {
+            cs.setInt(1, i);
+            cs.setInt(2, i);
+            cs.addBatch();
+        }
+        int[] counts = cs.executeBatch();
+        assertEquals(500, counts.length);
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+        assertEquals(500, cs.getUpdateCount());
+
+        // the third insert violates the primary key
+        for (int i : new int[] {1500, 1501, 1000, 1502}) {
+            cs.setInt(1, i);
+            cs.setInt(2, i);
+            cs.addBatch();
+        }
+        try {
+            cs.executeBatch();
+            fail("Expected a BatchUpdateException");
+        } catch (BatchUpdateException e) {
+            counts = e.getUpdateCounts();
+            // the default batch window stops queueing at the failed insert
+            assertEquals(3, counts.length);
+            assertEquals(1, counts[0]);
+            assertEquals(1, counts[1]);
+            assertEquals(Statement.EXECUTE_FAILED, counts[2]);
+            assertEquals(SQLError.GENERAL_ERROR, ((SQLException) e.getCause()).getSQLState());
+        }
+    }
+
+    @Test
+    public void testBatchKeepsStatementOrder() throws SQLException {
+        // each statement depends on the one before it
+        Statement stmt = conn.createStatement();
+        for (int i = 0; i < 100; i++) {
+            stmt.addBatch("INSERT INTO ORDER_THIS VALUES (" + i + ", 1)");
+            stmt.addBatch("UPDATE ORDER_THIS SET A2 = 2 WHERE A1 = " + i);
+            stmt.addBatch("DELETE FROM ORDER_THIS WHERE A1 = " + i + " AND A2 = 2");
+        }
+        int[] counts = stmt.executeBatch();
+        assertEquals(300, counts.length);
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+        stmt.close();
+    }
+
     // Check that the null type is handled the same way as specifying the correct type
     // this is for spring framework compatibility
     @Test
@@ -0,0 +1,135 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jni;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.RefCountedBBContainer;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientResponse;
+
+public class TestResultBufferPool extends TestCase {
+
+    public void testSizeClasses() {
+        assertEquals(0, ResultBufferPool.sizeClass(1));
+        assertEquals(0, ResultBufferPool.sizeClass(4096));
+        assertEquals(1, ResultBufferPool.sizeClass(4097));
+        assertEquals(1, ResultBufferPool.sizeClass(8192));
+        assertEquals(ResultBufferPool.MAX_SIZE_CLASS_SHIFT - ResultBufferPool.MIN_SIZE_CLASS_SHIFT,
+                ResultBufferPool.sizeClass(1 << ResultBufferPool.MAX_SIZE_CLASS_SHIFT));
+        assertEquals(-1, ResultBufferPool.sizeClass((1 << ResultBufferPool.MAX_SIZE_CLASS_SHIFT) + 1));
+    }
+
+    public void testRecycledOnLastDiscard() {
+        final int size = 100000;
+        RefCountedBBContainer first = ResultBufferPool.allocate(size);
+        ByteBuffer b = first.b();
+        assertTrue(b.isDirect());
+        assertEquals(0, b.position());
+        assertEquals(size, b.limit());
+        b.putLong(42);
+
+        final int idle = ResultBufferPool.idleCount(size);
+        first.retain();
+        assertEquals(2, first.refCount());
+        first.discard();
+        assertEquals(idle, ResultBufferPool.idleCount(size));
+        first.discard();
+        assertEquals(idle + 1, ResultBufferPool.idleCount(size));
+
+        // The next allocation of the same class reuses the buffer, cleared to the new size
+        RefCountedBBContainer second = ResultBufferPool.allocate(size - 1);
+        assertEquals(idle, ResultBufferPool.idleCount(size));
+        assertEquals(0, second.b().position());
+        assertEquals(size - 1, second.b().limit());
+        second.discard();
+    }
+
+    // With -DEE_POOLED_RESULTS a procedure must not keep its result tables: once the
+    // response is released, the buffer behind them is handed to the next allocation.
+    public void testResponseReleaseRecyclesTables() {
+        final int size = 50000;
+        RefCountedBBContainer container = ResultBufferPool.allocate(size);
+        ByteBuffer b = container.b();
+        b.putLong(0, 42);
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0], null);
+        response.setResultContainers(new BBContainer[] { container });
+
+        final int idle = ResultBufferPool.idleCount(size);
+        response.discardResultContainers();
+        assertEquals(idle + 1, ResultBufferPool.idleCount(size));
+        // releasing again is a no-op
+        response.discardResultContainers();
+        assertEquals(idle + 1, ResultBufferPool.idleCount(size));
+
+        RefCountedBBContainer next = ResultBufferPool.allocate(size);
+        assertSame(b, next.b());
+        next.b().putLong(0, 7);
+        assertEquals(7, b.getLong(0));
+        next.discard();
+    }
+
+    public void testUnpooledSize() {
+        final int size = (1 << ResultBufferPool.MAX_SIZE_CLASS_SHIFT) + 1;
+        RefCountedBBContainer container = ResultBufferPool.allocate(size);
+        assertEquals(size, container.b().capacity());
+        container.discard();
+        assertEquals(0, ResultBufferPool.idleCount(size));
+    }
+
+    public void testLargeResultBufferReused() {
+        final int size = (1 << ResultBufferPool.MAX_SIZE_CLASS_SHIFT) + 1;
+        ResultBufferPool.LargeResultBuffer large = new ResultBufferPool.LargeResultBuffer();
+        RefCountedBBContainer first = ResultBufferPool.allocate(size, large);
+        ByteBuffer b = first.b();
+        assertEquals(size, b.limit());
+        assertEquals(1 << (ResultBufferPool.MAX_SIZE_CLASS_SHIFT + 1), b.capacity());
+        assertEquals(0, large.idleCapacity());
+
+        // While the first result is held, another one gets a buffer of its own
+        RefCountedBBContainer second = ResultBufferPool.allocate(size, large);
+        assertNotSame(b, second.b());
+        first.discard();
+        assertEquals(b.capacity(), large.idleCapacity());
+        second.discard();
+
+        // A smaller result reuses the idle buffer
+        RefCountedBBContainer third = ResultBufferPool.allocate(size + 100, large);
+        assertSame(b, third.b());
+        assertEquals(0, third.b().position());
+        assertEquals(size + 100, third.b().limit());
+        third.discard();
+
+        // A larger result grows it
+        final int bigger = b.capacity() + 1;
+        RefCountedBBContainer fourth = ResultBufferPool.allocate(bigger, large);
+        assertEquals(b.capacity() * 2, fourth.b().capacity());
+        fourth.discard();
+        assertEquals(b.capacity() * 2, large.idleCapacity());
+    }
+}
@@ -25,6 +25,8 @@ package org.voltdb.messaging;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -108,6 +110,36 @@ public class TestVoltMessageSerialization extends TestCase {
         assertTrue(itask.isForReplay());
     }
 
+    public void testIv2InitiateTaskBatch() throws IOException {
+        List<Iv2InitiateTaskMessage> tasks = new ArrayList<Iv2InitiateTaskMessage>();
+        for (int i = 0; i < 3; i++) {
+            StoredProcedureInvocation spi = new StoredProcedureInvocation();
+            spi.setClientHandle(25 + i);
+            spi.setProcName("johnisgreat");
+            spi.setParams(57 + i, "gooniestoo", "dudemandude");
+
+            Iv2InitiateTaskMessage itask = new Iv2InitiateTaskMessage(23, 23, 10L, 100045 + i, 99 + i, false, true, spi, 2101, 3101, false);
+            itask.setSpHandle(100045 + i);
+            tasks.add(itask);
+        }
+
+        Iv2InitiateTaskBatchMessage batch = new Iv2InitiateTaskBatchMessage(tasks);
+        Iv2InitiateTaskBatchMessage batch2 = (Iv2InitiateTaskBatchMessage) checkVoltMessage(batch);
+
+        assertEquals(tasks.size(), batch2.getTasks().size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Iv2InitiateTaskMessage itask = tasks.get(i);
+            Iv2InitiateTaskMessage itask2 = batch2.getTasks().get(i);
+            assertEquals(itask.getTxnId(), itask2.getTxnId());
+            assertEquals(itask.getSpHandle(), itask2.getSpHandle());
+            assertEquals(itask.getUniqueId(), itask2.getUniqueId());
+            assertEquals(itask.getTruncationHandle(), itask2.getTruncationHandle());
+            assertEquals(itask.getStoredProcedureInvocation().getClientHandle(),
+                    itask2.getStoredProcedureInvocation().getClientHandle());
+            assertEquals(itask.getParameterCount(), itask2.getParameterCount());
+        }
+    }
+
     public void testInitiateResponse() throws IOException {
         StoredProcedureInvocation spi = new StoredProcedureInvocation();
         spi.setClientHandle(25);
@@ -178,6 +210,35 @@ public class TestVoltMessageSerialization extends TestCase {
         assertEquals(ClientResponse.TXN_RESTART, iresponse2.getClientResponseData().getStatus());
     }
 
+    public void testResultsOmittedResponse() throws IOException {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("elmerfudd");
+        spi.setParams(57, "wrascallywabbit");
+
+        Iv2InitiateTaskMessage itask = new Iv2InitiateTaskMessage(23, 8, 10L, 100045, 99, false, true, spi, 2101, 3101, false);
+
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("foobar", VoltType.STRING)
+        );
+        table.addRow("howmanylicksdoesittaketogettothecenterofatootsiepop");
+
+        InitiateResponseMessage iresponse = new InitiateResponseMessage(itask);
+        ClientResponseImpl cr = new ClientResponseImpl(ClientResponse.SUCCESS,
+                new VoltTable[] { table, table }, "knockknockbananna");
+        cr.setHash(12345);
+        iresponse.setResults(cr);
+        iresponse.omitResults();
+
+        InitiateResponseMessage iresponse2 = (InitiateResponseMessage) checkVoltMessage(iresponse);
+
+        assertTrue(iresponse2.isResultsOmitted());
+        assertTrue(iresponse2.shouldCommit());
+        assertEquals(0, iresponse2.getClientResponseData().getResults().length);
+        assertEquals(Integer.valueOf(12345), iresponse2.getClientResponseData().getHash());
+        assertEquals("knockknockbananna", iresponse2.getClientResponseData().getStatusString());
+    }
+
     public void testFragmentTask() throws IOException {
         FragmentTaskMessage ft = new FragmentTaskMessage(9, 70654312, -75, 99, true, true, false);
         ft.addFragment(new byte[20], 12, ByteBuffer.allocate(0));
@@ -0,0 +1,58 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.voltdb.utils.Encoder;
+
+public class TestActivePlanRepository extends TestCase {
+
+    @Override
+    public void tearDown() {
+        ActivePlanRepository.clear();
+    }
+
+    public void testEncodedPlanIsDecodedOnLoad() {
+        byte[] hash = new byte[20];
+        hash[0] = 1;
+        byte[] plan = "{\"PLAN_NODES\":[]}".getBytes();
+        long id = ActivePlanRepository.loadOrAddRefPlanFragment(
+                hash, Encoder.compressAndBase64Encode(plan), "select 1;");
+        assertTrue(Arrays.equals(plan, ActivePlanRepository.planForFragmentId(id)));
+        assertEquals("select 1;", ActivePlanRepository.getStmtTextForPlanHash(hash));
+    }
+
+    public void testEncodedPlanSharesLoadedFragment() {
+        byte[] hash = new byte[20];
+        hash[0] = 2;
+        byte[] plan = "{\"PLAN_NODES\":[]}".getBytes();
+        long id = ActivePlanRepository.loadOrAddRefPlanFragment(hash, plan, "select 2;");
+        // a known plan is found by its hash, the encoded copy is never decoded
+        assertEquals(id, ActivePlanRepository.loadOrAddRefPlanFragment(hash, "not base64", "select 2;"));
+        assertTrue(Arrays.equals(plan, ActivePlanRepository.planForFragmentId(id)));
+    }
+}
@@ -25,12 +25,21 @@ package org.voltdb.planner;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.voltdb.CatalogContext;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 import org.voltdb.catalog.Catalog;
+import org.voltdb.compiler.AdHocCompilerCache;
 import org.voltdb.compiler.AdHocPlannedStatement;
 import org.voltdb.compiler.PlannerTool;
+import org.voltdb.compiler.TableCardinalities;
 import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.DbSettings;
@@ -136,6 +145,104 @@ public class TestPlannerTool extends TestCase {
         System.out.println(result);
     }
 
+    private CatalogContext compileTPCC() throws IOException {
+        TPCCProjectBuilder builder = new TPCCProjectBuilder();
+        builder.addAllDefaults();
+        final File jar = new File("tpcc-oop.jar");
+        jar.deleteOnExit();
+        builder.compile("tpcc-oop.jar");
+        byte[] bytes = MiscUtils.fileToBytes(new File("tpcc-oop.jar"));
+        String serializedCatalog = CatalogUtil.getSerializedCatalogStringFromJar(CatalogUtil.loadAndUpgradeCatalogFromJar(bytes).getFirst());
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        DbSettings settings = new DbSettings(ClusterSettings.create().asSupplier(),NodeSettings.create());
+        return new CatalogContext(0, 0, catalog, settings, bytes, null, new byte[] {}, 0);
+    }
+
+    private static String concurrentQuery(int i) {
+        // every fourth query is one the micro-optimizations rewrite
+        switch (i % 16) {
+        case 1:
+            return "select count(*) from ITEM where I_ID > " + i + ";";
+        case 5:
+            return "select max(I_ID) from ITEM where I_ID < " + i + ";";
+        case 9:
+            return "select I_ID from ITEM order by I_ID limit " + i + ";";
+        case 13:
+            return "select I_IM_ID, count(*) from ITEM group by I_IM_ID order by I_IM_ID limit " + i + ";";
+        }
+        // vary the statement shape so that every query is fully planned and
+        // exercises subquery statement and parameter numbering
+        StringBuilder sb = new StringBuilder();
+        sb.append("select I_ID, I_PRICE from ITEM where I_IM_ID = " +
+                  "(select max(I_ID) from ITEM where I_PRICE > " + i + ")");
+        for (int j = 0; j < i % 8; j++) {
+            sb.append(" and I_PRICE > " + j);
+        }
+        if (i % 3 == 0) {
+            sb.append(" order by I_ID");
+        }
+        return sb.toString() + ";";
+    }
+
+    public void testConcurrentPlanning() throws Exception {
+        final CatalogContext context = compileTPCC();
+        final int threads = 4;
+        final int queries = 64;
+
+        // plan everything serially first to get the expected plans
+        AdHocCompilerCache.clearHashCache();
+        PlannerTool serial = new PlannerTool(context.cluster, context.database, context.getCatalogHash());
+        final CorePlan[] expected = new CorePlan[queries];
+        for (int i = 0; i < queries; i++) {
+            expected[i] = serial.planSqlForTest(concurrentQuery(i)).core;
+        }
+        serial = null;
+
+        // then plan on several threads sharing one fresh PlannerTool and cache
+        AdHocCompilerCache.clearHashCache();
+        m_pt = new PlannerTool(context.cluster, context.database, context.getCatalogHash());
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        List<Future<CorePlan>> results = new ArrayList<Future<CorePlan>>();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < queries; i++) {
+                final String sql = concurrentQuery(i);
+                results.add(es.submit(new Callable<CorePlan>() {
+                    @Override
+                    public CorePlan call() {
+                        return m_pt.planSqlForTest(sql).core;
+                    }
+                }));
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(expected[i % queries], results.get(i).get());
+        }
+        es.shutdown();
+        assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    public void testStatsDriftInvalidatesCachedPlans() throws Exception {
+        final CatalogContext context = compileTPCC();
+        AdHocCompilerCache.clearHashCache();
+        m_pt = new PlannerTool(context.cluster, context.database, context.getCatalogHash());
+        AdHocCompilerCache cache = AdHocCompilerCache.getCacheForCatalogHash(context.getCatalogHash());
+
+        m_pt.planSqlForTest("select * from warehouse where w_id = 1;");
+        assertEquals(1, cache.getLiteralCacheSize());
+        assertEquals(1, cache.getCoreCacheSize());
+
+        // the plans survive as long as the statistics stay in the same generation
+        long generation = TableCardinalities.instance().getGeneration();
+        cache.invalidateIfStatsChanged(generation);
+        assertEquals(1, cache.getLiteralCacheSize());
+        assertEquals(1, cache.getCoreCacheSize());
+
+        cache.invalidateIfStatsChanged(generation + 1);
+        assertEquals(0, cache.getLiteralCacheSize());
+        assertEquals(0, cache.getCoreCacheSize());
+    }
+
     public void testBadDDL() throws IOException
     {
         // semicolons in in-lined comments are bad
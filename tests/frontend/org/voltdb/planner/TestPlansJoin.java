@@ -1724,6 +1724,27 @@ public class TestPlansJoin extends PlannerTestCase {
         }
     }
 
+    public void testHashJoinNeedsStatisticsOrOptIn() {
+        String sql = "SELECT * FROM R1 JOIN R2 ON R1.C = R2.C";
+        // The compiler's default table estimates are not evidence enough to hash
+        AbstractPlanNode pn = compile(sql);
+        assertFalse(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+        assertTrue(pn.hasAnyNodeOfType(PlanNodeType.NESTLOOP));
+
+        System.setProperty("PLANNER_HASH_JOIN", "true");
+        try {
+            pn = compile(sql);
+            assertTrue(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+            assertFalse(pn.hasAnyNodeOfType(PlanNodeType.NESTLOOP));
+            // A usable index on the inner table still wins
+            pn = compile("SELECT * FROM R1 JOIN R3 ON R1.A = R3.A");
+            assertFalse(pn.hasAnyNodeOfType(PlanNodeType.HASHJOIN));
+        }
+        finally {
+            System.clearProperty("PLANNER_HASH_JOIN");
+        }
+    }
+
     @Override
     protected void setUp() throws Exception {
         setupSchema(TestJoinOrder.class.getResource("testplans-join-ddl.sql"), "testplansjoin", false);
@@ -43,6 +43,8 @@ public class testLoadPlanNodeFromJSON extends PlannerTestCase {
     public void testLoadQueryPlans() throws JSONException {
         testLoadQueryPlanTree("select count(*) from l,t where lname=? and l.a=t.a order by l.b limit ?;");
         testLoadQueryPlanTree("select * from l,t where lname=? and l.a=t.a order by l.b limit ?;");
+        testLoadQueryPlanTree("select l.id from l, t where l.id = t.d;");
+        testLoadQueryPlanTree("select l.id from l join t on l.id = t.d and l.id is not distinct from t.c;");
         testLoadQueryPlanTree("select l.id, count(*) as tag from l group by l.id order by tag, l.id limit ?;");
         testLoadQueryPlanTree("select count(*) from l where lname=? and id < ?;");
         testLoadQueryPlanTree("select l.id from l where l.id = ? and exists (select a from t where l.a = t.a and l.a =t.b)");
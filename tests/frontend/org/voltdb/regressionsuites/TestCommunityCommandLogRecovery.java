@@ -0,0 +1,104 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.regressionsuites;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.client.Client;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.utils.MiscUtils;
+
+/**
+ * Kills and recovers a single host cluster that logs with the community command log
+ */
+public class TestCommunityCommandLogRecovery extends RegressionSuite
+{
+    public TestCommunityCommandLogRecovery(String name) {
+        super(name);
+    }
+
+    private void killAndRecover() throws Exception {
+        LocalCluster cluster = (LocalCluster)m_config;
+        // Kills the server process without draining it
+        cluster.shutDown();
+        if (!cluster.isNewCli()) {
+            cluster.overrideStartCommandVerb("recover");
+        }
+        m_config.startUp(false);
+    }
+
+    private void checkContents(Client client, long rows, long sum) throws Exception {
+        assertEquals(rows, client.callProcedure("@AdHoc", "SELECT COUNT(*) FROM KV;")
+                                 .getResults()[0].asScalarLong());
+        assertEquals(sum, client.callProcedure("@AdHoc", "SELECT SUM(value) FROM KV;")
+                                .getResults()[0].asScalarLong());
+    }
+
+    public void testRecoverFromCommandLog() throws Exception {
+        // The enterprise command log replaces the community one
+        if (MiscUtils.isPro()) return;
+        if (isValgrind()) return;
+
+        Client client = getClient();
+        for (int i = 0; i < 100; i++) {
+            client.callProcedure("KV.insert", i, 1);
+        }
+        // Multi-partition writes are replayed once, in order with the single partition ones
+        client.callProcedure("@AdHoc", "UPDATE KV SET value = value + 1;");
+        for (int i = 100; i < 200; i++) {
+            client.callProcedure("KV.insert", i, 1);
+        }
+        killAndRecover();
+        client = getClient();
+        checkContents(client, 200, 300);
+
+        // Without snapshots the log keeps every segment, a second recovery replays them all again
+        for (int i = 200; i < 250; i++) {
+            client.callProcedure("KV.insert", i, 1);
+        }
+        killAndRecover();
+        client = getClient();
+        checkContents(client, 250, 350);
+    }
+
+    static public junit.framework.Test suite() throws Exception {
+        final MultiConfigSuiteBuilder builder = new MultiConfigSuiteBuilder(TestCommunityCommandLogRecovery.class);
+        Map<String, String> additionalEnv = new HashMap<String, String>();
+        additionalEnv.put("COMMUNITY_COMMAND_LOG", "true");
+
+        VoltProjectBuilder project = new VoltProjectBuilder();
+        project.addLiteralSchema("CREATE TABLE KV (key INTEGER NOT NULL, value INTEGER NOT NULL, PRIMARY KEY (key));" +
+                                 "PARTITION TABLE KV ON COLUMN key;");
+        project.configureLogging(true, true, 2, 2, 64);
+
+        LocalCluster config = new LocalCluster("community_command_log.jar", 2, 1, 0, BackendTarget.NATIVE_EE_JNI,
+                LocalCluster.FailureState.ALL_RUNNING, true, false, additionalEnv);
+        config.setHasLocalServer(false);
+        assertTrue(config.compile(project));
+        builder.addServerConfig(config);
+        return builder;
+    }
+}
@@ -0,0 +1,91 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.BinaryDeque.BinaryDequeReader;
+
+/**
+ * Measures how fast a persistent binary deque is replayed through the file channel
+ * and through the shared segment mapping, with and without compression. Each
+ * configuration writes a fresh deque, reopens it so every segment but the tail is
+ * sealed, and times a single cursor polling it to the end.
+ *
+ * Usage: PBDMappedReadsMicrobench [directory] [buffers]
+ */
+public class PBDMappedReadsMicrobench {
+
+    private final static VoltLogger logger = new VoltLogger("EXPORT");
+    private final static String NONCE = "pbd_microbench";
+
+    static void run(File dir, int buffers, boolean compress, boolean mapped) throws Exception {
+        PersistentBinaryDeque pbd = new PersistentBinaryDeque(NONCE, dir, logger);
+        for (int i = 0; i < buffers; i++) {
+            pbd.offer(DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledBuffer(i)), compress);
+        }
+        pbd.close();
+
+        PBDRegularSegment.s_mappedReads = mapped;
+        pbd = new PersistentBinaryDeque(NONCE, dir, logger);
+        BinaryDequeReader reader = pbd.openForRead("replay");
+        long bytes = 0;
+        long checksum = 0;
+        final long start = System.nanoTime();
+        BBContainer cont;
+        while ((cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY)) != null) {
+            final ByteBuffer b = cont.b();
+            bytes += b.remaining();
+            checksum += b.getLong(b.limit() - 8);
+            cont.discard();
+        }
+        final long elapsed = System.nanoTime() - start;
+        pbd.closeAndDelete();
+
+        System.out.printf("%-12s through the %-7s: %,6d MB in %8.1f ms => %8.1f MB/s (checksum %d)%n",
+                compress ? "compressed" : "uncompressed", mapped ? "mapping" : "channel",
+                bytes >> 20, elapsed / 1000000.0, (bytes / 1048576.0) / (elapsed / 1000000000.0),
+                checksum);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final File dir = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"),
+                "pbd-microbench");
+        final int buffers = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        dir.mkdirs();
+
+        // Warm up before timing anything
+        run(dir, buffers / 4, false, false);
+        run(dir, buffers / 4, false, true);
+        for (boolean compress : new boolean[] { false, true }) {
+            run(dir, buffers, compress, false);
+            run(dir, buffers, compress, true);
+        }
+        dir.delete();
+    }
+}
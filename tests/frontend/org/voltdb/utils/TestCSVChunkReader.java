@@ -0,0 +1,194 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.supercsv.exception.SuperCsvException;
+import org.supercsv.io.ICsvListReader;
+import org.supercsv.prefs.CsvPreference;
+
+public class TestCSVChunkReader {
+
+    private static CSVLoader.CSVConfig config() {
+        CSVLoader.CSVConfig config = new CSVLoader.CSVConfig();
+        config.table = "BLAH";
+        return config;
+    }
+
+    private static CsvPreference preference(CSVLoader.CSVConfig config) {
+        return new CsvPreference.Builder(config.quotechar, config.separator, "\n").build();
+    }
+
+    private static List<CSVChunkReader.Chunk> readChunks(String input, CSVLoader.CSVConfig config, int chunkRows)
+            throws IOException {
+        CSVChunkReader reader = new CSVChunkReader(new BufferedReader(new StringReader(input)), config, chunkRows);
+        List<CSVChunkReader.Chunk> chunks = new ArrayList<CSVChunkReader.Chunk>();
+        CSVChunkReader.Chunk chunk;
+        while ((chunk = reader.readChunk(Long.MAX_VALUE)) != null) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Tokenize the input as the serial reader does, one string per record or error.
+     */
+    private static List<String> tokenize(String input, CSVLoader.CSVConfig config) throws IOException {
+        ICsvListReader reader = CSVFileReader.newListReader(new StringReader(input), config, preference(config),
+                config.skip, config.header);
+        if (config.header) {
+            reader.getHeader(false);
+        }
+        return tokenize(reader, 0);
+    }
+
+    private static List<String> tokenize(ICsvListReader reader, long lineOffset) throws IOException {
+        List<String> rows = new ArrayList<String>();
+        while (true) {
+            try {
+                List<String> columns = reader.read();
+                if (columns == null) {
+                    return rows;
+                }
+                rows.add((lineOffset + reader.getLineNumber()) + ":" + columns);
+            } catch (SuperCsvException e) {
+                rows.add("error");
+            }
+        }
+    }
+
+    /**
+     * Tokenize the chunks of the input as the parallel reader does and check that
+     * the records and their line numbers match those of the serial reader.
+     */
+    private static void assertChunksTokenizeAlike(String input, CSVLoader.CSVConfig config, int chunkRows)
+            throws IOException {
+        List<String> chunked = new ArrayList<String>();
+        for (CSVChunkReader.Chunk chunk : readChunks(input, config, chunkRows)) {
+            chunked.addAll(tokenize(CSVFileReader.newListReader(new StringReader(chunk.m_text), config,
+                    preference(config), 0, false), chunk.m_firstLineNumber - 1));
+        }
+        assertEquals(tokenize(input, config), chunked);
+    }
+
+    @Test
+    public void testQuotedNewlinesStayInChunk() throws Exception {
+        String input = "1,\"a\n" +
+                       "b\",x\n" +
+                       "2,\"c\"\"\n" +
+                       "\"\"d\n" +
+                       "e\",y\n" +
+                       "3,f,z\n";
+        List<CSVChunkReader.Chunk> chunks = readChunks(input, config(), 1);
+        assertEquals(3, chunks.size());
+        assertEquals("1,\"a\nb\",x\n", chunks.get(0).m_text);
+        assertEquals(1, chunks.get(0).m_firstLineNumber);
+        assertEquals("2,\"c\"\"\n\"\"d\ne\",y\n", chunks.get(1).m_text);
+        assertEquals(3, chunks.get(1).m_firstLineNumber);
+        assertEquals("3,f,z\n", chunks.get(2).m_text);
+        assertEquals(6, chunks.get(2).m_firstLineNumber);
+        assertChunksTokenizeAlike(input, config(), 1);
+    }
+
+    @Test
+    public void testEscapedQuoteDoesNotOpenQuotes() throws Exception {
+        String input = "1,\\\"a,x\n" +
+                       "2,b,y\n" +
+                       "3,\\N,z\n";
+        List<CSVChunkReader.Chunk> chunks = readChunks(input, config(), 1);
+        assertEquals(3, chunks.size());
+        assertChunksTokenizeAlike(input, config(), 1);
+    }
+
+    @Test
+    public void testSkipAndHeader() throws Exception {
+        CSVLoader.CSVConfig config = config();
+        config.skip = 1;
+        String input = "skipped\n" +
+                       "\n" +
+                       "1,a\n" +
+                       "2,b\n";
+        List<CSVChunkReader.Chunk> chunks = readChunks(input, config, 10);
+        assertEquals(1, chunks.size());
+        assertEquals(2, chunks.get(0).m_firstLineNumber);
+        assertEquals(2, chunks.get(0).m_records);
+        assertChunksTokenizeAlike(input, config, 1);
+
+        config.header = true;
+        input = "ID,NAME\n" +
+                "skipped\n" +
+                "1,\"a\n" +
+                "\"\n";
+        CSVChunkReader reader = new CSVChunkReader(new BufferedReader(new StringReader(input)), config, 10);
+        assertEquals("ID,NAME", reader.readHeader());
+        CSVChunkReader.Chunk chunk = reader.readChunk(Long.MAX_VALUE);
+        assertEquals(3, chunk.m_firstLineNumber);
+        assertEquals(1, chunk.m_records);
+        assertNull(reader.readChunk(Long.MAX_VALUE));
+        assertChunksTokenizeAlike(input, config, 1);
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        String input = "1\n2\n3\n4\n5\n";
+        CSVChunkReader reader = new CSVChunkReader(new BufferedReader(new StringReader(input)), config(), 2);
+        assertEquals("1\n2\n", reader.readChunk(3).m_text);
+        assertEquals("3\n", reader.readChunk(1).m_text);
+        assertEquals(3, reader.getLineNumber());
+    }
+
+    @Test
+    public void testRejectedRecordsEndWhereTheTokenizerGivesUp() throws Exception {
+        CSVLoader.CSVConfig config = config();
+        config.strictquotes = true;
+        // the tokenizer rejects the first line before it sees the quote
+        String input = "\"1\",a,\"b\n" +
+                       "\"2\",\"c\"\n";
+        assertEquals(2, readChunks(input, config, 1).size());
+        assertChunksTokenizeAlike(input, config, 1);
+
+        config = config();
+        config.columnsizelimit = 4;
+        input = "1,\"abcdef\n" +
+                "2,x\n" +
+                "3,y\n";
+        assertEquals(3, readChunks(input, config, 1).size());
+        assertChunksTokenizeAlike(input, config, 1);
+
+        // an unterminated quote runs to the end of the input
+        input = "1,\"a\n" +
+                "2,b\n";
+        assertEquals(1, readChunks(input, config(), 1).size());
+        assertChunksTokenizeAlike(input, config(), 1);
+    }
+}
@@ -0,0 +1,226 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.BinaryDeque.BinaryDequeReader;
+import org.voltdb.utils.BinaryDeque.OutputContainerFactory;
+
+public class TestPBDMappedReads {
+
+    private final static VoltLogger logger = new VoltLogger("EXPORT");
+
+    private PersistentBinaryDeque m_pbd;
+    private boolean m_savedMappedReads;
+
+    private void offerAlternating(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            // odd entries are stored uncompressed and come back as slices of the mapping
+            m_pbd.offer(DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledBuffer(i)), i % 2 == 0);
+        }
+    }
+
+    private static void assertEntry(int i, BBContainer cont) {
+        assertEquals(TestPersistentBinaryDeque.getFilledBuffer(i), cont.b());
+    }
+
+    @Test
+    public void testCursorsShareMapping() throws Exception {
+        final int numBuffers = 100;
+        offerAlternating(numBuffers);
+        // everything but the tail segment is read through a mapping
+        final int sealedSegments = TestPersistentBinaryDeque.getSortedDirectoryListing().size() - 1;
+        assertTrue(sealedSegments > 0);
+        final int createdBefore = PBDRegularSegment.s_mappingsCreated.get();
+        final int liveBefore = PBDRegularSegment.s_liveMappings.get();
+        BinaryDequeReader first = m_pbd.openForRead("first");
+        BinaryDequeReader second = m_pbd.openForRead("second");
+
+        int slices = 0;
+        for (int i = 0; i < numBuffers; i++) {
+            BBContainer a = first.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            BBContainer b = second.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertEntry(i, a);
+            assertEntry(i, b);
+            if (i == 1) {
+                // both cursors hold a slice of the first segment, there is still only one mapping
+                assertTrue(a.b().isReadOnly());
+                assertEquals(1, PBDRegularSegment.s_mappingsCreated.get() - createdBefore);
+                assertEquals(1, PBDRegularSegment.s_liveMappings.get() - liveBefore);
+            }
+            if (a.b().isReadOnly()) {
+                assertTrue(i % 2 == 1);
+                assertTrue(b.b().isReadOnly());
+                slices++;
+            }
+            a.discard();
+            b.discard();
+        }
+        assertTrue(slices > 0);
+        // one mapping per segment, not one per cursor, and all of them are gone
+        assertEquals(sealedSegments, PBDRegularSegment.s_mappingsCreated.get() - createdBefore);
+        assertEquals(liveBefore, PBDRegularSegment.s_liveMappings.get());
+        assertNull(first.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+        assertTrue(first.isEmpty());
+        assertTrue(second.isEmpty());
+        assertEquals(1, TestPersistentBinaryDeque.getSortedDirectoryListing().size());
+    }
+
+    @Test
+    public void testSlicesOutliveSegment() throws Exception {
+        final int numBuffers = 64;
+        offerAlternating(numBuffers);
+        final int liveAtStart = PBDRegularSegment.s_liveMappings.get();
+        BinaryDequeReader reader = m_pbd.openForRead("reader");
+
+        List<BBContainer> held = new ArrayList<BBContainer>();
+        for (int i = 0; i < numBuffers; i++) {
+            held.add(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+        }
+        final int liveBefore = PBDRegularSegment.s_liveMappings.get();
+        m_pbd.close();
+
+        // the segments are closed, but the mappings stay until the last slice is discarded
+        assertEquals(liveBefore, PBDRegularSegment.s_liveMappings.get());
+        assertTrue(liveBefore > liveAtStart);
+        for (int i = 0; i < numBuffers; i++) {
+            assertEntry(i, held.get(i));
+            held.get(i).discard();
+        }
+        assertEquals(liveAtStart, PBDRegularSegment.s_liveMappings.get());
+    }
+
+    @Test
+    public void testReopenAfterMappedReads() throws Exception {
+        final int numBuffers = 64;
+        offerAlternating(numBuffers);
+        BinaryDequeReader reader = m_pbd.openForRead("reader");
+        for (int i = 0; i < numBuffers / 2; i++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertEntry(i, cont);
+            cont.discard();
+        }
+        m_pbd.close();
+
+        m_pbd = new PersistentBinaryDeque(TestPersistentBinaryDeque.TEST_NONCE, TestPersistentBinaryDeque.TEST_DIR, logger);
+        reader = m_pbd.openForRead("reader");
+        assertFalse(reader.isEmpty());
+        BBContainer cont;
+        int count = 0;
+        while ((cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY)) != null) {
+            cont.discard();
+            count++;
+        }
+        // whole segments that were read and discarded are gone, the rest is replayed
+        assertTrue(count >= numBuffers / 2 && count <= numBuffers);
+    }
+
+    @Test
+    public void testCorruptCompressedEntryDiscardsContainer() throws Exception {
+        offerAlternating(64);
+        assertTrue(TestPersistentBinaryDeque.getSortedDirectoryListing().size() > 1);
+
+        // overwrite the body of the first entry, which is compressed, after its length prefix
+        final File segment = new File(TestPersistentBinaryDeque.TEST_DIR,
+                TestPersistentBinaryDeque.getSortedDirectoryListing().first());
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            long pos = PBDSegment.SEGMENT_HEADER_BYTES + PBDSegment.OBJECT_HEADER_BYTES;
+            raf.seek(pos);
+            while ((raf.readByte() & 0x80) != 0) {
+                pos++;
+            }
+            raf.seek(pos + 1);
+            final byte[] garbage = new byte[256];
+            Arrays.fill(garbage, (byte)0xFF);
+            raf.write(garbage);
+        } finally {
+            raf.close();
+        }
+
+        final AtomicInteger outstanding = new AtomicInteger();
+        OutputContainerFactory factory = new OutputContainerFactory() {
+            @Override
+            public BBContainer getContainer(int minimumSize) {
+                final BBContainer cont = DBBPool.allocateDirect(minimumSize);
+                outstanding.incrementAndGet();
+                return new BBContainer(cont.b()) {
+                    @Override
+                    public void discard() {
+                        checkDoubleFree();
+                        outstanding.decrementAndGet();
+                        cont.discard();
+                    }
+                };
+            }
+        };
+        BinaryDequeReader reader = m_pbd.openForRead("reader");
+        try {
+            reader.poll(factory);
+            fail("Decompressing a corrupt entry should fail");
+        } catch (IOException expected) {}
+        assertEquals(0, outstanding.get());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        m_savedMappedReads = PBDRegularSegment.s_mappedReads;
+        PBDRegularSegment.s_mappedReads = true;
+        TestPersistentBinaryDeque.setupTestDir();
+        m_pbd = new PersistentBinaryDeque(TestPersistentBinaryDeque.TEST_NONCE, TestPersistentBinaryDeque.TEST_DIR, logger);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        PBDRegularSegment.s_mappedReads = m_savedMappedReads;
+        try {
+            m_pbd.close();
+        } catch (Exception e) {}
+        try {
+            TestPersistentBinaryDeque.tearDownTestDir();
+        } finally {
+            m_pbd = null;
+        }
+        System.gc();
+        System.runFinalization();
+    }
+}